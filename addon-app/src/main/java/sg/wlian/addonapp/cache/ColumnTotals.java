@@ -0,0 +1,24 @@
+package sg.wlian.addonapp.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Spend and expense count per group, in cents, from one pass over a user's expense columns.
+ * {@code totalCents} and {@code totalCount} cover every expense in the date range, including those
+ * that fall in no group (e.g. expenses without a category when grouping by category).
+ */
+@Getter
+@AllArgsConstructor
+public class ColumnTotals {
+    private final long[] cents;
+    private final long[] counts;
+    // For totals by category, the category id of each group
+    private final Long[] categoryIds;
+    private final long totalCents;
+    private final long totalCount;
+
+    public int size() {
+        return cents.length;
+    }
+}
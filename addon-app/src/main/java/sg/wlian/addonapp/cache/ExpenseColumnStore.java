@@ -0,0 +1,503 @@
+package sg.wlian.addonapp.cache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import sg.wlian.addonapp.entity.PaymentMethod;
+import sg.wlian.addonapp.event.CategoryChangedEvent;
+import sg.wlian.addonapp.event.ExpenseChange;
+import sg.wlian.addonapp.event.ExpenseSnapshot;
+import sg.wlian.addonapp.event.ExpensesChangedEvent;
+import sg.wlian.addonapp.invalidation.InvalidationEntity;
+import sg.wlian.addonapp.invalidation.InvalidationHandler;
+import sg.wlian.addonapp.invalidation.InvalidationMessage;
+import sg.wlian.addonapp.ledger.ExpenseLedger;
+import sg.wlian.addonapp.ledger.LedgerSegment;
+import sg.wlian.addonapp.repository.ExpenseRepository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-user columnar copy of the fields reports aggregate over, held in memory.
+ *
+ * <p>Each expense is one slot in four primitive arrays: epoch day ({@code int}), amount in cents
+ * ({@code long}), category ({@code short} index into the user's category ids, -1 for none) and
+ * payment method ({@code byte} ordinal, -1 for none), 15 bytes in all. Arrays grow by a quarter, so
+ * they use under 19 bytes per expense. Aggregations are single loops over the arrays with no
+ * allocation per expense; users with more than {@code report.columns.parallel-threshold} expenses are
+ * split across the common fork-join pool.
+ *
+ * <p>A user's columns are loaded the first time they are read, from the {@link ExpenseLedger} segments
+ * for compacted months and with one query for the rest. After that, expense writes are applied through
+ * {@link ExpensesChangedEvent}: new amounts are appended, and a removed amount takes out any slot with
+ * the same values, which leaves every aggregate unchanged. Loads are checked against the
+ * {@link ExpenseWriteTracker} and repeated if one of the user's writes committed while they read, so a
+ * write is neither missed nor counted twice; columns are still reloaded once they are
+ * {@code report.columns.max-age-minutes} old. Changes made on another node and category changes
+ * evict the user. Users that have not been read recently are evicted, least recently used first,
+ * once more than {@code report.columns.max-users} are held.
+ *
+ * <p>Changes are applied after the ledger drops stale segments and before the {@link ReportCache} drops
+ * its entries, so a report recomputed right after the invalidation already sees them.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class ExpenseColumnStore implements InvalidationHandler {
+
+    private static final PaymentMethod[] PAYMENT_METHODS = PaymentMethod.values();
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private ExpenseLedger ledger;
+
+    @Autowired
+    private ExpenseWriteTracker writeTracker;
+
+    @Value("${report.columns.parallel-threshold:50000}")
+    private int parallelThreshold = 50000;
+
+    @Value("${report.columns.max-users:20000}")
+    private int maxUsers = 20000;
+
+    @Value("${report.columns.max-age-minutes:60}")
+    private long maxAgeMinutes = 60;
+
+    // After the last attempt the columns are used once and loaded again on the next read
+    @Value("${report.columns.max-load-attempts:3}")
+    private int maxLoadAttempts = 3;
+
+    private final ConcurrentHashMap<Long, Columns> users = new ConcurrentHashMap<>();
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final AtomicLong ticks = new AtomicLong();
+
+    private enum Grouping {
+        DATE,
+        CATEGORY,
+        PAYMENT_METHOD,
+        AMOUNT
+    }
+
+    static final class Columns {
+        // Held by the reader loading the columns, so the others wait for it rather than load too
+        final ReentrantLock loadLock = new ReentrantLock();
+        // Guards the arrays; writes are applied under it
+        final ReentrantLock lock = new ReentrantLock();
+        // Set, with the arrays, by the first reader; until then the slot only holds the locks
+        volatile boolean loaded;
+        // Set when a write raced every load attempt, so the next read loads again
+        volatile boolean reloadOnRead;
+        volatile long loadedAtNanos;
+        volatile long lastAccess;
+        int size;
+        int[] days;
+        long[] cents;
+        short[] categories;
+        byte[] methods;
+        final List<Long> categoryIds = new ArrayList<>();
+        final Map<Long, Short> categoryIndex = new HashMap<>();
+
+        void allocate(int capacity) {
+            days = new int[capacity];
+            cents = new long[capacity];
+            categories = new short[capacity];
+            methods = new byte[capacity];
+        }
+
+        void add(int day, long amountCents, Long categoryId, PaymentMethod method) {
+            if (size == days.length) {
+                int capacity = Math.max(16, size + (size >> 2));
+                days = Arrays.copyOf(days, capacity);
+                cents = Arrays.copyOf(cents, capacity);
+                categories = Arrays.copyOf(categories, capacity);
+                methods = Arrays.copyOf(methods, capacity);
+            }
+            days[size] = day;
+            cents[size] = amountCents;
+            categories[size] = categoryIndex(categoryId, true);
+            methods[size] = method != null ? (byte) method.ordinal() : -1;
+            size++;
+        }
+
+        void remove(int day, long amountCents, Long categoryId, PaymentMethod method) {
+            short category = categoryIndex(categoryId, false);
+            byte ordinal = method != null ? (byte) method.ordinal() : -1;
+            for (int i = size - 1; i >= 0; i--) {
+                if (days[i] == day && cents[i] == amountCents && categories[i] == category && methods[i] == ordinal) {
+                    int last = --size;
+                    days[i] = days[last];
+                    cents[i] = cents[last];
+                    categories[i] = categories[last];
+                    methods[i] = methods[last];
+                    return;
+                }
+            }
+        }
+
+        private short categoryIndex(Long categoryId, boolean create) {
+            if (categoryId == null) {
+                return -1;
+            }
+            Short index = categoryIndex.get(categoryId);
+            if (index == null && create) {
+                if (categoryIds.size() > Short.MAX_VALUE) {
+                    throw new IllegalStateException("Too many categories to hold in expense columns");
+                }
+                index = (short) categoryIds.size();
+                categoryIds.add(categoryId);
+                categoryIndex.put(categoryId, index);
+            }
+            return index != null ? index : -2;
+        }
+    }
+
+    /**
+     * Spend per consecutive date bucket. {@code bucketStarts} must be ascending; the last bucket ends
+     * on {@code end}.
+     */
+    public ColumnTotals byDate(Long userId, List<LocalDate> bucketStarts, LocalDate end) {
+        int[] starts = new int[bucketStarts.size()];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = (int) bucketStarts.get(i).toEpochDay();
+        }
+        return aggregate(userId, bucketStarts.get(0), end, Grouping.DATE, starts, null);
+    }
+
+    /**
+     * Spend per category; expenses without a category are only counted in the totals.
+     */
+    public ColumnTotals byCategory(Long userId, LocalDate from, LocalDate to) {
+        return aggregate(userId, from, to, Grouping.CATEGORY, null, null);
+    }
+
+    /**
+     * Spend per payment method, indexed by ordinal; expenses without one are only counted in the totals.
+     */
+    public ColumnTotals byPaymentMethod(Long userId, LocalDate from, LocalDate to) {
+        return aggregate(userId, from, to, Grouping.PAYMENT_METHOD, null, null);
+    }
+
+    /**
+     * Spend per amount bucket. Bucket {@code i} holds amounts up to {@code upperBoundsCents[i]}
+     * (inclusive) and above the previous bound; the last bucket holds everything above the last bound.
+     */
+    public ColumnTotals byAmount(Long userId, LocalDate from, LocalDate to, long[] upperBoundsCents) {
+        return aggregate(userId, from, to, Grouping.AMOUNT, null, upperBoundsCents);
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onExpensesChanged(ExpensesChangedEvent event) {
+        for (ExpenseChange change : event.getChanges()) {
+            apply(change.getBefore(), false);
+            apply(change.getAfter(), true);
+        }
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        // Deleting a category uncategorizes its expenses without an expense event
+        evict(event.getUserId());
+    }
+
+    @Override
+    public void onInvalidation(InvalidationMessage message) {
+        if (message.getEntity() == InvalidationEntity.EXPENSE || message.getEntity() == InvalidationEntity.CATEGORY) {
+            evict(message.getUserId());
+        }
+    }
+
+    public int size() {
+        return users.size();
+    }
+
+    public void evict(Long userId) {
+        users.remove(userId);
+    }
+
+    private ColumnTotals aggregate(Long userId, LocalDate from, LocalDate to, Grouping grouping,
+                                   int[] dayStarts, long[] amountBounds) {
+        Columns columns = columns(userId);
+        if (!columns.loaded) {
+            columns.loadLock.lock();
+            try {
+                if (!columns.loaded) {
+                    load(userId, columns);
+                }
+            } finally {
+                columns.loadLock.unlock();
+            }
+        }
+        columns.lock.lock();
+        try {
+            int groups;
+            switch (grouping) {
+                case DATE:
+                    groups = dayStarts.length;
+                    break;
+                case CATEGORY:
+                    groups = columns.categoryIds.size();
+                    break;
+                case PAYMENT_METHOD:
+                    groups = PAYMENT_METHODS.length;
+                    break;
+                default:
+                    groups = amountBounds.length + 1;
+            }
+            Scan scan = new Scan(columns, (int) from.toEpochDay(), (int) to.toEpochDay(), grouping, groups,
+                    dayStarts, amountBounds, 0, columns.size);
+            long[] result = columns.size > parallelThreshold ? ForkJoinPool.commonPool().invoke(scan) : scan.scan();
+
+            Long[] categoryIds = grouping == Grouping.CATEGORY ? columns.categoryIds.toArray(new Long[0]) : null;
+            return new ColumnTotals(Arrays.copyOfRange(result, 0, groups), Arrays.copyOfRange(result, groups, 2 * groups),
+                    categoryIds, result[2 * groups], result[2 * groups + 1]);
+        } finally {
+            columns.lock.unlock();
+        }
+    }
+
+    /**
+     * One pass over a range of slots. The result holds the cents of each group, then the count of each
+     * group, then the total cents and total count of the date range.
+     */
+    private final class Scan extends RecursiveTask<long[]> {
+        private final Columns columns;
+        private final int fromDay;
+        private final int toDay;
+        private final Grouping grouping;
+        private final int groups;
+        private final int[] dayStarts;
+        private final long[] amountBounds;
+        private final int start;
+        private final int end;
+
+        Scan(Columns columns, int fromDay, int toDay, Grouping grouping, int groups, int[] dayStarts,
+             long[] amountBounds, int start, int end) {
+            this.columns = columns;
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+            this.grouping = grouping;
+            this.groups = groups;
+            this.dayStarts = dayStarts;
+            this.amountBounds = amountBounds;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (end - start <= Math.max(1, parallelThreshold / 4)) {
+                return scan();
+            }
+            int middle = (start + end) >>> 1;
+            Scan left = new Scan(columns, fromDay, toDay, grouping, groups, dayStarts, amountBounds, start, middle);
+            Scan right = new Scan(columns, fromDay, toDay, grouping, groups, dayStarts, amountBounds, middle, end);
+            left.fork();
+            long[] result = right.compute();
+            long[] other = left.join();
+            for (int i = 0; i < result.length; i++) {
+                result[i] += other[i];
+            }
+            return result;
+        }
+
+        long[] scan() {
+            long[] result = new long[2 * groups + 2];
+            int[] days = columns.days;
+            long[] cents = columns.cents;
+            short[] categories = columns.categories;
+            byte[] methods = columns.methods;
+            long totalCents = 0;
+            long totalCount = 0;
+            for (int i = start; i < end; i++) {
+                int day = days[i];
+                if (day < fromDay || day > toDay) {
+                    continue;
+                }
+                long amount = cents[i];
+                totalCents += amount;
+                totalCount++;
+                int group;
+                switch (grouping) {
+                    case DATE:
+                        group = bucket(dayStarts, day);
+                        break;
+                    case CATEGORY:
+                        group = categories[i];
+                        break;
+                    case PAYMENT_METHOD:
+                        group = methods[i];
+                        break;
+                    default:
+                        group = bucket(amountBounds, amount);
+                }
+                if (group >= 0) {
+                    result[group] += amount;
+                    result[groups + group]++;
+                }
+            }
+            result[2 * groups] = totalCents;
+            result[2 * groups + 1] = totalCount;
+            return result;
+        }
+    }
+
+    // Index of the last start at or before the day
+    private static int bucket(int[] starts, int day) {
+        int index = Arrays.binarySearch(starts, day);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    // Index of the first bound at or above the amount, or the overflow bucket after the last bound
+    private static int bucket(long[] upperBounds, long amount) {
+        int index = Arrays.binarySearch(upperBounds, amount);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private Columns columns(Long userId) {
+        Columns columns = users.get(userId);
+        if (columns != null && columns.loaded && (columns.reloadOnRead
+                || System.nanoTime() - columns.loadedAtNanos > TimeUnit.MINUTES.toNanos(maxAgeMinutes))) {
+            users.remove(userId, columns);
+            columns = null;
+        }
+        if (columns == null) {
+            // Concurrent first readers share one slot, and the first to take its lock loads it
+            columns = users.computeIfAbsent(userId, id -> new Columns());
+            columns.lastAccess = ticks.incrementAndGet();
+            evictIfFull();
+        } else {
+            columns.lastAccess = ticks.incrementAndGet();
+        }
+        return columns;
+    }
+
+    // Called with the columns' load lock held
+    private void load(Long userId, Columns columns) {
+        for (int attempt = 1; ; attempt++) {
+            long version = writeTracker.quiescentVersion(userId);
+            Columns fresh = read(userId);
+            columns.lock.lock();
+            try {
+                boolean exact = writeTracker.unchangedSince(userId, version);
+                if (!exact && attempt < maxLoadAttempts) {
+                    continue;
+                }
+                columns.size = fresh.size;
+                columns.days = fresh.days;
+                columns.cents = fresh.cents;
+                columns.categories = fresh.categories;
+                columns.methods = fresh.methods;
+                columns.categoryIds.addAll(fresh.categoryIds);
+                columns.categoryIndex.putAll(fresh.categoryIndex);
+                columns.reloadOnRead = !exact;
+                columns.loadedAtNanos = System.nanoTime();
+                columns.loaded = true;
+                return;
+            } finally {
+                columns.lock.unlock();
+            }
+        }
+    }
+
+    private Columns read(Long userId) {
+        Columns columns = new Columns();
+        // Compacted months are read from the ledger, the rest from the database
+        List<LedgerSegment> segments = ledger.segments(userId);
+        List<Object[]> rows;
+        int ledgerRows = 0;
+        if (segments.isEmpty()) {
+            rows = expenseRepository.findReportColumnsByUserId(userId);
+        } else {
+            LocalDate through = LocalDate.ofEpochDay(segments.get(segments.size() - 1).getThroughDay());
+            rows = expenseRepository.findReportColumnsByUserIdAfter(userId, through);
+            for (LedgerSegment segment : segments) {
+                ledgerRows += segment.getRecordCount();
+            }
+        }
+        // Sized exactly so a loaded user carries no spare capacity
+        columns.allocate(ledgerRows + rows.size());
+        for (LedgerSegment segment : segments) {
+            segment.forEach(columns::add);
+        }
+        for (Object[] row : rows) {
+            // [date, amount, categoryId, paymentMethod]
+            columns.add((int) ((LocalDate) row[0]).toEpochDay(), toCents((BigDecimal) row[1]),
+                    (Long) row[2], (PaymentMethod) row[3]);
+        }
+        return columns;
+    }
+
+    private void apply(ExpenseSnapshot snapshot, boolean added) {
+        if (snapshot == null || snapshot.getUserId() == null || snapshot.getDate() == null
+                || snapshot.getAmount() == null) {
+            return;
+        }
+        Columns columns = users.get(snapshot.getUserId());
+        if (columns == null) {
+            return;
+        }
+        int day = (int) snapshot.getDate().toEpochDay();
+        long cents = toCents(snapshot.getAmount());
+        columns.lock.lock();
+        try {
+            if (!columns.loaded) {
+                return;
+            }
+            if (added) {
+                columns.add(day, cents, snapshot.getCategoryId(), snapshot.getPaymentMethod());
+            } else {
+                columns.remove(day, cents, snapshot.getCategoryId(), snapshot.getPaymentMethod());
+            }
+        } finally {
+            columns.lock.unlock();
+        }
+    }
+
+    private void evictIfFull() {
+        if (users.size() <= maxUsers || !evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            int excess = users.size() - maxUsers;
+            if (excess <= 0) {
+                return;
+            }
+            // Drop the least recently read tenth (at least the excess) so eviction runs rarely
+            int toEvict = Math.max(excess, maxUsers / 10);
+            users.entrySet().stream()
+                    .sorted(Comparator.comparingLong(e -> e.getValue().lastAccess))
+                    .limit(toEvict)
+                    .map(Map.Entry::getKey)
+                    .toList()
+                    .forEach(users::remove);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+}
@@ -0,0 +1,64 @@
+package sg.wlian.addonapp.cache;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import sg.wlian.addonapp.event.ExpensesChangedEvent;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts expense writes that are committing, so an in-memory copy built from the database can tell
+ * whether a write raced its reads.
+ *
+ * <p>A write is counted as started just before its transaction commits, and as finished once the
+ * transaction has completed, after the after-commit listeners have applied it. A copy takes
+ * {@link #quiescentVersion} before reading and checks {@link #unchangedSince} once it is installed,
+ * under the same lock its listener applies changes with. If nothing started in between, every write
+ * its reads could have seen had already been applied, and every later write is applied to it; if
+ * something did, it is built again. Counters are kept per stripe of users, so a write by another
+ * user in the same stripe only costs a spurious rebuild.
+ */
+@Component
+public class ExpenseWriteTracker {
+
+    private static final int STRIPES = 256;
+
+    private final AtomicLongArray started = new AtomicLongArray(STRIPES);
+
+    private final AtomicLongArray finished = new AtomicLongArray(STRIPES);
+
+    /**
+     * Version to build the user's copy against, or -1 while one of their writes is between commit and
+     * its listeners, in which case the copy cannot be verified.
+     */
+    public long quiescentVersion(Long userId) {
+        int stripe = stripe(userId);
+        // Finished first: it never passes started, so equal values mean nothing was in flight
+        long done = finished.get(stripe);
+        long version = started.get(stripe);
+        return version == done ? version : -1;
+    }
+
+    /**
+     * Whether no write of the user has started since {@code version} was taken.
+     */
+    public boolean unchangedSince(Long userId, long version) {
+        return version >= 0 && started.get(stripe(userId)) == version;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onCommitting(ExpensesChangedEvent event) {
+        event.getAffectedMonthsByUser().keySet().forEach(userId -> started.incrementAndGet(stripe(userId)));
+    }
+
+    // Also runs on rollback, so a failed commit does not leave its user in flight
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION)
+    public void onCompleted(ExpensesChangedEvent event) {
+        event.getAffectedMonthsByUser().keySet().forEach(userId -> finished.incrementAndGet(stripe(userId)));
+    }
+
+    private static int stripe(Long userId) {
+        return Long.hashCode(userId) & (STRIPES - 1);
+    }
+}
@@ -0,0 +1,272 @@
+package sg.wlian.addonapp.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import sg.wlian.addonapp.dto.ReportCacheStatsDTO;
+import sg.wlian.addonapp.event.CategoryChangedEvent;
+import sg.wlian.addonapp.event.ExpensesChangedEvent;
+import sg.wlian.addonapp.invalidation.InvalidationEntity;
+import sg.wlian.addonapp.invalidation.InvalidationHandler;
+import sg.wlian.addonapp.invalidation.InvalidationMessage;
+
+import java.time.Clock;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * In-memory cache of computed reports.
+ *
+ * <p>Entries whose range ends before the current month can only change if an expense in that range
+ * is written, so they never expire and are dropped only by invalidation. Entries that include the
+ * current month (or later) also expire after a short TTL. Invalidation is per user and month: an
+ * expense change evicts only that user's entries whose range covers the month of the change.
+ *
+ * <p>The cache is bounded and evicts least-recently-used entries. A plain lock is used rather than
+ * {@code synchronized} so virtual threads are never pinned while waiting on it.
+ *
+ * <p>Changes made on other nodes arrive through the invalidation bus and are applied the same way.
+ */
+@Component
+public class ReportCache implements InvalidationHandler {
+
+    @Value("${report.cache.max-entries:10000}")
+    private int maxEntries = 10000;
+
+    @Value("${report.cache.current-ttl-seconds:60}")
+    private long currentTtlSeconds = 60;
+
+    private final Clock clock;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final LinkedHashMap<ReportCacheKey, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+    // Secondary index so invalidating one user does not scan every entry
+    private final Map<Long, Set<ReportCacheKey>> keysByUser = new HashMap<>();
+
+    // Set from a shared counter on every invalidation of a user; a result computed across one is not
+    // stored. Only the most recently invalidated users are tracked, at most as many as there are entries;
+    // the others share forgottenGeneration, which is at least any generation dropped from the map, so a
+    // user being forgotten still counts as a change for results computed before it.
+    private final LinkedHashMap<Long, Long> generations = new LinkedHashMap<>(256, 0.75f, true);
+    private long lastGeneration;
+    private long forgottenGeneration;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ReportCache() {
+        this(Clock.systemDefaultZone());
+    }
+
+    ReportCache(Clock clock) {
+        this.clock = clock;
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final long expiresAtNanos;
+
+        private Entry(Object value, long expiresAtNanos) {
+            this.value = value;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+
+    /**
+     * Returns the cached value for the key, or computes and caches it. The loader runs outside the lock.
+     */
+    public <T> T get(ReportCacheKey key, Supplier<T> loader) {
+        T cached = getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = generation(key.getUserId());
+        T value = loader.get();
+        put(key, value, generation);
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T getIfPresent(ReportCacheKey key) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAtNanos <= System.nanoTime()) {
+                remove(key);
+                entry = null;
+            }
+            if (entry == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            return (T) entry.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long generation(Long userId) {
+        lock.lock();
+        try {
+            return currentGeneration(userId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stores a value computed while the user's generation was {@code generation}. If the user has been
+     * invalidated since, the value may already be stale and is not stored.
+     */
+    public void put(ReportCacheKey key, Object value, long generation) {
+        if (value == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (currentGeneration(key.getUserId()) != generation) {
+                return;
+            }
+            entries.put(key, new Entry(value, expiryFor(key)));
+            keysByUser.computeIfAbsent(key.getUserId(), id -> new HashSet<>()).add(key);
+            evictOverflow();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(Long userId, YearMonth month) {
+        lock.lock();
+        try {
+            nextGeneration(userId);
+            Set<ReportCacheKey> keys = keysByUser.get(userId);
+            if (keys == null) {
+                return;
+            }
+            Iterator<ReportCacheKey> it = keys.iterator();
+            while (it.hasNext()) {
+                ReportCacheKey key = it.next();
+                if (key.covers(month)) {
+                    entries.remove(key);
+                    it.remove();
+                    invalidations.incrementAndGet();
+                }
+            }
+            if (keys.isEmpty()) {
+                keysByUser.remove(userId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateUser(Long userId) {
+        lock.lock();
+        try {
+            nextGeneration(userId);
+            Set<ReportCacheKey> keys = keysByUser.remove(userId);
+            if (keys != null) {
+                keys.forEach(entries::remove);
+                invalidations.addAndGet(keys.size());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onExpensesChanged(ExpensesChangedEvent event) {
+        event.getAffectedMonthsByUser().forEach((userId, months) -> months.forEach(month -> invalidate(userId, month)));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        // Reports carry category names and colours
+        invalidateUser(event.getUserId());
+    }
+
+    @Override
+    public void onInvalidation(InvalidationMessage message) {
+        if (message.getEntity() == InvalidationEntity.EXPENSE && message.getKey() != null) {
+            invalidate(message.getUserId(), YearMonth.parse(message.getKey()));
+        } else if (message.getEntity() != InvalidationEntity.BUDGET) {
+            invalidateUser(message.getUserId());
+        }
+    }
+
+    public ReportCacheStatsDTO getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long total = hitCount + missCount;
+        int size;
+        lock.lock();
+        try {
+            size = entries.size();
+        } finally {
+            lock.unlock();
+        }
+        return new ReportCacheStatsDTO(size, maxEntries, hitCount, missCount, evictions.get(), invalidations.get(),
+                total == 0 ? 0.0 : (double) hitCount / total);
+    }
+
+    private long expiryFor(ReportCacheKey key) {
+        YearMonth currentMonth = YearMonth.now(clock);
+        if (key.getTo().isBefore(currentMonth.atDay(1))) {
+            return Long.MAX_VALUE;
+        }
+        return System.nanoTime() + TimeUnit.SECONDS.toNanos(currentTtlSeconds);
+    }
+
+    private long currentGeneration(Long userId) {
+        Long generation = generations.get(userId);
+        return generation != null ? generation : forgottenGeneration;
+    }
+
+    private void nextGeneration(Long userId) {
+        generations.put(userId, ++lastGeneration);
+        Iterator<Map.Entry<Long, Long>> it = generations.entrySet().iterator();
+        while (generations.size() > maxEntries && it.hasNext()) {
+            forgottenGeneration = Math.max(forgottenGeneration, it.next().getValue());
+            it.remove();
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<ReportCacheKey, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && it.hasNext()) {
+            ReportCacheKey eldest = it.next().getKey();
+            it.remove();
+            removeFromIndex(eldest);
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void remove(ReportCacheKey key) {
+        entries.remove(key);
+        removeFromIndex(key);
+    }
+
+    private void removeFromIndex(ReportCacheKey key) {
+        Set<ReportCacheKey> keys = keysByUser.get(key.getUserId());
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                keysByUser.remove(key.getUserId());
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package sg.wlian.addonapp.cache;
+
+import lombok.Value;
+import sg.wlian.addonapp.dto.ReportKind;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * Identifies a cached report: who it is for, what kind, and the date range it covers.
+ * {@code params} carries anything else that shapes the result (e.g. the week count).
+ */
+@Value
+public class ReportCacheKey {
+    Long userId;
+    ReportKind kind;
+    LocalDate from;
+    LocalDate to;
+    String params;
+
+    public boolean covers(YearMonth month) {
+        return !from.isAfter(month.atEndOfMonth()) && !to.isBefore(month.atDay(1));
+    }
+}
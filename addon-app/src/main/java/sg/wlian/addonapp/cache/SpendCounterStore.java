@@ -0,0 +1,326 @@
+package sg.wlian.addonapp.cache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import sg.wlian.addonapp.event.ExpenseChange;
+import sg.wlian.addonapp.event.ExpenseSnapshot;
+import sg.wlian.addonapp.event.ExpensesChangedEvent;
+import sg.wlian.addonapp.invalidation.InvalidationEntity;
+import sg.wlian.addonapp.invalidation.InvalidationHandler;
+import sg.wlian.addonapp.invalidation.InvalidationMessage;
+import sg.wlian.addonapp.repository.ExpenseRepository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Running spend totals per (user, category, month), in cents.
+ *
+ * <p>A user's month is seeded with one aggregate query the first time it is read; after that reads
+ * are plain map lookups with no database call. Every expense write adjusts the totals through
+ * {@link ExpensesChangedEvent}. Changes to months that have not been seeded are ignored, because the
+ * seed query will include them. Only the current and previous month are held, which covers monthly
+ * budgets; older months are summed in the database on every read, and are dropped by
+ * {@link #reconcile()} once the month rolls over.
+ *
+ * <p>The totals can be slightly off if a write commits while its month is being seeded, or if an
+ * expense is changed outside {@code ExpenseService}. {@link #reconcile()} recomputes every seeded
+ * month from the database, which bounds how long such drift can last. Users that have not been read
+ * recently are evicted, least recently used first, once more than {@code spend.counters.max-users}
+ * are held. Expenses without a category are counted under category id {@value #UNCATEGORIZED}.
+ *
+ * <p>Expense changes made on another node arrive through the invalidation bus. They carry no amounts,
+ * so the user is evicted and reseeded on the next read.
+ */
+@Component
+public class SpendCounterStore implements InvalidationHandler {
+
+    public static final long UNCATEGORIZED = 0L;
+
+    // Category ids use the low 44 bits of a key and the month index the bits above
+    private static final int CATEGORY_BITS = 44;
+    private static final long CATEGORY_MASK = (1L << CATEGORY_BITS) - 1;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Value("${spend.counters.max-users:50000}")
+    private int maxUsers = 50000;
+
+    @Value("${spend.counters.reconcile-chunk-size:500}")
+    private int reconcileChunkSize = 500;
+
+    private Clock clock = Clock.systemDefaultZone();
+
+    private final ConcurrentHashMap<Long, UserSpend> users = new ConcurrentHashMap<>();
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    // Logical clock for LRU ordering; cheaper than reading the system clock on every access
+    private final AtomicLong ticks = new AtomicLong();
+
+    static final class UserSpend {
+        // packed (month, category) -> cents; an adder is only ever added to, totals are replaced whole
+        final ConcurrentHashMap<Long, LongAdder> totals = new ConcurrentHashMap<>();
+        final Set<YearMonth> seededMonths = ConcurrentHashMap.newKeySet();
+        // Held while a month is seeded, reconciled or dropped
+        final ReentrantLock seedLock = new ReentrantLock();
+        volatile long lastAccess;
+    }
+
+    /**
+     * Spend of a user in one category during a calendar month.
+     */
+    public BigDecimal getSpent(Long userId, Long categoryId, YearMonth month) {
+        long category = categoryId != null ? categoryId : UNCATEGORIZED;
+        if (!isHeld(month)) {
+            return fromCents(query(userId, month).getOrDefault(category, 0L));
+        }
+        UserSpend spend = seeded(userId, month);
+        LongAdder adder = spend.totals.get(key(month, category));
+        return fromCents(adder != null ? adder.sum() : 0);
+    }
+
+    /**
+     * Spend of a user during a calendar month, by category id. Categories with no spend are omitted.
+     */
+    public Map<Long, BigDecimal> getSpentByCategory(Long userId, YearMonth month) {
+        Map<Long, BigDecimal> byCategory = new HashMap<>();
+        if (!isHeld(month)) {
+            query(userId, month).forEach((categoryId, cents) -> {
+                if (cents != 0) {
+                    byCategory.put(categoryId, fromCents(cents));
+                }
+            });
+            return byCategory;
+        }
+        UserSpend spend = seeded(userId, month);
+        long monthPart = monthIndex(month) << CATEGORY_BITS;
+        spend.totals.forEach((key, adder) -> {
+            if ((key & ~CATEGORY_MASK) == monthPart) {
+                long cents = adder.sum();
+                if (cents != 0) {
+                    byCategory.put(key & CATEGORY_MASK, fromCents(cents));
+                }
+            }
+        });
+        return byCategory;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onExpensesChanged(ExpensesChangedEvent event) {
+        for (ExpenseChange change : event.getChanges()) {
+            apply(change.getBefore(), -1);
+            apply(change.getAfter(), 1);
+        }
+    }
+
+    /**
+     * Drops months that are no longer held, then recomputes every remaining seeded month of every held
+     * user from the database.
+     *
+     * @return number of (user, month) totals reconciled
+     */
+    public int reconcile() {
+        Map<YearMonth, List<Long>> usersByMonth = new HashMap<>();
+        users.forEach((userId, spend) -> {
+            dropStaleMonths(spend);
+            spend.seededMonths.forEach(
+                    month -> usersByMonth.computeIfAbsent(month, m -> new ArrayList<>()).add(userId));
+        });
+
+        int reconciled = 0;
+        for (Map.Entry<YearMonth, List<Long>> entry : usersByMonth.entrySet()) {
+            YearMonth month = entry.getKey();
+            List<Long> userIds = entry.getValue();
+            for (int i = 0; i < userIds.size(); i += reconcileChunkSize) {
+                List<Long> chunk = userIds.subList(i, Math.min(i + reconcileChunkSize, userIds.size()));
+                Map<Long, Map<Long, Long>> fresh = new HashMap<>();
+                for (Object[] row : expenseRepository.sumByUserAndCategoryForUsers(
+                        chunk, month.atDay(1), month.atEndOfMonth())) {
+                    fresh.computeIfAbsent((Long) row[0], id -> new HashMap<>())
+                            .put(row[1] != null ? (Long) row[1] : UNCATEGORIZED, toCents((BigDecimal) row[2]));
+                }
+                for (Long userId : chunk) {
+                    UserSpend spend = users.get(userId);
+                    if (spend != null && reconcileMonth(spend, month, fresh.getOrDefault(userId, Map.of()))) {
+                        reconciled++;
+                    }
+                }
+            }
+        }
+        return reconciled;
+    }
+
+    public int size() {
+        return users.size();
+    }
+
+    public void evict(Long userId) {
+        users.remove(userId);
+    }
+
+    @Override
+    public void onInvalidation(InvalidationMessage message) {
+        if (message.getEntity() == InvalidationEntity.EXPENSE) {
+            evict(message.getUserId());
+        }
+    }
+
+    private UserSpend seeded(Long userId, YearMonth month) {
+        UserSpend spend = users.get(userId);
+        if (spend == null) {
+            spend = users.computeIfAbsent(userId, id -> new UserSpend());
+            spend.lastAccess = ticks.incrementAndGet();
+            evictIfFull();
+        } else {
+            spend.lastAccess = ticks.incrementAndGet();
+        }
+        if (spend.seededMonths.contains(month)) {
+            return spend;
+        }
+        spend.seedLock.lock();
+        try {
+            if (!spend.seededMonths.contains(month)) {
+                overwrite(spend, month, query(userId, month));
+                spend.seededMonths.add(month);
+            }
+        } finally {
+            spend.seedLock.unlock();
+        }
+        return spend;
+    }
+
+    private Map<Long, Long> query(Long userId, YearMonth month) {
+        Map<Long, Long> totals = new HashMap<>();
+        for (Object[] row : expenseRepository.sumByCategoryForUser(userId, month.atDay(1), month.atEndOfMonth())) {
+            totals.put(row[0] != null ? (Long) row[0] : UNCATEGORIZED, toCents((BigDecimal) row[1]));
+        }
+        return totals;
+    }
+
+    private boolean reconcileMonth(UserSpend spend, YearMonth month, Map<Long, Long> totals) {
+        spend.seedLock.lock();
+        try {
+            // Dropped since the query was planned
+            if (!spend.seededMonths.contains(month)) {
+                return false;
+            }
+            overwrite(spend, month, totals);
+            return true;
+        } finally {
+            spend.seedLock.unlock();
+        }
+    }
+
+    private void dropStaleMonths(UserSpend spend) {
+        spend.seedLock.lock();
+        try {
+            spend.seededMonths.removeIf(month -> !isHeld(month));
+            // By key rather than by seeded month, so an adder a racing write left behind goes too
+            YearMonth current = YearMonth.now(clock);
+            long oldest = monthIndex(current.minusMonths(1));
+            long newest = monthIndex(current);
+            spend.totals.keySet().removeIf(key -> {
+                long month = key >>> CATEGORY_BITS;
+                return month < oldest || month > newest;
+            });
+        } finally {
+            spend.seedLock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the month's totals with fresh adders, under the seed lock. Writes add through
+     * {@link ConcurrentHashMap#compute}, so a write is never split across the swap: it lands wholly on
+     * the old adder or on the new one, rather than between a read and a subtract of the same adder.
+     */
+    private void overwrite(UserSpend spend, YearMonth month, Map<Long, Long> totals) {
+        long monthPart = monthIndex(month) << CATEGORY_BITS;
+        // Drop categories that no longer have spend
+        spend.totals.keySet().removeIf(
+                key -> (key & ~CATEGORY_MASK) == monthPart && !totals.containsKey(key & CATEGORY_MASK));
+        totals.forEach((categoryId, cents) -> {
+            LongAdder adder = new LongAdder();
+            adder.add(cents);
+            spend.totals.put(key(month, categoryId), adder);
+        });
+    }
+
+    private boolean isHeld(YearMonth month) {
+        YearMonth current = YearMonth.now(clock);
+        return month.equals(current) || month.equals(current.minusMonths(1));
+    }
+
+    private void apply(ExpenseSnapshot snapshot, int sign) {
+        if (snapshot == null || snapshot.getUserId() == null || snapshot.getDate() == null
+                || snapshot.getAmount() == null) {
+            return;
+        }
+        UserSpend spend = users.get(snapshot.getUserId());
+        YearMonth month = YearMonth.from(snapshot.getDate());
+        if (spend == null || !spend.seededMonths.contains(month)) {
+            return;
+        }
+        long categoryId = snapshot.getCategoryId() != null ? snapshot.getCategoryId() : UNCATEGORIZED;
+        long cents = sign * toCents(snapshot.getAmount());
+        // Atomic with overwrite swapping the adder for this key
+        spend.totals.compute(key(month, categoryId), (k, adder) -> {
+            LongAdder target = adder != null ? adder : new LongAdder();
+            target.add(cents);
+            return target;
+        });
+    }
+
+    private void evictIfFull() {
+        if (users.size() <= maxUsers || !evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            int excess = users.size() - maxUsers;
+            if (excess <= 0) {
+                return;
+            }
+            // Drop the least recently read tenth (at least the excess) so eviction runs rarely
+            int toEvict = Math.max(excess, maxUsers / 10);
+            users.entrySet().stream()
+                    .sorted(Comparator.comparingLong(e -> e.getValue().lastAccess))
+                    .limit(toEvict)
+                    .map(Map.Entry::getKey)
+                    .toList()
+                    .forEach(users::remove);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static long key(YearMonth month, long categoryId) {
+        return (monthIndex(month) << CATEGORY_BITS) | (categoryId & CATEGORY_MASK);
+    }
+
+    private static long monthIndex(YearMonth month) {
+        return month.getYear() * 12L + month.getMonthValue() - 1;
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    private static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+}
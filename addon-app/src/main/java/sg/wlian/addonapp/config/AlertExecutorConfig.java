@@ -0,0 +1,42 @@
+package sg.wlian.addonapp.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class AlertExecutorConfig {
+
+    // Small pool that queues alerts raised by expense writes off the request thread. When the queue
+    // is full the task is rejected rather than run by the caller, so writes are never slowed down;
+    // the budget monitor re-raises rejected crossings on its next check.
+    @Bean(name = "alertExecutor")
+    public ThreadPoolTaskExecutor alertExecutor(
+            @Value("${alert.executor.pool-size:2}") int poolSize,
+            @Value("${alert.executor.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("alert-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Runs partitions of the nightly budget sweep. The queue is kept short and the caller runs
+    // overflow itself, so the sweep never holds more than a few pages of users in memory.
+    @Bean(name = "sweepExecutor")
+    public ThreadPoolTaskExecutor sweepExecutor(@Value("${budget.sweep.parallelism:4}") int parallelism) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setQueueCapacity(parallelism);
+        executor.setThreadNamePrefix("budget-sweep-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,32 @@
+package sg.wlian.addonapp.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class ReportExecutorConfig {
+
+    // Bounded pool for computing report sections in parallel. When the queue is full the
+    // submitting request thread computes the section itself instead of failing.
+    @Bean(name = "reportExecutor")
+    public ThreadPoolTaskExecutor reportExecutor(
+            @Value("${report.executor.pool-size:4}") int poolSize,
+            @Value("${report.executor.queue-capacity:100}") int queueCapacity,
+            TaskDecorator observationTaskDecorator) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("report-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        // Sections join the trace, and count towards the SQL budget, of the request they are computed for
+        executor.setTaskDecorator(observationTaskDecorator);
+        executor.initialize();
+        return executor;
+    }
+}
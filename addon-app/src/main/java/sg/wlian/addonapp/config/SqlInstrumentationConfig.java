@@ -0,0 +1,40 @@
+package sg.wlian.addonapp.config;
+
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.util.function.SingletonSupplier;
+import sg.wlian.addonapp.sql.CountingDataSource;
+
+import javax.sql.DataSource;
+import java.util.function.Supplier;
+
+@Configuration
+public class SqlInstrumentationConfig {
+
+    // Wraps the pool so the SQL budget filter can count each request's statements, and traced requests
+    // get a span per statement. Static, since post-processors are created before the rest of the
+    // configuration; the registry is looked up on first use for the same reason.
+    @Bean
+    public static BeanPostProcessor countingDataSourcePostProcessor(Environment environment,
+                                                                    ObjectProvider<ObservationRegistry> registry) {
+        boolean counting = environment.getProperty("sql.budget.enabled", Boolean.class, true);
+        boolean tracing = environment.getProperty("tracing.sql.enabled", Boolean.class, true);
+        Supplier<ObservationRegistry> observationRegistry = tracing
+                ? SingletonSupplier.of(() -> registry.getIfAvailable(() -> ObservationRegistry.NOOP))
+                : () -> ObservationRegistry.NOOP;
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if ((counting || tracing) && bean instanceof DataSource dataSource
+                        && !(bean instanceof CountingDataSource)) {
+                    return new CountingDataSource(dataSource, observationRegistry);
+                }
+                return bean;
+            }
+        };
+    }
+}
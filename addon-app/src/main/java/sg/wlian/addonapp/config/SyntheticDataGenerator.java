@@ -0,0 +1,195 @@
+package sg.wlian.addonapp.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import sg.wlian.addonapp.entity.*;
+import sg.wlian.addonapp.repository.BudgetRepository;
+import sg.wlian.addonapp.repository.CategoryRepository;
+import sg.wlian.addonapp.repository.ExpenseRepository;
+import sg.wlian.addonapp.repository.UserRepository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Fills the database with users that the load-test harness logs in as: loaduser1..N, each with a set
+ * of categories, a few months of expenses and this month's budgets. The same seed always produces the
+ * same data, so runs against a fresh database are comparable.
+ */
+@Component
+@Profile("loadtest")
+public class SyntheticDataGenerator implements CommandLineRunner {
+
+    private static final PaymentMethod[] PAYMENT_METHODS = {
+        PaymentMethod.CREDIT_CARD, PaymentMethod.CREDIT_CARD, PaymentMethod.DEBIT_CARD,
+        PaymentMethod.CASH, PaymentMethod.DIGITAL_WALLET, PaymentMethod.BANK_TRANSFER
+    };
+
+    // name, color, icon, monthly budget, typical expense
+    private static final Object[][] CATEGORIES = {
+        {"Groceries", "#FFB74D", "🛒", "600.00", 45.0},
+        {"Restaurants", "#FF9800", "🍽️", "400.00", 25.0},
+        {"Transportation", "#4CAF50", "🚗", "300.00", 15.0},
+        {"Utilities", "#2196F3", "💡", "300.00", 90.0},
+        {"Entertainment", "#9C27B0", "🎮", "200.00", 30.0},
+        {"Healthcare", "#F44336", "🏥", "150.00", 40.0},
+        {"Shopping", "#E91E63", "🛍️", "350.00", 60.0},
+        {"Travel", "#00BCD4", "✈️", "500.00", 150.0}
+    };
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private BudgetRepository budgetRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Value("${loadtest.data.users:50}")
+    private int users = 50;
+
+    @Value("${loadtest.data.password:password123}")
+    private String password = "password123";
+
+    @Value("${loadtest.data.months:6}")
+    private int months = 6;
+
+    @Value("${loadtest.data.expenses-per-month:40}")
+    private int expensesPerMonth = 40;
+
+    @Value("${loadtest.data.seed:42}")
+    private long seed = 42;
+
+    @Override
+    public void run(String... args) {
+        if (userRepository.existsByUsername(username(1))) {
+            System.out.println("Synthetic data already present, skipping...");
+            return;
+        }
+        long start = System.nanoTime();
+        long expenses = generate(LocalDate.now());
+        System.out.println("Generated " + users + " load-test users (loaduser1.." + username(users) + ") with "
+                + expenses + " expenses in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    /**
+     * Creates every user and their data. Returns the number of expenses created.
+     */
+    long generate(LocalDate today) {
+        Random random = new Random(seed);
+        // BCrypt is deliberately slow; every user shares the one hash
+        String encodedPassword = passwordEncoder.encode(password);
+        long expenses = 0;
+        for (int i = 1; i <= users; i++) {
+            User user = userRepository.save(newUser(i, encodedPassword));
+            List<Category> categories = categoryRepository.saveAll(newCategories(user));
+            expenses += expenseRepository.saveAll(newExpenses(user, categories, today, random)).size();
+            budgetRepository.saveAll(newBudgets(user, categories, today));
+        }
+        return expenses;
+    }
+
+    static String username(int index) {
+        return "loaduser" + index;
+    }
+
+    private User newUser(int index, String encodedPassword) {
+        User user = new User();
+        user.setUsername(username(index));
+        user.setEmail(username(index) + "@example.com");
+        user.setPassword(encodedPassword);
+        user.setFirstName("Load");
+        user.setLastName("User " + index);
+        user.setActive(true);
+        user.setCreatedAt(LocalDateTime.now());
+        user.setUpdatedAt(LocalDateTime.now());
+        return user;
+    }
+
+    private List<Category> newCategories(User user) {
+        List<Category> categories = new ArrayList<>();
+        for (Object[] template : CATEGORIES) {
+            Category category = new Category();
+            category.setName((String) template[0]);
+            category.setDescription((String) template[0] + " expenses");
+            category.setColor((String) template[1]);
+            category.setIcon((String) template[2]);
+            category.setBudgetAmount(new BigDecimal((String) template[3]));
+            category.setIsActive(true);
+            category.setUser(user);
+            categories.add(category);
+        }
+        return categories;
+    }
+
+    private List<Expense> newExpenses(User user, List<Category> categories, LocalDate today, Random random) {
+        List<Expense> expenses = new ArrayList<>();
+        YearMonth current = YearMonth.from(today);
+        for (int m = months - 1; m >= 0; m--) {
+            YearMonth month = current.minusMonths(m);
+            // The current month is only filled up to today
+            int lastDay = month.equals(current) ? today.getDayOfMonth() : month.lengthOfMonth();
+            int count = Math.max(1, expensesPerMonth * lastDay / month.lengthOfMonth());
+            for (int e = 0; e < count; e++) {
+                int c = random.nextInt(categories.size());
+                Category category = categories.get(c);
+                double typical = (Double) CATEGORIES[c][4];
+                // Skewed like real spending: mostly small, occasionally several times the typical amount
+                double amount = typical * Math.exp(random.nextGaussian() * 0.6);
+
+                Expense expense = new Expense();
+                expense.setDescription(category.getName() + " #" + (e + 1));
+                expense.setAmount(BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP).max(new BigDecimal("0.50")));
+                expense.setDate(month.atDay(1 + random.nextInt(lastDay)));
+                expense.setCategory(category);
+                expense.setUser(user);
+                expense.setPaymentMethod(PAYMENT_METHODS[random.nextInt(PAYMENT_METHODS.length)]);
+                expense.setRecurring(false);
+                expense.setCreatedAt(LocalDateTime.now());
+                expense.setUpdatedAt(LocalDateTime.now());
+                expenses.add(expense);
+            }
+        }
+        return expenses;
+    }
+
+    private List<Budget> newBudgets(User user, List<Category> categories, LocalDate today) {
+        TimePeriod currentMonth = new TimePeriod();
+        currentMonth.setStartDate(today.withDayOfMonth(1));
+        currentMonth.setEndDate(today.withDayOfMonth(today.lengthOfMonth()));
+
+        List<Budget> budgets = new ArrayList<>();
+        for (Category category : categories) {
+            Budget budget = new Budget();
+            budget.setName(category.getName() + " Budget");
+            budget.setDescription("Monthly budget for " + category.getName());
+            budget.setAmount(category.getBudgetAmount());
+            budget.setCategory(category);
+            budget.setUser(user);
+            budget.setPeriod(currentMonth);
+            budget.setActive(true);
+            budget.setBudgetType(BudgetType.MONTHLY);
+            budget.setCreatedAt(LocalDateTime.now());
+            budget.setUpdatedAt(LocalDateTime.now());
+            budgets.add(budget);
+        }
+        return budgets;
+    }
+}
@@ -0,0 +1,48 @@
+package sg.wlian.addonapp.config;
+
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.support.ContextPropagatingTaskDecorator;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.util.function.SingletonSupplier;
+import sg.wlian.addonapp.sql.SqlUsage;
+import sg.wlian.addonapp.tracing.RepositoryObservationInterceptor;
+
+import java.util.function.Supplier;
+
+@Configuration
+public class TracingConfig {
+
+    // Adds a span around every repository call. Has to reach the repository factory beans before they
+    // create their proxies, hence a static post-processor.
+    @Bean
+    public static BeanPostProcessor repositoryObservationPostProcessor(ObjectProvider<ObservationRegistry> registry) {
+        Supplier<ObservationRegistry> observationRegistry =
+                SingletonSupplier.of(() -> registry.getIfAvailable(() -> ObservationRegistry.NOOP));
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxyFactory, repository) -> proxyFactory.addAdvice(new RepositoryObservationInterceptor(
+                                    observationRegistry, repository.getRepositoryInterface()))));
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Carries the submitting thread's observation, and its SQL usage, to tasks run on another thread,
+     * so their spans join the request's trace.
+     */
+    @Bean
+    public TaskDecorator observationTaskDecorator() {
+        TaskDecorator observation = new ContextPropagatingTaskDecorator();
+        return task -> SqlUsage.propagate(observation.decorate(task));
+    }
+}
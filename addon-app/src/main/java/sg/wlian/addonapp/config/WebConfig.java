@@ -0,0 +1,25 @@
+package sg.wlian.addonapp.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import sg.wlian.addonapp.ingest.IngestReadInterceptor;
+import sg.wlian.addonapp.web.ConditionalGetInterceptor;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private IngestReadInterceptor ingestReadInterceptor;
+
+    @Autowired
+    private ConditionalGetInterceptor conditionalGetInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(ingestReadInterceptor).addPathPatterns("/api/**");
+        // After the ingest wait, so the tag reflects the writes that wait was for
+        registry.addInterceptor(conditionalGetInterceptor).addPathPatterns("/api/**");
+    }
+}
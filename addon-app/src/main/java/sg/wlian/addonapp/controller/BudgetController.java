@@ -5,11 +5,15 @@ import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import sg.wlian.addonapp.dto.BudgetForecastDTO;
 import sg.wlian.addonapp.dto.BudgetStatusDTO;
+import sg.wlian.addonapp.dto.BudgetWindowStatusDTO;
 import sg.wlian.addonapp.entity.Budget;
 import sg.wlian.addonapp.entity.User;
 import sg.wlian.addonapp.repository.UserRepository;
 import sg.wlian.addonapp.service.BudgetService;
+import sg.wlian.addonapp.service.SpendForecastService;
+import sg.wlian.addonapp.web.ConditionalGet;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -17,6 +21,7 @@ import java.util.List;
 @RestController
 @RequestMapping("/api/budgets")
 @CrossOrigin(origins = "*")
+@ConditionalGet
 public class BudgetController {
 
     @Autowired
@@ -25,6 +30,9 @@ public class BudgetController {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private SpendForecastService spendForecastService;
+
     @PostMapping
     public ResponseEntity<Budget> createBudget(@RequestBody Budget budget) {
         try {
@@ -95,6 +103,28 @@ public class BudgetController {
         }
     }
 
+    @GetMapping("/{budgetId}/history")
+    public ResponseEntity<List<BudgetWindowStatusDTO>> getBudgetHistory(
+            @PathVariable Long budgetId,
+            @RequestParam(defaultValue = "6") int windows) {
+        try {
+            return new ResponseEntity<>(budgetService.getBudgetHistory(budgetId, windows), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        } catch (RuntimeException e) {
+            return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+        }
+    }
+
+    @GetMapping("/{budgetId}/forecast")
+    public ResponseEntity<BudgetForecastDTO> getBudgetForecast(@PathVariable Long budgetId) {
+        try {
+            return new ResponseEntity<>(spendForecastService.getBudgetForecast(budgetId), HttpStatus.OK);
+        } catch (RuntimeException e) {
+            return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+        }
+    }
+
     @GetMapping("/user/{userId}/status")
     public ResponseEntity<List<BudgetStatusDTO>> getAllBudgetStatuses(@PathVariable Long userId) {
         User user = userRepository.findById(userId).orElse(null);
@@ -6,6 +6,7 @@ import org.springframework.web.bind.annotation.*;
 import sg.wlian.addonapp.entity.Category;
 import sg.wlian.addonapp.service.CategoryService;
 import sg.wlian.addonapp.dto.CategoryTreeDTO;
+import sg.wlian.addonapp.web.ConditionalGet;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -13,6 +14,7 @@ import java.util.List;
 @RestController
 @RequestMapping("/api/categories")
 @CrossOrigin(origins = "*")
+@ConditionalGet
 public class CategoryController {
     
     @Autowired
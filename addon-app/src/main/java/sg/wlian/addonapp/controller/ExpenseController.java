@@ -1,14 +1,30 @@
 package sg.wlian.addonapp.controller;
 
+import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import sg.wlian.addonapp.dto.ExpenseBatchRequest;
+import sg.wlian.addonapp.dto.ExpenseBatchResponse;
+import sg.wlian.addonapp.dto.ExpenseIngestReceiptDTO;
+import sg.wlian.addonapp.dto.ExpenseIngestRequest;
+import sg.wlian.addonapp.dto.ExpenseQueryRequest;
+import sg.wlian.addonapp.dto.ExpenseQueryResultDTO;
+import sg.wlian.addonapp.dto.ExpenseSearchCriteria;
+import sg.wlian.addonapp.dto.ExpenseSearchResultDTO;
 import sg.wlian.addonapp.dto.ExpenseSummaryDTO;
+import sg.wlian.addonapp.dto.MonthSpendDTO;
 import sg.wlian.addonapp.entity.Expense;
+import sg.wlian.addonapp.entity.PaymentMethod;
+import sg.wlian.addonapp.service.ExpenseIngestService;
+import sg.wlian.addonapp.service.ExpenseQueryService;
 import sg.wlian.addonapp.service.ExpenseService;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
 
 @RestController
@@ -19,6 +35,12 @@ public class ExpenseController {
     @Autowired
     private ExpenseService expenseService;
 
+    @Autowired
+    private ExpenseQueryService expenseQueryService;
+
+    @Autowired
+    private ExpenseIngestService expenseIngestService;
+
     @GetMapping("/user/{userId}")
     public ResponseEntity<List<Expense>> getUserExpenses(@PathVariable Long userId) {
         return ResponseEntity.ok(expenseService.getExpensesByUser(userId));
@@ -40,6 +62,34 @@ public class ExpenseController {
         return ResponseEntity.ok(expenseService.getMonthlySummary(userId, year, month));
     }
 
+    @GetMapping("/user/{userId}/spend")
+    public ResponseEntity<MonthSpendDTO> getMonthSpend(
+            @PathVariable Long userId,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth month) {
+        return ResponseEntity.ok(expenseService.getMonthSpend(userId, month != null ? month : YearMonth.now()));
+    }
+
+    @GetMapping("/user/{userId}/search")
+    public ResponseEntity<ExpenseSearchResultDTO> searchExpenses(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) BigDecimal minAmount,
+            @RequestParam(required = false) BigDecimal maxAmount,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) PaymentMethod paymentMethod,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        ExpenseSearchCriteria criteria = new ExpenseSearchCriteria(
+                userId, q, startDate, endDate, minAmount, maxAmount, categoryId, paymentMethod);
+        try {
+            return ResponseEntity.ok(expenseService.searchExpenses(criteria, page, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/user/{userId}/category/{categoryId}")
     public ResponseEntity<List<Expense>> getExpensesByCategory(
             @PathVariable Long userId,
@@ -71,6 +121,38 @@ public class ExpenseController {
         return ResponseEntity.noContent().build();
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<ExpenseBatchResponse> processBatch(@Valid @RequestBody ExpenseBatchRequest request) {
+        try {
+            return ResponseEntity.ok(expenseService.processBatch(request.getOperations()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping("/ingest")
+    public ResponseEntity<ExpenseIngestReceiptDTO> ingestExpenses(@Valid @RequestBody ExpenseIngestRequest request) {
+        try {
+            return ResponseEntity.accepted().body(expenseIngestService.ingest(request.getExpenses()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            // Disabled, or too far behind
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    @PostMapping("/query")
+    public ResponseEntity<ExpenseQueryResultDTO> queryExpenses(@Valid @RequestBody ExpenseQueryRequest request) {
+        try {
+            // The user is in the body, which the ingest read interceptor does not parse
+            expenseIngestService.awaitApplied(request.getUserId());
+            return ResponseEntity.ok(expenseQueryService.query(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @PostMapping("/recurring/process")
     public ResponseEntity<Void> processRecurringExpenses() {
         expenseService.processRecurringExpenses();
@@ -0,0 +1,31 @@
+package sg.wlian.addonapp.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import sg.wlian.addonapp.invalidation.HttpInvalidationTransport;
+import sg.wlian.addonapp.invalidation.InvalidationMessage;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/internal/invalidations")
+@ConditionalOnProperty(name = "invalidation.http.enabled", havingValue = "true")
+public class InvalidationController {
+
+    @Autowired
+    private HttpInvalidationTransport httpInvalidationTransport;
+
+    @PostMapping
+    public ResponseEntity<Void> receiveInvalidations(
+            @RequestHeader(value = HttpInvalidationTransport.TOKEN_HEADER, required = false) String token,
+            @RequestBody List<InvalidationMessage> messages) {
+        if (!httpInvalidationTransport.accepts(token)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        httpInvalidationTransport.deliver(messages);
+        return ResponseEntity.accepted().build();
+    }
+}
@@ -4,14 +4,25 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import sg.wlian.addonapp.dto.AmountHistogramBucketDTO;
+import sg.wlian.addonapp.dto.AmountPercentileDTO;
 import sg.wlian.addonapp.dto.CategoryReportDTO;
 import sg.wlian.addonapp.dto.MonthlyReportDTO;
 import sg.wlian.addonapp.dto.PaymentMethodReportDTO;
+import sg.wlian.addonapp.dto.ReportBundleDTO;
+import sg.wlian.addonapp.dto.ReportCacheStatsDTO;
+import sg.wlian.addonapp.dto.ReportKind;
+import sg.wlian.addonapp.dto.SpendForecastDTO;
 import sg.wlian.addonapp.service.ReportService;
+import sg.wlian.addonapp.service.SpendForecastService;
+import sg.wlian.addonapp.web.ConditionalGet;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/reports")
@@ -21,6 +32,10 @@ public class ReportController {
     @Autowired
     private ReportService reportService;
 
+    @Autowired
+    private SpendForecastService spendForecastService;
+
+    @ConditionalGet
     @GetMapping("/user/{userId}/monthly-trend")
     public ResponseEntity<List<MonthlyReportDTO>> getMonthlyTrend(
             @PathVariable Long userId,
@@ -29,15 +44,20 @@ public class ReportController {
         return ResponseEntity.ok(report);
     }
 
+    @ConditionalGet(closedRange = true)
     @GetMapping("/user/{userId}/category-breakdown")
     public ResponseEntity<List<CategoryReportDTO>> getCategoryBreakdown(
             @PathVariable Long userId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
-        List<CategoryReportDTO> report = reportService.getCategoryBreakdown(userId, startDate, endDate);
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) Integer limit) {
+        List<CategoryReportDTO> report = limit != null
+                ? reportService.getTopCategories(userId, startDate, endDate, limit)
+                : reportService.getCategoryBreakdown(userId, startDate, endDate);
         return ResponseEntity.ok(report);
     }
 
+    @ConditionalGet(closedRange = true)
     @GetMapping("/user/{userId}/payment-method-breakdown")
     public ResponseEntity<List<PaymentMethodReportDTO>> getPaymentMethodBreakdown(
             @PathVariable Long userId,
@@ -47,6 +67,7 @@ public class ReportController {
         return ResponseEntity.ok(report);
     }
 
+    @ConditionalGet
     @GetMapping("/user/{userId}/weekly-trend")
     public ResponseEntity<Map<String, Object>> getWeeklyTrend(
             @PathVariable Long userId,
@@ -54,4 +75,62 @@ public class ReportController {
         Map<String, Object> report = reportService.getWeeklyTrend(userId, weeks);
         return ResponseEntity.ok(report);
     }
+
+    @ConditionalGet(closedRange = true)
+    @GetMapping("/user/{userId}/amount-histogram")
+    public ResponseEntity<List<AmountHistogramBucketDTO>> getAmountHistogram(
+            @PathVariable Long userId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) List<BigDecimal> bounds) {
+        List<AmountHistogramBucketDTO> report = reportService.getAmountHistogram(userId, startDate, endDate,
+                bounds == null || bounds.isEmpty() ? ReportService.DEFAULT_HISTOGRAM_BOUNDS : bounds);
+        return ResponseEntity.ok(report);
+    }
+
+    @ConditionalGet(closedRange = true)
+    @GetMapping("/user/{userId}/category-percentiles")
+    public ResponseEntity<List<AmountPercentileDTO>> getCategoryPercentiles(
+            @PathVariable Long userId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        List<AmountPercentileDTO> report = reportService.getCategoryPercentiles(userId, startDate, endDate);
+        return ResponseEntity.ok(report);
+    }
+
+    @ConditionalGet
+    @GetMapping("/user/{userId}/monthly-percentiles")
+    public ResponseEntity<List<AmountPercentileDTO>> getMonthlyPercentiles(
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "6") int months) {
+        List<AmountPercentileDTO> report = reportService.getMonthlyPercentiles(userId, months);
+        return ResponseEntity.ok(report);
+    }
+
+    @ConditionalGet
+    @GetMapping("/user/{userId}/bundle")
+    public ResponseEntity<ReportBundleDTO> getReportBundle(
+            @PathVariable Long userId,
+            @RequestParam(required = false) List<ReportKind> kinds,
+            @RequestParam(defaultValue = "6") int months,
+            @RequestParam(defaultValue = "4") int weeks,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        Set<ReportKind> requested = kinds == null || kinds.isEmpty()
+                ? EnumSet.allOf(ReportKind.class)
+                : EnumSet.copyOf(kinds);
+        ReportBundleDTO bundle = reportService.getReportBundle(userId, requested, months, weeks, startDate, endDate);
+        return ResponseEntity.ok(bundle);
+    }
+
+    @ConditionalGet
+    @GetMapping("/user/{userId}/forecast")
+    public ResponseEntity<SpendForecastDTO> getMonthForecast(@PathVariable Long userId) {
+        return ResponseEntity.ok(spendForecastService.getMonthForecast(userId));
+    }
+
+    @GetMapping("/cache/stats")
+    public ResponseEntity<ReportCacheStatsDTO> getCacheStats() {
+        return ResponseEntity.ok(reportService.getCacheStats());
+    }
 }
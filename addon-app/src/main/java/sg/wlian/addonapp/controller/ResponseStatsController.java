@@ -0,0 +1,21 @@
+package sg.wlian.addonapp.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import sg.wlian.addonapp.dto.ResponseStatsDTO;
+import sg.wlian.addonapp.web.ResponseStats;
+
+@RestController
+@RequestMapping("/api/stats")
+@CrossOrigin(origins = "*")
+public class ResponseStatsController {
+
+    @Autowired
+    private ResponseStats responseStats;
+
+    @GetMapping("/responses")
+    public ResponseEntity<ResponseStatsDTO> getResponseStats() {
+        return ResponseEntity.ok(responseStats.getStats());
+    }
+}
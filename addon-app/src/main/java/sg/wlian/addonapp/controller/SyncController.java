@@ -0,0 +1,34 @@
+package sg.wlian.addonapp.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import sg.wlian.addonapp.dto.ExpenseSyncResponse;
+import sg.wlian.addonapp.security.JwtTokenProvider;
+import sg.wlian.addonapp.service.ExpenseSyncService;
+
+@RestController
+@RequestMapping("/api/sync")
+@CrossOrigin(origins = "*")
+public class SyncController {
+
+    @Autowired
+    private ExpenseSyncService expenseSyncService;
+
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+
+    @GetMapping("/expenses")
+    public ResponseEntity<ExpenseSyncResponse> getExpenseChanges(
+            @RequestHeader("Authorization") String authHeader,
+            @RequestParam(required = false) String since,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            String token = authHeader.substring(7);
+            Long userId = tokenProvider.getUserIdFromToken(token);
+            return ResponseEntity.ok(expenseSyncService.getChanges(userId, since, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
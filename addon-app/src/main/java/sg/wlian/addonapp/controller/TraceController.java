@@ -0,0 +1,31 @@
+package sg.wlian.addonapp.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import sg.wlian.addonapp.dto.TraceDTO;
+import sg.wlian.addonapp.tracing.InMemorySpanExporter;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/stats")
+@CrossOrigin(origins = "*")
+public class TraceController {
+
+    private static final int MAX_TRACES = 200;
+
+    @Autowired
+    private InMemorySpanExporter spanExporter;
+
+    // Latest traces held in memory, newest first; 404 unless tracing.exporter.memory.max-spans is set
+    @GetMapping("/traces")
+    public ResponseEntity<List<TraceDTO>> getRecentTraces(
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(defaultValue = "0") double minDurationMs) {
+        if (!spanExporter.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(spanExporter.recentTraces(Math.max(1, Math.min(limit, MAX_TRACES)), minDurationMs));
+    }
+}
@@ -0,0 +1,21 @@
+package sg.wlian.addonapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+/**
+ * Expenses with an amount above {@code lowerBound} and up to {@code upperBound}. The first bucket has
+ * no lower bound and the last no upper bound.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+public class AmountHistogramBucketDTO {
+    private BigDecimal lowerBound;
+    private BigDecimal upperBound;
+    private long expenseCount;
+    private BigDecimal totalAmount;
+}
@@ -0,0 +1,27 @@
+package sg.wlian.addonapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+
+/**
+ * Distribution of expense amounts in one category, over a month or over the whole requested range
+ * ({@code month} is then null). Percentiles are within 1% of the exact amounts.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+public class AmountPercentileDTO {
+    private YearMonth month;
+    // Null for expenses without a category
+    private Long categoryId;
+    private String categoryName;
+    private long expenseCount;
+    private BigDecimal totalAmount;
+    private BigDecimal median;
+    private BigDecimal p90;
+    private BigDecimal p99;
+}
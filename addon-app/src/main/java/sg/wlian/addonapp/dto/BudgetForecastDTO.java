@@ -0,0 +1,28 @@
+package sg.wlian.addonapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BudgetForecastDTO {
+    private Long budgetId;
+    private Long categoryId;
+    private BigDecimal budgetAmount;
+    // Current window of the budget; see BudgetPeriodResolver
+    private LocalDate periodStart;
+    private LocalDate periodEnd;
+    private LocalDate asOf;
+    private BigDecimal spentToDate;
+    private BigDecimal projectedRecurring;
+    private BigDecimal projectedDiscretionary;
+    private BigDecimal projectedTotal;
+    private BigDecimal projectedRemaining;
+    private BigDecimal projectedPercentageUsed;
+    private boolean projectedOverBudget;
+}
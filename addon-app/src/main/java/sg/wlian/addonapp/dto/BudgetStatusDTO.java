@@ -6,6 +6,7 @@ import lombok.NoArgsConstructor;
 import sg.wlian.addonapp.entity.Budget;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 
 @Data
 @NoArgsConstructor
@@ -16,4 +17,7 @@ public class BudgetStatusDTO {
     private BigDecimal remainingAmount;
     private BigDecimal percentageUsed;
     private boolean isOverBudget;
+    // Window the figures are for; see BudgetPeriodResolver
+    private LocalDate periodStart;
+    private LocalDate periodEnd;
 }
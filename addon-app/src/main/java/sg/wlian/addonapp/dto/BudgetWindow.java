@@ -0,0 +1,24 @@
+package sg.wlian.addonapp.dto;
+
+import lombok.Value;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * One period of a budget, inclusive at both ends.
+ */
+@Value
+public class BudgetWindow {
+    LocalDate startDate;
+    LocalDate endDate;
+
+    public boolean contains(LocalDate date) {
+        return !date.isBefore(startDate) && !date.isAfter(endDate);
+    }
+
+    public boolean isCalendarMonth() {
+        return startDate != null && endDate != null && startDate.getDayOfMonth() == 1
+                && endDate.equals(YearMonth.from(startDate).atEndOfMonth());
+    }
+}
@@ -0,0 +1,19 @@
+package sg.wlian.addonapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Spend of a set of budgets in their current windows, keyed by budget id, and the number of expenses
+ * that were summed to produce it.
+ */
+@Getter
+@AllArgsConstructor
+public class BudgetWindowSpend {
+    private final Map<Long, BudgetWindow> windows;
+    private final Map<Long, BigDecimal> spendByBudget;
+    private final long expensesScanned;
+}
@@ -0,0 +1,21 @@
+package sg.wlian.addonapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BudgetWindowStatusDTO {
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private BigDecimal totalExpenses;
+    private BigDecimal budgetAmount;
+    private BigDecimal remainingAmount;
+    private BigDecimal percentageUsed;
+    private boolean isOverBudget;
+}
@@ -0,0 +1,21 @@
+package sg.wlian.addonapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoryForecastDTO {
+    private Long categoryId;
+    private String categoryName;
+    private BigDecimal spentToDate;
+    // Instances of recurring expenses still due in the period
+    private BigDecimal projectedRecurring;
+    // Other spend expected from the fitted trend
+    private BigDecimal projectedDiscretionary;
+    private BigDecimal projectedTotal;
+}
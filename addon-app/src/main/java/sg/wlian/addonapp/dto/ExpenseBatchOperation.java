@@ -0,0 +1,31 @@
+package sg.wlian.addonapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import sg.wlian.addonapp.entity.Expense;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExpenseBatchOperation {
+
+    public enum Type {
+        CREATE,
+        UPDATE,
+        DELETE
+    }
+
+    private Type type;
+
+    // Target expense for UPDATE and DELETE
+    private Long id;
+
+    // Expense payload for CREATE and UPDATE
+    private Expense expense;
+
+    // Opaque client reference echoed back in the result, e.g. an offline client's local id
+    private String clientRef;
+}
@@ -0,0 +1,14 @@
+package sg.wlian.addonapp.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class ExpenseBatchRequest {
+    @NotEmpty(message = "At least one operation is required")
+    private List<ExpenseBatchOperation> operations;
+}
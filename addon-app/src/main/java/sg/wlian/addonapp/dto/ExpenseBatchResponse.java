@@ -0,0 +1,18 @@
+package sg.wlian.addonapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExpenseBatchResponse {
+    private int succeeded;
+    private int failed;
+    private List<ExpenseBatchResult> results;
+}
@@ -0,0 +1,28 @@
+package sg.wlian.addonapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import sg.wlian.addonapp.entity.Expense;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExpenseBatchResult {
+
+    public enum Status {
+        OK,
+        NOT_FOUND,
+        INVALID
+    }
+
+    private int index;
+    private ExpenseBatchOperation.Type type;
+    private String clientRef;
+    private Long id;
+    private Status status;
+    private String error;
+    private Expense expense;
+}
@@ -0,0 +1,92 @@
+package sg.wlian.addonapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import sg.wlian.addonapp.entity.Category;
+import sg.wlian.addonapp.entity.Expense;
+import sg.wlian.addonapp.entity.PaymentMethod;
+import sg.wlian.addonapp.entity.RecurrenceFrequency;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A list of expenses as one array per field, with each category sent once in {@link #categories} and
+ * referenced from {@link #categoryIndexes} by position (-1 for none). Served for
+ * {@code application/vnd.expense-columns+json}.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExpenseColumnsDTO {
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CategoryEntry {
+        private Long id;
+        private String name;
+        private String color;
+        private String icon;
+    }
+
+    private int count;
+    private List<CategoryEntry> categories;
+    private long[] ids;
+    private String[] descriptions;
+    private BigDecimal[] amounts;
+    private LocalDate[] dates;
+    private int[] categoryIndexes;
+    private PaymentMethod[] paymentMethods;
+    private String[] notes;
+    private boolean[] recurring;
+    private RecurrenceFrequency[] recurrenceFrequencies;
+    private LocalDate[] recurrenceEndDates;
+    private boolean[] anomalous;
+    private LocalDateTime[] updatedAts;
+
+    public static ExpenseColumnsDTO of(List<Expense> expenses) {
+        int n = expenses.size();
+        ExpenseColumnsDTO columns = new ExpenseColumnsDTO(n, new ArrayList<>(), new long[n], new String[n],
+                new BigDecimal[n], new LocalDate[n], new int[n], new PaymentMethod[n], new String[n],
+                new boolean[n], new RecurrenceFrequency[n], new LocalDate[n], new boolean[n], new LocalDateTime[n]);
+        Map<Long, Integer> categoryIndex = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            Expense expense = expenses.get(i);
+            Category category = expense.getCategory();
+            if (category == null) {
+                columns.categoryIndexes[i] = -1;
+            } else {
+                Integer index = categoryIndex.get(category.getId());
+                if (index == null) {
+                    index = columns.categories.size();
+                    categoryIndex.put(category.getId(), index);
+                    columns.categories.add(new CategoryEntry(category.getId(), category.getName(),
+                            category.getColor(), category.getIcon()));
+                }
+                columns.categoryIndexes[i] = index;
+            }
+            columns.ids[i] = expense.getId() != null ? expense.getId() : 0L;
+            columns.descriptions[i] = expense.getDescription();
+            columns.amounts[i] = expense.getAmount();
+            columns.dates[i] = expense.getDate();
+            columns.paymentMethods[i] = expense.getPaymentMethod();
+            columns.notes[i] = expense.getNotes();
+            columns.recurring[i] = expense.isRecurring();
+            columns.recurrenceFrequencies[i] = expense.getRecurrenceFrequency();
+            columns.recurrenceEndDates[i] = expense.getRecurrenceEndDate();
+            columns.anomalous[i] = expense.isAnomalous();
+            columns.updatedAts[i] = expense.getUpdatedAt();
+        }
+        return columns;
+    }
+}
@@ -0,0 +1,9 @@
+package sg.wlian.addonapp.dto;
+
+public enum ExpenseFacet {
+    CATEGORY,
+    PAYMENT_METHOD,
+    // yyyy-MM of the expense date
+    MONTH,
+    RECURRING
+}
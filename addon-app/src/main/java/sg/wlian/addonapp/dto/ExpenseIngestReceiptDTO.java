@@ -0,0 +1,20 @@
+package sg.wlian.addonapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Acknowledges expenses written to the ingest log. They are inserted in sequence order, so a client can
+ * compare sequences to tell which of its writes came first.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExpenseIngestReceiptDTO {
+    private int accepted;
+    private long firstSequence;
+    private long lastSequence;
+}
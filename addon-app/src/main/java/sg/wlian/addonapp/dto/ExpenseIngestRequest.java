@@ -0,0 +1,15 @@
+package sg.wlian.addonapp.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Getter;
+import lombok.Setter;
+import sg.wlian.addonapp.entity.Expense;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class ExpenseIngestRequest {
+    @NotEmpty(message = "At least one expense is required")
+    private List<Expense> expenses;
+}
@@ -0,0 +1,31 @@
+package sg.wlian.addonapp.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+import sg.wlian.addonapp.entity.PaymentMethod;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Conditions an expense must meet. All conditions that are set must hold; within a list any value
+ * matches. Unset ({@code null} or empty) conditions are ignored.
+ */
+@Getter
+@Setter
+public class ExpenseQueryFilter {
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private BigDecimal minAmount;
+    private BigDecimal maxAmount;
+    private List<Long> categoryIds;
+    // Also match expenses in any descendant of the listed categories
+    private boolean includeSubcategories = true;
+    // Matches expenses without a category
+    private boolean uncategorized;
+    private List<PaymentMethod> paymentMethods;
+    private Boolean recurring;
+    // Case-insensitive substring of description or notes
+    private String text;
+}
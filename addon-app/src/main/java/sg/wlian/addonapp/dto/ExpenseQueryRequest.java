@@ -0,0 +1,34 @@
+package sg.wlian.addonapp.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Body of {@code POST /api/expenses/query}: which expenses to match, how to order them, which page to
+ * return and which facets to count.
+ */
+@Getter
+@Setter
+public class ExpenseQueryRequest {
+    @NotNull(message = "userId is required")
+    private Long userId;
+
+    @Valid
+    private ExpenseQueryFilter filter = new ExpenseQueryFilter();
+
+    // Applied in order; ties are always broken by id, newest first
+    private List<ExpenseSortOrder> sort = new ArrayList<>();
+
+    private Set<ExpenseFacet> facets = EnumSet.noneOf(ExpenseFacet.class);
+
+    private int page = 0;
+
+    private int size = 50;
+}
@@ -0,0 +1,21 @@
+package sg.wlian.addonapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import sg.wlian.addonapp.entity.Expense;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExpenseQueryResultDTO {
+    private List<Expense> expenses;
+    private int page;
+    private int size;
+    // Over all matching expenses, not just this page
+    private ExpenseAggregateDTO aggregates;
+    private Map<ExpenseFacet, List<FacetCountDTO>> facets;
+}
@@ -0,0 +1,27 @@
+package sg.wlian.addonapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import sg.wlian.addonapp.entity.PaymentMethod;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Expense search: free text over description and notes, narrowed by optional filters. Any filter left
+ * {@code null} is not applied.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExpenseSearchCriteria {
+    private Long userId;
+    private String query;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private BigDecimal minAmount;
+    private BigDecimal maxAmount;
+    private Long categoryId;
+    private PaymentMethod paymentMethod;
+}
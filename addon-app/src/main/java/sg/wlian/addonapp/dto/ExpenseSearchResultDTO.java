@@ -0,0 +1,22 @@
+package sg.wlian.addonapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import sg.wlian.addonapp.entity.Expense;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExpenseSearchResultDTO {
+    private List<Expense> expenses;
+    private int page;
+    private int size;
+    private long totalHits;
+    // false when totalHits is a lower bound; counting stops early on very broad queries
+    private boolean totalHitsExact;
+    // false while the index is still being built after startup, so results may be incomplete
+    private boolean indexComplete;
+}
@@ -0,0 +1,18 @@
+package sg.wlian.addonapp.dto;
+
+public enum ExpenseSortField {
+    DATE("date"),
+    AMOUNT("amount"),
+    DESCRIPTION("description"),
+    CREATED_AT("createdAt");
+
+    private final String attribute;
+
+    ExpenseSortField(String attribute) {
+        this.attribute = attribute;
+    }
+
+    public String getAttribute() {
+        return attribute;
+    }
+}
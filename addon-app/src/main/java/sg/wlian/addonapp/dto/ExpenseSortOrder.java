@@ -0,0 +1,14 @@
+package sg.wlian.addonapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Sort;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExpenseSortOrder {
+    private ExpenseSortField field;
+    private Sort.Direction direction = Sort.Direction.DESC;
+}
@@ -0,0 +1,28 @@
+package sg.wlian.addonapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * {@link ExpenseSyncResponse} with the upserts in {@link ExpenseColumnsDTO} form.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExpenseSyncColumnsDTO {
+    private ExpenseColumnsDTO upserts;
+    private List<Long> deletedIds;
+    private String nextToken;
+    private boolean hasMore;
+    private boolean fullResync;
+
+    public static ExpenseSyncColumnsDTO of(ExpenseSyncResponse response) {
+        return new ExpenseSyncColumnsDTO(ExpenseColumnsDTO.of(response.getUpserts()), response.getDeletedIds(),
+                response.getNextToken(), response.isHasMore(), response.isFullResync());
+    }
+}
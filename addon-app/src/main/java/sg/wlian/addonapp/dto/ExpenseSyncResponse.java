@@ -0,0 +1,26 @@
+package sg.wlian.addonapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import sg.wlian.addonapp.entity.Expense;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExpenseSyncResponse {
+    // Expenses created or updated since the token
+    private List<Expense> upserts;
+    // Ids of expenses deleted since the token
+    private List<Long> deletedIds;
+    // Token to pass as "since" on the next call
+    private String nextToken;
+    // More changes are pending; call again immediately with nextToken
+    private boolean hasMore;
+    // The token predates tombstone retention; the client must drop its local copy and apply this as a full load
+    private boolean fullResync;
+}
@@ -0,0 +1,18 @@
+package sg.wlian.addonapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetCountDTO {
+    // null for expenses without a value, e.g. uncategorized
+    private String value;
+    private String label;
+    private long count;
+    private BigDecimal totalAmount;
+}
@@ -0,0 +1,19 @@
+package sg.wlian.addonapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MonthSpendDTO {
+    private YearMonth month;
+    private BigDecimal totalAmount;
+    // Keyed by category id; 0 holds uncategorized spend
+    private Map<Long, BigDecimal> byCategory;
+}
@@ -0,0 +1,19 @@
+package sg.wlian.addonapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Map;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportBundleDTO {
+    // Report kind -> the same payload the single-report endpoint returns
+    private Map<ReportKind, Object> sections;
+    // Report kind -> reason, for sections that timed out or failed
+    private Map<ReportKind, String> errors;
+}
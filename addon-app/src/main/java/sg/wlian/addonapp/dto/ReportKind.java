@@ -0,0 +1,11 @@
+package sg.wlian.addonapp.dto;
+
+public enum ReportKind {
+    MONTHLY_TREND,
+    WEEKLY_TREND,
+    CATEGORY_BREAKDOWN,
+    PAYMENT_METHOD_BREAKDOWN,
+    CATEGORY_PERCENTILES,
+    MONTHLY_PERCENTILES,
+    AMOUNT_HISTOGRAM
+}
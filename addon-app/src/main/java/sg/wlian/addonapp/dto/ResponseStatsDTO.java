@@ -0,0 +1,19 @@
+package sg.wlian.addonapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResponseStatsDTO {
+    private long notModifiedResponses;
+    private long notModifiedBytesSaved;
+    private long compressedResponses;
+    private long bytesBeforeCompression;
+    private long bytesAfterCompression;
+    private long totalBytesSaved;
+}
@@ -0,0 +1,23 @@
+package sg.wlian.addonapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SpendForecastDTO {
+    private Long userId;
+    private LocalDate periodStart;
+    private LocalDate periodEnd;
+    // Spend up to and including this day is recorded; later days are projected
+    private LocalDate asOf;
+    private BigDecimal spentToDate;
+    private BigDecimal projectedTotal;
+    private List<CategoryForecastDTO> categories;
+}
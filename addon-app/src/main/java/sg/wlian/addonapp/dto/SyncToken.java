@@ -0,0 +1,78 @@
+package sg.wlian.addonapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+/**
+ * Opaque sync cursor. Encodes the (timestamp, id) position of the last change a client has seen,
+ * so the next scan can resume strictly after it even when several rows share a timestamp, plus the
+ * time the token was issued, which is what tombstone retention is checked against.
+ */
+@Getter
+@AllArgsConstructor
+public class SyncToken {
+
+    private static final String VERSION = "v1";
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final LocalDateTime timestamp;
+    private final Long id;
+    private final LocalDateTime issuedAt;
+
+    public static SyncToken initial() {
+        return new SyncToken(EPOCH, 0L, EPOCH);
+    }
+
+    public boolean isInitial() {
+        return EPOCH.equals(timestamp) && id == 0L;
+    }
+
+    public SyncToken reissue(LocalDateTime issuedAt) {
+        return new SyncToken(timestamp, id, issuedAt);
+    }
+
+    public boolean isAfter(SyncToken other) {
+        int cmp = timestamp.compareTo(other.timestamp);
+        return cmp > 0 || (cmp == 0 && id > other.id);
+    }
+
+    public String encode() {
+        String raw = VERSION + ":" + toMicros(timestamp) + ":" + id + ":" + toMicros(issuedAt);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SyncToken parse(String token) {
+        if (token == null || token.isBlank()) {
+            return initial();
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":");
+            if (parts.length != 4 || !VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException("Unsupported sync token");
+            }
+            return new SyncToken(fromMicros(Long.parseLong(parts[1])), Long.parseLong(parts[2]),
+                    fromMicros(Long.parseLong(parts[3])));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid sync token", e);
+        }
+    }
+
+    private static long toMicros(LocalDateTime dateTime) {
+        Instant instant = dateTime.toInstant(ZoneOffset.UTC);
+        return instant.getEpochSecond() * 1_000_000L + instant.getNano() / 1_000;
+    }
+
+    private static LocalDateTime fromMicros(long micros) {
+        Instant instant = Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                Math.floorMod(micros, 1_000_000L) * 1_000L);
+        return LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,23 @@
+package sg.wlian.addonapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TraceDTO {
+    private String traceId;
+    // Name of the root span, or of the earliest span when the root is not held
+    private String name;
+    private Instant start;
+    private double durationMs;
+    // Ordered by start
+    private List<TraceSpanDTO> spans;
+}
@@ -0,0 +1,25 @@
+package sg.wlian.addonapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.Map;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TraceSpanDTO {
+    private String traceId;
+    private String spanId;
+    // Null for the root span
+    private String parentSpanId;
+    private String name;
+    private Instant start;
+    private double durationMs;
+    private boolean error;
+    private Map<String, String> attributes;
+}
@@ -0,0 +1,10 @@
+package sg.wlian.addonapp.entity;
+
+public enum AlertStatus {
+    PENDING,
+    // Claimed by a dispatcher; nextAttemptAt is when the claim lapses
+    SENDING,
+    SENT,
+    SKIPPED,
+    FAILED
+}
@@ -0,0 +1,17 @@
+package sg.wlian.addonapp.entity;
+
+public enum AlertType {
+    BUDGET_APPROACHING_LIMIT("Approaching budget limit"),
+    BUDGET_OVER_LIMIT("Over budget"),
+    EXPENSE_ANOMALY("Unusual expense");
+
+    private final String displayName;
+
+    AlertType(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
@@ -0,0 +1,56 @@
+package sg.wlian.addonapp.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * The single row naming this database. Files kept outside the database, such as the search index,
+ * record it so they can tell when the database they were built from has been replaced.
+ */
+@Entity
+@Table(name = "database_identity")
+@Getter
+@Setter
+@NoArgsConstructor
+public class DatabaseIdentity implements Persistable<Long> {
+
+    public static final long ROW_ID = 1L;
+
+    @Id
+    private Long id;
+
+    @Column(name = "database_id", nullable = false, length = 36)
+    private String databaseId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // The id is fixed, so tell Spring Data to persist instead of merging
+    @Transient
+    private boolean isNew;
+
+    public static DatabaseIdentity generate() {
+        DatabaseIdentity identity = new DatabaseIdentity();
+        identity.id = ROW_ID;
+        identity.databaseId = UUID.randomUUID().toString();
+        identity.createdAt = LocalDateTime.now();
+        identity.isNew = true;
+        return identity;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    protected void onLoad() {
+        isNew = false;
+    }
+}
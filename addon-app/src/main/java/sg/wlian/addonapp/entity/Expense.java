@@ -4,12 +4,16 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_expense_user_updated_at", columnList = "user_id, updated_at")
+})
 @Setter
 @Getter
 public class Expense {
@@ -51,6 +55,14 @@ public class Expense {
 
     private LocalDate lastRecurrenceDate;
 
+    // Set when the amount was unusually high for the category at the time it was created
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private boolean anomalous = false;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Double anomalyScore;
+
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
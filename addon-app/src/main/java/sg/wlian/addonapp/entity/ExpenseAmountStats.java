@@ -0,0 +1,74 @@
+package sg.wlian.addonapp.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Running mean and variance of the log amounts of a user's expenses in one category, kept with
+ * Welford's method so each expense write updates it in constant time. Expense amounts are heavily
+ * skewed, so the statistics are taken over {@code ln(amount)}, where spread is roughly proportional.
+ */
+@Entity
+@Table(name = "expense_amount_stats", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_expense_amount_stats_user_category", columnNames = {"user_id", "category_id"})
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class ExpenseAmountStats {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "category_id", nullable = false)
+    private Long categoryId;
+
+    @Column(name = "sample_count", nullable = false)
+    private long count;
+
+    @Column(nullable = false)
+    private double mean;
+
+    // Sum of squared differences from the mean
+    @Column(nullable = false)
+    private double m2;
+
+    public ExpenseAmountStats(Long userId, Long categoryId) {
+        this.userId = userId;
+        this.categoryId = categoryId;
+    }
+
+    public void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+    }
+
+    /**
+     * Takes a value that was added earlier back out, for expenses that are updated or deleted.
+     */
+    public void remove(double value) {
+        if (count <= 1) {
+            count = 0;
+            mean = 0;
+            m2 = 0;
+            return;
+        }
+        double delta = value - mean;
+        count--;
+        mean -= delta / count;
+        // Rounding can leave a tiny negative remainder
+        m2 = Math.max(0, m2 - delta * (value - mean));
+    }
+
+    public double standardDeviation() {
+        return count > 1 ? Math.sqrt(m2 / (count - 1)) : 0;
+    }
+}
@@ -0,0 +1,54 @@
+package sg.wlian.addonapp.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Total, count and amount sketch ({@code AmountSketch}) of a user's expenses in one category on one
+ * day. Reports over any date range merge these rows instead of reading expenses. Expenses without
+ * a category are rolled up under category id 0.
+ */
+@Entity
+@Table(name = "expense_daily_rollup", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_expense_daily_rollup_user_day_category", columnNames = {"user_id", "day", "category_id"})
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class ExpenseDailyRollup {
+
+    public static final long UNCATEGORIZED = 0L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "category_id", nullable = false)
+    private Long categoryId;
+
+    @Column(nullable = false)
+    private LocalDate day;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal total = BigDecimal.ZERO;
+
+    @Column(name = "expense_count", nullable = false)
+    private long count;
+
+    @Column(nullable = false, length = 16384)
+    private byte[] sketch = new byte[0];
+
+    public ExpenseDailyRollup(Long userId, Long categoryId, LocalDate day) {
+        this.userId = userId;
+        this.categoryId = categoryId;
+        this.day = day;
+    }
+}
@@ -0,0 +1,53 @@
+package sg.wlian.addonapp.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Marker left behind when an expense is deleted so that sync clients can learn about the deletion.
+ */
+@Entity
+@Table(name = "expense_tombstone", indexes = {
+        @Index(name = "idx_tombstone_user_deleted_at", columnList = "user_id, deleted_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class ExpenseTombstone implements Persistable<Long> {
+
+    // Same id as the deleted expense
+    @Id
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "deleted_at", nullable = false)
+    private LocalDateTime deletedAt;
+
+    // The id is assigned from the expense, so tell Spring Data to persist instead of merging
+    @Transient
+    private boolean isNew;
+
+    public ExpenseTombstone(Expense expense) {
+        this.id = expense.getId();
+        this.userId = expense.getUser().getId();
+        this.deletedAt = LocalDateTime.now();
+        this.isNew = true;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    protected void onLoad() {
+        isNew = false;
+    }
+}
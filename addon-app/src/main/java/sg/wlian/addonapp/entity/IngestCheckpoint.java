@@ -0,0 +1,37 @@
+package sg.wlian.addonapp.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Sequence of the last ingest log record applied to the expense table, per log. Saved in the transaction
+ * that inserts the records, so a replayed log never inserts a record twice.
+ */
+@Entity
+@Table(name = "ingest_checkpoint")
+@Getter
+@Setter
+@NoArgsConstructor
+public class IngestCheckpoint {
+
+    @Id
+    @Column(name = "log_id", length = 64)
+    private String logId;
+
+    @Column(name = "applied_sequence", nullable = false)
+    private long appliedSequence;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public IngestCheckpoint(String logId) {
+        this.logId = logId;
+    }
+}
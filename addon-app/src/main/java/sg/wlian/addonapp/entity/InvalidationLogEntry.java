@@ -0,0 +1,56 @@
+package sg.wlian.addonapp.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import sg.wlian.addonapp.invalidation.InvalidationEntity;
+import sg.wlian.addonapp.invalidation.InvalidationMessage;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cache invalidation written by one node for the others to poll. Rows are purged after
+ * {@code invalidation.jdbc.retention-minutes}.
+ */
+@Entity
+@Table(name = "invalidation_log", indexes = {
+        @Index(name = "idx_invalidation_log_created_at", columnList = "created_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class InvalidationLogEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "origin_node_id", nullable = false, length = 36)
+    private String originNodeId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private InvalidationEntity entity;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "cache_key", length = 100)
+    private String cacheKey;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public InvalidationLogEntry(InvalidationMessage message, LocalDateTime createdAt) {
+        this.originNodeId = message.getOriginNodeId();
+        this.entity = message.getEntity();
+        this.userId = message.getUserId();
+        this.cacheKey = message.getKey();
+        this.createdAt = createdAt;
+    }
+
+    public InvalidationMessage toMessage() {
+        return new InvalidationMessage(originNodeId, entity, userId, cacheKey);
+    }
+}
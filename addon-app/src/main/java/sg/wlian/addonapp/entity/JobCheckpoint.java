@@ -0,0 +1,53 @@
+package sg.wlian.addonapp.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress and metrics of one run of a batch job. {@code lastKey} is the last fully processed key
+ * (e.g. user id), so a run that did not complete can be resumed from where it stopped.
+ */
+@Entity
+@Table(name = "job_checkpoint", indexes = {
+        @Index(name = "idx_job_checkpoint_name_started", columnList = "job_name, started_at")
+})
+@Getter
+@Setter
+public class JobCheckpoint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    @Column(name = "job_name", nullable = false)
+    private String jobName;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private JobStatus status = JobStatus.RUNNING;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    private LocalDateTime finishedAt;
+
+    @Column(nullable = false)
+    private long lastKey;
+
+    @Column(nullable = false)
+    private long itemsProcessed;
+
+    @Column(nullable = false)
+    private long rowsScanned;
+
+    @Column(nullable = false)
+    private long alertsRaised;
+
+    @Column(nullable = false)
+    private long durationMs;
+
+    private String error;
+}
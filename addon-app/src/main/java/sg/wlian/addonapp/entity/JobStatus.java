@@ -0,0 +1,7 @@
+package sg.wlian.addonapp.entity;
+
+public enum JobStatus {
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
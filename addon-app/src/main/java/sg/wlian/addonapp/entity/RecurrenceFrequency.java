@@ -1,5 +1,7 @@
 package sg.wlian.addonapp.entity;
 
+import java.time.LocalDate;
+
 public enum RecurrenceFrequency {
     DAILY("Daily"),
     WEEKLY("Weekly"),
@@ -18,4 +20,52 @@ public enum RecurrenceFrequency {
     public String getDisplayName() {
         return displayName;
     }
+
+    /**
+     * The occurrence after {@code date}.
+     */
+    public LocalDate next(LocalDate date) {
+        switch (this) {
+            case DAILY:
+                return date.plusDays(1);
+            case WEEKLY:
+                return date.plusWeeks(1);
+            case BIWEEKLY:
+                return date.plusWeeks(2);
+            case MONTHLY:
+                return date.plusMonths(1);
+            case QUARTERLY:
+                return date.plusMonths(3);
+            case SEMI_ANNUALLY:
+                return date.plusMonths(6);
+            case ANNUALLY:
+                return date.plusYears(1);
+            default:
+                throw new IllegalStateException("Unknown frequency: " + this);
+        }
+    }
+
+    /**
+     * Average number of occurrences per year, for turning an amount into a daily rate.
+     */
+    public double occurrencesPerYear() {
+        switch (this) {
+            case DAILY:
+                return 365.25;
+            case WEEKLY:
+                return 365.25 / 7;
+            case BIWEEKLY:
+                return 365.25 / 14;
+            case MONTHLY:
+                return 12;
+            case QUARTERLY:
+                return 4;
+            case SEMI_ANNUALLY:
+                return 2;
+            case ANNUALLY:
+                return 1;
+            default:
+                throw new IllegalStateException("Unknown frequency: " + this);
+        }
+    }
 }
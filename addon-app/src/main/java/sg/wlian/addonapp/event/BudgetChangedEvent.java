@@ -0,0 +1,14 @@
+package sg.wlian.addonapp.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by {@code BudgetService} when a user's budgets are created, updated or deleted.
+ */
+@Getter
+@AllArgsConstructor
+public class BudgetChangedEvent {
+
+    private final Long userId;
+}
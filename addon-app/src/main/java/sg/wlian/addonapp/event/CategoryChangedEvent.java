@@ -0,0 +1,14 @@
+package sg.wlian.addonapp.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by {@code CategoryService} when a user's categories are created, updated or deleted.
+ */
+@Getter
+@AllArgsConstructor
+public class CategoryChangedEvent {
+
+    private final Long userId;
+}
@@ -0,0 +1,25 @@
+package sg.wlian.addonapp.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Published when a new expense is far above what the user usually spends in its category.
+ * {@code typicalAmount} is the geometric mean of the category's earlier amounts, and {@code score}
+ * is how many standard deviations above it the expense is, on a log scale.
+ */
+@Getter
+@AllArgsConstructor
+public class ExpenseAnomalyEvent {
+    private final Long expenseId;
+    private final Long userId;
+    private final Long categoryId;
+    private final LocalDate date;
+    private final BigDecimal amount;
+    private final String description;
+    private final BigDecimal typicalAmount;
+    private final double score;
+}
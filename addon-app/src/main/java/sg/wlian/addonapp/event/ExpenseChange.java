@@ -0,0 +1,40 @@
+package sg.wlian.addonapp.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * One expense write: {@code before} is null for a create, {@code after} is null for a delete.
+ */
+@Getter
+@AllArgsConstructor
+public class ExpenseChange {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    private final ExpenseSnapshot before;
+    private final ExpenseSnapshot after;
+
+    public static ExpenseChange created(ExpenseSnapshot after) {
+        return new ExpenseChange(null, after);
+    }
+
+    public static ExpenseChange updated(ExpenseSnapshot before, ExpenseSnapshot after) {
+        return new ExpenseChange(before, after);
+    }
+
+    public static ExpenseChange deleted(ExpenseSnapshot before) {
+        return new ExpenseChange(before, null);
+    }
+
+    public Type getType() {
+        if (before == null) {
+            return Type.CREATED;
+        }
+        return after == null ? Type.DELETED : Type.UPDATED;
+    }
+}
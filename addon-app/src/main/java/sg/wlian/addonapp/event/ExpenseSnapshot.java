@@ -0,0 +1,38 @@
+package sg.wlian.addonapp.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import sg.wlian.addonapp.entity.Expense;
+import sg.wlian.addonapp.entity.PaymentMethod;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Immutable copy of the fields of an expense that listeners care about, taken at the time of a change.
+ */
+@Getter
+@AllArgsConstructor
+public class ExpenseSnapshot {
+    private final Long id;
+    private final Long userId;
+    private final Long categoryId;
+    private final PaymentMethod paymentMethod;
+    private final LocalDate date;
+    private final BigDecimal amount;
+    private final String description;
+    private final String notes;
+
+    public static ExpenseSnapshot of(Expense expense) {
+        return new ExpenseSnapshot(
+                expense.getId(),
+                expense.getUser() != null ? expense.getUser().getId() : null,
+                expense.getCategory() != null ? expense.getCategory().getId() : null,
+                expense.getPaymentMethod(),
+                expense.getDate(),
+                expense.getAmount(),
+                expense.getDescription(),
+                expense.getNotes()
+        );
+    }
+}
@@ -0,0 +1,42 @@
+package sg.wlian.addonapp.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Published by {@code ExpenseService} once per write operation. A batch or a recurring-expense run
+ * publishes a single event carrying all of its changes, so listeners do one update per operation.
+ */
+@Getter
+@AllArgsConstructor
+public class ExpensesChangedEvent {
+
+    private final List<ExpenseChange> changes;
+
+    /**
+     * Months touched by the changes, per user. An update that moves an expense between months
+     * touches both the old and the new month.
+     */
+    public Map<Long, Set<YearMonth>> getAffectedMonthsByUser() {
+        Map<Long, Set<YearMonth>> affected = new HashMap<>();
+        for (ExpenseChange change : changes) {
+            addMonth(affected, change.getBefore());
+            addMonth(affected, change.getAfter());
+        }
+        return affected;
+    }
+
+    private void addMonth(Map<Long, Set<YearMonth>> affected, ExpenseSnapshot snapshot) {
+        if (snapshot == null || snapshot.getUserId() == null || snapshot.getDate() == null) {
+            return;
+        }
+        affected.computeIfAbsent(snapshot.getUserId(), id -> new HashSet<>()).add(YearMonth.from(snapshot.getDate()));
+    }
+}
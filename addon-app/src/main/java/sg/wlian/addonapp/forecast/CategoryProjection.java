@@ -0,0 +1,21 @@
+package sg.wlian.addonapp.forecast;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Spend of one category over a period, in cents: what has been recorded up to today, and what is
+ * expected for the rest of the period from recurring instances and from the fitted trend.
+ */
+@Getter
+@AllArgsConstructor
+public class CategoryProjection {
+    private final long categoryId;
+    private final long spentCents;
+    private final long recurringCents;
+    private final long discretionaryCents;
+
+    public long getProjectedCents() {
+        return spentCents + recurringCents + discretionaryCents;
+    }
+}
@@ -0,0 +1,136 @@
+package sg.wlian.addonapp.forecast;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Daily spend of one category over a sliding window of whole weeks ending on {@code lastDay}, in
+ * cents, together with the running sums a least-squares trend and day-of-week factors are fitted
+ * from.
+ *
+ * <p>Adding spend and sliding the window by a day are O(1): the sums are adjusted rather than
+ * recomputed, so a fit never rereads the history. Not thread-safe; {@link UserSpendModel} guards it.
+ */
+class DailySpendSeries {
+
+    private final int days;
+    private final long[] cents;
+    private final long[] centsByDayOfWeek = new long[7];
+    private long lastDay;
+
+    // Sum of y and of x * y, where x is the day's position in the window (0 = oldest)
+    private long total;
+    private long weightedTotal;
+
+    DailySpendSeries(int days, LocalDate lastDay) {
+        if (days <= 0 || days % 7 != 0) {
+            throw new IllegalArgumentException("Window must be a whole number of weeks");
+        }
+        this.days = days;
+        this.cents = new long[days];
+        this.lastDay = lastDay.toEpochDay();
+    }
+
+    /**
+     * Adds spend on a day. Days outside the window are ignored.
+     */
+    void add(LocalDate date, long amountCents) {
+        long day = date.toEpochDay();
+        long x = day - firstDay();
+        if (x < 0 || x >= days) {
+            return;
+        }
+        cents[slot(day)] += amountCents;
+        centsByDayOfWeek[date.getDayOfWeek().ordinal()] += amountCents;
+        total += amountCents;
+        weightedTotal += x * amountCents;
+    }
+
+    /**
+     * Slides the window forward so it ends on {@code date}. Earlier dates are ignored.
+     */
+    void rollTo(LocalDate date) {
+        long target = date.toEpochDay();
+        if (target <= lastDay) {
+            return;
+        }
+        if (target - lastDay >= days) {
+            Arrays.fill(cents, 0);
+            Arrays.fill(centsByDayOfWeek, 0);
+            total = 0;
+            weightedTotal = 0;
+            lastDay = target;
+            return;
+        }
+        while (lastDay < target) {
+            long oldest = firstDay();
+            long dropped = cents[slot(oldest)];
+            cents[slot(oldest)] = 0;
+            centsByDayOfWeek[LocalDate.ofEpochDay(oldest).getDayOfWeek().ordinal()] -= dropped;
+            total -= dropped;
+            // The dropped day was at x = 0; every remaining day moves down one position
+            weightedTotal -= total;
+            lastDay++;
+        }
+    }
+
+    LocalDate getLastDay() {
+        return LocalDate.ofEpochDay(lastDay);
+    }
+
+    boolean isEmpty() {
+        return total == 0;
+    }
+
+    /**
+     * Recorded spend from {@code from} to {@code to}, inclusive, clipped to the window.
+     */
+    long sum(LocalDate from, LocalDate to) {
+        long start = Math.max(from.toEpochDay(), firstDay());
+        long end = Math.min(to.toEpochDay(), lastDay);
+        long sum = 0;
+        for (long day = start; day <= end; day++) {
+            sum += cents[slot(day)];
+        }
+        return sum;
+    }
+
+    /**
+     * Expected spend from {@code from} to {@code to}, inclusive, from the window's linear trend scaled by
+     * the day-of-week factors. {@code excludedDailyCents} is the part of the average daily spend that
+     * is forecast separately (recurring instances); the projection is scaled down by that share so it
+     * is not counted twice. Days are expected to be after the window; a negative trend counts as zero.
+     */
+    double project(LocalDate from, LocalDate to, double excludedDailyCents) {
+        if (total <= 0 || to.isBefore(from)) {
+            return 0;
+        }
+        double n = days;
+        double sumX = n * (n - 1) / 2;
+        double sumXX = (n - 1) * n * (2 * n - 1) / 6;
+        double slope = (n * weightedTotal - sumX * total) / (n * sumXX - sumX * sumX);
+        double intercept = (total - slope * sumX) / n;
+        double mean = total / n;
+        double weeks = days / 7.0;
+        double share = Math.max(0, 1 - excludedDailyCents / mean);
+
+        double projected = 0;
+        long first = firstDay();
+        for (long day = from.toEpochDay(); day <= to.toEpochDay(); day++) {
+            double level = Math.max(0, intercept + slope * (day - first));
+            DayOfWeek dayOfWeek = LocalDate.ofEpochDay(day).getDayOfWeek();
+            double factor = Math.max(0, centsByDayOfWeek[dayOfWeek.ordinal()] / weeks / mean);
+            projected += level * factor;
+        }
+        return projected * share;
+    }
+
+    private long firstDay() {
+        return lastDay - days + 1;
+    }
+
+    private int slot(long day) {
+        return (int) Math.floorMod(day, (long) days);
+    }
+}
@@ -0,0 +1,56 @@
+package sg.wlian.addonapp.forecast;
+
+import sg.wlian.addonapp.entity.RecurrenceFrequency;
+
+import java.time.LocalDate;
+
+/**
+ * A recurring expense as far as forecasting is concerned: what it costs, how often, and the last
+ * instance already recorded.
+ */
+class RecurringTemplate {
+
+    private final long categoryId;
+    private final long amountCents;
+    private final RecurrenceFrequency frequency;
+    private final LocalDate lastOccurrence;
+    private final LocalDate endDate;
+
+    RecurringTemplate(long categoryId, long amountCents, RecurrenceFrequency frequency,
+                      LocalDate lastOccurrence, LocalDate endDate) {
+        this.categoryId = categoryId;
+        this.amountCents = amountCents;
+        this.frequency = frequency;
+        this.lastOccurrence = lastOccurrence;
+        this.endDate = endDate;
+    }
+
+    long getCategoryId() {
+        return categoryId;
+    }
+
+    boolean isActiveOn(LocalDate date) {
+        return endDate == null || !date.isAfter(endDate);
+    }
+
+    /**
+     * Average spend per day, for taking recurring spend out of the fitted trend.
+     */
+    double dailyCents() {
+        return amountCents * frequency.occurrencesPerYear() / 365.25;
+    }
+
+    /**
+     * Spend of the instances still to come from {@code from} to {@code to}, inclusive.
+     */
+    long upcomingCents(LocalDate from, LocalDate to) {
+        long cents = 0;
+        for (LocalDate date = frequency.next(lastOccurrence); !date.isAfter(to) && isActiveOn(date);
+             date = frequency.next(date)) {
+            if (!date.isBefore(from)) {
+                cents += amountCents;
+            }
+        }
+        return cents;
+    }
+}
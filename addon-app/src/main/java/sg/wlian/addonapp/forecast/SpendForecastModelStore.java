@@ -0,0 +1,265 @@
+package sg.wlian.addonapp.forecast;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import sg.wlian.addonapp.cache.ExpenseWriteTracker;
+import sg.wlian.addonapp.entity.RecurrenceFrequency;
+import sg.wlian.addonapp.event.ExpenseChange;
+import sg.wlian.addonapp.event.ExpenseSnapshot;
+import sg.wlian.addonapp.event.ExpensesChangedEvent;
+import sg.wlian.addonapp.invalidation.InvalidationEntity;
+import sg.wlian.addonapp.invalidation.InvalidationHandler;
+import sg.wlian.addonapp.invalidation.InvalidationMessage;
+import sg.wlian.addonapp.repository.ExpenseRepository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-user forecasting models, held in memory.
+ *
+ * <p>A user's model is built the first time it is read (or by the nightly precompute): one query
+ * for the daily spend per category over the last {@code forecast.history-weeks} weeks, and one for
+ * the user's recurring templates. After that, expense writes are applied to the model through
+ * {@link ExpensesChangedEvent}, and the window slides forward a day at a time as dates pass, so a
+ * forecast is computed from the model alone without reading expense history.
+ *
+ * <p>Only categorized spend is modelled, as budgets are per category. Any expense change marks the
+ * user's templates stale, since the event does not say whether a template was involved; they are
+ * reloaded with one query on the next read. Changes made on another node arrive through the
+ * invalidation bus without amounts, so the user is evicted and rebuilt on the next read. Users that
+ * have not been read recently are evicted, least recently used first, once more than
+ * {@code forecast.max-users} are held.
+ *
+ * <p>A built model is installed and then checked against the {@link ExpenseWriteTracker} under its
+ * lock. If one of the user's writes committed while the model was read, the build is repeated, up to
+ * {@code forecast.max-build-attempts} times on a read; a model that still raced, or one from the
+ * nightly precompute that did, is built again on its next read.
+ */
+@Component
+public class SpendForecastModelStore implements InvalidationHandler {
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private ExpenseWriteTracker writeTracker;
+
+    @Value("${forecast.history-weeks:12}")
+    private int historyWeeks = 12;
+
+    @Value("${forecast.max-users:50000}")
+    private int maxUsers = 50000;
+
+    @Value("${forecast.max-build-attempts:3}")
+    private int maxBuildAttempts = 3;
+
+    private final ConcurrentHashMap<Long, UserSpendModel> models = new ConcurrentHashMap<>();
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final AtomicLong ticks = new AtomicLong();
+
+    /**
+     * Spend of each category over {@code [periodStart, periodEnd]}: recorded up to {@code today}, and
+     * projected for the days after it. {@code categoryIds} limits the categories; {@code null} means
+     * every category the user has spend or a recurring template in. Recorded spend only reaches back
+     * {@code forecast.history-weeks} weeks.
+     */
+    public List<CategoryProjection> project(Long userId, LocalDate today, LocalDate periodStart,
+                                            LocalDate periodEnd, Collection<Long> categoryIds) {
+        UserSpendModel model = model(userId, today);
+        LocalDate projectFrom = periodStart.isAfter(today) ? periodStart : today.plusDays(1);
+        List<CategoryProjection> projections = new ArrayList<>();
+        model.lock.lock();
+        try {
+            model.rollTo(today);
+            if (model.isTemplatesStale()) {
+                model.setTemplates(loadTemplates(List.of(userId)).getOrDefault(userId, new ArrayList<>()));
+            }
+            for (Long categoryId : categoryIds != null ? categoryIds : model.categoryIds()) {
+                projections.add(new CategoryProjection(
+                        categoryId,
+                        model.spent(categoryId, periodStart, today),
+                        model.projectedRecurring(categoryId, projectFrom, periodEnd),
+                        model.projectedDiscretionary(categoryId, projectFrom, periodEnd)));
+            }
+        } finally {
+            model.lock.unlock();
+        }
+        return projections;
+    }
+
+    /**
+     * Rebuilds the models of a set of users from the database, with one query for daily spend and one
+     * for recurring templates.
+     *
+     * @return number of expenses the rebuilt models were fitted on
+     */
+    public long rebuild(Collection<Long> userIds, LocalDate today) {
+        Map<Long, Long> versions = new HashMap<>();
+        for (Long userId : userIds) {
+            versions.put(userId, writeTracker.quiescentVersion(userId));
+        }
+        Map<Long, UserSpendModel> fresh = new HashMap<>();
+        long expenses = build(userIds, today, fresh);
+        fresh.forEach((userId, model) -> install(userId, model, versions.getOrDefault(userId, -1L)));
+        evictIfFull();
+        return expenses;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onExpensesChanged(ExpensesChangedEvent event) {
+        for (ExpenseChange change : event.getChanges()) {
+            apply(change.getBefore(), -1);
+            apply(change.getAfter(), 1);
+        }
+    }
+
+    @Override
+    public void onInvalidation(InvalidationMessage message) {
+        if (message.getEntity() == InvalidationEntity.EXPENSE) {
+            evict(message.getUserId());
+        }
+    }
+
+    public int size() {
+        return models.size();
+    }
+
+    public void evict(Long userId) {
+        models.remove(userId);
+    }
+
+    private UserSpendModel model(Long userId, LocalDate today) {
+        UserSpendModel model = models.get(userId);
+        if (model == null || model.rebuildOnRead) {
+            for (int attempt = 1; ; attempt++) {
+                long version = writeTracker.quiescentVersion(userId);
+                Map<Long, UserSpendModel> fresh = new HashMap<>();
+                build(List.of(userId), today, fresh);
+                model = fresh.get(userId);
+                if (install(userId, model, version) || attempt >= maxBuildAttempts) {
+                    break;
+                }
+            }
+            evictIfFull();
+        }
+        model.lastAccess = ticks.incrementAndGet();
+        return model;
+    }
+
+    /**
+     * Installs a built model and reports whether none of the user's writes started since
+     * {@code version}. Checked under the model's lock, which changes are applied with, so every later
+     * write is applied to this model; one that raced the build marks it to be built again.
+     */
+    private boolean install(Long userId, UserSpendModel model, long version) {
+        model.lock.lock();
+        try {
+            UserSpendModel previous = models.put(userId, model);
+            model.lastAccess = previous != null ? previous.lastAccess : ticks.incrementAndGet();
+            if (writeTracker.unchangedSince(userId, version)) {
+                return true;
+            }
+            model.rebuildOnRead = true;
+            return false;
+        } finally {
+            model.lock.unlock();
+        }
+    }
+
+    private long build(Collection<Long> userIds, LocalDate today, Map<Long, UserSpendModel> fresh) {
+        LocalDate from = today.minusDays(historyDays() - 1L);
+        long expenses = 0;
+        for (Object[] row : expenseRepository.sumDailyByUserCategory(userIds, from, today)) {
+            fresh.computeIfAbsent((Long) row[0], id -> new UserSpendModel(historyDays(), today))
+                    .add((Long) row[1], (LocalDate) row[2], toCents((BigDecimal) row[3]));
+            expenses += (Long) row[4];
+        }
+        Map<Long, List<RecurringTemplate>> templates = loadTemplates(userIds);
+        for (Long userId : userIds) {
+            fresh.computeIfAbsent(userId, id -> new UserSpendModel(historyDays(), today))
+                    .setTemplates(templates.getOrDefault(userId, new ArrayList<>()));
+        }
+        return expenses;
+    }
+
+    private void apply(ExpenseSnapshot snapshot, int sign) {
+        if (snapshot == null || snapshot.getUserId() == null) {
+            return;
+        }
+        UserSpendModel model = models.get(snapshot.getUserId());
+        if (model == null) {
+            return;
+        }
+        model.lock.lock();
+        try {
+            // The window has to reach today before today's spend can be added
+            model.rollTo(LocalDate.now());
+            model.markTemplatesStale();
+            if (snapshot.getCategoryId() != null && snapshot.getDate() != null && snapshot.getAmount() != null) {
+                model.add(snapshot.getCategoryId(), snapshot.getDate(), sign * toCents(snapshot.getAmount()));
+            }
+        } finally {
+            model.lock.unlock();
+        }
+    }
+
+    private Map<Long, List<RecurringTemplate>> loadTemplates(Collection<Long> userIds) {
+        Map<Long, List<RecurringTemplate>> templates = new HashMap<>();
+        for (Object[] row : expenseRepository.findRecurringTemplatesForUsers(userIds)) {
+            // [userId, categoryId, amount, frequency, date, lastRecurrenceDate, recurrenceEndDate]
+            if (row[1] == null || row[2] == null || row[3] == null || row[4] == null) {
+                continue;
+            }
+            LocalDate lastOccurrence = row[5] != null ? (LocalDate) row[5] : (LocalDate) row[4];
+            templates.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add(new RecurringTemplate(
+                    (Long) row[1], toCents((BigDecimal) row[2]), (RecurrenceFrequency) row[3],
+                    lastOccurrence, (LocalDate) row[6]));
+        }
+        return templates;
+    }
+
+    private void evictIfFull() {
+        if (models.size() <= maxUsers || !evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            int excess = models.size() - maxUsers;
+            if (excess <= 0) {
+                return;
+            }
+            // Drop the least recently read tenth (at least the excess) so eviction runs rarely
+            int toEvict = Math.max(excess, maxUsers / 10);
+            models.entrySet().stream()
+                    .sorted(Comparator.comparingLong(e -> e.getValue().lastAccess))
+                    .limit(toEvict)
+                    .map(Map.Entry::getKey)
+                    .toList()
+                    .forEach(models::remove);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private int historyDays() {
+        return historyWeeks * 7;
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+}
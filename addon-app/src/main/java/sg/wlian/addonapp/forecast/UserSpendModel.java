@@ -0,0 +1,106 @@
+package sg.wlian.addonapp.forecast;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Forecasting state of one user: a {@link DailySpendSeries} per category and the user's recurring
+ * templates. All access goes through the lock.
+ */
+class UserSpendModel {
+
+    final ReentrantLock lock = new ReentrantLock();
+    volatile long lastAccess;
+    // Set when a write raced the build, so the next read builds the model again
+    volatile boolean rebuildOnRead;
+
+    private final int days;
+    private final Map<Long, DailySpendSeries> series = new HashMap<>();
+    private List<RecurringTemplate> templates = new ArrayList<>();
+    // Set when an expense changes; templates are reloaded before the next forecast
+    private boolean templatesStale;
+    private LocalDate lastDay;
+
+    UserSpendModel(int days, LocalDate lastDay) {
+        this.days = days;
+        this.lastDay = lastDay;
+    }
+
+    void add(long categoryId, LocalDate date, long cents) {
+        series.computeIfAbsent(categoryId, id -> new DailySpendSeries(days, lastDay)).add(date, cents);
+    }
+
+    void rollTo(LocalDate date) {
+        if (!date.isAfter(lastDay)) {
+            return;
+        }
+        series.values().forEach(s -> s.rollTo(date));
+        series.values().removeIf(DailySpendSeries::isEmpty);
+        lastDay = date;
+    }
+
+    LocalDate getLastDay() {
+        return lastDay;
+    }
+
+    void setTemplates(List<RecurringTemplate> templates) {
+        this.templates = templates;
+        this.templatesStale = false;
+    }
+
+    void markTemplatesStale() {
+        templatesStale = true;
+    }
+
+    boolean isTemplatesStale() {
+        return templatesStale;
+    }
+
+    /**
+     * Categories with recorded spend in the window or an active recurring template.
+     */
+    Set<Long> categoryIds() {
+        Set<Long> ids = new LinkedHashSet<>(series.keySet());
+        for (RecurringTemplate template : templates) {
+            if (template.isActiveOn(lastDay)) {
+                ids.add(template.getCategoryId());
+            }
+        }
+        return ids;
+    }
+
+    long spent(long categoryId, LocalDate from, LocalDate to) {
+        DailySpendSeries categorySeries = series.get(categoryId);
+        return categorySeries != null ? categorySeries.sum(from, to) : 0;
+    }
+
+    long projectedRecurring(long categoryId, LocalDate from, LocalDate to) {
+        long cents = 0;
+        for (RecurringTemplate template : templates) {
+            if (template.getCategoryId() == categoryId) {
+                cents += template.upcomingCents(from, to);
+            }
+        }
+        return cents;
+    }
+
+    long projectedDiscretionary(long categoryId, LocalDate from, LocalDate to) {
+        DailySpendSeries categorySeries = series.get(categoryId);
+        if (categorySeries == null) {
+            return 0;
+        }
+        double recurringDaily = 0;
+        for (RecurringTemplate template : templates) {
+            if (template.getCategoryId() == categoryId && template.isActiveOn(lastDay)) {
+                recurringDaily += template.dailyCents();
+            }
+        }
+        return Math.round(categorySeries.project(from, to, recurringDaily));
+    }
+}
@@ -0,0 +1,256 @@
+package sg.wlian.addonapp.ingest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log of {@link IngestRecord}s, in segment files named after the sequence of
+ * their first record. Each record is framed as length (int), CRC32 of the payload (int) and payload.
+ *
+ * <p>{@link #append} only writes; {@link #sync()} makes everything appended so far durable, so one sync
+ * covers all the appends made while the previous one ran. {@link #appendAll} writes a group of records
+ * all or nothing. On {@link #open}, a record cut short by a crash, and anything after it in its segment,
+ * is truncated away.
+ */
+public final class IngestLog implements Closeable {
+
+    private static final String SUFFIX = ".wal";
+    private static final int FRAME_HEADER_BYTES = 8;
+    // Larger lengths can only come from a torn or corrupt frame
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final List<IngestRecord> recovered;
+    // First sequence of each segment, the active one last
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+    // Not a monitor: appends do file I/O and are made from virtual threads
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private FileChannel active;
+    private long activeSize;
+    private long lastSequence;
+
+    private IngestLog(Path dir, long segmentBytes, List<IngestRecord> recovered, long lastSequence) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.recovered = recovered;
+        this.lastSequence = lastSequence;
+    }
+
+    /**
+     * Opens the log in {@code dir}, reading back every record still in it. Appends go to a new segment.
+     */
+    public static IngestLog open(Path dir, long segmentBytes) throws IOException {
+        Files.createDirectories(dir);
+        TreeMap<Long, Path> existing = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                existing.put(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())), file);
+            }
+        }
+
+        List<IngestRecord> records = new ArrayList<>();
+        long lastSequence = 0;
+        for (Path file : existing.values()) {
+            for (IngestRecord record : readSegment(file)) {
+                records.add(record);
+                lastSequence = Math.max(lastSequence, record.getSequence());
+            }
+        }
+        IngestLog log = new IngestLog(dir, segmentBytes, records, lastSequence);
+        log.segments.putAll(existing);
+        return log;
+    }
+
+    public List<IngestRecord> recovered() {
+        return recovered;
+    }
+
+    public long lastSequence() {
+        lock.lock();
+        try {
+            return lastSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes a record at the end of the log. It is durable once a later {@link #sync()} returns.
+     */
+    public void append(IngestRecord record) throws IOException {
+        appendAll(List.of(record));
+    }
+
+    /**
+     * Writes the records, in order, at the end of the log, all in the same segment. If the write fails
+     * part-way the segment is cut back to where it was, so none of them are read back on {@link #open}.
+     */
+    public void appendAll(List<IngestRecord> records) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+        List<byte[]> payloads = new ArrayList<>(records.size());
+        int bytes = 0;
+        for (IngestRecord record : records) {
+            byte[] payload = record.encode();
+            payloads.add(payload);
+            bytes += FRAME_HEADER_BYTES + payload.length;
+        }
+        ByteBuffer frames = ByteBuffer.allocate(bytes);
+        CRC32 crc = new CRC32();
+        for (byte[] payload : payloads) {
+            crc.reset();
+            crc.update(payload);
+            frames.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+        }
+        frames.flip();
+
+        lock.lock();
+        try {
+            if (active == null || activeSize >= segmentBytes) {
+                roll(records.get(0).getSequence());
+            }
+            try {
+                while (frames.hasRemaining()) {
+                    active.write(frames);
+                }
+            } catch (IOException e) {
+                try {
+                    active.truncate(activeSize);
+                } catch (IOException truncateFailure) {
+                    e.addSuppressed(truncateFailure);
+                }
+                throw e;
+            }
+            activeSize += bytes;
+            lastSequence = Math.max(lastSequence, records.get(records.size() - 1).getSequence());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forces every record appended before this call to disk.
+     */
+    public void sync() throws IOException {
+        FileChannel channel;
+        lock.lock();
+        try {
+            channel = active;
+        } finally {
+            lock.unlock();
+        }
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.force(false);
+        } catch (ClosedChannelException e) {
+            // Rolled over meanwhile; a segment is forced before it is closed
+        }
+    }
+
+    /**
+     * Deletes the segments, other than the one being appended to, whose records all have a sequence at or
+     * below {@code sequence}.
+     */
+    public void deleteThrough(long sequence) throws IOException {
+        lock.lock();
+        try {
+            Iterator<Map.Entry<Long, Path>> it = segments.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Long, Path> segment = it.next();
+                Long next = segments.higherKey(segment.getKey());
+                // The next segment starts after this one's last record
+                if (next == null || next - 1 > sequence) {
+                    return;
+                }
+                Files.deleteIfExists(segment.getValue());
+                it.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closeActive();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void closeActive() throws IOException {
+        if (active != null) {
+            active.force(false);
+            active.close();
+            active = null;
+        }
+    }
+
+    private void roll(long firstSequence) throws IOException {
+        closeActive();
+        Path file = dir.resolve(String.format("%020d%s", firstSequence, SUFFIX));
+        active = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        activeSize = active.size();
+        segments.put(firstSequence, file);
+    }
+
+    private static List<IngestRecord> readSegment(Path file) throws IOException {
+        List<IngestRecord> records = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long position = 0;
+            ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_BYTES);
+            while (position < size) {
+                IngestRecord record = null;
+                if (size - position >= FRAME_HEADER_BYTES) {
+                    header.clear();
+                    channel.read(header, position);
+                    header.flip();
+                    int length = header.getInt();
+                    int checksum = header.getInt();
+                    if (length >= 0 && length <= MAX_RECORD_BYTES && size - position - FRAME_HEADER_BYTES >= length) {
+                        ByteBuffer payload = ByteBuffer.allocate(length);
+                        channel.read(payload, position + FRAME_HEADER_BYTES);
+                        CRC32 crc = new CRC32();
+                        crc.update(payload.array());
+                        if ((int) crc.getValue() == checksum) {
+                            record = IngestRecord.decode(payload.array());
+                            position += FRAME_HEADER_BYTES + length;
+                        }
+                    }
+                }
+                if (record == null) {
+                    System.out.println("Truncating ingest log " + file + " at byte " + position + " of " + size);
+                    channel.truncate(position);
+                    channel.force(true);
+                    break;
+                }
+                records.add(record);
+            }
+        }
+        return records;
+    }
+}
@@ -0,0 +1,123 @@
+package sg.wlian.addonapp.ingest;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import sg.wlian.addonapp.entity.Category;
+import sg.wlian.addonapp.entity.Expense;
+import sg.wlian.addonapp.entity.PaymentMethod;
+import sg.wlian.addonapp.entity.User;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * One expense accepted for ingestion, as written to the {@link IngestLog}.
+ */
+@Getter
+@AllArgsConstructor
+public class IngestRecord {
+
+    private static final PaymentMethod[] PAYMENT_METHODS = PaymentMethod.values();
+
+    private final long sequence;
+    private final Long userId;
+    private final Long categoryId;
+    private final LocalDate date;
+    private final BigDecimal amount;
+    private final String description;
+    private final String notes;
+    private final PaymentMethod paymentMethod;
+
+    public static IngestRecord of(long sequence, Expense expense) {
+        return new IngestRecord(
+                sequence,
+                expense.getUser().getId(),
+                expense.getCategory() != null ? expense.getCategory().getId() : null,
+                expense.getDate(),
+                expense.getAmount(),
+                expense.getDescription(),
+                expense.getNotes(),
+                expense.getPaymentMethod()
+        );
+    }
+
+    /**
+     * A new expense referencing the user and category by id, ready to be saved.
+     */
+    public Expense toExpense() {
+        Expense expense = new Expense();
+        User user = new User();
+        user.setId(userId);
+        expense.setUser(user);
+        if (categoryId != null) {
+            Category category = new Category();
+            category.setId(categoryId);
+            expense.setCategory(category);
+        }
+        expense.setDate(date);
+        expense.setAmount(amount);
+        expense.setDescription(description);
+        expense.setNotes(notes);
+        expense.setPaymentMethod(paymentMethod);
+        return expense;
+    }
+
+    byte[] encode() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(sequence);
+            out.writeLong(userId);
+            out.writeLong(categoryId != null ? categoryId : 0L);
+            out.writeLong(date.toEpochDay());
+            writeString(out, amount.toPlainString());
+            writeString(out, description);
+            writeString(out, notes);
+            out.writeByte(paymentMethod != null ? paymentMethod.ordinal() : -1);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode ingest record", e);
+        }
+    }
+
+    static IngestRecord decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        long sequence = in.readLong();
+        long userId = in.readLong();
+        long categoryId = in.readLong();
+        LocalDate date = LocalDate.ofEpochDay(in.readLong());
+        BigDecimal amount = new BigDecimal(readString(in));
+        String description = readString(in);
+        String notes = readString(in);
+        byte method = in.readByte();
+        return new IngestRecord(sequence, userId, categoryId != 0 ? categoryId : null, date, amount, description,
+                notes, method >= 0 ? PAYMENT_METHODS[method] : null);
+    }
+
+    // Length-prefixed UTF-8, -1 for null
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,101 @@
+package sg.wlian.addonapp.invalidation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Pushes invalidations straight to the peers listed in {@code invalidation.http.peers}, which receive
+ * them on {@code POST /internal/invalidations}. Delivery is asynchronous and not retried: a peer that is
+ * unreachable misses the message. Use it alongside the JDBC transport when lower latency is wanted,
+ * not instead of it.
+ *
+ * <p>Peers must share {@code invalidation.http.token}; requests without the matching token are refused.
+ */
+@Component
+@ConditionalOnProperty(name = "invalidation.http.enabled", havingValue = "true")
+public class HttpInvalidationTransport implements InvalidationTransport {
+
+    public static final String TOKEN_HEADER = "X-Invalidation-Token";
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${invalidation.http.peers:}")
+    private List<String> peers = Collections.emptyList();
+
+    @Value("${invalidation.http.token:}")
+    private String token = "";
+
+    @Value("${invalidation.http.timeout-ms:2000}")
+    private long timeoutMs = 2000;
+
+    private volatile Consumer<List<InvalidationMessage>> receiver;
+
+    private HttpClient client;
+
+    @Override
+    public void start(Consumer<List<InvalidationMessage>> receiver) {
+        this.receiver = receiver;
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(timeoutMs))
+                .build();
+    }
+
+    @Override
+    public void send(List<InvalidationMessage> messages) {
+        if (peers.isEmpty()) {
+            return;
+        }
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(messages);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to serialize invalidations", e);
+        }
+        for (String peer : peers) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(peer.trim() + "/internal/invalidations"))
+                    .timeout(Duration.ofMillis(timeoutMs))
+                    .header("Content-Type", "application/json")
+                    .header(TOKEN_HEADER, token)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                    .build();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        if (error != null) {
+                            System.out.println("Failed to send invalidations to " + peer + ": " + error.getMessage());
+                        } else if (response.statusCode() >= 300) {
+                            System.out.println("Peer " + peer + " rejected invalidations with status " + response.statusCode());
+                        }
+                    });
+        }
+    }
+
+    public boolean accepts(String presentedToken) {
+        if (token.isEmpty() || presentedToken == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8),
+                presentedToken.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void deliver(List<InvalidationMessage> messages) {
+        Consumer<List<InvalidationMessage>> target = receiver;
+        if (target != null) {
+            target.accept(messages);
+        }
+    }
+}
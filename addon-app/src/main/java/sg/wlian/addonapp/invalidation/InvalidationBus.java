@@ -0,0 +1,238 @@
+package sg.wlian.addonapp.invalidation;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes cache invalidations to the other nodes of a cluster and hands invalidations received from
+ * them to every {@link InvalidationHandler}.
+ *
+ * <p>Messages published inside a transaction are collected and sent once, after the transaction
+ * commits, so other nodes never reload data that is not yet visible to them and a rolled back change
+ * sends nothing. Outside a transaction messages are sent immediately.
+ *
+ * <p>Sending is handed to one background thread. A transport may need a database connection or a
+ * network round trip, and doing that in {@code afterCommit} would hold the writer's connection while
+ * taking a second one, on every write. A failed send is retried up to
+ * {@code invalidation.send.max-attempts} times before the messages are given up on.
+ *
+ * <p>Each node gets a random id at startup. Messages carry the id of the node that sent them, and a
+ * node ignores its own messages when they come back through a shared transport.
+ */
+@Component
+public class InvalidationBus {
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Autowired(required = false)
+    private List<InvalidationTransport> transports = Collections.emptyList();
+
+    @Autowired(required = false)
+    private List<InvalidationHandler> handlers = Collections.emptyList();
+
+    @Value("${invalidation.send.queue-capacity:10000}")
+    private int queueCapacity = 10000;
+
+    @Value("${invalidation.send.max-attempts:5}")
+    private int maxAttempts = 5;
+
+    @Value("${invalidation.send.retry-delay-ms:1000}")
+    private long retryDelayMs = 1000;
+
+    // Batches committed but not yet sent, in commit order
+    private final LinkedBlockingQueue<List<InvalidationMessage>> outbox = new LinkedBlockingQueue<>();
+
+    private volatile boolean running;
+    // Set on shutdown, when a failed send is not worth waiting to retry
+    private volatile boolean stopping;
+    private Thread sender;
+
+    @PostConstruct
+    public void start() {
+        transports.forEach(transport -> transport.start(this::receive));
+        if (transports.isEmpty()) {
+            return;
+        }
+        running = true;
+        sender = new Thread(this::runSender, "invalidation-sender");
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        stopping = true;
+        if (sender != null) {
+            sender.interrupt();
+            try {
+                sender.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Whatever is still queued goes out from here
+        flush();
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void publish(InvalidationEntity entity, Long userId, String key) {
+        if (userId == null || transports.isEmpty()) {
+            return;
+        }
+        InvalidationMessage message = new InvalidationMessage(nodeId, entity, userId, key);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(List.of(message));
+            return;
+        }
+        pendingBatch().messages.add(message);
+    }
+
+    /**
+     * Delivers messages received by a transport. Messages this node sent itself are skipped.
+     */
+    public void receive(List<InvalidationMessage> messages) {
+        for (InvalidationMessage message : messages) {
+            if (nodeId.equals(message.getOriginNodeId())) {
+                continue;
+            }
+            for (InvalidationHandler handler : handlers) {
+                try {
+                    handler.onInvalidation(message);
+                } catch (Exception e) {
+                    System.out.println("Invalidation handler " + handler.getClass().getSimpleName()
+                            + " failed for " + message + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends every queued batch on the calling thread. Returns the number of batches taken.
+     */
+    int flush() {
+        int batches = 0;
+        List<InvalidationMessage> messages;
+        while ((messages = outbox.poll()) != null) {
+            send(messages);
+            batches++;
+        }
+        return batches;
+    }
+
+    int getQueuedCount() {
+        return outbox.size();
+    }
+
+    private void enqueue(List<InvalidationMessage> messages) {
+        if (outbox.size() >= queueCapacity) {
+            // Other nodes catch up when their entries expire or are reconciled
+            System.out.println("Invalidation queue full, dropping " + messages.size() + " invalidations");
+            return;
+        }
+        outbox.add(messages);
+    }
+
+    private void runSender() {
+        while (running) {
+            try {
+                List<InvalidationMessage> messages = outbox.poll(1, TimeUnit.SECONDS);
+                if (messages != null) {
+                    send(messages);
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void send(List<InvalidationMessage> messages) {
+        for (InvalidationTransport transport : transports) {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    transport.send(messages);
+                    break;
+                } catch (Exception e) {
+                    if (attempt >= maxAttempts || stopping) {
+                        // The transaction has already committed; other nodes catch up when their entries
+                        // expire or are reconciled
+                        System.out.println("Failed to send " + messages.size() + " invalidations via "
+                                + transport.getClass().getSimpleName() + " after " + attempt + " attempts: "
+                                + e.getMessage());
+                        break;
+                    }
+                    if (!sleep(retryDelayMs)) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private PendingInvalidations pendingBatch() {
+        // Looked up among the current synchronizations rather than bound as a resource, so a suspended
+        // outer transaction and a REQUIRES_NEW inner one keep separate batches
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingInvalidations pending && pending.bus() == this) {
+                return pending;
+            }
+        }
+        PendingInvalidations pending = new PendingInvalidations();
+        TransactionSynchronizationManager.registerSynchronization(pending);
+        return pending;
+    }
+
+    private final class PendingInvalidations implements TransactionSynchronization {
+
+        private final Set<InvalidationMessage> messages = new LinkedHashSet<>();
+
+        InvalidationBus bus() {
+            return InvalidationBus.this;
+        }
+
+        @Override
+        public void afterCommit() {
+            enqueue(new ArrayList<>(collapse(messages)));
+        }
+    }
+
+    // A whole-user message makes keyed messages for the same user and entity redundant
+    static Set<InvalidationMessage> collapse(Set<InvalidationMessage> messages) {
+        Set<InvalidationMessage> result = new LinkedHashSet<>();
+        for (InvalidationMessage message : messages) {
+            if (message.getKey() != null && messages.contains(new InvalidationMessage(
+                    message.getOriginNodeId(), message.getEntity(), message.getUserId(), null))) {
+                continue;
+            }
+            result.add(message);
+        }
+        return result;
+    }
+}
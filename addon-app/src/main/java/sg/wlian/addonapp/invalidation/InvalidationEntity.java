@@ -0,0 +1,11 @@
+package sg.wlian.addonapp.invalidation;
+
+/**
+ * Kind of data an {@link InvalidationMessage} refers to.
+ */
+public enum InvalidationEntity {
+    // key is the affected month (yyyy-MM)
+    EXPENSE,
+    BUDGET,
+    CATEGORY
+}
@@ -0,0 +1,12 @@
+package sg.wlian.addonapp.invalidation;
+
+/**
+ * Implemented by in-memory caches that must drop entries when another node changes the underlying data.
+ * Every handler bean receives every message published by other nodes and ignores the entities it does
+ * not cache. Changes made on the local node are not delivered here; caches already learn about those
+ * from the application events.
+ */
+public interface InvalidationHandler {
+
+    void onInvalidation(InvalidationMessage message);
+}
@@ -0,0 +1,20 @@
+package sg.wlian.addonapp.invalidation;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Tells other nodes that cached data of a user is no longer valid. A {@code null} key means everything
+ * of that entity for the user.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvalidationMessage {
+
+    private String originNodeId;
+    private InvalidationEntity entity;
+    private Long userId;
+    private String key;
+}
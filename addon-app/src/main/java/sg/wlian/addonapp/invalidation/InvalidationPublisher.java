@@ -0,0 +1,37 @@
+package sg.wlian.addonapp.invalidation;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import sg.wlian.addonapp.event.BudgetChangedEvent;
+import sg.wlian.addonapp.event.CategoryChangedEvent;
+import sg.wlian.addonapp.event.ExpensesChangedEvent;
+
+/**
+ * Forwards the local change events to the other nodes.
+ *
+ * <p>These are plain (not transactional) listeners: they run inside the publishing transaction, which
+ * lets {@link InvalidationBus} hold the messages back until that transaction commits.
+ */
+@Component
+public class InvalidationPublisher {
+
+    @Autowired
+    private InvalidationBus invalidationBus;
+
+    @EventListener
+    public void onExpensesChanged(ExpensesChangedEvent event) {
+        event.getAffectedMonthsByUser().forEach((userId, months) -> months.forEach(month ->
+                invalidationBus.publish(InvalidationEntity.EXPENSE, userId, month.toString())));
+    }
+
+    @EventListener
+    public void onBudgetChanged(BudgetChangedEvent event) {
+        invalidationBus.publish(InvalidationEntity.BUDGET, event.getUserId(), null);
+    }
+
+    @EventListener
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        invalidationBus.publish(InvalidationEntity.CATEGORY, event.getUserId(), null);
+    }
+}
@@ -0,0 +1,24 @@
+package sg.wlian.addonapp.invalidation;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Carries invalidation messages between nodes. Any bean implementing this interface is picked up by
+ * {@link InvalidationBus}; several transports may be active at once, since handling a message twice is
+ * harmless.
+ */
+public interface InvalidationTransport {
+
+    /**
+     * Called once at startup with the callback that messages received from other nodes are passed to.
+     */
+    void start(Consumer<List<InvalidationMessage>> receiver);
+
+    /**
+     * Sends messages to the other nodes. Called after the publishing transaction has committed, so an
+     * implementation must not rely on the caller's transaction. Failures should be handled or thrown;
+     * the bus logs and drops them.
+     */
+    void send(List<InvalidationMessage> messages);
+}
@@ -0,0 +1,128 @@
+package sg.wlian.addonapp.invalidation;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import sg.wlian.addonapp.entity.InvalidationLogEntry;
+import sg.wlian.addonapp.repository.InvalidationLogRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Uses the shared database as the message broker: senders insert rows into {@code invalidation_log}
+ * and every node polls for rows above the last id it has seen.
+ *
+ * <p>Identity values are assigned at insert time but become visible at commit, so a row with a lower
+ * id can appear after a higher one has been read. The cursor therefore only moves past rows older than
+ * {@code invalidation.jdbc.safety-lag-ms}; newer rows are delivered straight away and remembered so they
+ * are not delivered twice when the next poll reads them again. This is the same lag the expense sync
+ * uses for its cursor.
+ *
+ * <p>A node starts at the end of the log. Its caches are empty at that point, so nothing older needs to
+ * be replayed.
+ */
+@Component
+@ConditionalOnProperty(name = "invalidation.jdbc.enabled", havingValue = "true")
+public class JdbcInvalidationTransport implements InvalidationTransport {
+
+    @Autowired
+    private InvalidationLogRepository invalidationLogRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${invalidation.jdbc.batch-size:500}")
+    private int batchSize = 500;
+
+    @Value("${invalidation.jdbc.safety-lag-ms:2000}")
+    private long safetyLagMs = 2000;
+
+    @Value("${invalidation.jdbc.retention-minutes:60}")
+    private long retentionMinutes = 60;
+
+    private volatile Consumer<List<InvalidationMessage>> receiver;
+
+    private final ReentrantLock pollLock = new ReentrantLock();
+
+    // Guarded by pollLock
+    private long cursor = -1;
+    private final Set<Long> deliveredAboveCursor = new HashSet<>();
+
+    @Override
+    public void start(Consumer<List<InvalidationMessage>> receiver) {
+        this.receiver = receiver;
+    }
+
+    @Override
+    public void send(List<InvalidationMessage> messages) {
+        LocalDateTime now = LocalDateTime.now();
+        List<InvalidationLogEntry> entries = new ArrayList<>(messages.size());
+        for (InvalidationMessage message : messages) {
+            entries.add(new InvalidationLogEntry(message, now));
+        }
+        // Called after the caller's transaction has committed, so write in a transaction of our own
+        newTransaction().executeWithoutResult(status -> invalidationLogRepository.saveAll(entries));
+    }
+
+    /**
+     * Reads new rows and passes them to the bus. Returns the number of messages delivered.
+     */
+    public int poll() {
+        Consumer<List<InvalidationMessage>> target = receiver;
+        if (target == null || !pollLock.tryLock()) {
+            return 0;
+        }
+        try {
+            LocalDateTime settled = LocalDateTime.now().minusNanos(safetyLagMs * 1_000_000);
+            if (cursor < 0) {
+                cursor = invalidationLogRepository.findMaxIdCreatedBefore(settled);
+            }
+
+            List<InvalidationLogEntry> rows = invalidationLogRepository.findByIdGreaterThanOrderByIdAsc(
+                    cursor, PageRequest.of(0, batchSize));
+            List<InvalidationMessage> fresh = new ArrayList<>();
+            boolean advancing = true;
+            for (InvalidationLogEntry row : rows) {
+                if (deliveredAboveCursor.add(row.getId())) {
+                    fresh.add(row.toMessage());
+                }
+                if (advancing && row.getCreatedAt().isBefore(settled)) {
+                    cursor = row.getId();
+                } else {
+                    advancing = false;
+                }
+            }
+            deliveredAboveCursor.removeIf(id -> id <= cursor);
+
+            if (!fresh.isEmpty()) {
+                target.accept(fresh);
+            }
+            return fresh.size();
+        } finally {
+            pollLock.unlock();
+        }
+    }
+
+    public int purgeExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(retentionMinutes);
+        Integer purged = newTransaction().execute(status -> invalidationLogRepository.deleteByCreatedAtBefore(cutoff));
+        return purged != null ? purged : 0;
+    }
+
+    private TransactionTemplate newTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+}
@@ -0,0 +1,369 @@
+package sg.wlian.addonapp.ledger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import sg.wlian.addonapp.event.CategoryChangedEvent;
+import sg.wlian.addonapp.event.ExpensesChangedEvent;
+import sg.wlian.addonapp.invalidation.InvalidationEntity;
+import sg.wlian.addonapp.invalidation.InvalidationHandler;
+import sg.wlian.addonapp.invalidation.InvalidationMessage;
+import sg.wlian.addonapp.repository.ExpenseRepository;
+import sg.wlian.addonapp.repository.UserRepository;
+import sg.wlian.addonapp.service.DatabaseIdentityService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cold tier of expense history: each user's months older than {@code expense.ledger.compact-after-months}
+ * are copied into immutable {@link LedgerSegment} files under {@code expense.ledger.dir/<userId>/}, which
+ * report reads map instead of querying the database.
+ *
+ * <p>A user's segments form a chain, each holding the days after the previous one's last day, so the
+ * chain covers every expense up to its last segment's through day. {@link #compact} appends a segment
+ * for the months that closed since the last run, and merges the chain into one segment once it reaches
+ * {@code expense.ledger.max-segments}. The database stays the source of truth: a change to a compacted
+ * month, here or on another node, deletes the segments from that month on, and the next compaction
+ * rewrites them. Category changes delete all of the user's segments, since deleting a category
+ * uncategorizes its expenses without an expense event.
+ *
+ * <p>Segment files are local to each node, and every node compacts its own. The directory records the id
+ * of the database it was compacted from ({@link DatabaseIdentityService}); on first use against another
+ * database, such as one recreated by {@code ddl-auto=create-drop}, every segment is deleted, since its
+ * user ids belong to other users there. With {@code expense.ledger.dir} left empty there is no ledger
+ * and every read goes to the database.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ExpenseLedger implements InvalidationHandler {
+
+    private static final String SUFFIX = ".seg";
+
+    private static final String DATABASE_FILE = "database-id";
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DatabaseIdentityService databaseIdentityService;
+
+    @Value("${expense.ledger.dir:}")
+    private String ledgerDir = "";
+
+    @Value("${expense.ledger.compact-after-months:3}")
+    private int compactAfterMonths = 3;
+
+    @Value("${expense.ledger.max-segments:12}")
+    private int maxSegments = 12;
+
+    @Value("${expense.ledger.index-interval:256}")
+    private int indexInterval = 256;
+
+    @Value("${expense.ledger.compaction-page-size:200}")
+    private int compactionPageSize = 200;
+
+    // Striped so reads, compaction and deletes of one user do not interleave
+    private final ReentrantLock[] locks = new ReentrantLock[64];
+
+    private final ReentrantLock databaseLock = new ReentrantLock();
+
+    // Set once the directory is known to belong to the current database
+    private volatile boolean databaseChecked;
+
+    // Bumped on every change to a month that is or may soon be compacted, so a compaction that read the
+    // database before the change does not install its segment
+    private final ConcurrentHashMap<Long, Long> versions = new ConcurrentHashMap<>();
+
+    public ExpenseLedger() {
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public boolean isEnabled() {
+        return ledgerDir != null && !ledgerDir.isBlank();
+    }
+
+    /**
+     * The user's segment chain, mapped and ordered by day. Empty when the user has none or the ledger
+     * is disabled.
+     */
+    public List<LedgerSegment> segments(Long userId) {
+        if (!isEnabled()) {
+            return Collections.emptyList();
+        }
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            checkDatabase();
+            return chain(userId);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read the expense ledger of user " + userId, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Last month that is old enough to be compacted.
+     */
+    public YearMonth compactableThrough() {
+        return YearMonth.now().minusMonths(compactAfterMonths);
+    }
+
+    /**
+     * Compacts the closed months of every user, in keyset pages of users. Users whose segments are
+     * current only cost a directory listing, so the files themselves are the job's progress.
+     *
+     * @return the number of users that got a new segment
+     */
+    public int compactAll() {
+        if (!isEnabled()) {
+            return 0;
+        }
+        YearMonth through = compactableThrough();
+        int compacted = 0;
+        long afterUserId = 0;
+        while (true) {
+            List<Long> userIds = userRepository.findIdsAfter(afterUserId, PageRequest.of(0, compactionPageSize));
+            if (userIds.isEmpty()) {
+                break;
+            }
+            for (Long userId : userIds) {
+                try {
+                    if (compact(userId, through)) {
+                        compacted++;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    System.out.println("Failed to compact the expense ledger of user " + userId + ": " + e.getMessage());
+                }
+            }
+            afterUserId = userIds.get(userIds.size() - 1);
+        }
+        return compacted;
+    }
+
+    /**
+     * Extends the user's chain through {@code through}, or rewrites it as one segment once it has
+     * {@code max-segments} segments.
+     *
+     * @return whether a segment was written
+     */
+    public boolean compact(Long userId, YearMonth through) throws IOException {
+        if (!isEnabled()) {
+            return false;
+        }
+        int throughDay = (int) through.atEndOfMonth().toEpochDay();
+        ReentrantLock lock = lockFor(userId);
+        List<LedgerSegment> chain;
+        long version;
+        lock.lock();
+        try {
+            checkDatabase();
+            chain = chain(userId);
+            version = versions.getOrDefault(userId, 0L);
+        } finally {
+            lock.unlock();
+        }
+        int coveredDay = chain.isEmpty() ? LedgerSegment.FROM_START : chain.get(chain.size() - 1).getThroughDay();
+        if (coveredDay >= throughDay) {
+            return false;
+        }
+        boolean merge = chain.size() + 1 >= maxSegments;
+        int afterDay = merge ? LedgerSegment.FROM_START : coveredDay;
+
+        List<Object[]> rows = expenseRepository.findLedgerRowsByUserId(userId,
+                afterDay == LedgerSegment.FROM_START ? null : LocalDate.ofEpochDay(afterDay), through.atEndOfMonth());
+
+        lock.lock();
+        try {
+            if (versions.getOrDefault(userId, 0L) != version) {
+                // Changed while reading; the next run compacts it
+                return false;
+            }
+            Path dir = userDir(userId);
+            Files.createDirectories(dir);
+            LedgerSegment.write(dir.resolve(through + SUFFIX), userId, afterDay, throughDay, indexInterval, rows);
+            if (merge) {
+                for (LedgerSegment segment : chain) {
+                    Files.deleteIfExists(segment.getFile());
+                }
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Before the report columns reload from the ledger
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onExpensesChanged(ExpensesChangedEvent event) {
+        event.getAffectedMonthsByUser().forEach(this::invalidate);
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        invalidate(event.getUserId(), null);
+    }
+
+    @Override
+    public void onInvalidation(InvalidationMessage message) {
+        if (message.getEntity() == InvalidationEntity.EXPENSE) {
+            invalidate(message.getUserId(), message.getKey() != null ? Set.of(YearMonth.parse(message.getKey())) : null);
+        } else if (message.getEntity() == InvalidationEntity.CATEGORY) {
+            invalidate(message.getUserId(), null);
+        }
+    }
+
+    /**
+     * Deletes the user's segments from the earliest of the months on, or all of them when
+     * {@code months} is null.
+     */
+    private void invalidate(Long userId, Set<YearMonth> months) {
+        if (!isEnabled() || userId == null) {
+            return;
+        }
+        // A month that closes while a compaction is reading it counts as compactable too
+        YearMonth compactable = compactableThrough().plusMonths(1);
+        YearMonth earliest = null;
+        if (months != null) {
+            earliest = months.stream().min(Comparator.naturalOrder()).orElse(null);
+            if (earliest == null || earliest.isAfter(compactable)) {
+                return;
+            }
+        }
+        int fromDay = earliest != null ? (int) earliest.atDay(1).toEpochDay() : Integer.MIN_VALUE;
+
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            versions.merge(userId, 1L, Long::sum);
+            checkDatabase();
+            for (LedgerSegment segment : chain(userId)) {
+                if (segment.getThroughDay() >= fromDay) {
+                    Files.deleteIfExists(segment.getFile());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Failed to invalidate the expense ledger of user " + userId + ": " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes every segment the first time the ledger is used if the directory was compacted from
+     * another database, then records the current one.
+     */
+    private void checkDatabase() throws IOException {
+        if (databaseChecked) {
+            return;
+        }
+        databaseLock.lock();
+        try {
+            if (databaseChecked) {
+                return;
+            }
+            String databaseId = databaseIdentityService.getDatabaseId();
+            Path root = Paths.get(ledgerDir);
+            Path marker = root.resolve(DATABASE_FILE);
+            String recorded = Files.exists(marker) ? Files.readString(marker, StandardCharsets.UTF_8).trim() : null;
+            if (!databaseId.equals(recorded)) {
+                int deleted = deleteAllSegments(root);
+                if (deleted > 0 || recorded != null) {
+                    System.out.println("Deleted " + deleted + " expense ledger segments compacted from another database");
+                }
+                Files.createDirectories(root);
+                Path temp = root.resolve(DATABASE_FILE + ".tmp");
+                Files.writeString(temp, databaseId, StandardCharsets.UTF_8);
+                Files.move(temp, marker, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            databaseChecked = true;
+        } finally {
+            databaseLock.unlock();
+        }
+    }
+
+    // Runs before any segment is read or written, so no other user's lock needs to be held
+    private int deleteAllSegments(Path root) throws IOException {
+        int deleted = 0;
+        try (DirectoryStream<Path> userDirs = Files.newDirectoryStream(root, Files::isDirectory)) {
+            for (Path userDir : userDirs) {
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(userDir, "*" + SUFFIX)) {
+                    for (Path file : files) {
+                        Files.deleteIfExists(file);
+                        deleted++;
+                    }
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+        return deleted;
+    }
+
+    // Called with the user's lock held. Files that do not continue the chain are deleted.
+    private List<LedgerSegment> chain(Long userId) throws IOException {
+        Path dir = userDir(userId);
+        List<LedgerSegment> all = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            for (Path file : files) {
+                try {
+                    all.add(LedgerSegment.open(file));
+                } catch (IOException e) {
+                    System.out.println("Deleting unreadable ledger segment " + file + ": " + e.getMessage());
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return Collections.emptyList();
+        }
+        all.sort(Comparator.comparingInt(LedgerSegment::getThroughDay));
+
+        List<LedgerSegment> chain = new ArrayList<>();
+        int coveredDay = LedgerSegment.FROM_START;
+        for (LedgerSegment segment : all) {
+            if (segment.getAfterDay() == coveredDay && segment.getUserId() == userId) {
+                chain.add(segment);
+                coveredDay = segment.getThroughDay();
+            } else {
+                Files.deleteIfExists(segment.getFile());
+            }
+        }
+        return chain;
+    }
+
+    private Path userDir(Long userId) {
+        return Paths.get(ledgerDir, String.valueOf(userId));
+    }
+
+    private ReentrantLock lockFor(Long userId) {
+        return locks[Math.floorMod(userId.hashCode(), locks.length)];
+    }
+}
@@ -0,0 +1,212 @@
+package sg.wlian.addonapp.ledger;
+
+import lombok.Getter;
+import sg.wlian.addonapp.entity.PaymentMethod;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One immutable ledger file holding a user's expenses dated after {@code afterDay} up to and including
+ * {@code throughDay}, memory-mapped and read in place.
+ *
+ * <p>Layout, big-endian:
+ * <pre>
+ * header   magic (int), version (short), user id (long), after day (int), through day (int),
+ *          record count (int), index interval (int)
+ * index    epoch day of every index-interval-th record (int each)
+ * records  epoch day (int), amount in cents (long), category id (long, 0 for none),
+ *          payment method ordinal (byte, -1 for none)
+ * </pre>
+ * Records are sorted by day, so a date range is read by finding its first index block and scanning
+ * until the range ends.
+ */
+public final class LedgerSegment {
+
+    // "HBLG"
+    static final int MAGIC = 0x48424C47;
+    // Bump when the layout changes; segments of another version are ignored and rewritten
+    static final short FORMAT_VERSION = 1;
+    static final int HEADER_BYTES = 4 + 2 + 8 + 4 + 4 + 4 + 4;
+    static final int RECORD_BYTES = 4 + 8 + 8 + 1;
+
+    // After day of a user's first segment, which holds everything up to its through day
+    public static final int FROM_START = Integer.MIN_VALUE;
+
+    private static final PaymentMethod[] PAYMENT_METHODS = PaymentMethod.values();
+
+    @Getter
+    private final Path file;
+    @Getter
+    private final long userId;
+    @Getter
+    private final int afterDay;
+    @Getter
+    private final int throughDay;
+    @Getter
+    private final int recordCount;
+    private final int indexInterval;
+    private final int[] indexDays;
+    private final MappedByteBuffer buffer;
+    private final int recordsOffset;
+
+    /**
+     * Receives the records of a segment; {@code categoryId} is null for uncategorized expenses.
+     */
+    @FunctionalInterface
+    public interface RecordConsumer {
+        void accept(int epochDay, long amountCents, Long categoryId, PaymentMethod paymentMethod);
+    }
+
+    private LedgerSegment(Path file, long userId, int afterDay, int throughDay, int recordCount, int indexInterval,
+                          int[] indexDays, MappedByteBuffer buffer, int recordsOffset) {
+        this.file = file;
+        this.userId = userId;
+        this.afterDay = afterDay;
+        this.throughDay = throughDay;
+        this.recordCount = recordCount;
+        this.indexInterval = indexInterval;
+        this.indexDays = indexDays;
+        this.buffer = buffer;
+        this.recordsOffset = recordsOffset;
+    }
+
+    /**
+     * Writes a segment from [date, amount, categoryId, paymentMethod] rows sorted by date. The file is
+     * written under a temporary name and moved into place, so readers never see a partial segment.
+     */
+    public static void write(Path file, long userId, int afterDay, int throughDay, int indexInterval,
+                             List<Object[]> rows) throws IOException {
+        int indexCount = (rows.size() + indexInterval - 1) / indexInterval;
+        long size = HEADER_BYTES + 4L * indexCount + (long) RECORD_BYTES * rows.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many expenses for one ledger segment: " + rows.size());
+        }
+        ByteBuffer out = ByteBuffer.allocate((int) size);
+        out.putInt(MAGIC).putShort(FORMAT_VERSION).putLong(userId).putInt(afterDay).putInt(throughDay)
+                .putInt(rows.size()).putInt(indexInterval);
+        int previousDay = Integer.MIN_VALUE;
+        for (int i = 0; i < rows.size(); i++) {
+            int day = (int) ((LocalDate) rows.get(i)[0]).toEpochDay();
+            if (day < previousDay || day <= afterDay || day > throughDay) {
+                throw new IllegalArgumentException("Ledger rows must be sorted and inside the segment's days");
+            }
+            previousDay = day;
+            if (i % indexInterval == 0) {
+                out.putInt(day);
+            }
+        }
+        for (Object[] row : rows) {
+            // [date, amount, categoryId, paymentMethod]
+            Long categoryId = (Long) row[2];
+            PaymentMethod method = (PaymentMethod) row[3];
+            out.putInt((int) ((LocalDate) row[0]).toEpochDay())
+                    .putLong(((BigDecimal) row[1]).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue())
+                    .putLong(categoryId != null ? categoryId : 0L)
+                    .put(method != null ? (byte) method.ordinal() : -1);
+        }
+        out.flip();
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps a segment file.
+     *
+     * @throws IOException if the file cannot be read or is not a complete segment of this format
+     */
+    public static LedgerSegment open(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a ledger segment: " + file);
+            }
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        if (buffer.getInt(0) != MAGIC || buffer.getShort(4) != FORMAT_VERSION) {
+            throw new IOException("Not a ledger segment of version " + FORMAT_VERSION + ": " + file);
+        }
+        long userId = buffer.getLong(6);
+        int afterDay = buffer.getInt(14);
+        int throughDay = buffer.getInt(18);
+        int recordCount = buffer.getInt(22);
+        int indexInterval = buffer.getInt(26);
+        if (recordCount < 0 || indexInterval <= 0) {
+            throw new IOException("Corrupt ledger segment header: " + file);
+        }
+        int indexCount = (recordCount + indexInterval - 1) / indexInterval;
+        int recordsOffset = HEADER_BYTES + 4 * indexCount;
+        if (buffer.capacity() != recordsOffset + (long) RECORD_BYTES * recordCount) {
+            throw new IOException("Truncated ledger segment: " + file);
+        }
+        int[] indexDays = new int[indexCount];
+        for (int i = 0; i < indexCount; i++) {
+            indexDays[i] = buffer.getInt(HEADER_BYTES + 4 * i);
+        }
+        return new LedgerSegment(file, userId, afterDay, throughDay, recordCount, indexInterval, indexDays,
+                buffer, recordsOffset);
+    }
+
+    /**
+     * Reads every record.
+     */
+    public void forEach(RecordConsumer consumer) {
+        scan(0, Integer.MIN_VALUE, Integer.MAX_VALUE, consumer);
+    }
+
+    /**
+     * Reads the records dated from {@code from} to {@code to}, inclusive.
+     */
+    public void forEachBetween(LocalDate from, LocalDate to, RecordConsumer consumer) {
+        int fromDay = (int) from.toEpochDay();
+        int toDay = (int) to.toEpochDay();
+        if (fromDay > throughDay || toDay <= afterDay) {
+            return;
+        }
+        // The block before the first index entry at or after the start may still hold records of that day
+        int entry = Arrays.binarySearch(indexDays, fromDay);
+        int block = entry >= 0 ? entry : -entry - 2;
+        while (block > 0 && indexDays[block] >= fromDay) {
+            block--;
+        }
+        scan(Math.max(0, block) * indexInterval, fromDay, toDay, consumer);
+    }
+
+    private void scan(int startRecord, int fromDay, int toDay, RecordConsumer consumer) {
+        for (int i = startRecord; i < recordCount; i++) {
+            int offset = recordsOffset + i * RECORD_BYTES;
+            int day = buffer.getInt(offset);
+            if (day > toDay) {
+                return;
+            }
+            if (day < fromDay) {
+                continue;
+            }
+            long categoryId = buffer.getLong(offset + 12);
+            byte method = buffer.get(offset + 20);
+            consumer.accept(day, buffer.getLong(offset + 4), categoryId != 0 ? categoryId : null,
+                    method >= 0 ? PAYMENT_METHODS[method] : null);
+        }
+    }
+}
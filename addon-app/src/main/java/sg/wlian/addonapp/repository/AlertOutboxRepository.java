@@ -0,0 +1,43 @@
+package sg.wlian.addonapp.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import sg.wlian.addonapp.entity.AlertOutbox;
+import sg.wlian.addonapp.entity.AlertStatus;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface AlertOutboxRepository extends JpaRepository<AlertOutbox, Long> {
+
+    boolean existsByDedupKey(String dedupKey);
+
+    @Query("SELECT a.id FROM AlertOutbox a WHERE a.status IN :statuses AND a.nextAttemptAt <= :now " +
+           "ORDER BY a.nextAttemptAt, a.id")
+    List<Long> findDueIds(@Param("statuses") Collection<AlertStatus> statuses, @Param("now") LocalDateTime now,
+                          Pageable pageable);
+
+    /**
+     * Claims the given rows for one dispatcher run. The conditions are checked again by the update
+     * itself, so when two dispatchers race for a row only one of them gets it; the other's update
+     * matches nothing because the winner has already moved {@code nextAttemptAt} past {@code now}.
+     *
+     * @return number of rows claimed
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE AlertOutbox a SET a.status = sg.wlian.addonapp.entity.AlertStatus.SENDING, " +
+           "a.claimToken = :token, a.nextAttemptAt = :leaseUntil " +
+           "WHERE a.id IN :ids AND a.status IN :statuses AND a.nextAttemptAt <= :now")
+    int claim(@Param("ids") Collection<Long> ids, @Param("statuses") Collection<AlertStatus> statuses,
+              @Param("now") LocalDateTime now, @Param("token") String token,
+              @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Query("SELECT a FROM AlertOutbox a JOIN FETCH a.user WHERE a.claimToken = :token ORDER BY a.id")
+    List<AlertOutbox> findClaimed(@Param("token") String token);
+}
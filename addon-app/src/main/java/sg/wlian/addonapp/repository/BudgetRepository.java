@@ -1,5 +1,6 @@
 package sg.wlian.addonapp.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -9,6 +10,7 @@ import sg.wlian.addonapp.entity.Category;
 import sg.wlian.addonapp.entity.User;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,4 +27,11 @@ public interface BudgetRepository extends JpaRepository<Budget, Long> {
     List<Budget> findActiveBudgetsForUserAndDate(@Param("user") User user, @Param("date") LocalDate date);
     
     List<Budget> findByUserAndCategoryAndActiveTrue(User user, Category category);
+
+    List<Budget> findByUserIdInAndActiveTrue(Collection<Long> userIds);
+
+    // Keyset page over the ids of users that have at least one active budget
+    @Query("SELECT DISTINCT b.user.id FROM Budget b WHERE b.active = true AND b.user.id > :afterUserId " +
+           "ORDER BY b.user.id")
+    List<Long> findUserIdsWithActiveBudgets(@Param("afterUserId") Long afterUserId, Pageable pageable);
 }
@@ -0,0 +1,7 @@
+package sg.wlian.addonapp.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import sg.wlian.addonapp.entity.DatabaseIdentity;
+
+public interface DatabaseIdentityRepository extends JpaRepository<DatabaseIdentity, Long> {
+}
@@ -0,0 +1,26 @@
+package sg.wlian.addonapp.repository;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import sg.wlian.addonapp.entity.ExpenseAmountStats;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ExpenseAmountStatsRepository extends JpaRepository<ExpenseAmountStats, Long> {
+
+    // Rows are locked in category order so concurrent writers cannot deadlock on them
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM ExpenseAmountStats s WHERE s.userId = :userId AND s.categoryId IN :categoryIds " +
+            "ORDER BY s.categoryId")
+    List<ExpenseAmountStats> findForUpdate(@Param("userId") Long userId,
+                                           @Param("categoryIds") Collection<Long> categoryIds);
+
+    @Modifying
+    @Query("DELETE FROM ExpenseAmountStats s WHERE s.userId IN :userIds")
+    int deleteByUserIdIn(@Param("userIds") Collection<Long> userIds);
+}
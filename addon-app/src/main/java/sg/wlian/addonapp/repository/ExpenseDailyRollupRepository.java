@@ -0,0 +1,32 @@
+package sg.wlian.addonapp.repository;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import sg.wlian.addonapp.entity.ExpenseDailyRollup;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface ExpenseDailyRollupRepository extends JpaRepository<ExpenseDailyRollup, Long> {
+
+    // Rows are locked in key order so concurrent writers cannot deadlock on them
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM ExpenseDailyRollup r WHERE r.userId = :userId AND r.day IN :days " +
+            "ORDER BY r.day, r.categoryId")
+    List<ExpenseDailyRollup> findForUpdate(@Param("userId") Long userId, @Param("days") Collection<LocalDate> days);
+
+    @Query("SELECT r FROM ExpenseDailyRollup r WHERE r.userId = :userId AND r.day BETWEEN :startDate AND :endDate " +
+            "AND r.count > 0")
+    List<ExpenseDailyRollup> findByUserIdAndDayBetween(@Param("userId") Long userId,
+                                                       @Param("startDate") LocalDate startDate,
+                                                       @Param("endDate") LocalDate endDate);
+
+    @Modifying
+    @Query("DELETE FROM ExpenseDailyRollup r WHERE r.userId IN :userIds")
+    int deleteByUserIdIn(@Param("userIds") Collection<Long> userIds);
+}
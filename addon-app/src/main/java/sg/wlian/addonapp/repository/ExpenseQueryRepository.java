@@ -0,0 +1,27 @@
+package sg.wlian.addonapp.repository;
+
+import org.springframework.data.jpa.domain.Specification;
+import sg.wlian.addonapp.dto.ExpenseFacet;
+import sg.wlian.addonapp.dto.ExpenseSortOrder;
+import sg.wlian.addonapp.entity.Expense;
+
+import java.util.List;
+
+/**
+ * Queries built from a {@link Specification} at run time, for the expense query API.
+ */
+public interface ExpenseQueryRepository {
+
+    /**
+     * One page of matching expenses, with their categories fetched in the same query.
+     */
+    List<Expense> findPage(Specification<Expense> filter, List<ExpenseSortOrder> sort,
+                           int offset, int limit, int timeoutMs);
+
+    /**
+     * Count, sum, min and max of the matching expenses grouped by the given facets, as rows of
+     * [facet values..., count, sum, min, max]. A month facet value is {@code year * 100 + month}.
+     * Returns at most {@code maxGroups + 1} rows so the caller can tell the limit was exceeded.
+     */
+    List<Object[]> aggregate(Specification<Expense> filter, List<ExpenseFacet> groupBy, int maxGroups, int timeoutMs);
+}
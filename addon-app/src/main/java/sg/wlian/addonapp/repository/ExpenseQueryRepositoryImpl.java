@@ -0,0 +1,101 @@
+package sg.wlian.addonapp.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import sg.wlian.addonapp.dto.ExpenseFacet;
+import sg.wlian.addonapp.dto.ExpenseSortOrder;
+import sg.wlian.addonapp.entity.Expense;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ExpenseQueryRepositoryImpl implements ExpenseQueryRepository {
+
+    private static final String TIMEOUT_HINT = "jakarta.persistence.query.timeout";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Expense> findPage(Specification<Expense> filter, List<ExpenseSortOrder> sort,
+                                  int offset, int limit, int timeoutMs) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Expense> query = cb.createQuery(Expense.class);
+        Root<Expense> root = query.from(Expense.class);
+        root.fetch("category", JoinType.LEFT);
+        query.select(root).where(filter.toPredicate(root, query, cb));
+
+        List<Order> orders = new ArrayList<>();
+        for (ExpenseSortOrder order : sort) {
+            Path<Object> path = root.get(order.getField().getAttribute());
+            orders.add(order.getDirection() == Sort.Direction.ASC ? cb.asc(path) : cb.desc(path));
+        }
+        // Stable order across pages
+        orders.add(cb.desc(root.get("id")));
+        query.orderBy(orders);
+
+        return entityManager.createQuery(query)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .setHint(TIMEOUT_HINT, timeoutMs)
+                .getResultList();
+    }
+
+    @Override
+    public List<Object[]> aggregate(Specification<Expense> filter, List<ExpenseFacet> groupBy, int maxGroups, int timeoutMs) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+        Root<Expense> root = query.from(Expense.class);
+
+        List<Expression<?>> groups = new ArrayList<>();
+        for (ExpenseFacet facet : groupBy) {
+            groups.add(facetExpression(facet, root, cb));
+        }
+        Path<BigDecimal> amount = root.get("amount");
+        List<Selection<?>> selections = new ArrayList<>(groups);
+        selections.add(cb.count(root));
+        selections.add(cb.sum(amount));
+        selections.add(cb.min(amount));
+        selections.add(cb.max(amount));
+
+        query.multiselect(selections).where(filter.toPredicate(root, query, cb));
+        if (!groups.isEmpty()) {
+            query.groupBy(groups);
+        }
+
+        TypedQuery<Object[]> typed = entityManager.createQuery(query)
+                .setMaxResults(maxGroups + 1)
+                .setHint(TIMEOUT_HINT, timeoutMs);
+        return typed.getResultList();
+    }
+
+    private Expression<?> facetExpression(ExpenseFacet facet, Root<Expense> root, CriteriaBuilder cb) {
+        switch (facet) {
+            case CATEGORY:
+                // The foreign key itself; no join needed
+                return root.get("category").get("id");
+            case PAYMENT_METHOD:
+                return root.get("paymentMethod");
+            case MONTH:
+                Expression<Integer> year = cb.function("year", Integer.class, root.get("date"));
+                Expression<Integer> month = cb.function("month", Integer.class, root.get("date"));
+                return cb.sum(cb.prod(year, 100), month);
+            case RECURRING:
+                return root.get("isRecurring");
+            default:
+                throw new IllegalArgumentException("Unsupported facet: " + facet);
+        }
+    }
+}
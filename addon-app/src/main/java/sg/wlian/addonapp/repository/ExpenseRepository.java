@@ -1,5 +1,6 @@
 package sg.wlian.addonapp.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -7,13 +8,16 @@ import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 import sg.wlian.addonapp.entity.Category;
 import sg.wlian.addonapp.entity.Expense;
 import sg.wlian.addonapp.entity.User;
+import sg.wlian.addonapp.event.ExpenseSnapshot;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @RepositoryRestResource(collectionResourceRel = "expenses", path = "expenses")
-public interface ExpenseRepository extends JpaRepository<Expense, Long> {
+public interface ExpenseRepository extends JpaRepository<Expense, Long>, ExpenseQueryRepository {
     
     List<Expense> findByUser(User user);
     
@@ -38,4 +42,93 @@ public interface ExpenseRepository extends JpaRepository<Expense, Long> {
     List<Expense> findByUserIdAndCategoryId(Long userId, Long categoryId);
     
     List<Expense> findByIsRecurringTrue();
+
+    // Daily spend per (user, category) for a set of users, as [userId, categoryId, date, total, count] rows
+    @Query("SELECT e.user.id, e.category.id, e.date, SUM(e.amount), COUNT(e) FROM Expense e " +
+            "WHERE e.user.id IN :userIds AND e.category IS NOT NULL AND e.date BETWEEN :startDate AND :endDate " +
+            "GROUP BY e.user.id, e.category.id, e.date")
+    List<Object[]> sumDailyByUserCategory(@Param("userIds") Collection<Long> userIds,
+                                          @Param("startDate") LocalDate startDate,
+                                          @Param("endDate") LocalDate endDate);
+
+    // Recurring templates of a set of users, as
+    // [userId, categoryId, amount, frequency, date, lastRecurrenceDate, recurrenceEndDate] rows
+    @Query("SELECT e.user.id, c.id, e.amount, e.recurrenceFrequency, e.date, e.lastRecurrenceDate, e.recurrenceEndDate " +
+            "FROM Expense e LEFT JOIN e.category c WHERE e.user.id IN :userIds AND e.isRecurring = true")
+    List<Object[]> findRecurringTemplatesForUsers(@Param("userIds") Collection<Long> userIds);
+
+    // Spend per category of one user, as [categoryId, total] rows; categoryId is null for uncategorized
+    @Query("SELECT c.id, SUM(e.amount) FROM Expense e LEFT JOIN e.category c " +
+            "WHERE e.user.id = :userId AND e.date BETWEEN :startDate AND :endDate GROUP BY c.id")
+    List<Object[]> sumByCategoryForUser(@Param("userId") Long userId,
+                                        @Param("startDate") LocalDate startDate,
+                                        @Param("endDate") LocalDate endDate);
+
+    // Spend per (user, category) for a set of users, as [userId, categoryId, total] rows
+    @Query("SELECT e.user.id, c.id, SUM(e.amount) FROM Expense e LEFT JOIN e.category c " +
+            "WHERE e.user.id IN :userIds AND e.date BETWEEN :startDate AND :endDate GROUP BY e.user.id, c.id")
+    List<Object[]> sumByUserAndCategoryForUsers(@Param("userIds") Collection<Long> userIds,
+                                                @Param("startDate") LocalDate startDate,
+                                                @Param("endDate") LocalDate endDate);
+
+    // Amount of every expense of a set of users, as [userId, categoryId, date, amount] rows;
+    // categoryId is null for uncategorized
+    @Query("SELECT e.user.id, c.id, e.date, e.amount FROM Expense e LEFT JOIN e.category c WHERE e.user.id IN :userIds")
+    List<Object[]> findAmountsForUsers(@Param("userIds") Collection<Long> userIds);
+
+    // Fields the report columns hold for every expense of one user, as
+    // [date, amount, categoryId, paymentMethod] rows; categoryId is null for uncategorized
+    @Query("SELECT e.date, e.amount, c.id, e.paymentMethod FROM Expense e LEFT JOIN e.category c WHERE e.user.id = :userId")
+    List<Object[]> findReportColumnsByUserId(@Param("userId") Long userId);
+
+    // Report columns of one user's expenses dated after the given day
+    @Query("SELECT e.date, e.amount, c.id, e.paymentMethod FROM Expense e LEFT JOIN e.category c " +
+           "WHERE e.user.id = :userId AND e.date > :after")
+    List<Object[]> findReportColumnsByUserIdAfter(@Param("userId") Long userId, @Param("after") LocalDate after);
+
+    // Report columns of one user's expenses dated after :after (all when null) up to :through, by date
+    @Query("SELECT e.date, e.amount, c.id, e.paymentMethod FROM Expense e LEFT JOIN e.category c " +
+           "WHERE e.user.id = :userId AND (:after IS NULL OR e.date > :after) AND e.date <= :through " +
+           "ORDER BY e.date")
+    List<Object[]> findLedgerRowsByUserId(@Param("userId") Long userId, @Param("after") LocalDate after,
+                                          @Param("through") LocalDate through);
+
+    // Daily spend of one user in one category, as [date, total] rows
+    @Query("SELECT e.date, SUM(e.amount) FROM Expense e WHERE e.user.id = :userId AND e.category.id = :categoryId " +
+            "AND e.date BETWEEN :startDate AND :endDate GROUP BY e.date")
+    List<Object[]> sumDailyByUserAndCategory(@Param("userId") Long userId,
+                                             @Param("categoryId") Long categoryId,
+                                             @Param("startDate") LocalDate startDate,
+                                             @Param("endDate") LocalDate endDate);
+
+    // Keyset scan over (user_id, updated_at) for delta sync
+    @Query("SELECT e FROM Expense e WHERE e.user.id = :userId " +
+            "AND (e.updatedAt > :since OR (e.updatedAt = :since AND e.id > :afterId)) " +
+            "AND e.updatedAt <= :until ORDER BY e.updatedAt, e.id")
+    List<Expense> findChangedSince(@Param("userId") Long userId,
+                                   @Param("since") LocalDateTime since,
+                                   @Param("afterId") Long afterId,
+                                   @Param("until") LocalDateTime until,
+                                   Pageable pageable);
+
+    // Snapshots in id order, for rebuilding the search index
+    @Query("SELECT new sg.wlian.addonapp.event.ExpenseSnapshot(e.id, e.user.id, c.id, e.paymentMethod, e.date, e.amount, " +
+            "e.description, e.notes) FROM Expense e LEFT JOIN e.category c " +
+            "WHERE e.id > :afterId ORDER BY e.id")
+    List<ExpenseSnapshot> findSnapshotsAfterId(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Snapshots changed since a point in time, in id order, for catching the search index up
+    @Query("SELECT new sg.wlian.addonapp.event.ExpenseSnapshot(e.id, e.user.id, c.id, e.paymentMethod, e.date, e.amount, " +
+            "e.description, e.notes) FROM Expense e LEFT JOIN e.category c " +
+            "WHERE e.updatedAt >= :since AND e.id > :afterId ORDER BY e.id")
+    List<ExpenseSnapshot> findSnapshotsUpdatedSince(@Param("since") LocalDateTime since,
+                                                    @Param("afterId") Long afterId,
+                                                    Pageable pageable);
+
+    @Query("SELECT new sg.wlian.addonapp.event.ExpenseSnapshot(e.id, e.user.id, c.id, e.paymentMethod, e.date, e.amount, " +
+            "e.description, e.notes) FROM Expense e LEFT JOIN e.category c " +
+            "WHERE e.user.id = :userId AND e.date BETWEEN :startDate AND :endDate")
+    List<ExpenseSnapshot> findSnapshotsByUserAndDateBetween(@Param("userId") Long userId,
+                                                            @Param("startDate") LocalDate startDate,
+                                                            @Param("endDate") LocalDate endDate);
 }
@@ -0,0 +1,30 @@
+package sg.wlian.addonapp.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import sg.wlian.addonapp.entity.ExpenseTombstone;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ExpenseTombstoneRepository extends JpaRepository<ExpenseTombstone, Long> {
+
+    @Query("SELECT t FROM ExpenseTombstone t WHERE t.userId = :userId " +
+            "AND (t.deletedAt > :since OR (t.deletedAt = :since AND t.id > :afterId)) " +
+            "AND t.deletedAt <= :until ORDER BY t.deletedAt, t.id")
+    List<ExpenseTombstone> findDeletedSince(@Param("userId") Long userId,
+                                            @Param("since") LocalDateTime since,
+                                            @Param("afterId") Long afterId,
+                                            @Param("until") LocalDateTime until,
+                                            Pageable pageable);
+
+    @Query("SELECT t.id FROM ExpenseTombstone t WHERE t.deletedAt >= :since")
+    List<Long> findIdsDeletedSince(@Param("since") LocalDateTime since);
+
+    @Modifying
+    @Query("DELETE FROM ExpenseTombstone t WHERE t.deletedAt < :cutoff")
+    int deleteByDeletedAtBefore(@Param("cutoff") LocalDateTime cutoff);
+}
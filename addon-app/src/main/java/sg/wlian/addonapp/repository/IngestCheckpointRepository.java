@@ -0,0 +1,7 @@
+package sg.wlian.addonapp.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import sg.wlian.addonapp.entity.IngestCheckpoint;
+
+public interface IngestCheckpointRepository extends JpaRepository<IngestCheckpoint, String> {
+}
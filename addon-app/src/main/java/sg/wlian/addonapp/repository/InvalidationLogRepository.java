@@ -0,0 +1,23 @@
+package sg.wlian.addonapp.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import sg.wlian.addonapp.entity.InvalidationLogEntry;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface InvalidationLogRepository extends JpaRepository<InvalidationLogEntry, Long> {
+
+    List<InvalidationLogEntry> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @Query("SELECT COALESCE(MAX(e.id), 0) FROM InvalidationLogEntry e WHERE e.createdAt < :before")
+    long findMaxIdCreatedBefore(@Param("before") LocalDateTime before);
+
+    @Modifying
+    @Query("DELETE FROM InvalidationLogEntry e WHERE e.createdAt < :cutoff")
+    int deleteByCreatedAtBefore(@Param("cutoff") LocalDateTime cutoff);
+}
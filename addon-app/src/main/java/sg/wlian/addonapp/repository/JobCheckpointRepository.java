@@ -0,0 +1,11 @@
+package sg.wlian.addonapp.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import sg.wlian.addonapp.entity.JobCheckpoint;
+
+import java.util.Optional;
+
+public interface JobCheckpointRepository extends JpaRepository<JobCheckpoint, Long> {
+
+    Optional<JobCheckpoint> findFirstByJobNameOrderByStartedAtDesc(String jobName);
+}
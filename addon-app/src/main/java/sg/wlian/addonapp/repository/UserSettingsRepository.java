@@ -4,9 +4,12 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import sg.wlian.addonapp.entity.User;
 import sg.wlian.addonapp.entity.UserSettings;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserSettingsRepository extends JpaRepository<UserSettings, Long> {
     Optional<UserSettings> findByUser(User user);
     Optional<UserSettings> findByUserId(Long userId);
+    List<UserSettings> findByUserIdIn(Collection<Long> userIds);
 }
@@ -0,0 +1,22 @@
+package sg.wlian.addonapp.scheduler;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import sg.wlian.addonapp.service.AlertDispatcher;
+
+@Component
+public class AlertDispatchScheduler {
+
+    @Autowired
+    private AlertDispatcher alertDispatcher;
+
+    // Run every 30 seconds by default
+    @Scheduled(fixedDelayString = "${alert.dispatch.interval-ms:30000}")
+    public void dispatchAlerts() {
+        int sent = alertDispatcher.dispatchPending();
+        if (sent > 0) {
+            System.out.println("Sent " + sent + " budget alerts");
+        }
+    }
+}
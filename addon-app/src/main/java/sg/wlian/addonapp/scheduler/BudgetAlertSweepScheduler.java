@@ -0,0 +1,24 @@
+package sg.wlian.addonapp.scheduler;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import sg.wlian.addonapp.entity.JobCheckpoint;
+import sg.wlian.addonapp.service.BudgetAlertSweepService;
+
+@Component
+public class BudgetAlertSweepScheduler {
+
+    @Autowired
+    private BudgetAlertSweepService budgetAlertSweepService;
+
+    // Run every day at 3:00 AM
+    @Scheduled(cron = "${budget.sweep.cron:0 0 3 * * ?}")
+    public void sweepBudgetAlerts() {
+        System.out.println("Running scheduled task: Budget alert sweep");
+        JobCheckpoint run = budgetAlertSweepService.runSweep();
+        System.out.println("Budget alert sweep " + run.getStatus() + ": " + run.getItemsProcessed() + " users, "
+                + run.getRowsScanned() + " expenses, " + run.getAlertsRaised() + " alerts in "
+                + run.getDurationMs() + " ms");
+    }
+}
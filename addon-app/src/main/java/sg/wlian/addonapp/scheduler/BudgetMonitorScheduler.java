@@ -0,0 +1,22 @@
+package sg.wlian.addonapp.scheduler;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import sg.wlian.addonapp.service.BudgetThresholdMonitor;
+
+@Component
+public class BudgetMonitorScheduler {
+
+    @Autowired
+    private BudgetThresholdMonitor budgetThresholdMonitor;
+
+    // Run every 10 minutes by default
+    @Scheduled(fixedDelayString = "${budget.monitor.reconcile-interval-ms:600000}")
+    public void reconcileBudgetCounters() {
+        int users = budgetThresholdMonitor.reconcile();
+        if (users > 0) {
+            System.out.println("Reconciled budget counters for " + users + " users");
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package sg.wlian.addonapp.scheduler;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import sg.wlian.addonapp.entity.JobCheckpoint;
+import sg.wlian.addonapp.service.ExpenseAnomalyDetector;
+
+@Component
+public class ExpenseAnomalyScheduler {
+
+    @Autowired
+    private ExpenseAnomalyDetector expenseAnomalyDetector;
+
+    // Counts existing expenses in the amount statistics the first time the application starts with them
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStart() {
+        backfillIfIncomplete();
+    }
+
+    // Resumes a backfill that failed part way
+    @Scheduled(fixedDelayString = "${expense.anomaly.backfill-retry-interval-ms:3600000}",
+            initialDelayString = "${expense.anomaly.backfill-retry-interval-ms:3600000}")
+    public void backfillIfIncomplete() {
+        JobCheckpoint run = expenseAnomalyDetector.backfillIfIncomplete();
+        if (run != null) {
+            System.out.println("Expense amount stats backfill " + run.getStatus() + ": " + run.getItemsProcessed()
+                    + " users, " + run.getRowsScanned() + " expenses in " + run.getDurationMs() + " ms");
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package sg.wlian.addonapp.scheduler;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import sg.wlian.addonapp.ledger.ExpenseLedger;
+
+@Component
+public class ExpenseLedgerScheduler {
+
+    @Autowired
+    private ExpenseLedger expenseLedger;
+
+    // Run every day at 4:00 AM, after the budget sweep
+    @Scheduled(cron = "${expense.ledger.compaction-cron:0 0 4 * * ?}")
+    public void compactLedger() {
+        if (!expenseLedger.isEnabled()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        int compacted = expenseLedger.compactAll();
+        System.out.println("Expense ledger compaction through " + expenseLedger.compactableThrough() + ": "
+                + compacted + " users in " + (System.currentTimeMillis() - start) + " ms");
+    }
+}
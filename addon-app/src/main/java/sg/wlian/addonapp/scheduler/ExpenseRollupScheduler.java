@@ -0,0 +1,33 @@
+package sg.wlian.addonapp.scheduler;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import sg.wlian.addonapp.entity.JobCheckpoint;
+import sg.wlian.addonapp.service.ExpenseRollupService;
+
+@Component
+public class ExpenseRollupScheduler {
+
+    @Autowired
+    private ExpenseRollupService expenseRollupService;
+
+    // Builds the rollups of existing expenses the first time the application starts with them
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStart() {
+        backfillIfIncomplete();
+    }
+
+    // Resumes a backfill that failed part way
+    @Scheduled(fixedDelayString = "${report.rollup.backfill-retry-interval-ms:3600000}",
+            initialDelayString = "${report.rollup.backfill-retry-interval-ms:3600000}")
+    public void backfillIfIncomplete() {
+        JobCheckpoint run = expenseRollupService.backfillIfIncomplete();
+        if (run != null) {
+            System.out.println("Expense rollup backfill " + run.getStatus() + ": " + run.getItemsProcessed()
+                    + " users, " + run.getRowsScanned() + " expenses in " + run.getDurationMs() + " ms");
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package sg.wlian.addonapp.scheduler;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import sg.wlian.addonapp.search.ExpenseSearchIndex;
+
+import java.io.IOException;
+
+@Component
+public class ExpenseSearchIndexScheduler {
+
+    @Autowired
+    private ExpenseSearchIndex expenseSearchIndex;
+
+    // Searches refresh on demand; this keeps the first search after a burst of writes cheap
+    @Scheduled(fixedDelayString = "${expense.search.refresh-interval-ms:1000}")
+    public void refreshSearchIndex() throws IOException {
+        expenseSearchIndex.refreshIfDirty();
+    }
+
+    // Bounds how much a restart has to replay from the database
+    @Scheduled(fixedDelayString = "${expense.search.commit-interval-ms:60000}")
+    public void commitSearchIndex() throws IOException {
+        expenseSearchIndex.commitIfDirty();
+    }
+}
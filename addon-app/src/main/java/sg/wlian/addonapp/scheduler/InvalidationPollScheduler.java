@@ -0,0 +1,29 @@
+package sg.wlian.addonapp.scheduler;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import sg.wlian.addonapp.invalidation.JdbcInvalidationTransport;
+
+@Component
+@ConditionalOnProperty(name = "invalidation.jdbc.enabled", havingValue = "true")
+public class InvalidationPollScheduler {
+
+    @Autowired
+    private JdbcInvalidationTransport jdbcInvalidationTransport;
+
+    // The poll interval is how long another node may serve data changed on this one
+    @Scheduled(fixedDelayString = "${invalidation.jdbc.poll-interval-ms:1000}")
+    public void pollInvalidations() {
+        jdbcInvalidationTransport.poll();
+    }
+
+    @Scheduled(fixedDelayString = "${invalidation.jdbc.purge-interval-ms:600000}")
+    public void purgeInvalidationLog() {
+        int purged = jdbcInvalidationTransport.purgeExpired();
+        if (purged > 0) {
+            System.out.println("Purged " + purged + " expired cache invalidations");
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package sg.wlian.addonapp.scheduler;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
@@ -11,19 +13,35 @@ public class RecurringExpenseScheduler {
     @Autowired
     private ExpenseService expenseService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     // Run every day at 1:00 AM
     @Scheduled(cron = "0 0 1 * * ?")
     public void processRecurringExpenses() {
         System.out.println("Running scheduled task: Processing recurring expenses");
-        expenseService.processRecurringExpenses();
-        System.out.println("Completed processing recurring expenses");
+        int created = run();
+        System.out.println("Completed processing recurring expenses: " + created + " created");
     }
 
     // Alternative: Run every hour for testing
     // @Scheduled(fixedRate = 3600000) // 1 hour in milliseconds
     public void processRecurringExpensesHourly() {
         System.out.println("Running hourly task: Processing recurring expenses");
-        expenseService.processRecurringExpenses();
-        System.out.println("Completed processing recurring expenses");
+        int created = run();
+        System.out.println("Completed processing recurring expenses: " + created + " created");
+    }
+
+    int run() {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        try {
+            int created = expenseService.processRecurringExpenses();
+            meterRegistry.counter("recurring.expenses.created").increment(created);
+            outcome = "success";
+            return created;
+        } finally {
+            sample.stop(meterRegistry.timer("recurring.expenses.run", "outcome", outcome));
+        }
     }
 }
@@ -0,0 +1,22 @@
+package sg.wlian.addonapp.scheduler;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import sg.wlian.addonapp.cache.SpendCounterStore;
+
+@Component
+public class SpendCounterScheduler {
+
+    @Autowired
+    private SpendCounterStore spendCounterStore;
+
+    // Run every 5 minutes by default; this bounds how long a drifted total can be served
+    @Scheduled(fixedDelayString = "${spend.counters.reconcile-interval-ms:300000}")
+    public void reconcileSpendCounters() {
+        int reconciled = spendCounterStore.reconcile();
+        if (reconciled > 0) {
+            System.out.println("Reconciled " + reconciled + " spend counter months");
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package sg.wlian.addonapp.scheduler;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import sg.wlian.addonapp.entity.JobCheckpoint;
+import sg.wlian.addonapp.service.SpendForecastService;
+
+@Component
+public class SpendForecastScheduler {
+
+    @Autowired
+    private SpendForecastService spendForecastService;
+
+    // Run every day at 2:00 AM, after recurring expenses have been generated
+    @Scheduled(cron = "${forecast.precompute.cron:0 0 2 * * ?}")
+    public void precomputeForecasts() {
+        System.out.println("Running scheduled task: Spend forecast precompute");
+        JobCheckpoint run = spendForecastService.precomputeAll();
+        System.out.println("Spend forecast precompute " + run.getStatus() + ": " + run.getItemsProcessed()
+                + " users, " + run.getRowsScanned() + " expenses in " + run.getDurationMs() + " ms");
+    }
+}
@@ -0,0 +1,20 @@
+package sg.wlian.addonapp.scheduler;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import sg.wlian.addonapp.service.ExpenseSyncService;
+
+@Component
+public class TombstoneCleanupScheduler {
+
+    @Autowired
+    private ExpenseSyncService expenseSyncService;
+
+    // Run every day at 2:30 AM
+    @Scheduled(cron = "0 30 2 * * ?")
+    public void purgeExpiredTombstones() {
+        int purged = expenseSyncService.purgeExpiredTombstones();
+        System.out.println("Purged " + purged + " expired expense tombstones");
+    }
+}
@@ -0,0 +1,444 @@
+package sg.wlian.addonapp.search;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import sg.wlian.addonapp.dto.ExpenseSearchCriteria;
+import sg.wlian.addonapp.event.ExpenseChange;
+import sg.wlian.addonapp.event.ExpenseSnapshot;
+import sg.wlian.addonapp.event.ExpensesChangedEvent;
+import sg.wlian.addonapp.invalidation.InvalidationEntity;
+import sg.wlian.addonapp.invalidation.InvalidationHandler;
+import sg.wlian.addonapp.invalidation.InvalidationMessage;
+import sg.wlian.addonapp.repository.ExpenseRepository;
+import sg.wlian.addonapp.repository.ExpenseTombstoneRepository;
+import sg.wlian.addonapp.service.DatabaseIdentityService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lucene index over expense descriptions and notes, one document per expense.
+ *
+ * <p>The index is kept current from {@link ExpensesChangedEvent}. Changes become searchable on the next
+ * search after they are applied, and are committed to disk by {@link #commitIfDirty()}. Each commit
+ * records a watermark: a time before which every committed database change is known to be in the
+ * index. On startup the index is opened from its last commit and caught up by re-reading the expenses
+ * updated, and the tombstones written, since that watermark. If there is no usable commit, the
+ * watermark is older than the tombstone retention, or the commit was made against another database
+ * ({@link DatabaseIdentityService}), the index is rebuilt from the expense table.
+ *
+ * <p>Expenses changed on other nodes arrive through the invalidation bus as (user, month) and that
+ * month of the user is re-read from the database.
+ *
+ * <p>With {@code expense.search.index-dir} left empty the index is held in memory and rebuilt on every
+ * start.
+ */
+@Component
+public class ExpenseSearchIndex implements InvalidationHandler {
+
+    static final String ID = "id";
+    // Doc values copy of the id, used to order results with equal dates
+    static final String ID_ORDER = "idOrder";
+    static final String USER = "user";
+    static final String CATEGORY = "category";
+    static final String PAYMENT_METHOD = "paymentMethod";
+    static final String DATE = "date";
+    static final String AMOUNT = "amount";
+    static final String DESCRIPTION = "description";
+    static final String NOTES = "notes";
+
+    // Category term for expenses without a category
+    static final String NO_CATEGORY = "none";
+
+    private static final String WATERMARK = "watermark";
+    private static final String SCHEMA = "schema";
+    private static final String DATABASE = "database";
+    // Bump when the document layout changes so existing indexes are rebuilt
+    private static final String SCHEMA_VERSION = "1";
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private ExpenseTombstoneRepository expenseTombstoneRepository;
+
+    @Autowired
+    private DatabaseIdentityService databaseIdentityService;
+
+    @Value("${expense.search.index-dir:}")
+    private String indexDir = "";
+
+    @Value("${expense.search.rebuild-page-size:5000}")
+    private int rebuildPageSize = 5000;
+
+    @Value("${expense.search.watermark-lag-ms:5000}")
+    private long watermarkLagMs = 5000;
+
+    @Value("${sync.tombstone-retention-days:90}")
+    private int tombstoneRetentionDays = 90;
+
+    private final Analyzer analyzer = new StandardAnalyzer();
+
+    private Directory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+
+    // Applied but not yet committed / not yet visible to searchers
+    private final AtomicBoolean uncommitted = new AtomicBoolean();
+    private final AtomicBoolean unrefreshed = new AtomicBoolean();
+
+    private volatile boolean complete;
+    private volatile String databaseId;
+
+    @Getter
+    @AllArgsConstructor
+    public static class Hits {
+        private final List<Long> ids;
+        private final long totalHits;
+        private final boolean totalHitsExact;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        directory = indexDir == null || indexDir.isBlank()
+                ? new ByteBuffersDirectory()
+                : FSDirectory.open(Path.of(indexDir));
+        IndexWriterConfig config = new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        writer = new IndexWriter(directory, config);
+        searcherManager = new SearcherManager(writer, null);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        commitIfDirty();
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void catchUp() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        Map<String, String> commitData = new HashMap<>();
+        Iterable<Map.Entry<String, String>> live = writer.getLiveCommitData();
+        if (live != null) {
+            live.forEach(e -> commitData.put(e.getKey(), e.getValue()));
+        }
+        databaseId = databaseIdentityService.getDatabaseId();
+        String watermark = commitData.get(WATERMARK);
+        // Ids in an index built from another database belong to other expenses, possibly other users'
+        boolean usable = watermark != null && SCHEMA_VERSION.equals(commitData.get(SCHEMA))
+                && Objects.equals(databaseId, commitData.get(DATABASE))
+                && LocalDateTime.parse(watermark).isAfter(startedAt.minusDays(tombstoneRetentionDays));
+        try {
+            int applied;
+            if (usable) {
+                applied = replaySince(LocalDateTime.parse(watermark));
+                System.out.println("Caught up expense search index with " + applied + " changes");
+            } else {
+                applied = rebuild();
+                System.out.println("Rebuilt expense search index with " + applied + " expenses");
+            }
+            // Writes made while catching up may have raced with the pass above; a second short pass
+            // re-reads them so the database state wins
+            replaySince(startedAt.minusNanos(watermarkLagMs * 1_000_000));
+            complete = true;
+            commit(startedAt);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to catch up expense search index", e);
+        }
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onExpensesChanged(ExpensesChangedEvent event) {
+        try {
+            for (ExpenseChange change : event.getChanges()) {
+                if (change.getAfter() != null) {
+                    index(change.getAfter());
+                } else if (change.getBefore() != null) {
+                    writer.deleteDocuments(new Term(ID, change.getBefore().getId().toString()));
+                }
+            }
+            changed();
+        } catch (IOException e) {
+            // The next restart catches up from the last commit, which predates this change
+            System.out.println("Failed to index expense changes: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void onInvalidation(InvalidationMessage message) {
+        if (message.getEntity() != InvalidationEntity.EXPENSE || message.getKey() == null) {
+            return;
+        }
+        YearMonth month = YearMonth.parse(message.getKey());
+        try {
+            reindexMonth(message.getUserId(), month);
+        } catch (IOException e) {
+            System.out.println("Failed to reindex expenses of user " + message.getUserId() + " for " + month
+                    + ": " + e.getMessage());
+        }
+    }
+
+    public Hits search(ExpenseSearchCriteria criteria, int offset, int limit) throws IOException {
+        if (unrefreshed.getAndSet(false)) {
+            searcherManager.maybeRefreshBlocking();
+        }
+        Query query = buildQuery(criteria);
+        boolean hasText = criteria.getQuery() != null && !criteria.getQuery().isBlank();
+        // Relevance first when searching text, newest first otherwise
+        Sort sort = hasText
+                ? new Sort(SortField.FIELD_SCORE, new SortField(DATE, SortField.Type.LONG, true))
+                : new Sort(new SortField(DATE, SortField.Type.LONG, true),
+                        new SortField(ID_ORDER, SortField.Type.LONG, true));
+
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            TopDocs top = searcher.search(query, offset + limit, sort);
+            StoredFields storedFields = searcher.storedFields();
+            List<Long> ids = new ArrayList<>();
+            for (int i = offset; i < top.scoreDocs.length; i++) {
+                ScoreDoc hit = top.scoreDocs[i];
+                ids.add(Long.valueOf(storedFields.document(hit.doc).get(ID)));
+            }
+            return new Hits(ids, top.totalHits.value, top.totalHits.relation == TotalHits.Relation.EQUAL_TO);
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    /**
+     * Commits pending changes so they survive a restart. Returns whether there was anything to commit.
+     */
+    public boolean commitIfDirty() throws IOException {
+        if (!complete || !uncommitted.get()) {
+            return false;
+        }
+        commit(LocalDateTime.now());
+        return true;
+    }
+
+    public void refreshIfDirty() throws IOException {
+        if (unrefreshed.getAndSet(false)) {
+            searcherManager.maybeRefresh();
+        }
+    }
+
+    Query buildQuery(ExpenseSearchCriteria criteria) throws IOException {
+        BooleanQuery.Builder query = new BooleanQuery.Builder()
+                .add(new TermQuery(new Term(USER, criteria.getUserId().toString())), BooleanClause.Occur.FILTER);
+
+        // Every token has to match one of the fields, exactly, as a prefix or within a few edits
+        for (String token : tokenize(criteria.getQuery())) {
+            BooleanQuery.Builder alternatives = new BooleanQuery.Builder();
+            addTokenQueries(alternatives, DESCRIPTION, token, 2f);
+            addTokenQueries(alternatives, NOTES, token, 1f);
+            query.add(alternatives.build(), BooleanClause.Occur.MUST);
+        }
+
+        if (criteria.getStartDate() != null || criteria.getEndDate() != null) {
+            long from = criteria.getStartDate() != null ? criteria.getStartDate().toEpochDay() : Long.MIN_VALUE;
+            long to = criteria.getEndDate() != null ? criteria.getEndDate().toEpochDay() : Long.MAX_VALUE;
+            query.add(LongPoint.newRangeQuery(DATE, from, to), BooleanClause.Occur.FILTER);
+        }
+        if (criteria.getMinAmount() != null || criteria.getMaxAmount() != null) {
+            long min = criteria.getMinAmount() != null ? toCents(criteria.getMinAmount()) : Long.MIN_VALUE;
+            long max = criteria.getMaxAmount() != null ? toCents(criteria.getMaxAmount()) : Long.MAX_VALUE;
+            query.add(LongPoint.newRangeQuery(AMOUNT, min, max), BooleanClause.Occur.FILTER);
+        }
+        if (criteria.getCategoryId() != null) {
+            query.add(new TermQuery(new Term(CATEGORY, criteria.getCategoryId().toString())), BooleanClause.Occur.FILTER);
+        }
+        if (criteria.getPaymentMethod() != null) {
+            query.add(new TermQuery(new Term(PAYMENT_METHOD, criteria.getPaymentMethod().name())), BooleanClause.Occur.FILTER);
+        }
+        return query.build();
+    }
+
+    private void addTokenQueries(BooleanQuery.Builder alternatives, String field, String token, float boost) {
+        Term term = new Term(field, token);
+        alternatives.add(new BoostQuery(new TermQuery(term), 3f * boost), BooleanClause.Occur.SHOULD);
+        if (token.length() >= 2) {
+            alternatives.add(new BoostQuery(new PrefixQuery(term), 2f * boost), BooleanClause.Occur.SHOULD);
+        }
+        // Short tokens would match almost anything with an edit, so only longer ones are fuzzy
+        int maxEdits = token.length() < 4 ? 0 : token.length() < 8 ? 1 : 2;
+        if (maxEdits > 0) {
+            alternatives.add(new BoostQuery(new FuzzyQuery(term, maxEdits, 1), boost), BooleanClause.Occur.SHOULD);
+        }
+    }
+
+    private List<String> tokenize(String text) throws IOException {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return tokens;
+        }
+        try (TokenStream stream = analyzer.tokenStream(DESCRIPTION, text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                tokens.add(term.toString());
+            }
+            stream.end();
+        }
+        return tokens;
+    }
+
+    private void index(ExpenseSnapshot expense) throws IOException {
+        writer.updateDocument(new Term(ID, expense.getId().toString()), toDocument(expense));
+    }
+
+    static Document toDocument(ExpenseSnapshot expense) {
+        Document doc = new Document();
+        doc.add(new StringField(ID, expense.getId().toString(), Field.Store.YES));
+        doc.add(new NumericDocValuesField(ID_ORDER, expense.getId()));
+        doc.add(new StringField(USER, String.valueOf(expense.getUserId()), Field.Store.NO));
+        doc.add(new StringField(CATEGORY,
+                expense.getCategoryId() != null ? expense.getCategoryId().toString() : NO_CATEGORY, Field.Store.NO));
+        if (expense.getPaymentMethod() != null) {
+            doc.add(new StringField(PAYMENT_METHOD, expense.getPaymentMethod().name(), Field.Store.NO));
+        }
+        long day = expense.getDate() != null ? expense.getDate().toEpochDay() : 0;
+        doc.add(new LongPoint(DATE, day));
+        doc.add(new NumericDocValuesField(DATE, day));
+        long cents = expense.getAmount() != null ? toCents(expense.getAmount()) : 0;
+        doc.add(new LongPoint(AMOUNT, cents));
+        if (expense.getDescription() != null) {
+            doc.add(new TextField(DESCRIPTION, expense.getDescription(), Field.Store.NO));
+        }
+        if (expense.getNotes() != null) {
+            doc.add(new TextField(NOTES, expense.getNotes(), Field.Store.NO));
+        }
+        return doc;
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact();
+    }
+
+    private void reindexMonth(Long userId, YearMonth month) throws IOException {
+        LocalDate start = month.atDay(1);
+        LocalDate end = month.atEndOfMonth();
+        writer.deleteDocuments(new BooleanQuery.Builder()
+                .add(new TermQuery(new Term(USER, userId.toString())), BooleanClause.Occur.FILTER)
+                .add(LongPoint.newRangeQuery(DATE, start.toEpochDay(), end.toEpochDay()), BooleanClause.Occur.FILTER)
+                .build());
+        for (ExpenseSnapshot expense : expenseRepository.findSnapshotsByUserAndDateBetween(userId, start, end)) {
+            index(expense);
+        }
+        changed();
+    }
+
+    private int rebuild() throws IOException {
+        writer.deleteAll();
+        int count = 0;
+        long afterId = 0;
+        List<ExpenseSnapshot> page;
+        do {
+            page = expenseRepository.findSnapshotsAfterId(afterId, PageRequest.of(0, rebuildPageSize));
+            for (ExpenseSnapshot expense : page) {
+                writer.addDocument(toDocument(expense));
+                afterId = expense.getId();
+            }
+            count += page.size();
+        } while (page.size() == rebuildPageSize);
+        changed();
+        return count;
+    }
+
+    private int replaySince(LocalDateTime since) throws IOException {
+        int count = 0;
+        long afterId = 0;
+        List<ExpenseSnapshot> page;
+        do {
+            page = expenseRepository.findSnapshotsUpdatedSince(since, afterId, PageRequest.of(0, rebuildPageSize));
+            for (ExpenseSnapshot expense : page) {
+                index(expense);
+                afterId = expense.getId();
+            }
+            count += page.size();
+        } while (page.size() == rebuildPageSize);
+
+        for (Long deletedId : expenseTombstoneRepository.findIdsDeletedSince(since)) {
+            writer.deleteDocuments(new Term(ID, deletedId.toString()));
+            count++;
+        }
+        changed();
+        return count;
+    }
+
+    private void changed() {
+        uncommitted.set(true);
+        unrefreshed.set(true);
+    }
+
+    private void commit(LocalDateTime now) throws IOException {
+        // Changes committed to the database within the lag may not have reached the index yet
+        uncommitted.set(false);
+        Map<String, String> commitData = new HashMap<>();
+        commitData.put(WATERMARK, now.minusNanos(watermarkLagMs * 1_000_000).toString());
+        commitData.put(SCHEMA, SCHEMA_VERSION);
+        if (databaseId != null) {
+            commitData.put(DATABASE, databaseId);
+        }
+        writer.setLiveCommitData(commitData.entrySet());
+        writer.commit();
+    }
+}
@@ -1,9 +1,12 @@
 package sg.wlian.addonapp.security;
 
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -12,26 +15,42 @@ import org.springframework.security.web.authentication.WebAuthenticationDetailsS
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
+import sg.wlian.addonapp.tracing.TraceAttributes;
 
 import java.io.IOException;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    // Request attribute holding the id of the user the request is authenticated as
+    public static final String USER_ID_ATTRIBUTE = JwtAuthenticationFilter.class.getName() + ".userId";
+
     @Autowired
     private JwtTokenProvider tokenProvider;
 
     @Autowired
     private CustomUserDetailsService userDetailsService;
 
+    @Autowired
+    private ObjectProvider<ObservationRegistry> observationRegistry;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
-        try {
-            String jwt = getJwtFromRequest(request);
+        String jwt = getJwtFromRequest(request);
+        if (StringUtils.hasText(jwt)) {
+            ObservationRegistry registry = observationRegistry.getIfAvailable(() -> ObservationRegistry.NOOP);
+            Observation.createNotStarted("jwt.authenticate", registry)
+                .observe(() -> authenticate(jwt, request, registry));
+        }
+
+        filterChain.doFilter(request, response);
+    }
 
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
+    private void authenticate(String jwt, HttpServletRequest request, ObservationRegistry registry) {
+        try {
+            if (tokenProvider.validateToken(jwt)) {
                 String username = tokenProvider.getUsernameFromToken(jwt);
 
                 UserDetails userDetails = userDetailsService.loadUserByUsername(username);
@@ -40,12 +59,17 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
                 SecurityContextHolder.getContext().setAuthentication(authentication);
+                Long userId = tokenProvider.getUserIdFromToken(jwt);
+                request.setAttribute(USER_ID_ATTRIBUTE, userId);
+
+                // Tags this span and the request's, and through them every span of the request
+                if (!registry.isNoop()) {
+                    TraceAttributes.tag(registry, TraceAttributes.USER_ID, userId);
+                }
             }
         } catch (Exception ex) {
             logger.error("Could not set user authentication in security context", ex);
         }
-
-        filterChain.doFilter(request, response);
     }
 
     private String getJwtFromRequest(HttpServletRequest request) {
@@ -2,6 +2,7 @@ package sg.wlian.addonapp.security;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.observation.annotation.Observed;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
@@ -56,6 +57,7 @@ public class JwtTokenProvider {
         return claims.get("userId", Long.class);
     }
 
+    @Observed(name = "jwt.validation")
     public boolean validateToken(String token) {
         try {
             Jwts.parser()
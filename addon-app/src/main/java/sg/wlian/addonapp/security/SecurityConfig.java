@@ -53,6 +53,12 @@ public class SecurityConfig {
                 .requestMatchers("/api/auth/**").permitAll()
                 .requestMatchers("/v3/api-docs/**", "/swagger-ui/**", "/swagger-ui.html").permitAll()
                 .requestMatchers("/api/data-rest/**").permitAll()
+                // Peers authenticate with the shared invalidation token instead of a JWT
+                .requestMatchers("/internal/invalidations").permitAll()
+                // Scraped without a JWT; served on the management listener, which binds to loopback
+                .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
+                // Probes for load balancers and the load test, on the main port
+                .requestMatchers("/livez", "/readyz").permitAll()
                 .anyRequest().authenticated()
             )
             .authenticationProvider(authenticationProvider())
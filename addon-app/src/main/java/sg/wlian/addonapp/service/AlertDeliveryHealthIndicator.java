@@ -0,0 +1,25 @@
+package sg.wlian.addonapp.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports alert delivery as down when no mail sender is configured, since alerts are then neither
+ * queued nor sent. Not part of the readiness group, so the node still takes traffic.
+ */
+@Component
+public class AlertDeliveryHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private AlertDispatcher alertDispatcher;
+
+    @Override
+    public Health health() {
+        if (!alertDispatcher.isEnabled()) {
+            return Health.down().withDetail("reason", "spring.mail.host is not set").build();
+        }
+        return Health.up().build();
+    }
+}
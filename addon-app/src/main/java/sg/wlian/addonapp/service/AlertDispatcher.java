@@ -0,0 +1,211 @@
+package sg.wlian.addonapp.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Service;
+import sg.wlian.addonapp.entity.AlertOutbox;
+import sg.wlian.addonapp.entity.AlertStatus;
+import sg.wlian.addonapp.entity.UserSettings;
+import sg.wlian.addonapp.repository.AlertOutboxRepository;
+import sg.wlian.addonapp.repository.UserSettingsRepository;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Delivers queued alerts. Each run takes a batch of due rows, drops the ones the user has opted out of,
+ * and sends the rest with a single {@link JavaMailSender#send(MimeMessage...)} call so the whole batch
+ * goes over one SMTP connection. Failed messages are retried with exponential backoff until
+ * {@code alert.dispatch.max-attempts} is reached.
+ *
+ * <p>Every node runs a dispatcher, so a batch is claimed before it is sent: due rows are moved to
+ * {@link AlertStatus#SENDING} under a token unique to the run, and only the rows that run managed to
+ * claim are sent. A claim lapses after {@code alert.dispatch.claim-lease-seconds}, so alerts claimed by
+ * a node that died mid-batch are picked up again.
+ *
+ * <p>Without {@code spring.mail.host} there is nothing to send with: the dispatcher warns at startup,
+ * {@link AlertDeliveryHealthIndicator} reports it, and {@link AlertOutboxService} stops queuing alerts
+ * rather than letting them pile up.
+ */
+@Service
+public class AlertDispatcher {
+
+    @Autowired
+    private AlertOutboxRepository alertOutboxRepository;
+
+    @Autowired
+    private UserSettingsRepository userSettingsRepository;
+
+    // Absent when spring.mail.host is not configured
+    @Autowired(required = false)
+    private JavaMailSender mailSender;
+
+    // Rows a dispatcher may claim: queued ones, and ones whose claim has lapsed
+    private static final Set<AlertStatus> CLAIMABLE = EnumSet.of(AlertStatus.PENDING, AlertStatus.SENDING);
+
+    @Value("${alert.dispatch.batch-size:100}")
+    private int batchSize = 100;
+
+    @Value("${alert.dispatch.max-attempts:6}")
+    private int maxAttempts = 6;
+
+    @Value("${alert.dispatch.backoff-base-seconds:30}")
+    private long backoffBaseSeconds = 30;
+
+    @Value("${alert.dispatch.backoff-max-seconds:3600}")
+    private long backoffMaxSeconds = 3600;
+
+    @Value("${alert.dispatch.claim-lease-seconds:300}")
+    private long claimLeaseSeconds = 300;
+
+    @Value("${alert.mail.from:no-reply@homebudget.local}")
+    private String mailFrom = "no-reply@homebudget.local";
+
+    @PostConstruct
+    public void warnIfDisabled() {
+        if (!isEnabled()) {
+            System.out.println("WARNING: spring.mail.host is not set, alerts will not be queued or sent");
+        }
+    }
+
+    /**
+     * Whether a mail sender is configured, so queued alerts can be delivered.
+     */
+    public boolean isEnabled() {
+        return mailSender != null;
+    }
+
+    /**
+     * Sends one batch of due alerts.
+     *
+     * @return number of alerts sent
+     */
+    public int dispatchPending() {
+        if (!isEnabled()) {
+            return 0;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> dueIds = alertOutboxRepository.findDueIds(CLAIMABLE, now, PageRequest.of(0, batchSize));
+        if (dueIds.isEmpty()) {
+            return 0;
+        }
+        String token = UUID.randomUUID().toString();
+        if (alertOutboxRepository.claim(dueIds, CLAIMABLE, now, token, now.plusSeconds(claimLeaseSeconds)) == 0) {
+            return 0;
+        }
+        // Only what this run claimed; rows another node got to first are left to it
+        List<AlertOutbox> due = alertOutboxRepository.findClaimed(token);
+
+        Set<Long> userIds = due.stream().map(a -> a.getUser().getId()).collect(Collectors.toSet());
+        Map<Long, UserSettings> settingsByUser = userSettingsRepository.findByUserIdIn(userIds).stream()
+                .collect(Collectors.toMap(s -> s.getUser().getId(), Function.identity()));
+
+        Map<MimeMessage, AlertOutbox> messages = new IdentityHashMap<>();
+        for (AlertOutbox alert : due) {
+            UserSettings settings = settingsByUser.get(alert.getUser().getId());
+            // Users without a settings row get the defaults, which have both flags on. Unusual expense
+            // alerts follow the budget alerts setting too.
+            if (settings != null && (!settings.isBudgetAlerts() || !settings.isEmailNotifications())) {
+                alert.setStatus(AlertStatus.SKIPPED);
+                continue;
+            }
+            try {
+                messages.put(toMessage(alert), alert);
+            } catch (MessagingException e) {
+                alert.setStatus(AlertStatus.FAILED);
+                alert.setLastError(truncate(e.getMessage()));
+            }
+        }
+
+        int sent = 0;
+        if (!messages.isEmpty()) {
+            Map<Object, Exception> failed = send(messages);
+            for (Map.Entry<MimeMessage, AlertOutbox> entry : messages.entrySet()) {
+                AlertOutbox alert = entry.getValue();
+                Exception error = failed.get(entry.getKey());
+                if (error == null) {
+                    alert.setStatus(AlertStatus.SENT);
+                    alert.setSentAt(now);
+                    alert.setAttempts(alert.getAttempts() + 1);
+                    alert.setLastError(null);
+                    sent++;
+                } else {
+                    scheduleRetry(alert, error, now);
+                }
+            }
+        }
+
+        due.forEach(alert -> alert.setClaimToken(null));
+        alertOutboxRepository.saveAll(due);
+        return sent;
+    }
+
+    /**
+     * Returns the messages that failed. A failure that is not tied to particular messages (e.g. the
+     * server cannot be reached) fails all of them.
+     */
+    private Map<Object, Exception> send(Map<MimeMessage, AlertOutbox> messages) {
+        try {
+            mailSender.send(messages.keySet().toArray(new MimeMessage[0]));
+            return Map.of();
+        } catch (MailSendException e) {
+            if (!e.getFailedMessages().isEmpty()) {
+                return e.getFailedMessages();
+            }
+            return failAll(messages, e);
+        } catch (MailException e) {
+            return failAll(messages, e);
+        }
+    }
+
+    private Map<Object, Exception> failAll(Map<MimeMessage, AlertOutbox> messages, Exception e) {
+        Map<Object, Exception> failed = new IdentityHashMap<>();
+        messages.keySet().forEach(m -> failed.put(m, e));
+        return failed;
+    }
+
+    private void scheduleRetry(AlertOutbox alert, Exception error, LocalDateTime now) {
+        int attempts = alert.getAttempts() + 1;
+        alert.setAttempts(attempts);
+        alert.setLastError(truncate(error.getMessage()));
+        if (attempts >= maxAttempts) {
+            alert.setStatus(AlertStatus.FAILED);
+            return;
+        }
+        alert.setStatus(AlertStatus.PENDING);
+        long delay = Math.min(backoffMaxSeconds, backoffBaseSeconds << Math.min(attempts - 1, 20));
+        alert.setNextAttemptAt(now.plusSeconds(delay));
+    }
+
+    private MimeMessage toMessage(AlertOutbox alert) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, "UTF-8");
+        helper.setFrom(mailFrom);
+        helper.setTo(alert.getUser().getEmail());
+        helper.setSubject(alert.getSubject());
+        helper.setText(alert.getBody());
+        return message;
+    }
+
+    private String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > 255 ? message.substring(0, 255) : message;
+    }
+}
@@ -0,0 +1,48 @@
+package sg.wlian.addonapp.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import sg.wlian.addonapp.entity.AlertOutbox;
+import sg.wlian.addonapp.repository.AlertOutboxRepository;
+
+import java.time.LocalDate;
+
+@Service
+public class AlertOutboxService {
+
+    @Autowired
+    private AlertOutboxRepository alertOutboxRepository;
+
+    @Autowired
+    private AlertDispatcher alertDispatcher;
+
+    public static String budgetDedupKey(Long budgetId, int threshold, LocalDate periodStart) {
+        return "budget:" + budgetId + ":" + threshold + ":" + periodStart;
+    }
+
+    public static String anomalyDedupKey(Long expenseId) {
+        return "expense-anomaly:" + expenseId;
+    }
+
+    /**
+     * Queues an alert unless one with the same dedup key already exists, or no mail sender is configured
+     * to deliver it. Runs in its own transaction so
+     * a duplicate-key failure from a concurrent enqueue cannot roll back the caller; callers should treat
+     * {@code DataIntegrityViolationException} the same as a {@code false} return.
+     *
+     * @return true if the alert was queued
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean enqueue(AlertOutbox alert) {
+        if (!alertDispatcher.isEnabled()) {
+            return false;
+        }
+        if (alertOutboxRepository.existsByDedupKey(alert.getDedupKey())) {
+            return false;
+        }
+        alertOutboxRepository.saveAndFlush(alert);
+        return true;
+    }
+}
@@ -0,0 +1,157 @@
+package sg.wlian.addonapp.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import sg.wlian.addonapp.dto.BudgetStatusDTO;
+import sg.wlian.addonapp.dto.BudgetWindow;
+import sg.wlian.addonapp.dto.BudgetWindowSpend;
+import sg.wlian.addonapp.entity.Budget;
+import sg.wlian.addonapp.entity.JobCheckpoint;
+import sg.wlian.addonapp.entity.JobStatus;
+import sg.wlian.addonapp.repository.BudgetRepository;
+import sg.wlian.addonapp.repository.JobCheckpointRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluates every active budget of every user and queues the alerts that apply, the same way
+ * {@link BudgetService#checkBudgetAlerts} does for one user.
+ *
+ * <p>Users with active budgets are read in keyset pages. Each page is split into partitions that run
+ * in parallel on the bounded sweep executor. A partition loads its users' budgets with one query, and
+ * the spend in each budget's current window with one query grouped by (user, category, day)
+ * ({@link BudgetService#getCurrentWindowSpend}), so there is no per-budget SUM. Progress is saved after every page
+ * in a {@link JobCheckpoint}, and a run that did not complete resumes after the last saved user.
+ */
+@Service
+public class BudgetAlertSweepService {
+
+    public static final String JOB_NAME = "budget-alert-sweep";
+
+    @Autowired
+    private BudgetRepository budgetRepository;
+
+    @Autowired
+    private BudgetService budgetService;
+
+    @Autowired
+    private JobCheckpointRepository jobCheckpointRepository;
+
+    @Autowired
+    @Qualifier("sweepExecutor")
+    private TaskExecutor sweepExecutor;
+
+    @Value("${budget.sweep.page-size:2000}")
+    private int pageSize = 2000;
+
+    @Value("${budget.sweep.partition-size:250}")
+    private int partitionSize = 250;
+
+    private static final class PartitionResult {
+        long users;
+        long rowsScanned;
+        long alertsRaised;
+    }
+
+    public JobCheckpoint runSweep() {
+        long startNanos = System.nanoTime();
+        JobCheckpoint checkpoint = resumeOrStart();
+        long previousDurationMs = checkpoint.getDurationMs();
+
+        try {
+            long afterUserId = checkpoint.getLastKey();
+            while (true) {
+                List<Long> userIds = budgetRepository.findUserIdsWithActiveBudgets(afterUserId, PageRequest.of(0, pageSize));
+                if (userIds.isEmpty()) {
+                    break;
+                }
+
+                List<CompletableFuture<PartitionResult>> partitions = new ArrayList<>();
+                for (int i = 0; i < userIds.size(); i += partitionSize) {
+                    List<Long> partition = userIds.subList(i, Math.min(i + partitionSize, userIds.size()));
+                    partitions.add(CompletableFuture.supplyAsync(() -> evaluatePartition(partition), sweepExecutor));
+                }
+                for (CompletableFuture<PartitionResult> partition : partitions) {
+                    PartitionResult result = partition.join();
+                    checkpoint.setItemsProcessed(checkpoint.getItemsProcessed() + result.users);
+                    checkpoint.setRowsScanned(checkpoint.getRowsScanned() + result.rowsScanned);
+                    checkpoint.setAlertsRaised(checkpoint.getAlertsRaised() + result.alertsRaised);
+                }
+
+                afterUserId = userIds.get(userIds.size() - 1);
+                checkpoint.setLastKey(afterUserId);
+                checkpoint.setDurationMs(previousDurationMs + elapsedMs(startNanos));
+                checkpoint = jobCheckpointRepository.save(checkpoint);
+            }
+            checkpoint.setStatus(JobStatus.COMPLETED);
+        } catch (RuntimeException e) {
+            checkpoint.setStatus(JobStatus.FAILED);
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            checkpoint.setError(truncate(cause.getMessage()));
+        }
+
+        checkpoint.setFinishedAt(LocalDateTime.now());
+        checkpoint.setDurationMs(previousDurationMs + elapsedMs(startNanos));
+        return jobCheckpointRepository.save(checkpoint);
+    }
+
+    private JobCheckpoint resumeOrStart() {
+        JobCheckpoint last = jobCheckpointRepository.findFirstByJobNameOrderByStartedAtDesc(JOB_NAME).orElse(null);
+        if (last != null && last.getStatus() != JobStatus.COMPLETED) {
+            last.setStatus(JobStatus.RUNNING);
+            last.setFinishedAt(null);
+            last.setError(null);
+            return jobCheckpointRepository.save(last);
+        }
+        JobCheckpoint checkpoint = new JobCheckpoint();
+        checkpoint.setJobName(JOB_NAME);
+        checkpoint.setStartedAt(LocalDateTime.now());
+        return jobCheckpointRepository.save(checkpoint);
+    }
+
+    private PartitionResult evaluatePartition(List<Long> userIds) {
+        PartitionResult result = new PartitionResult();
+        result.users = userIds.size();
+
+        List<Budget> budgets = budgetRepository.findByUserIdInAndActiveTrue(userIds);
+        if (budgets.isEmpty()) {
+            return result;
+        }
+        BudgetWindowSpend spend = budgetService.getCurrentWindowSpend(budgets, LocalDate.now());
+        result.rowsScanned = spend.getExpensesScanned();
+
+        for (Budget budget : budgets) {
+            BudgetWindow window = spend.getWindows().get(budget.getId());
+            if (window == null) {
+                continue;
+            }
+            BudgetStatusDTO status = budgetService.toBudgetStatus(
+                    budget, window, spend.getSpendByBudget().get(budget.getId()));
+            if (budgetService.raiseBudgetAlert(status)) {
+                result.alertsRaised++;
+            }
+        }
+        return result;
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > 255 ? message.substring(0, 255) : message;
+    }
+}
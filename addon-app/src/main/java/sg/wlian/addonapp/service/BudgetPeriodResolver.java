@@ -0,0 +1,121 @@
+package sg.wlian.addonapp.service;
+
+import org.springframework.stereotype.Component;
+import sg.wlian.addonapp.dto.BudgetWindow;
+import sg.wlian.addonapp.entity.Budget;
+import sg.wlian.addonapp.entity.BudgetType;
+import sg.wlian.addonapp.entity.TimePeriod;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Works out which dates a budget covers.
+ *
+ * <p>DAILY, WEEKLY, MONTHLY, QUARTERLY and YEARLY budgets repeat. Their period's start date is the
+ * anchor: windows are consecutive runs of one day, seven days, or one, three or twelve months starting
+ * on the anchor, so a monthly budget anchored on the 15th runs from the 15th to the 14th. Month-based
+ * windows are always counted from the anchor, so an anchor on the 31st gives the last day of shorter
+ * months without drifting. The period's end date is ignored for these types. OVERALL, CATEGORY and
+ * CUSTOM budgets do not repeat and cover exactly their fixed period.
+ */
+@Component
+public class BudgetPeriodResolver {
+
+    public boolean isRecurring(Budget budget) {
+        return stepDays(budget.getBudgetType()) > 0 || stepMonths(budget.getBudgetType()) > 0;
+    }
+
+    /**
+     * The window containing {@code date}. For a non-recurring budget this is its fixed period.
+     */
+    public BudgetWindow windowFor(Budget budget, LocalDate date) {
+        TimePeriod period = budget.getPeriod();
+        if (!isRecurring(budget) || period.getStartDate() == null) {
+            return new BudgetWindow(period.getStartDate(), period.getEndDate());
+        }
+        return windowAt(budget, indexOf(budget, date));
+    }
+
+    /**
+     * The {@code count} windows ending with the one containing {@code date}, oldest first. A
+     * non-recurring budget has only its fixed period.
+     */
+    public List<BudgetWindow> lastWindows(Budget budget, LocalDate date, int count) {
+        List<BudgetWindow> windows = new ArrayList<>();
+        if (!isRecurring(budget) || budget.getPeriod().getStartDate() == null) {
+            windows.add(windowFor(budget, date));
+            return windows;
+        }
+        long last = indexOf(budget, date);
+        for (long index = last - count + 1; index <= last; index++) {
+            windows.add(windowAt(budget, index));
+        }
+        return windows;
+    }
+
+    private long indexOf(Budget budget, LocalDate date) {
+        LocalDate anchor = budget.getPeriod().getStartDate();
+        int days = stepDays(budget.getBudgetType());
+        if (days > 0) {
+            return Math.floorDiv(ChronoUnit.DAYS.between(anchor, date), days);
+        }
+        int months = stepMonths(budget.getBudgetType());
+        long index = Math.floorDiv(ChronoUnit.MONTHS.between(anchor, date), months);
+        // MONTHS.between truncates toward zero, so the estimate can be one window off either way
+        if (windowStart(anchor, months, index).isAfter(date)) {
+            index--;
+        } else if (!windowStart(anchor, months, index + 1).isAfter(date)) {
+            index++;
+        }
+        return index;
+    }
+
+    private BudgetWindow windowAt(Budget budget, long index) {
+        LocalDate anchor = budget.getPeriod().getStartDate();
+        int days = stepDays(budget.getBudgetType());
+        if (days > 0) {
+            LocalDate start = anchor.plusDays(index * days);
+            return new BudgetWindow(start, start.plusDays(days - 1));
+        }
+        int months = stepMonths(budget.getBudgetType());
+        return new BudgetWindow(windowStart(anchor, months, index),
+                windowStart(anchor, months, index + 1).minusDays(1));
+    }
+
+    private static LocalDate windowStart(LocalDate anchor, int months, long index) {
+        return anchor.plusMonths(index * months);
+    }
+
+    private static int stepDays(BudgetType type) {
+        if (type == null) {
+            return 0;
+        }
+        switch (type) {
+            case DAILY:
+                return 1;
+            case WEEKLY:
+                return 7;
+            default:
+                return 0;
+        }
+    }
+
+    private static int stepMonths(BudgetType type) {
+        if (type == null) {
+            return 0;
+        }
+        switch (type) {
+            case MONTHLY:
+                return 1;
+            case QUARTERLY:
+                return 3;
+            case YEARLY:
+                return 12;
+            default:
+                return 0;
+        }
+    }
+}
@@ -1,23 +1,43 @@
 package sg.wlian.addonapp.service;
 
+import io.micrometer.observation.annotation.Observed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import sg.wlian.addonapp.cache.SpendCounterStore;
 import sg.wlian.addonapp.dto.BudgetStatusDTO;
+import sg.wlian.addonapp.dto.BudgetWindow;
+import sg.wlian.addonapp.dto.BudgetWindowSpend;
+import sg.wlian.addonapp.dto.BudgetWindowStatusDTO;
+import sg.wlian.addonapp.entity.AlertOutbox;
+import sg.wlian.addonapp.entity.AlertType;
 import sg.wlian.addonapp.entity.Budget;
 import sg.wlian.addonapp.entity.Category;
 import sg.wlian.addonapp.entity.User;
+import sg.wlian.addonapp.event.BudgetChangedEvent;
 import sg.wlian.addonapp.repository.BudgetRepository;
 import sg.wlian.addonapp.repository.ExpenseRepository;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 
 @Service
+@Observed(name = "app.service")
 @Transactional
 public class BudgetService {
 
@@ -27,6 +47,21 @@ public class BudgetService {
     @Autowired
     private ExpenseRepository expenseRepository;
 
+    @Autowired
+    private AlertOutboxService alertOutboxService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private BudgetPeriodResolver budgetPeriodResolver;
+
+    @Autowired
+    private SpendCounterStore spendCounterStore;
+
+    @Value("${budget.history.max-windows:120}")
+    private int maxHistoryWindows = 120;
+
     public Budget createBudget(Budget budget) {
         // Check if budget already exists for this user and category
         Optional<Budget> existingBudget = budgetRepository.findByUserAndCategory(
@@ -36,7 +71,9 @@ public class BudgetService {
             throw new RuntimeException("Active budget already exists for this category");
         }
         
-        return budgetRepository.save(budget);
+        Budget saved = budgetRepository.save(budget);
+        publishBudgetChanged(budget.getUser());
+        return saved;
     }
 
     public Budget updateBudget(Long id, Budget budgetDetails) {
@@ -50,11 +87,21 @@ public class BudgetService {
         budget.setBudgetType(budgetDetails.getBudgetType());
         budget.setActive(budgetDetails.isActive());
         
-        return budgetRepository.save(budget);
+        Budget saved = budgetRepository.save(budget);
+        publishBudgetChanged(budget.getUser());
+        return saved;
     }
 
     public void deleteBudget(Long id) {
+        Optional<Budget> budget = budgetRepository.findById(id);
         budgetRepository.deleteById(id);
+        budget.ifPresent(b -> publishBudgetChanged(b.getUser()));
+    }
+
+    private void publishBudgetChanged(User user) {
+        if (user != null && user.getId() != null) {
+            eventPublisher.publishEvent(new BudgetChangedEvent(user.getId()));
+        }
     }
 
     public List<Budget> getBudgetsByUser(User user) {
@@ -65,25 +112,41 @@ public class BudgetService {
         return budgetRepository.findByUserAndActiveTrue(user);
     }
 
+    public Budget getBudgetById(Long id) {
+        return budgetRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Budget not found with id: " + id));
+    }
+
+    /**
+     * Status of the budget's current window. Recurring budgets roll over to a new window on their own;
+     * see {@link BudgetPeriodResolver}. Windows that are a calendar month are read from the in-memory
+     * {@link SpendCounterStore}; other windows are summed in the database.
+     */
     public BudgetStatusDTO getBudgetStatus(Budget budget) {
-        LocalDate startDate = budget.getPeriod().getStartDate();
-        LocalDate endDate = budget.getPeriod().getEndDate();
+        BudgetWindow window = budgetPeriodResolver.windowFor(budget, LocalDate.now());
         
-        BigDecimal totalExpenses = expenseRepository.getTotalExpensesByUserCategoryAndDateRange(
-                budget.getUser(), budget.getCategory(), startDate, endDate);
+        BigDecimal totalExpenses;
+        if (window.isCalendarMonth()) {
+            totalExpenses = spendCounterStore.getSpent(
+                    budget.getUser().getId(), budget.getCategory().getId(), YearMonth.from(window.getStartDate()));
+        } else {
+            totalExpenses = expenseRepository.getTotalExpensesByUserCategoryAndDateRange(
+                    budget.getUser(), budget.getCategory(), window.getStartDate(), window.getEndDate());
+        }
         
+        return toBudgetStatus(budget, window, totalExpenses);
+    }
+
+    /**
+     * Builds the status of a budget from spend that has already been summed, e.g. by a grouped query.
+     */
+    public BudgetStatusDTO toBudgetStatus(Budget budget, BudgetWindow window, BigDecimal totalExpenses) {
         if (totalExpenses == null) {
             totalExpenses = BigDecimal.ZERO;
         }
         
         BigDecimal remaining = budget.getAmount().subtract(totalExpenses);
-        BigDecimal percentageUsed = BigDecimal.ZERO;
-        
-        if (budget.getAmount().compareTo(BigDecimal.ZERO) > 0) {
-            percentageUsed = totalExpenses.divide(budget.getAmount(), 2, RoundingMode.HALF_UP)
-                    .multiply(new BigDecimal(100));
-        }
-        
+        BigDecimal percentageUsed = percentageUsed(budget.getAmount(), totalExpenses);
         boolean isOverBudget = remaining.compareTo(BigDecimal.ZERO) < 0;
         
         return new BudgetStatusDTO(
@@ -91,10 +154,112 @@ public class BudgetService {
                 totalExpenses,
                 remaining,
                 percentageUsed,
-                isOverBudget
+                isOverBudget,
+                window.getStartDate(),
+                window.getEndDate()
         );
     }
 
+    /**
+     * Spend in the current window of each budget, read with one query grouped by (user, category, day)
+     * and summed per window in memory.
+     */
+    public BudgetWindowSpend getCurrentWindowSpend(List<Budget> budgets, LocalDate today) {
+        Map<Long, BudgetWindow> windows = new HashMap<>();
+        Set<Long> userIds = new HashSet<>();
+        LocalDate from = null;
+        LocalDate to = null;
+        for (Budget budget : budgets) {
+            if (budget.getPeriod() == null || budget.getPeriod().getStartDate() == null) {
+                continue;
+            }
+            BudgetWindow window = budgetPeriodResolver.windowFor(budget, today);
+            if (window.getEndDate() == null) {
+                continue;
+            }
+            windows.put(budget.getId(), window);
+            userIds.add(budget.getUser().getId());
+            from = from == null || window.getStartDate().isBefore(from) ? window.getStartDate() : from;
+            to = to == null || window.getEndDate().isAfter(to) ? window.getEndDate() : to;
+        }
+
+        Map<Long, BigDecimal> spendByBudget = new HashMap<>();
+        if (windows.isEmpty()) {
+            return new BudgetWindowSpend(windows, spendByBudget, 0);
+        }
+
+        // userId -> categoryId -> day -> total
+        Map<Long, Map<Long, NavigableMap<LocalDate, BigDecimal>>> daily = new HashMap<>();
+        long expensesScanned = 0;
+        for (Object[] row : expenseRepository.sumDailyByUserCategory(userIds, from, to)) {
+            daily.computeIfAbsent((Long) row[0], id -> new HashMap<>())
+                    .computeIfAbsent((Long) row[1], id -> new TreeMap<>())
+                    .put((LocalDate) row[2], (BigDecimal) row[3]);
+            expensesScanned += (Long) row[4];
+        }
+
+        for (Budget budget : budgets) {
+            BudgetWindow window = windows.get(budget.getId());
+            if (window == null) {
+                continue;
+            }
+            NavigableMap<LocalDate, BigDecimal> days = daily
+                    .getOrDefault(budget.getUser().getId(), Map.of())
+                    .get(budget.getCategory().getId());
+            spendByBudget.put(budget.getId(), days == null ? BigDecimal.ZERO
+                    : sum(days.subMap(window.getStartDate(), true, window.getEndDate(), true).values()));
+        }
+        return new BudgetWindowSpend(windows, spendByBudget, expensesScanned);
+    }
+
+    /**
+     * Status of each of the last {@code windows} windows of a budget, oldest first, from one query
+     * grouped by day.
+     */
+    public List<BudgetWindowStatusDTO> getBudgetHistory(Long budgetId, int windows) {
+        if (windows < 1 || windows > maxHistoryWindows) {
+            throw new IllegalArgumentException("windows must be between 1 and " + maxHistoryWindows);
+        }
+        Budget budget = getBudgetById(budgetId);
+        List<BudgetWindow> periods = budgetPeriodResolver.lastWindows(budget, LocalDate.now(), windows);
+        LocalDate from = periods.get(0).getStartDate();
+        LocalDate to = periods.get(periods.size() - 1).getEndDate();
+
+        NavigableMap<LocalDate, BigDecimal> daily = new TreeMap<>();
+        for (Object[] row : expenseRepository.sumDailyByUserAndCategory(
+                budget.getUser().getId(), budget.getCategory().getId(), from, to)) {
+            daily.put((LocalDate) row[0], (BigDecimal) row[1]);
+        }
+
+        List<BudgetWindowStatusDTO> history = new ArrayList<>();
+        for (BudgetWindow period : periods) {
+            BigDecimal total = sum(daily.subMap(period.getStartDate(), true, period.getEndDate(), true).values());
+            BigDecimal remaining = budget.getAmount().subtract(total);
+            history.add(new BudgetWindowStatusDTO(
+                    period.getStartDate(),
+                    period.getEndDate(),
+                    total,
+                    budget.getAmount(),
+                    remaining,
+                    percentageUsed(budget.getAmount(), total),
+                    remaining.compareTo(BigDecimal.ZERO) < 0
+            ));
+        }
+        return history;
+    }
+
+    private static BigDecimal percentageUsed(BigDecimal amount, BigDecimal totalExpenses) {
+        if (amount.compareTo(BigDecimal.ZERO) > 0) {
+            return totalExpenses.divide(amount, 2, RoundingMode.HALF_UP)
+                    .multiply(new BigDecimal(100));
+        }
+        return BigDecimal.ZERO;
+    }
+
+    private static BigDecimal sum(Collection<BigDecimal> values) {
+        return values.stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
     public List<BudgetStatusDTO> getAllBudgetStatuses(User user) {
         List<Budget> activeBudgets = getActiveBudgetsByUser(user);
         List<BudgetStatusDTO> statuses = new ArrayList<>();
@@ -110,25 +275,64 @@ public class BudgetService {
         return budgetRepository.findActiveBudgetsForUserAndDate(user, date);
     }
 
+    /**
+     * Queues alerts for budgets at or above 80% and over 100% of their amount. Delivery happens in the
+     * background ({@code AlertDispatcher}); an alert is queued at most once per budget, threshold and period.
+     */
     public void checkBudgetAlerts(User user) {
         List<BudgetStatusDTO> statuses = getAllBudgetStatuses(user);
         
         for (BudgetStatusDTO status : statuses) {
-            if (status.isOverBudget()) {
-                // Send alert for over budget
-                sendBudgetAlert(user, status, "OVER_BUDGET");
-            } else if (status.getPercentageUsed().compareTo(new BigDecimal(80)) >= 0) {
-                // Send alert for approaching budget limit (80% used)
-                sendBudgetAlert(user, status, "APPROACHING_LIMIT");
-            }
+            raiseBudgetAlert(status);
         }
     }
 
-    private void sendBudgetAlert(User user, BudgetStatusDTO status, String alertType) {
-        // Implementation for sending alerts (email, push notification, etc.)
-        // This would integrate with a notification service
-        System.out.println("Budget Alert for " + user.getEmail() + ": " + 
-                alertType + " for budget " + status.getBudget().getName());
+    /**
+     * Queues the alert, if any, that applies to a budget status.
+     *
+     * @return true if a new alert was queued
+     */
+    public boolean raiseBudgetAlert(BudgetStatusDTO status) {
+        if (status.isOverBudget()) {
+            // Alert for over budget
+            return queueBudgetAlert(status, AlertType.BUDGET_OVER_LIMIT);
+        } else if (status.getPercentageUsed().compareTo(new BigDecimal(80)) >= 0) {
+            // Alert for approaching budget limit (80% used)
+            return queueBudgetAlert(status, AlertType.BUDGET_APPROACHING_LIMIT);
+        }
+        return false;
+    }
+
+    /**
+     * Queues a budget alert for delivery unless the same alert was already queued for this period.
+     *
+     * @return true if a new alert was queued
+     */
+    public boolean queueBudgetAlert(BudgetStatusDTO status, AlertType alertType) {
+        Budget budget = status.getBudget();
+        int threshold = alertType == AlertType.BUDGET_OVER_LIMIT ? 100 : 80;
+        String budgetName = budget.getName() != null ? budget.getName() : budget.getCategory().getName();
+
+        AlertOutbox alert = new AlertOutbox();
+        alert.setType(alertType);
+        alert.setUser(budget.getUser());
+        alert.setBudgetId(budget.getId());
+        LocalDate periodStart = status.getPeriodStart() != null
+                ? status.getPeriodStart()
+                : budget.getPeriod().getStartDate();
+        alert.setDedupKey(AlertOutboxService.budgetDedupKey(budget.getId(), threshold, periodStart));
+        alert.setSubject("Budget alert: " + budgetName + " is at " + status.getPercentageUsed().intValue() + "%");
+        alert.setBody(alertType.getDisplayName() + " for budget " + budgetName + ".\n\n"
+                + "Spent: " + status.getTotalExpenses() + "\n"
+                + "Budget: " + budget.getAmount() + "\n"
+                + "Remaining: " + status.getRemainingAmount() + "\n");
+
+        try {
+            return alertOutboxService.enqueue(alert);
+        } catch (DataIntegrityViolationException e) {
+            // Queued concurrently by another evaluation
+            return false;
+        }
     }
     
     public void validateBudgetAmount(Budget budget) {
@@ -0,0 +1,409 @@
+package sg.wlian.addonapp.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import sg.wlian.addonapp.dto.BudgetWindow;
+import sg.wlian.addonapp.dto.BudgetWindowSpend;
+import sg.wlian.addonapp.entity.AlertType;
+import sg.wlian.addonapp.entity.Budget;
+import sg.wlian.addonapp.event.BudgetChangedEvent;
+import sg.wlian.addonapp.event.ExpenseChange;
+import sg.wlian.addonapp.event.ExpenseSnapshot;
+import sg.wlian.addonapp.event.ExpensesChangedEvent;
+import sg.wlian.addonapp.invalidation.InvalidationEntity;
+import sg.wlian.addonapp.invalidation.InvalidationHandler;
+import sg.wlian.addonapp.invalidation.InvalidationMessage;
+import sg.wlian.addonapp.repository.BudgetRepository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Detects budget threshold crossings (80% and 100%, as in {@link BudgetService#checkBudgetAlerts}) as
+ * expenses are written, instead of rescanning budgets.
+ *
+ * <p>Spend per active budget in its current window ({@link BudgetPeriodResolver}) is held in memory in
+ * cents. A user's counters are loaded with one grouped query the first time one of their expenses
+ * changes, and again once any of their windows has ended. In between, each change only adjusts the
+ * counters of budgets for the same category whose window contains the expense date. When a counter moves to a
+ * higher threshold than it has already reported, an alert is queued on the alert executor so the
+ * writing request never waits on it.
+ *
+ * <p>Loads run on the alert executor too, so a write never waits on the query either. Changes that
+ * arrive while a user's counters are not loaded are held and applied once the load finishes. The
+ * load reads committed data, which already includes the changes held before it started; a change
+ * that arrives while the query runs may or may not be in it, so the load is then repeated.
+ *
+ * <p>Counters can drift if a change is missed (e.g. a write made outside {@code ExpenseService}), so
+ * {@link #reconcile()} periodically reloads them from the database and drops users who have been idle.
+ */
+@Component
+public class BudgetThresholdMonitor implements InvalidationHandler {
+
+    static final int APPROACHING_PERCENT = 80;
+    static final int OVER_PERCENT = 100;
+
+    @Autowired
+    private BudgetRepository budgetRepository;
+
+    @Autowired
+    private BudgetService budgetService;
+
+    @Autowired
+    @Qualifier("alertExecutor")
+    private TaskExecutor alertExecutor;
+
+    @Value("${budget.monitor.idle-evict-minutes:60}")
+    private long idleEvictMinutes = 60;
+
+    @Value("${budget.monitor.reconcile-chunk-size:500}")
+    private int reconcileChunkSize = 500;
+
+    // Loads repeated because changes kept arriving during the query; the last one is kept regardless
+    @Value("${budget.monitor.max-load-attempts:3}")
+    private int maxLoadAttempts = 3;
+
+    private final Map<Long, UserBudgets> users = new ConcurrentHashMap<>();
+
+    static final class BudgetCounter {
+        final Long budgetId;
+        final Long categoryId;
+        final LocalDate start;
+        final LocalDate end;
+        final long limitCents;
+        final AtomicLong spentCents = new AtomicLong();
+        // Highest threshold already reported for the current spend: 0, 80 or 100
+        final AtomicInteger reportedLevel = new AtomicInteger();
+
+        BudgetCounter(Budget budget, BudgetWindow window) {
+            this.budgetId = budget.getId();
+            this.categoryId = budget.getCategory().getId();
+            this.start = window.getStartDate();
+            this.end = window.getEndDate();
+            this.limitCents = toCents(budget.getAmount());
+        }
+
+        boolean covers(LocalDate date) {
+            return !date.isBefore(start) && !date.isAfter(end);
+        }
+
+        int level() {
+            long spent = spentCents.get();
+            if (limitCents <= 0) {
+                return 0;
+            }
+            if (spent > limitCents) {
+                return OVER_PERCENT;
+            }
+            return spent * 100 >= limitCents * APPROACHING_PERCENT ? APPROACHING_PERCENT : 0;
+        }
+    }
+
+    static final class UserBudgets {
+        final ReentrantLock lock = new ReentrantLock();
+        // Changes waiting for a load, and whether one is queued; guarded by lock
+        final List<ExpenseChange> pending = new ArrayList<>();
+        boolean loadQueued;
+        volatile boolean loaded;
+        volatile long lastUsedNanos = System.nanoTime();
+        volatile Map<Long, List<BudgetCounter>> byCategory = Collections.emptyMap();
+        // Counters describe the current window of each budget; after this date one has rolled over
+        volatile LocalDate validUntil = LocalDate.MAX;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onExpensesChanged(ExpensesChangedEvent event) {
+        Map<Long, List<ExpenseChange>> changesByUser = new HashMap<>();
+        for (ExpenseChange change : event.getChanges()) {
+            ExpenseSnapshot any = change.getAfter() != null ? change.getAfter() : change.getBefore();
+            if (any.getUserId() != null) {
+                changesByUser.computeIfAbsent(any.getUserId(), id -> new ArrayList<>()).add(change);
+            }
+        }
+
+        for (Map.Entry<Long, List<ExpenseChange>> entry : changesByUser.entrySet()) {
+            // The write has already committed; a failure here must not turn it into an error
+            try {
+                onUserExpensesChanged(entry.getKey(), entry.getValue());
+            } catch (RuntimeException e) {
+                users.remove(entry.getKey());
+                System.out.println("Failed to update budget counters of user " + entry.getKey() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void onUserExpensesChanged(Long userId, List<ExpenseChange> changes) {
+        UserBudgets budgets = users.computeIfAbsent(userId, id -> new UserBudgets());
+        budgets.lastUsedNanos = System.nanoTime();
+        Set<BudgetCounter> touched = new LinkedHashSet<>();
+        boolean queueLoad = false;
+        budgets.lock.lock();
+        try {
+            if (budgets.loaded && LocalDate.now().isAfter(budgets.validUntil)) {
+                budgets.loaded = false;
+            }
+            if (budgets.loaded) {
+                applyAll(budgets, changes, touched);
+            } else {
+                budgets.pending.addAll(changes);
+                queueLoad = !budgets.loadQueued;
+                budgets.loadQueued = true;
+            }
+        } finally {
+            budgets.lock.unlock();
+        }
+        touched.forEach(this::checkCrossing);
+        if (queueLoad) {
+            queueLoad(userId, budgets);
+        }
+    }
+
+    private void queueLoad(Long userId, UserBudgets budgets) {
+        try {
+            alertExecutor.execute(() -> load(userId, budgets));
+        } catch (TaskRejectedException e) {
+            // The held changes stay; the user's next change queues the load again
+            budgets.lock.lock();
+            try {
+                budgets.loadQueued = false;
+            } finally {
+                budgets.lock.unlock();
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBudgetChanged(BudgetChangedEvent event) {
+        // Reloaded with the new budget definitions on the next expense change
+        users.remove(event.getUserId());
+    }
+
+    @Override
+    public void onInvalidation(InvalidationMessage message) {
+        // Expenses or budgets changed on another node; reload from the database on the next local change
+        if (message.getEntity() == InvalidationEntity.EXPENSE || message.getEntity() == InvalidationEntity.BUDGET) {
+            users.remove(message.getUserId());
+        }
+    }
+
+    /**
+     * Reloads the counters of every tracked user from the database and forgets users that have not
+     * had an expense change within the idle window. Crossings found while reloading are reported.
+     */
+    public int reconcile() {
+        long idleCutoff = System.nanoTime() - TimeUnit.MINUTES.toNanos(idleEvictMinutes);
+        users.entrySet().removeIf(e -> e.getValue().lastUsedNanos < idleCutoff);
+
+        List<Long> userIds = new ArrayList<>(users.keySet());
+        for (int i = 0; i < userIds.size(); i += reconcileChunkSize) {
+            List<Long> chunk = userIds.subList(i, Math.min(i + reconcileChunkSize, userIds.size()));
+            Map<Long, Map<Long, List<BudgetCounter>>> fresh = loadCounters(chunk, LocalDate.now());
+            for (Long userId : chunk) {
+                UserBudgets budgets = users.get(userId);
+                if (budgets == null) {
+                    continue;
+                }
+                Map<Long, List<BudgetCounter>> reloaded = fresh.getOrDefault(userId, Collections.emptyMap());
+                budgets.lock.lock();
+                try {
+                    // A user whose load is still queued gets their counters from that load
+                    if (!budgets.loaded) {
+                        continue;
+                    }
+                    Map<Long, BudgetCounter> current = indexById(budgets.byCategory);
+                    for (List<BudgetCounter> counters : reloaded.values()) {
+                        for (BudgetCounter counter : counters) {
+                            BudgetCounter previous = current.get(counter.budgetId);
+                            // A budget that rolled into a new window starts reporting afresh
+                            boolean sameWindow = previous != null && previous.start.equals(counter.start);
+                            counter.reportedLevel.set(sameWindow ? previous.reportedLevel.get() : counter.level());
+                        }
+                    }
+                    install(budgets, reloaded);
+                } finally {
+                    budgets.lock.unlock();
+                }
+                reloaded.values().forEach(counters -> counters.forEach(this::checkCrossing));
+            }
+        }
+        return userIds.size();
+    }
+
+    long spentCents(Long userId, Long budgetId) {
+        UserBudgets budgets = users.get(userId);
+        if (budgets == null) {
+            return -1;
+        }
+        BudgetCounter counter = indexById(budgets.byCategory).get(budgetId);
+        return counter != null ? counter.spentCents.get() : -1;
+    }
+
+    /**
+     * Loads the user's counters and applies the changes held for them. Every held change committed
+     * before it was held, so the loaded spend already includes it; each is taken back out and applied
+     * again so that the crossings it causes are reported. If more changes arrive while the query runs
+     * the load is repeated, since the query may or may not have seen them.
+     */
+    void load(Long userId, UserBudgets budgets) {
+        try {
+            for (int attempt = 1; ; attempt++) {
+                List<ExpenseChange> seen;
+                budgets.lock.lock();
+                try {
+                    seen = new ArrayList<>(budgets.pending);
+                } finally {
+                    budgets.lock.unlock();
+                }
+
+                LocalDate today = LocalDate.now();
+                Map<Long, List<BudgetCounter>> byCategory =
+                        loadCounters(List.of(userId), today).getOrDefault(userId, Collections.emptyMap());
+
+                Set<BudgetCounter> touched = new LinkedHashSet<>();
+                budgets.lock.lock();
+                try {
+                    List<ExpenseChange> late = budgets.pending.subList(seen.size(), budgets.pending.size());
+                    if (!late.isEmpty() && attempt < maxLoadAttempts) {
+                        continue;
+                    }
+                    install(budgets, byCategory);
+                    Set<BudgetCounter> ignored = new LinkedHashSet<>();
+                    for (ExpenseChange change : seen) {
+                        apply(budgets, change.getAfter(), -1, ignored);
+                        apply(budgets, change.getBefore(), 1, ignored);
+                    }
+                    // Spend that was already over a threshold before these changes is not reported here
+                    byCategory.values().forEach(counters -> counters.forEach(c -> c.reportedLevel.set(c.level())));
+                    // After the last attempt, changes that raced the query are taken as not seen by it;
+                    // reconcile() corrects the counters if they were
+                    applyAll(budgets, budgets.pending, touched);
+                    budgets.pending.clear();
+                    budgets.loaded = true;
+                    budgets.loadQueued = false;
+                } finally {
+                    budgets.lock.unlock();
+                }
+                touched.forEach(this::checkCrossing);
+                return;
+            }
+        } catch (RuntimeException e) {
+            // Forgotten, so the user's next change starts a fresh load
+            users.remove(userId, budgets);
+            System.out.println("Failed to load budget counters of user " + userId + ": " + e.getMessage());
+        }
+    }
+
+    private void applyAll(UserBudgets budgets, List<ExpenseChange> changes, Set<BudgetCounter> touched) {
+        for (ExpenseChange change : changes) {
+            apply(budgets, change.getBefore(), -1, touched);
+            apply(budgets, change.getAfter(), 1, touched);
+        }
+    }
+
+    private void install(UserBudgets budgets, Map<Long, List<BudgetCounter>> byCategory) {
+        LocalDate validUntil = LocalDate.MAX;
+        for (List<BudgetCounter> counters : byCategory.values()) {
+            for (BudgetCounter counter : counters) {
+                validUntil = counter.end.isBefore(validUntil) ? counter.end : validUntil;
+            }
+        }
+        budgets.byCategory = byCategory;
+        budgets.validUntil = validUntil;
+    }
+
+    private Map<Long, Map<Long, List<BudgetCounter>>> loadCounters(Collection<Long> userIds, LocalDate today) {
+        List<Budget> active = budgetRepository.findByUserIdInAndActiveTrue(userIds);
+        BudgetWindowSpend spend = budgetService.getCurrentWindowSpend(active, today);
+
+        Map<Long, Map<Long, List<BudgetCounter>>> result = new HashMap<>();
+        for (Budget budget : active) {
+            BudgetWindow window = spend.getWindows().get(budget.getId());
+            // Fixed-period budgets that have ended or not started yet are not watched
+            if (window == null || !window.contains(today)) {
+                continue;
+            }
+            BudgetCounter counter = new BudgetCounter(budget, window);
+            counter.spentCents.set(toCents(spend.getSpendByBudget().getOrDefault(budget.getId(), BigDecimal.ZERO)));
+            result.computeIfAbsent(budget.getUser().getId(), id -> new HashMap<>())
+                    .computeIfAbsent(counter.categoryId, id -> new ArrayList<>())
+                    .add(counter);
+        }
+        return result;
+    }
+
+    private void apply(UserBudgets budgets, ExpenseSnapshot snapshot, int sign, Set<BudgetCounter> touched) {
+        if (snapshot == null || snapshot.getCategoryId() == null || snapshot.getDate() == null
+                || snapshot.getAmount() == null) {
+            return;
+        }
+        List<BudgetCounter> counters = budgets.byCategory.get(snapshot.getCategoryId());
+        if (counters == null) {
+            return;
+        }
+        long cents = toCents(snapshot.getAmount()) * sign;
+        for (BudgetCounter counter : counters) {
+            if (counter.covers(snapshot.getDate())) {
+                counter.spentCents.addAndGet(cents);
+                touched.add(counter);
+            }
+        }
+    }
+
+    private void checkCrossing(BudgetCounter counter) {
+        int level = counter.level();
+        int reported = counter.reportedLevel.get();
+        if (level < reported) {
+            // Dropped back below a threshold; crossing it again is reported again
+            counter.reportedLevel.compareAndSet(reported, level);
+            return;
+        }
+        if (level == reported || !counter.reportedLevel.compareAndSet(reported, level)) {
+            return;
+        }
+        AlertType type = level == OVER_PERCENT ? AlertType.BUDGET_OVER_LIMIT : AlertType.BUDGET_APPROACHING_LIMIT;
+        try {
+            alertExecutor.execute(() -> raise(counter.budgetId, type));
+        } catch (TaskRejectedException e) {
+            // Let the next change or reconcile report it
+            counter.reportedLevel.compareAndSet(level, reported);
+        }
+    }
+
+    private void raise(Long budgetId, AlertType type) {
+        try {
+            budgetRepository.findById(budgetId)
+                    .ifPresent(budget -> budgetService.queueBudgetAlert(budgetService.getBudgetStatus(budget), type));
+        } catch (RuntimeException e) {
+            System.out.println("Failed to queue budget alert for budget " + budgetId + ": " + e.getMessage());
+        }
+    }
+
+    private static Map<Long, BudgetCounter> indexById(Map<Long, List<BudgetCounter>> byCategory) {
+        Map<Long, BudgetCounter> byId = new HashMap<>();
+        byCategory.values().forEach(counters -> counters.forEach(c -> byId.put(c.budgetId, c)));
+        return byId;
+    }
+
+    static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+}
@@ -1,23 +1,30 @@
 package sg.wlian.addonapp.service;
 
+import io.micrometer.observation.annotation.Observed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import sg.wlian.addonapp.entity.Category;
 import sg.wlian.addonapp.entity.User;
 import sg.wlian.addonapp.repository.CategoryRepository;
 import sg.wlian.addonapp.dto.CategoryTreeDTO;
+import sg.wlian.addonapp.event.CategoryChangedEvent;
 
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @Service
+@Observed(name = "app.service")
 @Transactional
 public class CategoryService {
     
     @Autowired
     private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
     
     public List<Category> getAllCategoriesByUser(Long userId) {
         return categoryRepository.findByUserId(userId);
@@ -34,7 +41,9 @@ public class CategoryService {
         if (category.getIsActive() == null) {
             category.setIsActive(true);
         }
-        return categoryRepository.save(category);
+        Category saved = categoryRepository.save(category);
+        publishChange(saved);
+        return saved;
     }
     
     public Category updateCategory(Long id, Category categoryDetails) {
@@ -52,11 +61,21 @@ public class CategoryService {
             category.setParentCategory(categoryDetails.getParentCategory());
         }
         
-        return categoryRepository.save(category);
+        Category saved = categoryRepository.save(category);
+        publishChange(saved);
+        return saved;
     }
     
     public void deleteCategory(Long id) {
+        Category category = categoryRepository.findById(id).orElse(null);
         categoryRepository.deleteById(id);
+        publishChange(category);
+    }
+    
+    private void publishChange(Category category) {
+        if (category != null && category.getUser() != null) {
+            eventPublisher.publishEvent(new CategoryChangedEvent(category.getUser().getId()));
+        }
     }
     
     public BigDecimal getTotalBudgetForCategory(Long categoryId) {
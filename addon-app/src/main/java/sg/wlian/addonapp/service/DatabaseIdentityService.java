@@ -0,0 +1,40 @@
+package sg.wlian.addonapp.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import sg.wlian.addonapp.entity.DatabaseIdentity;
+import sg.wlian.addonapp.repository.DatabaseIdentityRepository;
+
+/**
+ * Id of the database this node is connected to, created on first use. A database recreated by
+ * {@code ddl-auto=create-drop}, or swapped for another, gets a new id.
+ */
+@Service
+public class DatabaseIdentityService {
+
+    @Autowired
+    private DatabaseIdentityRepository databaseIdentityRepository;
+
+    private volatile String databaseId;
+
+    public String getDatabaseId() {
+        String id = databaseId;
+        if (id == null) {
+            id = databaseIdentityRepository.findById(DatabaseIdentity.ROW_ID)
+                    .orElseGet(this::create)
+                    .getDatabaseId();
+            databaseId = id;
+        }
+        return id;
+    }
+
+    private DatabaseIdentity create() {
+        try {
+            return databaseIdentityRepository.saveAndFlush(DatabaseIdentity.generate());
+        } catch (DataIntegrityViolationException e) {
+            // Another node created it first
+            return databaseIdentityRepository.findById(DatabaseIdentity.ROW_ID).orElseThrow(() -> e);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package sg.wlian.addonapp.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import sg.wlian.addonapp.entity.AlertOutbox;
+import sg.wlian.addonapp.entity.AlertType;
+import sg.wlian.addonapp.entity.Category;
+import sg.wlian.addonapp.event.ExpenseAnomalyEvent;
+import sg.wlian.addonapp.repository.CategoryRepository;
+import sg.wlian.addonapp.repository.UserRepository;
+
+/**
+ * Queues an alert for each expense flagged by {@link ExpenseAnomalyDetector}. Alerts are queued on
+ * the alert executor once the write has committed, so the writing request never waits on them, and
+ * are delivered by {@code AlertDispatcher} like budget alerts.
+ */
+@Component
+public class ExpenseAnomalyAlerter {
+
+    @Autowired
+    private AlertOutboxService alertOutboxService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    @Qualifier("alertExecutor")
+    private TaskExecutor alertExecutor;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAnomaly(ExpenseAnomalyEvent event) {
+        try {
+            alertExecutor.execute(() -> raise(event));
+        } catch (TaskRejectedException e) {
+            // The expense stays flagged; only the notification is lost
+            System.out.println("Alert queue full, dropped unusual expense alert for expense " + event.getExpenseId());
+        }
+    }
+
+    boolean raise(ExpenseAnomalyEvent event) {
+        try {
+            return userRepository.findById(event.getUserId())
+                    .map(user -> {
+                        AlertOutbox alert = toAlert(event);
+                        alert.setUser(user);
+                        return alertOutboxService.enqueue(alert);
+                    })
+                    .orElse(false);
+        } catch (DataIntegrityViolationException e) {
+            // Queued concurrently
+            return false;
+        } catch (RuntimeException e) {
+            System.out.println("Failed to queue unusual expense alert for expense " + event.getExpenseId() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private AlertOutbox toAlert(ExpenseAnomalyEvent event) {
+        String categoryName = categoryRepository.findById(event.getCategoryId())
+                .map(Category::getName)
+                .orElse("this category");
+
+        AlertOutbox alert = new AlertOutbox();
+        alert.setType(AlertType.EXPENSE_ANOMALY);
+        alert.setDedupKey(AlertOutboxService.anomalyDedupKey(event.getExpenseId()));
+        alert.setSubject("Unusual expense: " + abbreviate(event.getDescription()) + " (" + event.getAmount() + ")");
+        alert.setBody(AlertType.EXPENSE_ANOMALY.getDisplayName() + " in " + categoryName + ".\n\n"
+                + "Expense: " + event.getDescription() + "\n"
+                + "Date: " + event.getDate() + "\n"
+                + "Amount: " + event.getAmount() + "\n"
+                + "Typical amount: " + event.getTypicalAmount() + "\n");
+        return alert;
+    }
+
+    // Keeps the subject within its column
+    private static String abbreviate(String description) {
+        if (description == null) {
+            return "";
+        }
+        return description.length() > 100 ? description.substring(0, 97) + "..." : description;
+    }
+}
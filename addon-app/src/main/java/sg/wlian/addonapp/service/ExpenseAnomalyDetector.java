@@ -0,0 +1,286 @@
+package sg.wlian.addonapp.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import sg.wlian.addonapp.entity.ExpenseAmountStats;
+import sg.wlian.addonapp.entity.JobCheckpoint;
+import sg.wlian.addonapp.entity.JobStatus;
+import sg.wlian.addonapp.event.ExpenseAnomalyEvent;
+import sg.wlian.addonapp.event.ExpenseChange;
+import sg.wlian.addonapp.event.ExpenseSnapshot;
+import sg.wlian.addonapp.repository.ExpenseAmountStatsRepository;
+import sg.wlian.addonapp.repository.ExpenseRepository;
+import sg.wlian.addonapp.repository.JobCheckpointRepository;
+import sg.wlian.addonapp.repository.UserRepository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flags new expenses whose amount is far above what the user usually spends in the category.
+ *
+ * <p>Each (user, category) pair has one {@link ExpenseAmountStats} row holding the running mean and
+ * variance of its log amounts. Every expense write adjusts the rows it touches in constant time:
+ * creates add the amount, deletes take it back out and updates do both, so the statistics never
+ * need expense history to be read again. A new expense is scored against the statistics as they
+ * were before it was added, once the category has {@code expense.anomaly.min-samples} expenses, and
+ * is flagged when it is at least {@code expense.anomaly.threshold} standard deviations above the
+ * mean. Only unusually large amounts are flagged, and only categorized expenses with a positive
+ * amount are counted.
+ *
+ * <p>Runs in the writing transaction, so the statistics commit or roll back with the expenses. The
+ * rows are locked for the rest of that transaction, which serializes concurrent writes to the same
+ * category of the same user.
+ *
+ * <p>Expenses written before the statistics existed are counted by {@link #backfill()}, which runs
+ * once, when the application first starts with them. Until a user is backfilled their new expenses
+ * are not scored against their history, and updates and deletes of older expenses take out amounts
+ * that were never added; the backfill rebuilds the user's rows from scratch, which corrects both.
+ * As with the rollups, writes and rebuilds take the users' row locks first
+ * ({@link UserRepository#findForUpdate}), so a write that races its user's rebuild is neither missed
+ * nor counted twice.
+ */
+@Component
+public class ExpenseAnomalyDetector {
+
+    public static final String BACKFILL_JOB_NAME = "expense-amount-stats-backfill";
+
+    @Autowired
+    private ExpenseAmountStatsRepository statsRepository;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JobCheckpointRepository jobCheckpointRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${expense.anomaly.min-samples:10}")
+    private int minSamples = 10;
+
+    @Value("${expense.anomaly.threshold:3.0}")
+    private double threshold = 3.0;
+
+    // On a log scale; keeps categories with near-identical amounts from flagging small differences
+    @Value("${expense.anomaly.min-stddev:0.25}")
+    private double minStdDev = 0.25;
+
+    @Value("${expense.anomaly.backfill-page-size:200}")
+    private int backfillPageSize = 200;
+
+    /**
+     * Applies a set of expense changes to the amount statistics and returns the new expenses that
+     * were found to be unusual.
+     */
+    public List<ExpenseAnomalyEvent> apply(List<ExpenseChange> changes) {
+        Map<Long, Set<Long>> categoriesByUser = new TreeMap<>();
+        for (ExpenseChange change : changes) {
+            collect(change.getBefore(), categoriesByUser);
+            collect(change.getAfter(), categoriesByUser);
+        }
+        if (categoriesByUser.isEmpty()) {
+            return new ArrayList<>();
+        }
+        userRepository.findForUpdate(categoriesByUser.keySet());
+
+        Map<Long, Map<Long, ExpenseAmountStats>> stats = new HashMap<>();
+        categoriesByUser.forEach((userId, categoryIds) -> stats.put(userId, lock(userId, categoryIds)));
+
+        List<ExpenseAnomalyEvent> anomalies = new ArrayList<>();
+        for (ExpenseChange change : changes) {
+            ExpenseSnapshot before = change.getBefore();
+            ExpenseSnapshot after = change.getAfter();
+            if (isCounted(before)) {
+                stats.get(before.getUserId()).get(before.getCategoryId()).remove(logAmount(before));
+            }
+            if (isCounted(after)) {
+                ExpenseAmountStats categoryStats = stats.get(after.getUserId()).get(after.getCategoryId());
+                if (change.getType() == ExpenseChange.Type.CREATED) {
+                    ExpenseAnomalyEvent anomaly = score(after, categoryStats);
+                    if (anomaly != null) {
+                        anomalies.add(anomaly);
+                    }
+                }
+                categoryStats.add(logAmount(after));
+            }
+        }
+        return anomalies;
+    }
+
+    /**
+     * Runs {@link #backfill()} unless a backfill has already completed.
+     *
+     * @return the run, or {@code null} if there was nothing to do
+     */
+    public JobCheckpoint backfillIfIncomplete() {
+        JobCheckpoint last = jobCheckpointRepository.findFirstByJobNameOrderByStartedAtDesc(BACKFILL_JOB_NAME).orElse(null);
+        if (last != null && last.getStatus() == JobStatus.COMPLETED) {
+            return null;
+        }
+        return backfill();
+    }
+
+    /**
+     * Rebuilds the statistics of every user from their expenses, in keyset pages of users. Each page
+     * is rebuilt in one transaction and progress is saved after it, so a run that did not complete
+     * resumes after the last saved user.
+     */
+    public JobCheckpoint backfill() {
+        long startNanos = System.nanoTime();
+        JobCheckpoint checkpoint = resumeOrStart();
+        long previousDurationMs = checkpoint.getDurationMs();
+
+        try {
+            long afterUserId = checkpoint.getLastKey();
+            while (true) {
+                List<Long> userIds = userRepository.findIdsAfter(afterUserId, PageRequest.of(0, backfillPageSize));
+                if (userIds.isEmpty()) {
+                    break;
+                }
+                Long expenses = new TransactionTemplate(transactionManager).execute(status -> rebuild(userIds));
+                checkpoint.setRowsScanned(checkpoint.getRowsScanned() + (expenses != null ? expenses : 0));
+                checkpoint.setItemsProcessed(checkpoint.getItemsProcessed() + userIds.size());
+
+                afterUserId = userIds.get(userIds.size() - 1);
+                checkpoint.setLastKey(afterUserId);
+                checkpoint.setDurationMs(previousDurationMs + elapsedMs(startNanos));
+                checkpoint = jobCheckpointRepository.save(checkpoint);
+            }
+            checkpoint.setStatus(JobStatus.COMPLETED);
+        } catch (RuntimeException e) {
+            checkpoint.setStatus(JobStatus.FAILED);
+            checkpoint.setError(truncate(e.getMessage()));
+        }
+
+        checkpoint.setFinishedAt(LocalDateTime.now());
+        checkpoint.setDurationMs(previousDurationMs + elapsedMs(startNanos));
+        return jobCheckpointRepository.save(checkpoint);
+    }
+
+    private long rebuild(List<Long> userIds) {
+        // Held until the page commits, so no write of these users lands between the read and the save
+        userRepository.findForUpdate(userIds);
+        statsRepository.deleteByUserIdIn(userIds);
+        Map<Long, Map<Long, ExpenseAmountStats>> stats = new HashMap<>();
+        long expenses = 0;
+        for (Object[] row : expenseRepository.findAmountsForUsers(userIds)) {
+            // [userId, categoryId, date, amount]
+            Long userId = (Long) row[0];
+            Long categoryId = (Long) row[1];
+            BigDecimal amount = (BigDecimal) row[3];
+            expenses++;
+            if (categoryId == null || amount == null || amount.signum() <= 0) {
+                continue;
+            }
+            stats.computeIfAbsent(userId, id -> new HashMap<>())
+                    .computeIfAbsent(categoryId, id -> new ExpenseAmountStats(userId, categoryId))
+                    .add(Math.log(amount.doubleValue()));
+        }
+        List<ExpenseAmountStats> rows = new ArrayList<>();
+        stats.values().forEach(byCategory -> rows.addAll(byCategory.values()));
+        statsRepository.saveAll(rows);
+        return expenses;
+    }
+
+    private ExpenseAnomalyEvent score(ExpenseSnapshot expense, ExpenseAmountStats stats) {
+        if (stats.getCount() < minSamples) {
+            return null;
+        }
+        double score = (logAmount(expense) - stats.getMean()) / Math.max(stats.standardDeviation(), minStdDev);
+        if (score < threshold) {
+            return null;
+        }
+        BigDecimal typical = BigDecimal.valueOf(Math.exp(stats.getMean())).setScale(2, RoundingMode.HALF_UP);
+        return new ExpenseAnomalyEvent(expense.getId(), expense.getUserId(), expense.getCategoryId(),
+                expense.getDate(), expense.getAmount(), expense.getDescription(), typical,
+                Math.round(score * 100) / 100.0);
+    }
+
+    private Map<Long, ExpenseAmountStats> lock(Long userId, Set<Long> categoryIds) {
+        Map<Long, ExpenseAmountStats> byCategory = new HashMap<>();
+        statsRepository.findForUpdate(userId, categoryIds).forEach(s -> byCategory.put(s.getCategoryId(), s));
+        if (byCategory.size() == categoryIds.size()) {
+            return byCategory;
+        }
+
+        // Insert the missing rows on their own so a concurrent insert of the same row only fails here
+        for (Long categoryId : categoryIds) {
+            if (!byCategory.containsKey(categoryId)) {
+                try {
+                    newTransaction().executeWithoutResult(status ->
+                            statsRepository.saveAndFlush(new ExpenseAmountStats(userId, categoryId)));
+                } catch (DataIntegrityViolationException e) {
+                    // Created concurrently by another write
+                }
+            }
+        }
+        statsRepository.findForUpdate(userId, categoryIds).forEach(s -> byCategory.put(s.getCategoryId(), s));
+        return byCategory;
+    }
+
+    private void collect(ExpenseSnapshot snapshot, Map<Long, Set<Long>> categoriesByUser) {
+        if (isCounted(snapshot)) {
+            categoriesByUser.computeIfAbsent(snapshot.getUserId(), id -> new TreeSet<>()).add(snapshot.getCategoryId());
+        }
+    }
+
+    private static boolean isCounted(ExpenseSnapshot snapshot) {
+        return snapshot != null && snapshot.getUserId() != null && snapshot.getCategoryId() != null
+                && snapshot.getAmount() != null && snapshot.getAmount().signum() > 0;
+    }
+
+    private static double logAmount(ExpenseSnapshot snapshot) {
+        return Math.log(snapshot.getAmount().doubleValue());
+    }
+
+    private JobCheckpoint resumeOrStart() {
+        JobCheckpoint last = jobCheckpointRepository.findFirstByJobNameOrderByStartedAtDesc(BACKFILL_JOB_NAME).orElse(null);
+        if (last != null && last.getStatus() != JobStatus.COMPLETED) {
+            last.setStatus(JobStatus.RUNNING);
+            last.setFinishedAt(null);
+            last.setError(null);
+            return jobCheckpointRepository.save(last);
+        }
+        JobCheckpoint checkpoint = new JobCheckpoint();
+        checkpoint.setJobName(BACKFILL_JOB_NAME);
+        checkpoint.setStartedAt(LocalDateTime.now());
+        return jobCheckpointRepository.save(checkpoint);
+    }
+
+    private TransactionTemplate newTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > 255 ? message.substring(0, 255) : message;
+    }
+}
@@ -0,0 +1,429 @@
+package sg.wlian.addonapp.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import sg.wlian.addonapp.dto.ExpenseBatchOperation;
+import sg.wlian.addonapp.dto.ExpenseBatchResponse;
+import sg.wlian.addonapp.dto.ExpenseBatchResult;
+import sg.wlian.addonapp.dto.ExpenseIngestReceiptDTO;
+import sg.wlian.addonapp.entity.Expense;
+import sg.wlian.addonapp.entity.IngestCheckpoint;
+import sg.wlian.addonapp.ingest.IngestLog;
+import sg.wlian.addonapp.ingest.IngestRecord;
+import sg.wlian.addonapp.repository.IngestCheckpointRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind ingestion for high-rate clients such as bank feeds. {@link #ingest} appends the expenses
+ * to a local {@link IngestLog} and returns once the log is on disk; a background thread inserts them
+ * through {@link ExpenseService#processBatch} in batches of up to {@code expense.ingest.batch-size}
+ * rows, waiting at most {@code expense.ingest.flush-interval-ms} for a batch to fill. The sequence of
+ * the last applied record is saved in the same transaction as the rows, and records after it are
+ * replayed on startup.
+ *
+ * <p>Reads of a user with records still pending wait up to {@code expense.ingest.read-wait-ms} for
+ * them to be applied, so a client sees its own writes.
+ */
+@Service
+public class ExpenseIngestService {
+
+    static final String LOG_ID_FILE = "log-id";
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private IngestCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${expense.ingest.enabled:false}")
+    private boolean enabled;
+
+    @Value("${expense.ingest.log-dir:./data/expense-ingest}")
+    private String logDir = "./data/expense-ingest";
+
+    @Value("${expense.ingest.segment-bytes:67108864}")
+    private long segmentBytes = 64L << 20;
+
+    @Value("${expense.ingest.batch-size:200}")
+    private int batchSize = 200;
+
+    @Value("${expense.ingest.flush-interval-ms:5}")
+    private long flushIntervalMs = 5;
+
+    @Value("${expense.ingest.max-pending:100000}")
+    private int maxPending = 100000;
+
+    @Value("${expense.ingest.read-wait-ms:2000}")
+    private long readWaitMs = 2000;
+
+    @Value("${expense.ingest.retry-delay-ms:1000}")
+    private long retryDelayMs = 1000;
+
+    @Value("${expense.batch.max-size:500}")
+    private int maxRequestSize = 500;
+
+    private IngestLog log;
+    private String logId;
+
+    // Appended but not yet applied, in sequence order
+    private final LinkedBlockingQueue<IngestRecord> pending = new LinkedBlockingQueue<>();
+    // Highest pending sequence per user, for read-your-writes
+    private final Map<Long, Long> pendingByUser = new ConcurrentHashMap<>();
+    // Locks rather than monitors throughout: ingest requests run on virtual threads and block on I/O
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private long nextSequence = 1;
+
+    // Group commit: one caller syncs the log for everyone who appended before it started
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition synced = syncLock.newCondition();
+    private boolean syncing;
+    private long syncedSequence;
+
+    private final ReentrantLock appliedLock = new ReentrantLock();
+    private final Condition applied = appliedLock.newCondition();
+    private volatile long appliedSequence;
+
+    private volatile boolean running;
+    private Thread applier;
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Path dir = Path.of(logDir);
+        log = IngestLog.open(dir, segmentBytes);
+        logId = readOrCreateLogId(dir);
+        IngestCheckpoint checkpoint = checkpointRepository.findById(logId)
+                .orElseGet(() -> checkpointRepository.save(new IngestCheckpoint(logId)));
+        appliedSequence = checkpoint.getAppliedSequence();
+        syncedSequence = log.lastSequence();
+        nextSequence = Math.max(log.lastSequence(), appliedSequence) + 1;
+
+        int replayed = 0;
+        for (IngestRecord record : log.recovered()) {
+            if (record.getSequence() > appliedSequence) {
+                enqueue(record);
+                replayed++;
+            }
+        }
+        if (replayed > 0) {
+            System.out.println("Replaying " + replayed + " ingested expenses from " + dir);
+        }
+    }
+
+    // Started once every listener is registered, so replayed batches publish their events like any other
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (log == null || running) {
+            return;
+        }
+        running = true;
+        applier = new Thread(this::runApplier, "expense-ingest");
+        applier.setDaemon(true);
+        applier.start();
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        running = false;
+        if (applier != null) {
+            try {
+                applier.join(TimeUnit.SECONDS.toMillis(5) + retryDelayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (log != null) {
+            log.close();
+        }
+    }
+
+    public boolean isEnabled() {
+        return log != null;
+    }
+
+    /**
+     * Accepts new expenses for insertion. Returns once they are durable in the ingest log; they reach the
+     * expense table shortly after.
+     *
+     * @throws IllegalArgumentException if an expense is invalid
+     * @throws IllegalStateException if ingestion is disabled or too many expenses are already pending
+     */
+    public ExpenseIngestReceiptDTO ingest(List<Expense> expenses) {
+        if (log == null) {
+            throw new IllegalStateException("Expense ingestion is not enabled");
+        }
+        if (expenses == null || expenses.isEmpty()) {
+            throw new IllegalArgumentException("At least one expense is required");
+        }
+        if (expenses.size() > maxRequestSize) {
+            throw new IllegalArgumentException("Request size " + expenses.size()
+                    + " exceeds the maximum of " + maxRequestSize);
+        }
+        for (int i = 0; i < expenses.size(); i++) {
+            String error = validate(expenses.get(i));
+            if (error != null) {
+                throw new IllegalArgumentException("Expense " + i + ": " + error);
+            }
+        }
+        if (pending.size() + expenses.size() > maxPending) {
+            throw new IllegalStateException("Too many ingested expenses pending");
+        }
+
+        long first;
+        long last;
+        appendLock.lock();
+        try {
+            first = nextSequence;
+            List<IngestRecord> records = new ArrayList<>(expenses.size());
+            for (Expense expense : expenses) {
+                records.add(IngestRecord.of(first + records.size(), expense));
+            }
+            // All or nothing: a request that fails part-way must not leave records behind to be applied,
+            // or the client's retry would insert them twice
+            try {
+                log.appendAll(records);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to append to ingest log", e);
+            }
+            nextSequence = first + records.size();
+            records.forEach(this::enqueue);
+            last = nextSequence - 1;
+        } finally {
+            appendLock.unlock();
+        }
+        awaitSynced(last);
+        return new ExpenseIngestReceiptDTO(expenses.size(), first, last);
+    }
+
+    /**
+     * Waits, up to {@code expense.ingest.read-wait-ms}, until every expense acknowledged for the user so
+     * far has been inserted.
+     */
+    public void awaitApplied(Long userId) {
+        Long sequence = userId != null ? pendingByUser.get(userId) : null;
+        if (sequence == null) {
+            return;
+        }
+        long remaining = TimeUnit.MILLISECONDS.toNanos(readWaitMs);
+        appliedLock.lock();
+        try {
+            while (appliedSequence < sequence) {
+                if (remaining <= 0) {
+                    System.out.println("Reading user " + userId + " before ingested expenses through "
+                            + sequence + " were applied");
+                    return;
+                }
+                remaining = applied.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            appliedLock.unlock();
+        }
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    private String validate(Expense expense) {
+        String error = expenseService.validateForWrite(expense);
+        if (error != null) {
+            return error;
+        }
+        if (expense.getUser() == null || expense.getUser().getId() == null) {
+            return "User is required";
+        }
+        if (expense.isRecurring()) {
+            return "Recurring expenses cannot be ingested";
+        }
+        return null;
+    }
+
+    private void enqueue(IngestRecord record) {
+        pendingByUser.merge(record.getUserId(), record.getSequence(), Math::max);
+        pending.add(record);
+    }
+
+    private void awaitSynced(long sequence) {
+        syncLock.lock();
+        try {
+            while (syncedSequence < sequence) {
+                if (syncing) {
+                    synced.awaitUninterruptibly();
+                    continue;
+                }
+                syncing = true;
+                long target = log.lastSequence();
+                boolean ok = false;
+                syncLock.unlock();
+                try {
+                    log.sync();
+                    ok = true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to sync ingest log", e);
+                } finally {
+                    syncLock.lock();
+                    syncing = false;
+                    if (ok) {
+                        syncedSequence = Math.max(syncedSequence, target);
+                    }
+                    synced.signalAll();
+                }
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void runApplier() {
+        List<IngestRecord> batch = new ArrayList<>();
+        while (running) {
+            try {
+                if (batch.isEmpty() && !nextBatch(batch)) {
+                    continue;
+                }
+                apply(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // The batch is kept and retried; later records wait behind it to preserve order
+                System.out.println("Failed to apply " + batch.size() + " ingested expenses, retrying: "
+                        + e.getMessage());
+                try {
+                    Thread.sleep(retryDelayMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    boolean nextBatch(List<IngestRecord> batch) throws InterruptedException {
+        IngestRecord first = pending.poll(1, TimeUnit.SECONDS);
+        if (first == null) {
+            return false;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        int limit = Math.min(batchSize, maxRequestSize);
+        while (batch.size() < limit) {
+            long remaining = deadline - System.nanoTime();
+            IngestRecord next = remaining > 0 ? pending.poll(remaining, TimeUnit.NANOSECONDS) : pending.poll();
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return true;
+    }
+
+    void apply(List<IngestRecord> batch) {
+        try {
+            insert(batch, batch.get(batch.size() - 1).getSequence());
+        } catch (DataIntegrityViolationException e) {
+            if (batch.size() > 1) {
+                // Find the offending rows by inserting one at a time
+                for (IngestRecord record : batch) {
+                    apply(List.of(record));
+                }
+                return;
+            }
+            IngestRecord record = batch.get(0);
+            System.out.println("Skipping ingested expense " + record.getSequence() + " of user "
+                    + record.getUserId() + ": " + e.getMostSpecificCause().getMessage());
+            insert(List.of(), record.getSequence());
+        }
+    }
+
+    // Inserts the records and moves the checkpoint to through in one transaction
+    private void insert(List<IngestRecord> batch, long through) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            if (!batch.isEmpty()) {
+                List<ExpenseBatchOperation> operations = new ArrayList<>(batch.size());
+                for (IngestRecord record : batch) {
+                    operations.add(new ExpenseBatchOperation(ExpenseBatchOperation.Type.CREATE, null,
+                            record.toExpense(), null));
+                }
+                ExpenseBatchResponse response = expenseService.processBatch(operations);
+                for (ExpenseBatchResult result : response.getResults()) {
+                    if (result.getStatus() != ExpenseBatchResult.Status.OK) {
+                        System.out.println("Skipping ingested expense "
+                                + batch.get(result.getIndex()).getSequence() + ": " + result.getError());
+                    }
+                }
+            }
+            saveCheckpoint(through);
+        });
+        markApplied(through);
+    }
+
+    private void saveCheckpoint(long sequence) {
+        IngestCheckpoint checkpoint = checkpointRepository.findById(logId)
+                .orElseGet(() -> new IngestCheckpoint(logId));
+        checkpoint.setAppliedSequence(sequence);
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        checkpointRepository.save(checkpoint);
+    }
+
+    private void markApplied(long sequence) {
+        appliedLock.lock();
+        try {
+            appliedSequence = sequence;
+            applied.signalAll();
+        } finally {
+            appliedLock.unlock();
+        }
+        pendingByUser.entrySet().removeIf(e -> e.getValue() <= sequence);
+        try {
+            log.deleteThrough(sequence);
+        } catch (IOException e) {
+            System.out.println("Failed to delete applied ingest log segments: " + e.getMessage());
+        }
+    }
+
+    private static String readOrCreateLogId(Path dir) throws IOException {
+        Path file = dir.resolve(LOG_ID_FILE);
+        if (Files.exists(file)) {
+            return Files.readString(file, StandardCharsets.UTF_8).trim();
+        }
+        String id = UUID.randomUUID().toString();
+        Files.writeString(file, id, StandardCharsets.UTF_8);
+        return id;
+    }
+}
@@ -0,0 +1,309 @@
+package sg.wlian.addonapp.service;
+
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import sg.wlian.addonapp.dto.ExpenseAggregateDTO;
+import sg.wlian.addonapp.dto.ExpenseFacet;
+import sg.wlian.addonapp.dto.ExpenseQueryFilter;
+import sg.wlian.addonapp.dto.ExpenseQueryRequest;
+import sg.wlian.addonapp.dto.ExpenseQueryResultDTO;
+import sg.wlian.addonapp.dto.ExpenseSortField;
+import sg.wlian.addonapp.dto.ExpenseSortOrder;
+import sg.wlian.addonapp.dto.FacetCountDTO;
+import sg.wlian.addonapp.entity.Category;
+import sg.wlian.addonapp.entity.Expense;
+import sg.wlian.addonapp.entity.PaymentMethod;
+import sg.wlian.addonapp.repository.CategoryRepository;
+import sg.wlian.addonapp.repository.ExpenseRepository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Runs expense queries described by an {@link ExpenseQueryRequest}.
+ *
+ * <p>The filter is compiled into a single {@link Specification}. Two statements are issued: one for
+ * the requested page, and one grouped by all requested facets at once. Facet counts and the
+ * aggregates over all matching expenses are rolled up in memory from that grouped result. Facet counts
+ * are taken under the full filter, including any condition on the facet's own field.
+ *
+ * <p>Requests are checked against cost limits before anything runs: page size and depth, number of
+ * sort keys, number of categories after subtree expansion, and text length. Each statement also has
+ * a time limit, and the grouped statement fails if it would return more than
+ * {@code expense.query.max-facet-groups} rows. Requests over a limit are rejected with
+ * {@link IllegalArgumentException}.
+ */
+@Service
+@Transactional(readOnly = true)
+public class ExpenseQueryService {
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Value("${expense.query.max-page-size:200}")
+    private int maxPageSize = 200;
+
+    @Value("${expense.query.max-results:10000}")
+    private int maxResults = 10000;
+
+    @Value("${expense.query.max-sort-keys:3}")
+    private int maxSortKeys = 3;
+
+    @Value("${expense.query.max-categories:500}")
+    private int maxCategories = 500;
+
+    @Value("${expense.query.max-facet-groups:5000}")
+    private int maxFacetGroups = 5000;
+
+    @Value("${expense.query.timeout-ms:2000}")
+    private int timeoutMs = 2000;
+
+    private static final int MIN_TEXT_LENGTH = 2;
+    private static final int MAX_TEXT_LENGTH = 100;
+
+    public ExpenseQueryResultDTO query(ExpenseQueryRequest request) {
+        ExpenseQueryFilter filter = request.getFilter() != null ? request.getFilter() : new ExpenseQueryFilter();
+        List<ExpenseSortOrder> sort = request.getSort() != null ? request.getSort() : List.of();
+        List<ExpenseFacet> facets = request.getFacets() != null ? new ArrayList<>(request.getFacets()) : new ArrayList<>();
+        validate(request, filter, sort);
+
+        // Categories are only loaded when the subtree or the facet labels need them
+        boolean needCategories = facets.contains(ExpenseFacet.CATEGORY)
+                || (filter.isIncludeSubcategories() && filter.getCategoryIds() != null && !filter.getCategoryIds().isEmpty());
+        Map<Long, Category> categories = new HashMap<>();
+        if (needCategories) {
+            categoryRepository.findByUserId(request.getUserId()).forEach(c -> categories.put(c.getId(), c));
+        }
+        Set<Long> categoryIds = resolveCategoryIds(filter, categories);
+        if (categoryIds.size() > maxCategories) {
+            throw new IllegalArgumentException("Filter matches more than " + maxCategories + " categories");
+        }
+
+        Specification<Expense> spec = toSpecification(request.getUserId(), filter, categoryIds);
+        if (sort.isEmpty()) {
+            sort = List.of(new ExpenseSortOrder(ExpenseSortField.DATE, Sort.Direction.DESC));
+        }
+        List<Expense> expenses;
+        List<Object[]> groups;
+        try {
+            expenses = expenseRepository.findPage(spec, sort, request.getPage() * request.getSize(),
+                    request.getSize(), timeoutMs);
+            groups = expenseRepository.aggregate(spec, facets, maxFacetGroups, timeoutMs);
+        } catch (QueryTimeoutException e) {
+            throw new IllegalArgumentException("Query took longer than " + timeoutMs + " ms; narrow the filter");
+        }
+        if (groups.size() > maxFacetGroups) {
+            throw new IllegalArgumentException("Facets have more than " + maxFacetGroups
+                    + " combinations; narrow the filter or request fewer facets");
+        }
+
+        return new ExpenseQueryResultDTO(expenses, request.getPage(), request.getSize(),
+                aggregate(groups, facets.size()), rollUpFacets(groups, facets, categories));
+    }
+
+    private void validate(ExpenseQueryRequest request, ExpenseQueryFilter filter, List<ExpenseSortOrder> sort) {
+        if (request.getUserId() == null) {
+            throw new IllegalArgumentException("userId is required");
+        }
+        if (request.getPage() < 0 || request.getSize() < 1 || request.getSize() > maxPageSize) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + maxPageSize);
+        }
+        if ((long) (request.getPage() + 1) * request.getSize() > maxResults) {
+            throw new IllegalArgumentException("Only the first " + maxResults + " results can be paged through");
+        }
+        if (sort.size() > maxSortKeys) {
+            throw new IllegalArgumentException("At most " + maxSortKeys + " sort keys are allowed");
+        }
+        for (ExpenseSortOrder order : sort) {
+            if (order == null || order.getField() == null || order.getDirection() == null) {
+                throw new IllegalArgumentException("Sort keys need a field and a direction");
+            }
+        }
+        if (filter.getStartDate() != null && filter.getEndDate() != null
+                && filter.getStartDate().isAfter(filter.getEndDate())) {
+            throw new IllegalArgumentException("Start date must not be after end date");
+        }
+        if (filter.getMinAmount() != null && filter.getMaxAmount() != null
+                && filter.getMinAmount().compareTo(filter.getMaxAmount()) > 0) {
+            throw new IllegalArgumentException("Minimum amount must not exceed maximum amount");
+        }
+        if (filter.getText() != null) {
+            int length = filter.getText().trim().length();
+            if (length < MIN_TEXT_LENGTH || length > MAX_TEXT_LENGTH) {
+                throw new IllegalArgumentException("Text must be between " + MIN_TEXT_LENGTH + " and "
+                        + MAX_TEXT_LENGTH + " characters");
+            }
+        }
+    }
+
+    private Set<Long> resolveCategoryIds(ExpenseQueryFilter filter, Map<Long, Category> categories) {
+        Set<Long> ids = new LinkedHashSet<>();
+        if (filter.getCategoryIds() == null) {
+            return ids;
+        }
+        ids.addAll(filter.getCategoryIds());
+        if (!filter.isIncludeSubcategories()) {
+            return ids;
+        }
+        Map<Long, List<Long>> children = new HashMap<>();
+        for (Category category : categories.values()) {
+            if (category.getParentCategory() != null) {
+                children.computeIfAbsent(category.getParentCategory().getId(), id -> new ArrayList<>()).add(category.getId());
+            }
+        }
+        Deque<Long> pending = new ArrayDeque<>(ids);
+        while (!pending.isEmpty()) {
+            for (Long child : children.getOrDefault(pending.pop(), List.of())) {
+                if (ids.add(child)) {
+                    pending.push(child);
+                }
+            }
+        }
+        return ids;
+    }
+
+    static Specification<Expense> toSpecification(Long userId, ExpenseQueryFilter filter, Set<Long> categoryIds) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            predicates.add(cb.equal(root.get("user").get("id"), userId));
+            if (filter.getStartDate() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("date"), filter.getStartDate()));
+            }
+            if (filter.getEndDate() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("date"), filter.getEndDate()));
+            }
+            if (filter.getMinAmount() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("amount"), filter.getMinAmount()));
+            }
+            if (filter.getMaxAmount() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("amount"), filter.getMaxAmount()));
+            }
+            if (!categoryIds.isEmpty() || filter.isUncategorized()) {
+                List<Predicate> anyCategory = new ArrayList<>();
+                if (!categoryIds.isEmpty()) {
+                    anyCategory.add(root.get("category").get("id").in(categoryIds));
+                }
+                if (filter.isUncategorized()) {
+                    anyCategory.add(cb.isNull(root.get("category")));
+                }
+                predicates.add(cb.or(anyCategory.toArray(new Predicate[0])));
+            }
+            if (filter.getPaymentMethods() != null && !filter.getPaymentMethods().isEmpty()) {
+                predicates.add(root.get("paymentMethod").in(filter.getPaymentMethods()));
+            }
+            if (filter.getRecurring() != null) {
+                predicates.add(cb.equal(root.get("isRecurring"), filter.getRecurring()));
+            }
+            if (filter.getText() != null) {
+                String pattern = "%" + escapeLike(filter.getText().trim().toLowerCase()) + "%";
+                predicates.add(cb.or(
+                        cb.like(cb.lower(root.get("description")), pattern, '\\'),
+                        cb.like(cb.lower(root.get("notes")), pattern, '\\')));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private ExpenseAggregateDTO aggregate(List<Object[]> groups, int facetColumns) {
+        long count = 0;
+        BigDecimal total = BigDecimal.ZERO;
+        BigDecimal min = null;
+        BigDecimal max = null;
+        for (Object[] row : groups) {
+            long groupCount = ((Number) row[facetColumns]).longValue();
+            if (groupCount == 0) {
+                continue;
+            }
+            count += groupCount;
+            total = total.add((BigDecimal) row[facetColumns + 1]);
+            BigDecimal groupMin = (BigDecimal) row[facetColumns + 2];
+            BigDecimal groupMax = (BigDecimal) row[facetColumns + 3];
+            min = min == null || groupMin.compareTo(min) < 0 ? groupMin : min;
+            max = max == null || groupMax.compareTo(max) > 0 ? groupMax : max;
+        }
+        BigDecimal average = count == 0 ? null : total.divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP);
+        return new ExpenseAggregateDTO(count, total, min, max, average);
+    }
+
+    private Map<ExpenseFacet, List<FacetCountDTO>> rollUpFacets(List<Object[]> groups, List<ExpenseFacet> facets,
+                                                                Map<Long, Category> categories) {
+        Map<ExpenseFacet, List<FacetCountDTO>> result = new EnumMap<>(ExpenseFacet.class);
+        int countColumn = facets.size();
+        for (int column = 0; column < facets.size(); column++) {
+            ExpenseFacet facet = facets.get(column);
+            // Keyed by the raw group value; HashMap allows the null key for missing values
+            Map<Object, FacetCountDTO> buckets = new LinkedHashMap<>();
+            for (Object[] row : groups) {
+                Object raw = row[column];
+                FacetCountDTO bucket = buckets.get(raw);
+                if (bucket == null) {
+                    bucket = new FacetCountDTO(facetValue(facet, raw), facetLabel(facet, raw, categories), 0, BigDecimal.ZERO);
+                    buckets.put(raw, bucket);
+                }
+                bucket.setCount(bucket.getCount() + ((Number) row[countColumn]).longValue());
+                bucket.setTotalAmount(bucket.getTotalAmount().add((BigDecimal) row[countColumn + 1]));
+            }
+            List<FacetCountDTO> values = new ArrayList<>(buckets.values());
+            values.sort(facet == ExpenseFacet.MONTH
+                    ? Comparator.comparing(FacetCountDTO::getValue, Comparator.nullsFirst(Comparator.naturalOrder()))
+                    : Comparator.comparingLong(FacetCountDTO::getCount).reversed());
+            result.put(facet, values);
+        }
+        return result;
+    }
+
+    private String facetValue(ExpenseFacet facet, Object raw) {
+        if (raw == null) {
+            return null;
+        }
+        if (facet == ExpenseFacet.MONTH) {
+            int yearMonth = ((Number) raw).intValue();
+            return String.format("%04d-%02d", yearMonth / 100, yearMonth % 100);
+        }
+        if (raw instanceof PaymentMethod method) {
+            return method.name();
+        }
+        return raw.toString();
+    }
+
+    private String facetLabel(ExpenseFacet facet, Object raw, Map<Long, Category> categories) {
+        switch (facet) {
+            case CATEGORY:
+                if (raw == null) {
+                    return "Uncategorized";
+                }
+                Category category = categories.get(((Number) raw).longValue());
+                return category != null ? category.getName() : raw.toString();
+            case PAYMENT_METHOD:
+                return raw != null ? ((PaymentMethod) raw).getDisplayName() : "Not specified";
+            case RECURRING:
+                return Boolean.TRUE.equals(raw) ? "Recurring" : "One-off";
+            default:
+                return facetValue(facet, raw);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package sg.wlian.addonapp.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import sg.wlian.addonapp.entity.ExpenseDailyRollup;
+import sg.wlian.addonapp.entity.JobCheckpoint;
+import sg.wlian.addonapp.entity.JobStatus;
+import sg.wlian.addonapp.event.ExpenseChange;
+import sg.wlian.addonapp.event.ExpenseSnapshot;
+import sg.wlian.addonapp.repository.ExpenseDailyRollupRepository;
+import sg.wlian.addonapp.repository.ExpenseRepository;
+import sg.wlian.addonapp.repository.JobCheckpointRepository;
+import sg.wlian.addonapp.repository.UserRepository;
+import sg.wlian.addonapp.sketch.AmountSketch;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maintains {@link ExpenseDailyRollup}: total, count and {@link AmountSketch} of the expenses of each
+ * user, category and day.
+ *
+ * <p>{@link #apply} runs in the writing transaction, so the rollups commit or roll back with the
+ * expenses. It locks the rows of the days it touches and adds or takes out each amount, which does
+ * not read the other expenses of the day. {@link #backfill()} builds the rollups of existing expenses
+ * user by user, and runs once, when the application first starts with rollups. Both take the users'
+ * row locks first ({@link UserRepository#findForUpdate}), so a write waits for its user's rebuild to
+ * commit and adjusts the rebuilt rows, and a rebuild waits for the user's open writes and reads their
+ * expenses; the backfill can run while the application takes traffic.
+ */
+@Service
+public class ExpenseRollupService {
+
+    public static final String BACKFILL_JOB_NAME = "expense-rollup-backfill";
+
+    @Autowired
+    private ExpenseDailyRollupRepository rollupRepository;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JobCheckpointRepository jobCheckpointRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${report.rollup.backfill-page-size:200}")
+    private int backfillPageSize = 200;
+
+    private record Key(Long categoryId, LocalDate day) {
+    }
+
+    /**
+     * Applies a set of expense changes to the daily rollups. Must run in the transaction that wrote
+     * the expenses.
+     */
+    public void apply(List<ExpenseChange> changes) {
+        Map<Long, Set<LocalDate>> daysByUser = new TreeMap<>();
+        for (ExpenseChange change : changes) {
+            collect(change.getBefore(), daysByUser);
+            collect(change.getAfter(), daysByUser);
+        }
+        if (daysByUser.isEmpty()) {
+            return;
+        }
+        userRepository.findForUpdate(daysByUser.keySet());
+
+        Map<Long, Map<Key, ExpenseDailyRollup>> rollups = new HashMap<>();
+        for (Map.Entry<Long, Set<LocalDate>> entry : daysByUser.entrySet()) {
+            rollups.put(entry.getKey(), lock(entry.getKey(), entry.getValue(), keysToAdd(changes, entry.getKey())));
+        }
+
+        // Each sketch is decoded once and written back once, however many changes touch it
+        Map<ExpenseDailyRollup, AmountSketch> sketches = new IdentityHashMap<>();
+        for (ExpenseChange change : changes) {
+            ExpenseSnapshot before = change.getBefore();
+            if (isCounted(before)) {
+                ExpenseDailyRollup rollup = rollups.get(before.getUserId()).get(key(before));
+                if (rollup != null) {
+                    rollup.setTotal(rollup.getTotal().subtract(before.getAmount()));
+                    rollup.setCount(Math.max(0, rollup.getCount() - 1));
+                    sketch(rollup, sketches).remove(before.getAmount());
+                }
+            }
+            ExpenseSnapshot after = change.getAfter();
+            if (isCounted(after)) {
+                ExpenseDailyRollup rollup = rollups.get(after.getUserId()).get(key(after));
+                rollup.setTotal(rollup.getTotal().add(after.getAmount()));
+                rollup.setCount(rollup.getCount() + 1);
+                sketch(rollup, sketches).add(after.getAmount());
+            }
+        }
+        sketches.forEach((rollup, sketch) -> rollup.setSketch(sketch.toBytes()));
+    }
+
+    /**
+     * Runs {@link #backfill()} unless a backfill has already completed.
+     *
+     * @return the run, or {@code null} if there was nothing to do
+     */
+    public JobCheckpoint backfillIfIncomplete() {
+        JobCheckpoint last = jobCheckpointRepository.findFirstByJobNameOrderByStartedAtDesc(BACKFILL_JOB_NAME).orElse(null);
+        if (last != null && last.getStatus() == JobStatus.COMPLETED) {
+            return null;
+        }
+        return backfill();
+    }
+
+    /**
+     * Rebuilds the rollups of every user from their expenses, in keyset pages of users. Each page is
+     * rebuilt in one transaction and progress is saved after it, so a run that did not complete
+     * resumes after the last saved user.
+     */
+    public JobCheckpoint backfill() {
+        long startNanos = System.nanoTime();
+        JobCheckpoint checkpoint = resumeOrStart();
+        long previousDurationMs = checkpoint.getDurationMs();
+
+        try {
+            long afterUserId = checkpoint.getLastKey();
+            while (true) {
+                List<Long> userIds = userRepository.findIdsAfter(afterUserId, PageRequest.of(0, backfillPageSize));
+                if (userIds.isEmpty()) {
+                    break;
+                }
+                Long expenses = new TransactionTemplate(transactionManager).execute(status -> rebuild(userIds));
+                checkpoint.setRowsScanned(checkpoint.getRowsScanned() + (expenses != null ? expenses : 0));
+                checkpoint.setItemsProcessed(checkpoint.getItemsProcessed() + userIds.size());
+
+                afterUserId = userIds.get(userIds.size() - 1);
+                checkpoint.setLastKey(afterUserId);
+                checkpoint.setDurationMs(previousDurationMs + elapsedMs(startNanos));
+                checkpoint = jobCheckpointRepository.save(checkpoint);
+            }
+            checkpoint.setStatus(JobStatus.COMPLETED);
+        } catch (RuntimeException e) {
+            checkpoint.setStatus(JobStatus.FAILED);
+            checkpoint.setError(truncate(e.getMessage()));
+        }
+
+        checkpoint.setFinishedAt(LocalDateTime.now());
+        checkpoint.setDurationMs(previousDurationMs + elapsedMs(startNanos));
+        return jobCheckpointRepository.save(checkpoint);
+    }
+
+    private long rebuild(List<Long> userIds) {
+        // Held until the page commits, so no write of these users lands between the read and the save
+        userRepository.findForUpdate(userIds);
+        rollupRepository.deleteByUserIdIn(userIds);
+        Map<Long, Map<Key, ExpenseDailyRollup>> rollups = new HashMap<>();
+        Map<ExpenseDailyRollup, AmountSketch> sketches = new IdentityHashMap<>();
+        long expenses = 0;
+        for (Object[] row : expenseRepository.findAmountsForUsers(userIds)) {
+            // [userId, categoryId, date, amount]
+            Long userId = (Long) row[0];
+            Long categoryId = row[1] != null ? (Long) row[1] : ExpenseDailyRollup.UNCATEGORIZED;
+            LocalDate day = (LocalDate) row[2];
+            BigDecimal amount = (BigDecimal) row[3];
+            ExpenseDailyRollup rollup = rollups.computeIfAbsent(userId, id -> new HashMap<>())
+                    .computeIfAbsent(new Key(categoryId, day), key -> new ExpenseDailyRollup(userId, categoryId, day));
+            rollup.setTotal(rollup.getTotal().add(amount));
+            rollup.setCount(rollup.getCount() + 1);
+            sketches.computeIfAbsent(rollup, r -> new AmountSketch()).add(amount);
+            expenses++;
+        }
+        sketches.forEach((rollup, sketch) -> rollup.setSketch(sketch.toBytes()));
+        rollupRepository.saveAll(sketches.keySet());
+        return expenses;
+    }
+
+    private Map<Key, ExpenseDailyRollup> lock(Long userId, Set<LocalDate> days, Set<Key> needed) {
+        Map<Key, ExpenseDailyRollup> byKey = new HashMap<>();
+        rollupRepository.findForUpdate(userId, days).forEach(r -> byKey.put(new Key(r.getCategoryId(), r.getDay()), r));
+        if (byKey.keySet().containsAll(needed)) {
+            return byKey;
+        }
+
+        // Insert the missing rows on their own so a concurrent insert of the same row only fails here
+        for (Key key : needed) {
+            if (!byKey.containsKey(key)) {
+                try {
+                    newTransaction().executeWithoutResult(status ->
+                            rollupRepository.saveAndFlush(new ExpenseDailyRollup(userId, key.categoryId(), key.day())));
+                } catch (DataIntegrityViolationException e) {
+                    // Created concurrently by another write
+                }
+            }
+        }
+        rollupRepository.findForUpdate(userId, days).forEach(r -> byKey.put(new Key(r.getCategoryId(), r.getDay()), r));
+        return byKey;
+    }
+
+    private static Set<Key> keysToAdd(List<ExpenseChange> changes, Long userId) {
+        Set<Key> keys = new HashSet<>();
+        for (ExpenseChange change : changes) {
+            ExpenseSnapshot after = change.getAfter();
+            if (isCounted(after) && Objects.equals(after.getUserId(), userId)) {
+                keys.add(key(after));
+            }
+        }
+        return keys;
+    }
+
+    private static void collect(ExpenseSnapshot snapshot, Map<Long, Set<LocalDate>> daysByUser) {
+        if (isCounted(snapshot)) {
+            daysByUser.computeIfAbsent(snapshot.getUserId(), id -> new TreeSet<>()).add(snapshot.getDate());
+        }
+    }
+
+    private static boolean isCounted(ExpenseSnapshot snapshot) {
+        return snapshot != null && snapshot.getUserId() != null && snapshot.getDate() != null
+                && snapshot.getAmount() != null;
+    }
+
+    private static Key key(ExpenseSnapshot snapshot) {
+        return new Key(snapshot.getCategoryId() != null ? snapshot.getCategoryId() : ExpenseDailyRollup.UNCATEGORIZED,
+                snapshot.getDate());
+    }
+
+    private static AmountSketch sketch(ExpenseDailyRollup rollup, Map<ExpenseDailyRollup, AmountSketch> sketches) {
+        return sketches.computeIfAbsent(rollup, r -> AmountSketch.fromBytes(r.getSketch()));
+    }
+
+    private JobCheckpoint resumeOrStart() {
+        JobCheckpoint last = jobCheckpointRepository.findFirstByJobNameOrderByStartedAtDesc(BACKFILL_JOB_NAME).orElse(null);
+        if (last != null && last.getStatus() != JobStatus.COMPLETED) {
+            last.setStatus(JobStatus.RUNNING);
+            last.setFinishedAt(null);
+            last.setError(null);
+            return jobCheckpointRepository.save(last);
+        }
+        JobCheckpoint checkpoint = new JobCheckpoint();
+        checkpoint.setJobName(BACKFILL_JOB_NAME);
+        checkpoint.setStartedAt(LocalDateTime.now());
+        return jobCheckpointRepository.save(checkpoint);
+    }
+
+    private TransactionTemplate newTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > 255 ? message.substring(0, 255) : message;
+    }
+}
@@ -1,37 +1,286 @@
 package sg.wlian.addonapp.service;
 
+import io.micrometer.observation.annotation.Observed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import sg.wlian.addonapp.cache.SpendCounterStore;
+import sg.wlian.addonapp.dto.ExpenseBatchOperation;
+import sg.wlian.addonapp.dto.ExpenseBatchResponse;
+import sg.wlian.addonapp.dto.ExpenseBatchResult;
+import sg.wlian.addonapp.dto.ExpenseSearchCriteria;
+import sg.wlian.addonapp.dto.ExpenseSearchResultDTO;
 import sg.wlian.addonapp.dto.ExpenseSummaryDTO;
+import sg.wlian.addonapp.dto.MonthSpendDTO;
 import sg.wlian.addonapp.entity.Category;
 import sg.wlian.addonapp.entity.Expense;
+import sg.wlian.addonapp.entity.ExpenseTombstone;
 import sg.wlian.addonapp.entity.User;
+import sg.wlian.addonapp.event.ExpenseAnomalyEvent;
+import sg.wlian.addonapp.event.ExpenseChange;
+import sg.wlian.addonapp.event.ExpenseSnapshot;
+import sg.wlian.addonapp.event.ExpensesChangedEvent;
 import sg.wlian.addonapp.repository.ExpenseRepository;
+import sg.wlian.addonapp.repository.ExpenseTombstoneRepository;
+import sg.wlian.addonapp.search.ExpenseSearchIndex;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Service
+@Observed(name = "app.service")
 @Transactional
 public class ExpenseService {
 
     @Autowired
     private ExpenseRepository expenseRepository;
 
+    @Autowired
+    private ExpenseTombstoneRepository tombstoneRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private SpendCounterStore spendCounterStore;
+
+    @Autowired
+    private ExpenseSearchIndex expenseSearchIndex;
+
+    @Autowired
+    private ExpenseAnomalyDetector anomalyDetector;
+
+    @Autowired
+    private ExpenseRollupService rollupService;
+
+    @Value("${expense.batch.max-size:500}")
+    private int maxBatchSize = 500;
+
+    @Value("${expense.search.max-page-size:100}")
+    private int maxSearchPageSize = 100;
+
+    // Deep pages get slower with every page; beyond this the client should narrow the search
+    @Value("${expense.search.max-results:1000}")
+    private int maxSearchResults = 1000;
+
     public Expense createExpense(Expense expense) {
-        return expenseRepository.save(expense);
+        Expense saved = expenseRepository.save(expense);
+        publishChanges(List.of(ExpenseChange.created(ExpenseSnapshot.of(saved))));
+        return saved;
     }
 
     public Expense updateExpense(Long id, Expense expenseDetails) {
         Expense expense = expenseRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Expense not found with id: " + id));
         
+        ExpenseSnapshot before = ExpenseSnapshot.of(expense);
+        applyDetails(expense, expenseDetails);
+        
+        Expense saved = expenseRepository.save(expense);
+        publishChanges(List.of(ExpenseChange.updated(before, ExpenseSnapshot.of(saved))));
+        return saved;
+    }
+
+    public void deleteExpense(Long id) {
+        expenseRepository.findById(id)
+                .filter(expense -> expense.getUser() != null)
+                .ifPresent(expense -> {
+                    tombstoneRepository.save(new ExpenseTombstone(expense));
+                    publishChanges(List.of(ExpenseChange.deleted(ExpenseSnapshot.of(expense))));
+                });
+        expenseRepository.deleteById(id);
+    }
+
+    /**
+     * Applies a list of create/update/delete operations in a single transaction.
+     * Existing rows are loaded with one query, and all inserts, updates and deletes are
+     * flushed together so Hibernate can send them as JDBC batches. Operations that fail
+     * validation are reported per item and do not prevent the rest of the batch from applying.
+     */
+    public ExpenseBatchResponse processBatch(List<ExpenseBatchOperation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new IllegalArgumentException("Batch must contain at least one operation");
+        }
+        if (operations.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Batch size " + operations.size()
+                    + " exceeds the maximum of " + maxBatchSize);
+        }
+
+        List<Long> targetIds = operations.stream()
+                .filter(op -> op != null && op.getType() != ExpenseBatchOperation.Type.CREATE)
+                .map(ExpenseBatchOperation::getId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        Map<Long, Expense> existing = new HashMap<>();
+        if (!targetIds.isEmpty()) {
+            for (Expense expense : expenseRepository.findAllById(targetIds)) {
+                existing.put(expense.getId(), expense);
+            }
+        }
+
+        List<ExpenseBatchResult> results = new ArrayList<>(operations.size());
+        Map<Integer, Expense> created = new LinkedHashMap<>();
+        Map<Long, Expense> updated = new LinkedHashMap<>();
+        Map<Long, ExpenseSnapshot> beforeUpdate = new HashMap<>();
+        List<Expense> deleted = new ArrayList<>();
+        List<ExpenseSnapshot> deletedSnapshots = new ArrayList<>();
+
+        for (int i = 0; i < operations.size(); i++) {
+            ExpenseBatchOperation op = operations.get(i);
+            ExpenseBatchResult result = new ExpenseBatchResult();
+            result.setIndex(i);
+            results.add(result);
+
+            if (op == null || op.getType() == null) {
+                reject(result, ExpenseBatchResult.Status.INVALID, "Operation type is required");
+                continue;
+            }
+            result.setType(op.getType());
+            result.setClientRef(op.getClientRef());
+            result.setId(op.getId());
+
+            switch (op.getType()) {
+                case CREATE: {
+                    String error = validateForWrite(op.getExpense());
+                    if (error != null) {
+                        reject(result, ExpenseBatchResult.Status.INVALID, error);
+                        break;
+                    }
+                    op.getExpense().setId(null);
+                    created.put(i, op.getExpense());
+                    result.setStatus(ExpenseBatchResult.Status.OK);
+                    break;
+                }
+                case UPDATE: {
+                    Expense expense = existing.get(op.getId());
+                    if (expense == null) {
+                        reject(result, ExpenseBatchResult.Status.NOT_FOUND, "Expense not found with id: " + op.getId());
+                        break;
+                    }
+                    String error = validateForWrite(op.getExpense());
+                    if (error != null) {
+                        reject(result, ExpenseBatchResult.Status.INVALID, error);
+                        break;
+                    }
+                    beforeUpdate.putIfAbsent(expense.getId(), ExpenseSnapshot.of(expense));
+                    applyDetails(expense, op.getExpense());
+                    updated.put(expense.getId(), expense);
+                    result.setStatus(ExpenseBatchResult.Status.OK);
+                    break;
+                }
+                case DELETE: {
+                    Expense expense = existing.remove(op.getId());
+                    if (expense == null) {
+                        reject(result, ExpenseBatchResult.Status.NOT_FOUND, "Expense not found with id: " + op.getId());
+                        break;
+                    }
+                    updated.remove(expense.getId());
+                    // A delete after an update in the same batch removes the row as it was before the batch
+                    ExpenseSnapshot original = beforeUpdate.remove(expense.getId());
+                    if (original == null) {
+                        original = ExpenseSnapshot.of(expense);
+                    }
+                    deletedSnapshots.add(original);
+                    deleted.add(expense);
+                    result.setStatus(ExpenseBatchResult.Status.OK);
+                    break;
+                }
+            }
+        }
+
+        List<Expense> toSave = new ArrayList<>(created.values());
+        toSave.addAll(updated.values());
+        if (!toSave.isEmpty()) {
+            expenseRepository.saveAll(toSave);
+        }
+        if (!deleted.isEmpty()) {
+            tombstoneRepository.saveAll(deleted.stream()
+                    .filter(expense -> expense.getUser() != null)
+                    .map(ExpenseTombstone::new)
+                    .collect(Collectors.toList()));
+            expenseRepository.deleteAllInBatch(deleted);
+        }
+
+        List<ExpenseChange> changes = new ArrayList<>();
+        created.values().forEach(expense -> changes.add(ExpenseChange.created(ExpenseSnapshot.of(expense))));
+        updated.values().forEach(expense -> changes.add(
+                ExpenseChange.updated(beforeUpdate.get(expense.getId()), ExpenseSnapshot.of(expense))));
+        deletedSnapshots.forEach(snapshot -> changes.add(ExpenseChange.deleted(snapshot)));
+        publishChanges(changes);
+
+        int failed = 0;
+        for (ExpenseBatchResult result : results) {
+            if (result.getStatus() != ExpenseBatchResult.Status.OK) {
+                failed++;
+                continue;
+            }
+            Expense expense = result.getType() == ExpenseBatchOperation.Type.CREATE
+                    ? created.get(result.getIndex())
+                    : updated.get(result.getId());
+            if (expense != null) {
+                result.setId(expense.getId());
+                result.setExpense(expense);
+            }
+        }
+
+        return new ExpenseBatchResponse(results.size() - failed, failed, results);
+    }
+
+    // Listeners see one event per service call, however many rows it touched
+    private void publishChanges(List<ExpenseChange> changes) {
+        if (!changes.isEmpty()) {
+            flagAnomalies(changes);
+            rollupService.apply(changes);
+            eventPublisher.publishEvent(new ExpensesChangedEvent(changes));
+        }
+    }
+
+    // Runs before commit so the amount statistics are written in the same transaction as the expenses
+    private void flagAnomalies(List<ExpenseChange> changes) {
+        for (ExpenseAnomalyEvent anomaly : anomalyDetector.apply(changes)) {
+            // New expenses are still in the persistence context, so this does not hit the database
+            expenseRepository.findById(anomaly.getExpenseId()).ifPresent(expense -> {
+                expense.setAnomalous(true);
+                expense.setAnomalyScore(anomaly.getScore());
+            });
+            eventPublisher.publishEvent(anomaly);
+        }
+    }
+
+    private void reject(ExpenseBatchResult result, ExpenseBatchResult.Status status, String error) {
+        result.setStatus(status);
+        result.setError(error);
+    }
+
+    String validateForWrite(Expense expense) {
+        if (expense == null) {
+            return "Expense payload is required";
+        }
+        if (expense.getDescription() == null || expense.getDescription().isBlank()) {
+            return "Description is required";
+        }
+        if (expense.getAmount() == null) {
+            return "Amount is required";
+        }
+        if (expense.getDate() == null) {
+            return "Date is required";
+        }
+        return null;
+    }
+
+    private void applyDetails(Expense expense, Expense expenseDetails) {
         expense.setDescription(expenseDetails.getDescription());
         expense.setAmount(expenseDetails.getAmount());
         expense.setDate(expenseDetails.getDate());
@@ -41,12 +290,6 @@ public class ExpenseService {
         expense.setRecurring(expenseDetails.isRecurring());
         expense.setRecurrenceFrequency(expenseDetails.getRecurrenceFrequency());
         expense.setRecurrenceEndDate(expenseDetails.getRecurrenceEndDate());
-        
-        return expenseRepository.save(expense);
-    }
-
-    public void deleteExpense(Long id) {
-        expenseRepository.deleteById(id);
     }
 
     public List<Expense> getExpensesByUser(Long userId) {
@@ -64,6 +307,56 @@ public class ExpenseService {
         return expenseRepository.findByUserIdAndDateBetween(userId, startDate, endDate);
     }
     
+    /**
+     * Spend per category for a month, served from the in-memory {@link SpendCounterStore}.
+     */
+    public MonthSpendDTO getMonthSpend(Long userId, YearMonth month) {
+        Map<Long, BigDecimal> byCategory = spendCounterStore.getSpentByCategory(userId, month);
+        BigDecimal total = byCategory.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+        return new MonthSpendDTO(month, total, byCategory);
+    }
+
+    /**
+     * Full-text search over description and notes, served from {@link ExpenseSearchIndex}. Matching
+     * expenses are loaded from the database in result order.
+     */
+    @Transactional(readOnly = true)
+    public ExpenseSearchResultDTO searchExpenses(ExpenseSearchCriteria criteria, int page, int size) {
+        if (page < 0 || size < 1 || size > maxSearchPageSize) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + maxSearchPageSize);
+        }
+        if ((long) (page + 1) * size > maxSearchResults) {
+            throw new IllegalArgumentException("Only the first " + maxSearchResults + " results can be paged through");
+        }
+        if (criteria.getStartDate() != null && criteria.getEndDate() != null
+                && criteria.getStartDate().isAfter(criteria.getEndDate())) {
+            throw new IllegalArgumentException("Start date must not be after end date");
+        }
+        if (criteria.getMinAmount() != null && criteria.getMaxAmount() != null
+                && criteria.getMinAmount().compareTo(criteria.getMaxAmount()) > 0) {
+            throw new IllegalArgumentException("Minimum amount must not exceed maximum amount");
+        }
+
+        ExpenseSearchIndex.Hits hits;
+        try {
+            hits = expenseSearchIndex.search(criteria, page * size, size);
+        } catch (IOException e) {
+            throw new RuntimeException("Expense search failed", e);
+        }
+
+        Map<Long, Expense> byId = expenseRepository.findAllById(hits.getIds()).stream()
+                .collect(Collectors.toMap(Expense::getId, e -> e));
+        // An expense deleted since the index was last refreshed is simply left out, and so is any id that
+        // now belongs to another user's expense (an index entry the database no longer agrees with)
+        List<Expense> expenses = hits.getIds().stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .filter(e -> e.getUser() != null && criteria.getUserId().equals(e.getUser().getId()))
+                .collect(Collectors.toList());
+        return new ExpenseSearchResultDTO(expenses, page, size, hits.getTotalHits(), hits.isTotalHitsExact(),
+                expenseSearchIndex.isComplete());
+    }
+
     public ExpenseSummaryDTO getMonthlySummary(Long userId, int year, int month) {
         YearMonth yearMonth = YearMonth.of(year, month);
         LocalDate startDate = yearMonth.atDay(1);
@@ -131,25 +424,33 @@ public class ExpenseService {
         return expenseRepository.findByUserAndIsRecurringTrue(user);
     }
 
-    public void processRecurringExpenses() {
+    /**
+     * Creates the due instances of every recurring expense, returning how many were created.
+     */
+    public int processRecurringExpenses() {
         List<Expense> allRecurringExpenses = expenseRepository.findByIsRecurringTrue();
         LocalDate today = LocalDate.now();
+        List<ExpenseChange> changes = new ArrayList<>();
 
         for (Expense recurring : allRecurringExpenses) {
-            processRecurringExpense(recurring, today);
+            processRecurringExpense(recurring, today, changes);
         }
+        publishChanges(changes);
+        return changes.size();
     }
 
     public void processRecurringExpenses(User user) {
         List<Expense> recurringExpenses = getRecurringExpenses(user);
         LocalDate today = LocalDate.now();
+        List<ExpenseChange> changes = new ArrayList<>();
 
         for (Expense recurring : recurringExpenses) {
-            processRecurringExpense(recurring, today);
+            processRecurringExpense(recurring, today, changes);
         }
+        publishChanges(changes);
     }
 
-    private void processRecurringExpense(Expense recurring, LocalDate today) {
+    private void processRecurringExpense(Expense recurring, LocalDate today, List<ExpenseChange> changes) {
         // Check if recurrence has ended
         if (recurring.getRecurrenceEndDate() != null && today.isAfter(recurring.getRecurrenceEndDate())) {
             return;
@@ -160,7 +461,8 @@ public class ExpenseService {
 
         // Check if we should create a new expense
         if (nextOccurrence != null && !nextOccurrence.isAfter(today)) {
-            createRecurringExpenseInstance(recurring, nextOccurrence);
+            Expense instance = createRecurringExpenseInstance(recurring, nextOccurrence);
+            changes.add(ExpenseChange.created(ExpenseSnapshot.of(instance)));
 
             // Update last recurrence date
             recurring.setLastRecurrenceDate(nextOccurrence);
@@ -177,36 +479,10 @@ public class ExpenseService {
             return null;
         }
 
-        LocalDate nextOccurrence = null;
-
-        switch (recurring.getRecurrenceFrequency()) {
-            case DAILY:
-                nextOccurrence = baseDate.plusDays(1);
-                break;
-            case WEEKLY:
-                nextOccurrence = baseDate.plusWeeks(1);
-                break;
-            case BIWEEKLY:
-                nextOccurrence = baseDate.plusWeeks(2);
-                break;
-            case MONTHLY:
-                nextOccurrence = baseDate.plusMonths(1);
-                break;
-            case QUARTERLY:
-                nextOccurrence = baseDate.plusMonths(3);
-                break;
-            case SEMI_ANNUALLY:
-                nextOccurrence = baseDate.plusMonths(6);
-                break;
-            case ANNUALLY:
-                nextOccurrence = baseDate.plusYears(1);
-                break;
-        }
-
-        return nextOccurrence;
-    }
-
-    private void createRecurringExpenseInstance(Expense recurring, LocalDate occurrenceDate) {
+        return recurring.getRecurrenceFrequency().next(baseDate);
+    }
+
+    private Expense createRecurringExpenseInstance(Expense recurring, LocalDate occurrenceDate) {
         Expense newExpense = new Expense();
         newExpense.setDescription(recurring.getDescription());
         newExpense.setAmount(recurring.getAmount());
@@ -218,5 +494,6 @@ public class ExpenseService {
         newExpense.setRecurring(false); // The instance itself is not recurring
 
         expenseRepository.save(newExpense);
+        return newExpense;
     }
 }
@@ -0,0 +1,104 @@
+package sg.wlian.addonapp.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import sg.wlian.addonapp.dto.ExpenseSyncResponse;
+import sg.wlian.addonapp.dto.SyncToken;
+import sg.wlian.addonapp.entity.Expense;
+import sg.wlian.addonapp.entity.ExpenseTombstone;
+import sg.wlian.addonapp.repository.ExpenseRepository;
+import sg.wlian.addonapp.repository.ExpenseTombstoneRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serves incremental expense changes for a user. Upserts come from the (user_id, updated_at) index on
+ * expense and deletions from expense_tombstone; both are scanned with the same keyset cursor and merged
+ * in (timestamp, id) order so a page boundary never skips or repeats a change.
+ */
+@Service
+@Transactional(readOnly = true)
+public class ExpenseSyncService {
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private ExpenseTombstoneRepository tombstoneRepository;
+
+    @Value("${sync.default-page-size:200}")
+    private int defaultPageSize = 200;
+
+    @Value("${sync.max-page-size:1000}")
+    private int maxPageSize = 1000;
+
+    // Changes newer than now - (transaction timeout + lag) are held back so rows from transactions
+    // still in flight, which carry an earlier timestamp than their commit time, are not skipped by a
+    // later token. The timeout bounds how long a writer can stay open after stamping a row; the lag
+    // covers the commit itself and clock skew between nodes.
+    @Value("${spring.transaction.default-timeout:10s}")
+    private Duration transactionTimeout = Duration.ofSeconds(10);
+
+    @Value("${sync.safety-lag-ms:2000}")
+    private long safetyLagMs = 2000;
+
+    @Value("${sync.tombstone-retention-days:90}")
+    private int tombstoneRetentionDays = 90;
+
+    public ExpenseSyncResponse getChanges(Long userId, String sinceToken, Integer limit) {
+        SyncToken since = SyncToken.parse(sinceToken);
+        int pageSize = limit == null || limit <= 0 ? defaultPageSize : Math.min(limit, maxPageSize);
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime until = now.minus(transactionTimeout).minusNanos(safetyLagMs * 1_000_000L);
+        // Tombstones older than the retention window are purged, so a client that last synced
+        // before it may hold rows whose deletion it can no longer be told about.
+        boolean fullResync = !since.isInitial()
+                && since.getIssuedAt().isBefore(now.minusDays(tombstoneRetentionDays));
+        if (fullResync) {
+            since = SyncToken.initial();
+        }
+
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+        List<Expense> changed = expenseRepository.findChangedSince(
+                userId, since.getTimestamp(), since.getId(), until, page);
+        // A client starting from scratch has nothing to delete
+        List<ExpenseTombstone> deleted = since.isInitial()
+                ? List.of()
+                : tombstoneRepository.findDeletedSince(userId, since.getTimestamp(), since.getId(), until, page);
+
+        List<Expense> upserts = new ArrayList<>();
+        List<Long> deletedIds = new ArrayList<>();
+        SyncToken last = since;
+        int i = 0;
+        int j = 0;
+        while (upserts.size() + deletedIds.size() < pageSize && (i < changed.size() || j < deleted.size())) {
+            SyncToken nextChanged = i < changed.size()
+                    ? new SyncToken(changed.get(i).getUpdatedAt(), changed.get(i).getId(), now) : null;
+            SyncToken nextDeleted = j < deleted.size()
+                    ? new SyncToken(deleted.get(j).getDeletedAt(), deleted.get(j).getId(), now) : null;
+
+            if (nextDeleted == null || (nextChanged != null && nextDeleted.isAfter(nextChanged))) {
+                upserts.add(changed.get(i++));
+                last = nextChanged;
+            } else {
+                deletedIds.add(deleted.get(j++).getId());
+                last = nextDeleted;
+            }
+        }
+        boolean hasMore = i < changed.size() || j < deleted.size();
+
+        return new ExpenseSyncResponse(upserts, deletedIds, last.reissue(now).encode(), hasMore, fullResync);
+    }
+
+    @Transactional
+    public int purgeExpiredTombstones() {
+        return tombstoneRepository.deleteByDeletedAtBefore(LocalDateTime.now().minusDays(tombstoneRetentionDays));
+    }
+}
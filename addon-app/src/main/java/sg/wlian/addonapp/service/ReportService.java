@@ -1,122 +1,340 @@
 package sg.wlian.addonapp.service;
 
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.annotation.Observed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Service;
+import sg.wlian.addonapp.cache.ColumnTotals;
+import sg.wlian.addonapp.cache.ExpenseColumnStore;
+import sg.wlian.addonapp.cache.ReportCache;
+import sg.wlian.addonapp.cache.ReportCacheKey;
+import sg.wlian.addonapp.dto.AmountHistogramBucketDTO;
+import sg.wlian.addonapp.dto.AmountPercentileDTO;
 import sg.wlian.addonapp.dto.CategoryReportDTO;
 import sg.wlian.addonapp.dto.MonthlyReportDTO;
 import sg.wlian.addonapp.dto.PaymentMethodReportDTO;
+import sg.wlian.addonapp.dto.ReportBundleDTO;
+import sg.wlian.addonapp.dto.ReportCacheStatsDTO;
+import sg.wlian.addonapp.dto.ReportKind;
 import sg.wlian.addonapp.entity.Category;
-import sg.wlian.addonapp.entity.Expense;
+import sg.wlian.addonapp.entity.ExpenseDailyRollup;
 import sg.wlian.addonapp.entity.PaymentMethod;
-import sg.wlian.addonapp.entity.User;
-import sg.wlian.addonapp.repository.ExpenseRepository;
+import sg.wlian.addonapp.repository.CategoryRepository;
+import sg.wlian.addonapp.repository.ExpenseDailyRollupRepository;
+import sg.wlian.addonapp.sketch.AmountSketch;
+import sg.wlian.addonapp.tracing.TraceAttributes;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.YearMonth;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+/**
+ * Builds the spending reports. Trends, breakdowns and histograms are aggregated over the user's
+ * columns in {@link ExpenseColumnStore}; percentiles are merged from the daily rollups. Results are
+ * kept in the {@link ReportCache}.
+ */
 @Service
+@Observed(name = "app.service")
 public class ReportService {
 
-    @Autowired
-    private ExpenseRepository expenseRepository;
+    // Upper bounds of the amount histogram buckets when none are given
+    public static final List<BigDecimal> DEFAULT_HISTOGRAM_BOUNDS = List.of(
+        new BigDecimal("10"), new BigDecimal("25"), new BigDecimal("50"), new BigDecimal("100"),
+        new BigDecimal("250"), new BigDecimal("500"), new BigDecimal("1000"));
 
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private ExpenseColumnStore columnStore;
+
+    @Autowired
+    private ExpenseDailyRollupRepository rollupRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    @Qualifier("reportExecutor")
+    private TaskExecutor reportExecutor;
+
+    @Autowired
+    private ReportCache reportCache;
+
+    @Autowired
+    private ObservationRegistry observationRegistry = ObservationRegistry.NOOP;
+
+    @Value("${report.bundle.section-timeout-ms:2000}")
+    private long sectionTimeoutMs = 2000;
+
     public List<MonthlyReportDTO> getMonthlyTrend(Long userId, int months) {
-        User user = userService.findById(userId);
-        List<MonthlyReportDTO> report = new ArrayList<>();
         YearMonth currentMonth = YearMonth.now();
+        LocalDate startDate = currentMonth.minusMonths(months - 1).atDay(1);
+        LocalDate endDate = currentMonth.atEndOfMonth();
+        ReportCacheKey key = new ReportCacheKey(userId, ReportKind.MONTHLY_TREND, startDate, endDate, "");
+        return cached(key, () -> buildMonthlyTrend(userId, currentMonth, months));
+    }
 
-        for (int i = months - 1; i >= 0; i--) {
-            YearMonth month = currentMonth.minusMonths(i);
-            LocalDate startDate = month.atDay(1);
-            LocalDate endDate = month.atEndOfMonth();
+    public List<CategoryReportDTO> getCategoryBreakdown(Long userId, LocalDate startDate, LocalDate endDate) {
+        ReportCacheKey key = new ReportCacheKey(userId, ReportKind.CATEGORY_BREAKDOWN, startDate, endDate, "");
+        return cached(key, () -> buildCategoryBreakdown(userId, startDate, endDate));
+    }
 
-            List<Expense> expenses = expenseRepository.findByUserAndDateBetween(user, startDate, endDate);
-            BigDecimal total = expenses.stream()
-                .map(Expense::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    /**
+     * The {@code limit} categories with the most spend in the range.
+     */
+    public List<CategoryReportDTO> getTopCategories(Long userId, LocalDate startDate, LocalDate endDate, int limit) {
+        List<CategoryReportDTO> breakdown = getCategoryBreakdown(userId, startDate, endDate);
+        return breakdown.size() > limit ? new ArrayList<>(breakdown.subList(0, limit)) : breakdown;
+    }
 
-            report.add(new MonthlyReportDTO(month, total, expenses.size()));
-        }
+    public List<PaymentMethodReportDTO> getPaymentMethodBreakdown(Long userId, LocalDate startDate, LocalDate endDate) {
+        ReportCacheKey key = new ReportCacheKey(userId, ReportKind.PAYMENT_METHOD_BREAKDOWN, startDate, endDate, "");
+        return cached(key, () -> buildPaymentMethodBreakdown(userId, startDate, endDate));
+    }
 
-        return report;
+    public Map<String, Object> getWeeklyTrend(Long userId, int weeks) {
+        LocalDate today = LocalDate.now();
+        LocalDate firstWeekStart = today.minusWeeks(weeks - 1).with(DayOfWeek.MONDAY);
+        LocalDate lastWeekEnd = today.with(DayOfWeek.MONDAY).plusDays(6);
+        ReportCacheKey key = new ReportCacheKey(userId, ReportKind.WEEKLY_TREND, firstWeekStart, lastWeekEnd, "");
+        return cached(key, () -> buildWeeklyTrend(userId, today, weeks));
     }
 
-    public List<CategoryReportDTO> getCategoryBreakdown(Long userId, LocalDate startDate, LocalDate endDate) {
-        User user = userService.findById(userId);
-        List<Expense> expenses = expenseRepository.findByUserAndDateBetween(user, startDate, endDate);
+    /**
+     * Number and total of expenses per amount bucket. Bucket {@code i} holds amounts up to
+     * {@code upperBounds[i]} and above the previous bound; a last bucket holds everything above.
+     */
+    public List<AmountHistogramBucketDTO> getAmountHistogram(Long userId, LocalDate startDate, LocalDate endDate,
+                                                             List<BigDecimal> upperBounds) {
+        List<BigDecimal> bounds = new ArrayList<>(new TreeSet<>(upperBounds));
+        String params = bounds.stream().map(BigDecimal::toPlainString).collect(Collectors.joining(","));
+        ReportCacheKey key = new ReportCacheKey(userId, ReportKind.AMOUNT_HISTOGRAM, startDate, endDate, params);
+        return cached(key, () -> buildAmountHistogram(userId, startDate, endDate, bounds));
+    }
 
-        BigDecimal totalAmount = expenses.stream()
-            .map(Expense::getAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+    /**
+     * Median, p90 and p99 expense amount per category over a date range, merged from the daily
+     * rollups rather than read from expenses.
+     */
+    public List<AmountPercentileDTO> getCategoryPercentiles(Long userId, LocalDate startDate, LocalDate endDate) {
+        ReportCacheKey key = new ReportCacheKey(userId, ReportKind.CATEGORY_PERCENTILES, startDate, endDate, "");
+        return cached(key, () -> buildPercentiles(userId, startDate, endDate, false));
+    }
 
-        Map<Category, List<Expense>> categoryExpenses = expenses.stream()
-            .filter(e -> e.getCategory() != null)
-            .collect(Collectors.groupingBy(Expense::getCategory));
+    /**
+     * Median, p90 and p99 expense amount per category and month for the last {@code months} months.
+     */
+    public List<AmountPercentileDTO> getMonthlyPercentiles(Long userId, int months) {
+        YearMonth currentMonth = YearMonth.now();
+        LocalDate startDate = currentMonth.minusMonths(months - 1).atDay(1);
+        LocalDate endDate = currentMonth.atEndOfMonth();
+        ReportCacheKey key = new ReportCacheKey(userId, ReportKind.MONTHLY_PERCENTILES, startDate, endDate, "");
+        return cached(key, () -> buildPercentiles(userId, startDate, endDate, true));
+    }
 
-        List<CategoryReportDTO> report = new ArrayList<>();
-        for (Map.Entry<Category, List<Expense>> entry : categoryExpenses.entrySet()) {
-            Category category = entry.getKey();
-            List<Expense> categoryExpenseList = entry.getValue();
+    // Tags the current span with the report it is for before serving it from, or computing it into, the cache.
+    // The user is checked before computing, so an unknown id fails rather than getting empty columns.
+    private <T> T cached(ReportCacheKey key, Supplier<T> loader) {
+        TraceAttributes.tag(observationRegistry, TraceAttributes.USER_ID, key.getUserId());
+        TraceAttributes.tag(observationRegistry, TraceAttributes.REPORT_KIND, key.getKind());
+        return reportCache.get(key, () -> {
+            userService.findById(key.getUserId());
+            return loader.get();
+        });
+    }
 
-            BigDecimal categoryTotal = categoryExpenseList.stream()
-                .map(Expense::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    public ReportCacheStatsDTO getCacheStats() {
+        return reportCache.getStats();
+    }
 
-            double percentage = totalAmount.compareTo(BigDecimal.ZERO) > 0
-                ? categoryTotal.divide(totalAmount, 4, RoundingMode.HALF_UP)
-                    .multiply(BigDecimal.valueOf(100)).doubleValue()
-                : 0.0;
+    /**
+     * Computes several reports for one user in a single call, each section on the report executor.
+     * A section that does not finish within the section timeout, or fails, is reported in
+     * {@code errors} and the others are still returned. Sections already in the report cache are
+     * served from it.
+     */
+    public ReportBundleDTO getReportBundle(Long userId, Set<ReportKind> kinds, int months, int weeks,
+                                           LocalDate startDate, LocalDate endDate) {
+        LocalDate today = LocalDate.now();
+        YearMonth currentMonth = YearMonth.from(today);
+        // Breakdowns default to the current month
+        LocalDate rangeStart = startDate != null ? startDate : currentMonth.atDay(1);
+        LocalDate rangeEnd = endDate != null ? endDate : currentMonth.atEndOfMonth();
+
+        LocalDate monthlyStart = currentMonth.minusMonths(months - 1).atDay(1);
+        LocalDate monthlyEnd = currentMonth.atEndOfMonth();
+        LocalDate weeklyStart = today.minusWeeks(weeks - 1).with(DayOfWeek.MONDAY);
+        LocalDate weeklyEnd = today.with(DayOfWeek.MONDAY).plusDays(6);
+        TraceAttributes.tag(observationRegistry, TraceAttributes.USER_ID, userId);
+        TraceAttributes.tag(observationRegistry, TraceAttributes.REPORT_KIND,
+            kinds.stream().map(ReportKind::name).sorted().collect(Collectors.joining(",")));
+        String histogramParams = DEFAULT_HISTOGRAM_BOUNDS.stream()
+            .map(BigDecimal::toPlainString)
+            .collect(Collectors.joining(","));
+
+        Map<ReportKind, Object> cached = new EnumMap<>(ReportKind.class);
+        Map<ReportKind, ReportCacheKey> keys = new EnumMap<>(ReportKind.class);
+        for (ReportKind kind : kinds) {
+            ReportCacheKey key;
+            switch (kind) {
+                case MONTHLY_TREND:
+                case MONTHLY_PERCENTILES:
+                    key = new ReportCacheKey(userId, kind, monthlyStart, monthlyEnd, "");
+                    break;
+                case WEEKLY_TREND:
+                    key = new ReportCacheKey(userId, kind, weeklyStart, weeklyEnd, "");
+                    break;
+                case AMOUNT_HISTOGRAM:
+                    key = new ReportCacheKey(userId, kind, rangeStart, rangeEnd, histogramParams);
+                    break;
+                default:
+                    key = new ReportCacheKey(userId, kind, rangeStart, rangeEnd, "");
+            }
+            Object hit = reportCache.getIfPresent(key);
+            if (hit != null) {
+                cached.put(kind, hit);
+            } else {
+                keys.put(kind, key);
+            }
+        }
 
-            report.add(new CategoryReportDTO(
-                category.getName(),
-                categoryTotal,
-                categoryExpenseList.size(),
-                percentage
-            ));
+        if (!keys.isEmpty()) {
+            userService.findById(userId);
         }
 
-        report.sort((a, b) -> b.getAmount().compareTo(a.getAmount()));
-        return report;
+        // Captured before computing so a write that commits while sections are computing is not cached
+        long generation = reportCache.generation(userId);
+
+        Map<ReportKind, CompletableFuture<Object>> futures = new EnumMap<>(ReportKind.class);
+        for (ReportKind kind : keys.keySet()) {
+            Supplier<Object> section;
+            switch (kind) {
+                case MONTHLY_TREND:
+                    section = () -> buildMonthlyTrend(userId, currentMonth, months);
+                    break;
+                case WEEKLY_TREND:
+                    section = () -> buildWeeklyTrend(userId, today, weeks);
+                    break;
+                case CATEGORY_BREAKDOWN:
+                    section = () -> buildCategoryBreakdown(userId, rangeStart, rangeEnd);
+                    break;
+                case PAYMENT_METHOD_BREAKDOWN:
+                    section = () -> buildPaymentMethodBreakdown(userId, rangeStart, rangeEnd);
+                    break;
+                case CATEGORY_PERCENTILES:
+                    section = () -> buildPercentiles(userId, rangeStart, rangeEnd, false);
+                    break;
+                case MONTHLY_PERCENTILES:
+                    section = () -> buildPercentiles(userId, monthlyStart, monthlyEnd, true);
+                    break;
+                case AMOUNT_HISTOGRAM:
+                    section = () -> buildAmountHistogram(userId, rangeStart, rangeEnd, DEFAULT_HISTOGRAM_BOUNDS);
+                    break;
+                default:
+                    continue;
+            }
+            // One span per section, on whichever thread computes it
+            Supplier<Object> build = section;
+            Supplier<Object> observed = () -> Observation.createNotStarted("report.section", observationRegistry)
+                .contextualName("report " + kind)
+                .highCardinalityKeyValue(TraceAttributes.REPORT_KIND, kind.name())
+                .observe(build);
+            futures.put(kind, CompletableFuture.supplyAsync(observed, reportExecutor));
+        }
+
+        Map<ReportKind, Object> sections = new LinkedHashMap<>(cached);
+        Map<ReportKind, String> errors = new LinkedHashMap<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sectionTimeoutMs);
+        for (Map.Entry<ReportKind, CompletableFuture<Object>> entry : futures.entrySet()) {
+            CompletableFuture<Object> future = entry.getValue();
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                Object section = future.get(remaining, TimeUnit.NANOSECONDS);
+                sections.put(entry.getKey(), section);
+                reportCache.put(keys.get(entry.getKey()), section, generation);
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                errors.put(entry.getKey(), "TIMEOUT");
+            } catch (ExecutionException e) {
+                errors.put(entry.getKey(), e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                errors.put(entry.getKey(), "INTERRUPTED");
+            }
+        }
+
+        return new ReportBundleDTO(sections, errors);
     }
 
-    public List<PaymentMethodReportDTO> getPaymentMethodBreakdown(Long userId, LocalDate startDate, LocalDate endDate) {
-        User user = userService.findById(userId);
-        List<Expense> expenses = expenseRepository.findByUserAndDateBetween(user, startDate, endDate);
+    private List<MonthlyReportDTO> buildMonthlyTrend(Long userId, YearMonth currentMonth, int months) {
+        List<LocalDate> monthStarts = new ArrayList<>();
+        for (int i = months - 1; i >= 0; i--) {
+            monthStarts.add(currentMonth.minusMonths(i).atDay(1));
+        }
+        ColumnTotals totals = columnStore.byDate(userId, monthStarts, currentMonth.atEndOfMonth());
 
-        BigDecimal totalAmount = expenses.stream()
-            .map(Expense::getAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        List<MonthlyReportDTO> report = new ArrayList<>();
+        for (int i = 0; i < totals.size(); i++) {
+            report.add(new MonthlyReportDTO(YearMonth.from(monthStarts.get(i)), fromCents(totals.getCents()[i]),
+                (int) totals.getCounts()[i]));
+        }
+        return report;
+    }
 
-        Map<PaymentMethod, List<Expense>> paymentMethodExpenses = expenses.stream()
-            .filter(e -> e.getPaymentMethod() != null)
-            .collect(Collectors.groupingBy(Expense::getPaymentMethod));
+    private List<CategoryReportDTO> buildCategoryBreakdown(Long userId, LocalDate startDate, LocalDate endDate) {
+        ColumnTotals totals = columnStore.byCategory(userId, startDate, endDate);
+        Map<Long, String> names = new HashMap<>();
+        if (totals.getTotalCount() > 0) {
+            for (Category category : categoryRepository.findByUserId(userId)) {
+                names.put(category.getId(), category.getName());
+            }
+        }
 
-        List<PaymentMethodReportDTO> report = new ArrayList<>();
-        for (Map.Entry<PaymentMethod, List<Expense>> entry : paymentMethodExpenses.entrySet()) {
-            PaymentMethod paymentMethod = entry.getKey();
-            List<Expense> pmExpenses = entry.getValue();
+        List<CategoryReportDTO> report = new ArrayList<>();
+        for (int i = 0; i < totals.size(); i++) {
+            if (totals.getCounts()[i] == 0) {
+                continue;
+            }
+            report.add(new CategoryReportDTO(
+                names.get(totals.getCategoryIds()[i]),
+                fromCents(totals.getCents()[i]),
+                (int) totals.getCounts()[i],
+                percentage(totals.getCents()[i], totals.getTotalCents())
+            ));
+        }
 
-            BigDecimal pmTotal = pmExpenses.stream()
-                .map(Expense::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        report.sort((a, b) -> b.getAmount().compareTo(a.getAmount()));
+        return report;
+    }
 
-            double percentage = totalAmount.compareTo(BigDecimal.ZERO) > 0
-                ? pmTotal.divide(totalAmount, 4, RoundingMode.HALF_UP)
-                    .multiply(BigDecimal.valueOf(100)).doubleValue()
-                : 0.0;
+    private List<PaymentMethodReportDTO> buildPaymentMethodBreakdown(Long userId, LocalDate startDate, LocalDate endDate) {
+        ColumnTotals totals = columnStore.byPaymentMethod(userId, startDate, endDate);
+        PaymentMethod[] methods = PaymentMethod.values();
 
+        List<PaymentMethodReportDTO> report = new ArrayList<>();
+        for (int i = 0; i < totals.size(); i++) {
+            if (totals.getCounts()[i] == 0) {
+                continue;
+            }
             report.add(new PaymentMethodReportDTO(
-                paymentMethod,
-                pmTotal,
-                pmExpenses.size(),
-                percentage
+                methods[i],
+                fromCents(totals.getCents()[i]),
+                (int) totals.getCounts()[i],
+                percentage(totals.getCents()[i], totals.getTotalCents())
             ));
         }
 
@@ -124,26 +342,22 @@ public class ReportService {
         return report;
     }
 
-    public Map<String, Object> getWeeklyTrend(Long userId, int weeks) {
-        User user = userService.findById(userId);
-        List<Map<String, Object>> weeklyData = new ArrayList<>();
-        LocalDate today = LocalDate.now();
-
+    private Map<String, Object> buildWeeklyTrend(Long userId, LocalDate today, int weeks) {
+        List<LocalDate> weekStarts = new ArrayList<>();
         for (int i = weeks - 1; i >= 0; i--) {
-            LocalDate weekStart = today.minusWeeks(i).with(java.time.DayOfWeek.MONDAY);
-            LocalDate weekEnd = weekStart.plusDays(6);
-
-            List<Expense> expenses = expenseRepository.findByUserAndDateBetween(user, weekStart, weekEnd);
-            BigDecimal total = expenses.stream()
-                .map(Expense::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+            weekStarts.add(today.minusWeeks(i).with(DayOfWeek.MONDAY));
+        }
+        ColumnTotals totals = columnStore.byDate(userId, weekStarts, today.with(DayOfWeek.MONDAY).plusDays(6));
 
+        List<Map<String, Object>> weeklyData = new ArrayList<>();
+        for (int i = 0; i < totals.size(); i++) {
+            LocalDate weekStart = weekStarts.get(i);
             Map<String, Object> weekData = new HashMap<>();
-            weekData.put("week", "Week " + (weeks - i));
-            weekData.put("amount", total);
-            weekData.put("count", expenses.size());
+            weekData.put("week", "Week " + (i + 1));
+            weekData.put("amount", fromCents(totals.getCents()[i]));
+            weekData.put("count", (int) totals.getCounts()[i]);
             weekData.put("startDate", weekStart);
-            weekData.put("endDate", weekEnd);
+            weekData.put("endDate", weekStart.plusDays(6));
 
             weeklyData.add(weekData);
         }
@@ -152,4 +366,84 @@ public class ReportService {
         result.put("data", weeklyData);
         return result;
     }
+
+    private List<AmountHistogramBucketDTO> buildAmountHistogram(Long userId, LocalDate startDate, LocalDate endDate,
+                                                                List<BigDecimal> upperBounds) {
+        long[] boundsCents = new long[upperBounds.size()];
+        for (int i = 0; i < boundsCents.length; i++) {
+            boundsCents[i] = upperBounds.get(i).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+        }
+        ColumnTotals totals = columnStore.byAmount(userId, startDate, endDate, boundsCents);
+
+        List<AmountHistogramBucketDTO> report = new ArrayList<>();
+        for (int i = 0; i < totals.size(); i++) {
+            report.add(new AmountHistogramBucketDTO(
+                i > 0 ? upperBounds.get(i - 1) : null,
+                i < upperBounds.size() ? upperBounds.get(i) : null,
+                totals.getCounts()[i],
+                fromCents(totals.getCents()[i])
+            ));
+        }
+        return report;
+    }
+
+    private List<AmountPercentileDTO> buildPercentiles(Long userId, LocalDate startDate, LocalDate endDate, boolean byMonth) {
+        // One group per (month, category); month is null when grouping over the whole range
+        Map<YearMonth, Map<Long, List<ExpenseDailyRollup>>> groups = new TreeMap<>(
+            Comparator.nullsFirst(Comparator.naturalOrder()));
+        for (ExpenseDailyRollup rollup : rollupRepository.findByUserIdAndDayBetween(userId, startDate, endDate)) {
+            YearMonth month = byMonth ? YearMonth.from(rollup.getDay()) : null;
+            groups.computeIfAbsent(month, m -> new HashMap<>())
+                .computeIfAbsent(rollup.getCategoryId(), id -> new ArrayList<>())
+                .add(rollup);
+        }
+        if (groups.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Long, String> names = new HashMap<>();
+        for (Category category : categoryRepository.findByUserId(userId)) {
+            names.put(category.getId(), category.getName());
+        }
+
+        List<AmountPercentileDTO> report = new ArrayList<>();
+        for (Map.Entry<YearMonth, Map<Long, List<ExpenseDailyRollup>>> month : groups.entrySet()) {
+            List<AmountPercentileDTO> monthReport = new ArrayList<>();
+            for (Map.Entry<Long, List<ExpenseDailyRollup>> category : month.getValue().entrySet()) {
+                AmountSketch sketch = new AmountSketch();
+                BigDecimal total = BigDecimal.ZERO;
+                long count = 0;
+                for (ExpenseDailyRollup rollup : category.getValue()) {
+                    sketch.merge(AmountSketch.fromBytes(rollup.getSketch()));
+                    total = total.add(rollup.getTotal());
+                    count += rollup.getCount();
+                }
+                boolean uncategorized = category.getKey() == ExpenseDailyRollup.UNCATEGORIZED;
+                monthReport.add(new AmountPercentileDTO(
+                    month.getKey(),
+                    uncategorized ? null : category.getKey(),
+                    uncategorized ? "Uncategorized" : names.get(category.getKey()),
+                    count,
+                    total,
+                    sketch.quantile(0.5),
+                    sketch.quantile(0.9),
+                    sketch.quantile(0.99)
+                ));
+            }
+            monthReport.sort((a, b) -> b.getTotalAmount().compareTo(a.getTotalAmount()));
+            report.addAll(monthReport);
+        }
+        return report;
+    }
+
+    private static double percentage(long cents, long totalCents) {
+        return totalCents > 0
+            ? BigDecimal.valueOf(cents).divide(BigDecimal.valueOf(totalCents), 4, RoundingMode.HALF_UP)
+                .multiply(BigDecimal.valueOf(100)).doubleValue()
+            : 0.0;
+    }
+
+    private static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
 }
@@ -0,0 +1,207 @@
+package sg.wlian.addonapp.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import sg.wlian.addonapp.dto.BudgetForecastDTO;
+import sg.wlian.addonapp.dto.BudgetStatusDTO;
+import sg.wlian.addonapp.dto.CategoryForecastDTO;
+import sg.wlian.addonapp.dto.SpendForecastDTO;
+import sg.wlian.addonapp.entity.Budget;
+import sg.wlian.addonapp.entity.Category;
+import sg.wlian.addonapp.entity.JobCheckpoint;
+import sg.wlian.addonapp.entity.JobStatus;
+import sg.wlian.addonapp.forecast.CategoryProjection;
+import sg.wlian.addonapp.forecast.SpendForecastModelStore;
+import sg.wlian.addonapp.repository.BudgetRepository;
+import sg.wlian.addonapp.repository.CategoryRepository;
+import sg.wlian.addonapp.repository.JobCheckpointRepository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Projects end-of-period spend per category and per budget.
+ *
+ * <p>A projection is what has been spent so far, plus the instances of recurring expenses still due
+ * in the period, plus the rest of the period under a linear trend with day-of-week factors fitted to
+ * recent daily spend. Recurring spend is taken out of the trend so it is not counted twice. The
+ * models live in {@link SpendForecastModelStore} and are kept up to date as expenses change, so a
+ * forecast does not read expense history. {@link #precomputeAll()} rebuilds the models of every user
+ * with an active budget, and runs nightly.
+ */
+@Service
+public class SpendForecastService {
+
+    public static final String JOB_NAME = "spend-forecast-precompute";
+
+    @Autowired
+    private SpendForecastModelStore modelStore;
+
+    @Autowired
+    private BudgetService budgetService;
+
+    @Autowired
+    private BudgetRepository budgetRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private JobCheckpointRepository jobCheckpointRepository;
+
+    @Value("${forecast.precompute.page-size:500}")
+    private int pageSize = 500;
+
+    /**
+     * Forecast of a user's spend for the current calendar month, by category.
+     */
+    public SpendForecastDTO getMonthForecast(Long userId) {
+        LocalDate today = LocalDate.now();
+        YearMonth month = YearMonth.from(today);
+        List<CategoryProjection> projections = modelStore.project(
+                userId, today, month.atDay(1), month.atEndOfMonth(), null);
+
+        Map<Long, String> names = new HashMap<>();
+        for (Category category : categoryRepository.findByUserId(userId)) {
+            names.put(category.getId(), category.getName());
+        }
+
+        List<CategoryForecastDTO> categories = new ArrayList<>();
+        long spent = 0;
+        long projected = 0;
+        for (CategoryProjection projection : projections) {
+            spent += projection.getSpentCents();
+            projected += projection.getProjectedCents();
+            categories.add(new CategoryForecastDTO(
+                    projection.getCategoryId(),
+                    names.get(projection.getCategoryId()),
+                    fromCents(projection.getSpentCents()),
+                    fromCents(projection.getRecurringCents()),
+                    fromCents(projection.getDiscretionaryCents()),
+                    fromCents(projection.getProjectedCents())));
+        }
+        categories.sort(Comparator.comparing(CategoryForecastDTO::getProjectedTotal).reversed());
+
+        return new SpendForecastDTO(userId, month.atDay(1), month.atEndOfMonth(), today,
+                fromCents(spent), fromCents(projected), categories);
+    }
+
+    /**
+     * Forecast of a budget's spend at the end of its current window. Spend so far is the budget
+     * status; the rest of the window is projected for the budget's category.
+     */
+    public BudgetForecastDTO getBudgetForecast(Long budgetId) {
+        Budget budget = budgetService.getBudgetById(budgetId);
+        BudgetStatusDTO status = budgetService.getBudgetStatus(budget);
+        LocalDate today = LocalDate.now();
+        Long categoryId = budget.getCategory().getId();
+
+        long recurring = 0;
+        long discretionary = 0;
+        if (status.getPeriodStart() != null && status.getPeriodEnd() != null) {
+            CategoryProjection projection = modelStore.project(budget.getUser().getId(), today,
+                    status.getPeriodStart(), status.getPeriodEnd(), List.of(categoryId)).get(0);
+            recurring = projection.getRecurringCents();
+            discretionary = projection.getDiscretionaryCents();
+        }
+
+        BigDecimal projectedTotal = status.getTotalExpenses().add(fromCents(recurring + discretionary));
+        BigDecimal projectedRemaining = budget.getAmount().subtract(projectedTotal);
+        BigDecimal percentageUsed = budget.getAmount().compareTo(BigDecimal.ZERO) > 0
+                ? projectedTotal.divide(budget.getAmount(), 2, RoundingMode.HALF_UP).multiply(new BigDecimal(100))
+                : BigDecimal.ZERO;
+
+        return new BudgetForecastDTO(
+                budget.getId(),
+                categoryId,
+                budget.getAmount(),
+                status.getPeriodStart(),
+                status.getPeriodEnd(),
+                today,
+                status.getTotalExpenses(),
+                fromCents(recurring),
+                fromCents(discretionary),
+                projectedTotal,
+                projectedRemaining,
+                percentageUsed,
+                projectedRemaining.compareTo(BigDecimal.ZERO) < 0
+        );
+    }
+
+    /**
+     * Rebuilds the forecasting models of every user with an active budget, in keyset pages of users.
+     * Progress is saved after every page, and a run that did not complete resumes after the last
+     * saved user.
+     */
+    public JobCheckpoint precomputeAll() {
+        long startNanos = System.nanoTime();
+        JobCheckpoint checkpoint = resumeOrStart();
+        long previousDurationMs = checkpoint.getDurationMs();
+        LocalDate today = LocalDate.now();
+
+        try {
+            long afterUserId = checkpoint.getLastKey();
+            while (true) {
+                List<Long> userIds = budgetRepository.findUserIdsWithActiveBudgets(afterUserId, PageRequest.of(0, pageSize));
+                if (userIds.isEmpty()) {
+                    break;
+                }
+                checkpoint.setRowsScanned(checkpoint.getRowsScanned() + modelStore.rebuild(userIds, today));
+                checkpoint.setItemsProcessed(checkpoint.getItemsProcessed() + userIds.size());
+
+                afterUserId = userIds.get(userIds.size() - 1);
+                checkpoint.setLastKey(afterUserId);
+                checkpoint.setDurationMs(previousDurationMs + elapsedMs(startNanos));
+                checkpoint = jobCheckpointRepository.save(checkpoint);
+            }
+            checkpoint.setStatus(JobStatus.COMPLETED);
+        } catch (RuntimeException e) {
+            checkpoint.setStatus(JobStatus.FAILED);
+            checkpoint.setError(truncate(e.getMessage()));
+        }
+
+        checkpoint.setFinishedAt(LocalDateTime.now());
+        checkpoint.setDurationMs(previousDurationMs + elapsedMs(startNanos));
+        return jobCheckpointRepository.save(checkpoint);
+    }
+
+    private JobCheckpoint resumeOrStart() {
+        JobCheckpoint last = jobCheckpointRepository.findFirstByJobNameOrderByStartedAtDesc(JOB_NAME).orElse(null);
+        if (last != null && last.getStatus() != JobStatus.COMPLETED) {
+            last.setStatus(JobStatus.RUNNING);
+            last.setFinishedAt(null);
+            last.setError(null);
+            return jobCheckpointRepository.save(last);
+        }
+        JobCheckpoint checkpoint = new JobCheckpoint();
+        checkpoint.setJobName(JOB_NAME);
+        checkpoint.setStartedAt(LocalDateTime.now());
+        return jobCheckpointRepository.save(checkpoint);
+    }
+
+    private static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > 255 ? message.substring(0, 255) : message;
+    }
+}
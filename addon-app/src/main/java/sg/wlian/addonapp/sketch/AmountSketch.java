@@ -0,0 +1,201 @@
+package sg.wlian.addonapp.sketch;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Mergeable quantile sketch of expense amounts with a bounded relative error.
+ *
+ * <p>Amounts are counted in logarithmic buckets whose bounds grow by a factor of
+ * {@code (1 + a) / (1 - a)}, where {@code a} is {@link #RELATIVE_ACCURACY}; any quantile is then
+ * reported within {@code a} of the true amount. Negative amounts (refunds) are counted in a mirrored
+ * set of buckets. Buckets only hold counts, so two sketches merge exactly by adding counts, and an
+ * amount that was added can be taken out again when an expense is updated or deleted. The sketch of
+ * any number of expenses holds a few hundred buckets at most, and usually only a handful.
+ */
+public class AmountSketch {
+
+    public static final double RELATIVE_ACCURACY = 0.01;
+
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    private static final int FORMAT_VERSION = 1;
+
+    // Bucket index -> count; index i holds amounts in (GAMMA^(i-1), GAMMA^i]
+    private final NavigableMap<Integer, Long> positive = new TreeMap<>();
+    private final NavigableMap<Integer, Long> negative = new TreeMap<>();
+    private long zeroCount;
+
+    public void add(BigDecimal amount) {
+        update(amount, 1);
+    }
+
+    /**
+     * Takes out an amount that was added earlier. Amounts that are not in the sketch are ignored.
+     */
+    public void remove(BigDecimal amount) {
+        update(amount, -1);
+    }
+
+    public void merge(AmountSketch other) {
+        other.positive.forEach((index, count) -> positive.merge(index, count, Long::sum));
+        other.negative.forEach((index, count) -> negative.merge(index, count, Long::sum));
+        zeroCount += other.zeroCount;
+    }
+
+    public long count() {
+        return zeroCount + sum(positive) + sum(negative);
+    }
+
+    public boolean isEmpty() {
+        return count() == 0;
+    }
+
+    /**
+     * Amount at quantile {@code q} (between 0 and 1), rounded to cents; {@code null} if the sketch
+     * is empty.
+     */
+    public BigDecimal quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1");
+        }
+        long count = count();
+        if (count == 0) {
+            return null;
+        }
+        double rank = q * (count - 1);
+        long seen = 0;
+        // Largest refunds first, then zero, then amounts from smallest to largest
+        for (Map.Entry<Integer, Long> bucket : negative.descendingMap().entrySet()) {
+            seen += bucket.getValue();
+            if (seen > rank) {
+                return toAmount(-value(bucket.getKey()));
+            }
+        }
+        seen += zeroCount;
+        if (seen > rank) {
+            return BigDecimal.ZERO.setScale(2);
+        }
+        for (Map.Entry<Integer, Long> bucket : positive.entrySet()) {
+            seen += bucket.getValue();
+            if (seen > rank) {
+                return toAmount(value(bucket.getKey()));
+            }
+        }
+        return toAmount(value(positive.lastKey()));
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + 4 * (positive.size() + negative.size()));
+        writeVarLong(out, FORMAT_VERSION);
+        writeVarLong(out, zeroCount);
+        writeBuckets(out, positive);
+        writeBuckets(out, negative);
+        return out.toByteArray();
+    }
+
+    public static AmountSketch fromBytes(byte[] bytes) {
+        AmountSketch sketch = new AmountSketch();
+        if (bytes == null || bytes.length == 0) {
+            return sketch;
+        }
+        int[] position = {0};
+        long version = readVarLong(bytes, position);
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported amount sketch version: " + version);
+        }
+        sketch.zeroCount = readVarLong(bytes, position);
+        readBuckets(bytes, position, sketch.positive);
+        readBuckets(bytes, position, sketch.negative);
+        return sketch;
+    }
+
+    private void update(BigDecimal amount, long delta) {
+        int sign = amount.signum();
+        if (sign == 0) {
+            zeroCount = Math.max(0, zeroCount + delta);
+            return;
+        }
+        NavigableMap<Integer, Long> buckets = sign > 0 ? positive : negative;
+        int index = index(amount.abs().doubleValue());
+        long count = buckets.getOrDefault(index, 0L) + delta;
+        if (count > 0) {
+            buckets.put(index, count);
+        } else {
+            buckets.remove(index);
+        }
+    }
+
+    private static int index(double magnitude) {
+        return (int) Math.ceil(Math.log(magnitude) / LOG_GAMMA);
+    }
+
+    // Midpoint of the bucket, in relative terms, so the error is at most RELATIVE_ACCURACY either way
+    private static double value(int index) {
+        return 2 * Math.pow(GAMMA, index) / (GAMMA + 1);
+    }
+
+    private static BigDecimal toAmount(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static long sum(Map<Integer, Long> buckets) {
+        long total = 0;
+        for (long count : buckets.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    // Indexes are delta-encoded, as buckets of nearby amounts have nearby indexes
+    private static void writeBuckets(ByteArrayOutputStream out, NavigableMap<Integer, Long> buckets) {
+        writeVarLong(out, buckets.size());
+        int previous = 0;
+        for (Map.Entry<Integer, Long> bucket : buckets.entrySet()) {
+            int delta = bucket.getKey() - previous;
+            writeVarLong(out, (delta << 1) ^ (delta >> 31));
+            writeVarLong(out, bucket.getValue());
+            previous = bucket.getKey();
+        }
+    }
+
+    private static void readBuckets(byte[] bytes, int[] position, NavigableMap<Integer, Long> buckets) {
+        long size = readVarLong(bytes, position);
+        int previous = 0;
+        for (long i = 0; i < size; i++) {
+            int zigZag = (int) readVarLong(bytes, position);
+            previous += (zigZag >>> 1) ^ -(zigZag & 1);
+            buckets.put(previous, readVarLong(bytes, position));
+        }
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(byte[] bytes, int[] position) {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            if (position[0] >= bytes.length) {
+                throw new IllegalArgumentException("Truncated amount sketch");
+            }
+            byte b = bytes[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package sg.wlian.addonapp.sql;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Counts the statements, rows and time spent in JDBC calls against the {@link SqlUsage} bound to the
+ * calling thread. Connections, statements and result sets are wrapped in proxies; calls made while no
+ * usage is bound, and outside any observation, go straight to the target.
+ *
+ * <p>Each {@code execute*} call, including {@code executeBatch}, counts as one statement, since that
+ * is one round trip. Rows are those read with {@link ResultSet#next()} plus the update counts
+ * returned. Database time covers executing statements and fetching rows.
+ *
+ * <p>With an observation registry, a statement run inside another observation, such as a traced
+ * request, is also observed as a {@code sql.statement} carrying its SQL and row count. For queries the
+ * observation lasts until the result set is closed, so it includes fetching the rows.
+ */
+public class CountingDataSource extends DelegatingDataSource implements Closeable {
+
+    private static final int MAX_STATEMENT_LENGTH = 500;
+
+    private final Supplier<ObservationRegistry> observationRegistry;
+
+    public CountingDataSource(DataSource target) {
+        this(target, () -> ObservationRegistry.NOOP);
+    }
+
+    public CountingDataSource(DataSource target, Supplier<ObservationRegistry> observationRegistry) {
+        super(target);
+        this.observationRegistry = observationRegistry;
+    }
+
+    // The context closes the pool through the bean it holds, which is this wrapper
+    @Override
+    public void close() throws IOException {
+        if (getTargetDataSource() instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrapConnection(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrapConnection(super.getConnection(username, password));
+    }
+
+    private Connection wrapConnection(Connection connection) {
+        return proxy(Connection.class, connection, (proxy, method, args) -> {
+            Object result = invoke(connection, method, args);
+            if (result instanceof Statement statement) {
+                // prepareStatement and prepareCall take the SQL up front; plain statements get it per execute
+                String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : null;
+                return wrapStatement(statement, method.getReturnType(), sql);
+            }
+            return result;
+        });
+    }
+
+    private Object wrapStatement(Statement statement, Class<?> type, String preparedSql) {
+        return proxy(type, statement, (proxy, method, args) -> {
+            String name = method.getName();
+            if (!name.startsWith("execute")) {
+                Object result = invoke(statement, method, args);
+                if (result instanceof ResultSet resultSet && !"unwrap".equals(name)) {
+                    return wrapResultSet(resultSet, proxy, SqlUsage.current(), null);
+                }
+                return result;
+            }
+            SqlUsage usage = SqlUsage.current();
+            String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : preparedSql;
+            Observation observation = startObservation(sql);
+            if (usage == null && observation == null) {
+                return invoke(statement, method, args);
+            }
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = invoke(statement, method, args);
+            } catch (Throwable e) {
+                if (observation != null) {
+                    observation.error(e);
+                    observation.stop();
+                }
+                throw e;
+            }
+            long updated = updateCount(result);
+            if (usage != null) {
+                usage.recordStatement(System.nanoTime() - start, updated);
+            }
+            if (result instanceof ResultSet resultSet) {
+                return wrapResultSet(resultSet, proxy, usage, observation);
+            }
+            if (observation != null) {
+                observation.highCardinalityKeyValue("db.rows", String.valueOf(updated)).stop();
+            }
+            return result;
+        });
+    }
+
+    private Observation startObservation(String sql) {
+        ObservationRegistry registry = observationRegistry.get();
+        if (registry.isNoop() || registry.getCurrentObservation() == null) {
+            return null;
+        }
+        String operation = operation(sql);
+        Observation observation = Observation.createNotStarted("sql.statement", registry)
+                .contextualName("sql " + operation)
+                .lowCardinalityKeyValue("db.operation", operation);
+        if (sql != null) {
+            observation.highCardinalityKeyValue("db.statement",
+                    sql.length() > MAX_STATEMENT_LENGTH ? sql.substring(0, MAX_STATEMENT_LENGTH) : sql);
+        }
+        return observation.start();
+    }
+
+    // The leading keyword, e.g. "select"; a low-cardinality tag for the statement timer
+    static String operation(String sql) {
+        if (sql == null) {
+            return "batch";
+        }
+        String trimmed = sql.stripLeading();
+        int end = 0;
+        while (end < trimmed.length() && Character.isLetter(trimmed.charAt(end))) {
+            end++;
+        }
+        return end == 0 ? "other" : trimmed.substring(0, end).toLowerCase(Locale.ROOT);
+    }
+
+    private static ResultSet wrapResultSet(ResultSet resultSet, Object statement, SqlUsage usage,
+                                           Observation observation) {
+        if (usage == null && observation == null) {
+            return resultSet;
+        }
+        long[] rows = {0};
+        boolean[] stopped = {false};
+        return proxy(ResultSet.class, resultSet, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getStatement":
+                    return statement;
+                case "next":
+                    long start = System.nanoTime();
+                    boolean row = (Boolean) invoke(resultSet, method, args);
+                    if (usage != null) {
+                        usage.recordFetch(System.nanoTime() - start, row);
+                    }
+                    if (row) {
+                        rows[0]++;
+                    }
+                    return row;
+                case "close":
+                    if (observation != null && !stopped[0]) {
+                        stopped[0] = true;
+                        observation.highCardinalityKeyValue("db.rows", String.valueOf(rows[0])).stop();
+                    }
+                    return invoke(resultSet, method, args);
+                default:
+                    return invoke(resultSet, method, args);
+            }
+        });
+    }
+
+    private static long updateCount(Object result) {
+        if (result instanceof Integer count) {
+            return count;
+        }
+        if (result instanceof Long count) {
+            return count;
+        }
+        long total = 0;
+        if (result instanceof int[] counts) {
+            for (int count : counts) {
+                total += Math.max(count, 0);
+            }
+        } else if (result instanceof long[] counts) {
+            for (long count : counts) {
+                total += Math.max(count, 0);
+            }
+        }
+        return total;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Object target, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(CountingDataSource.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package sg.wlian.addonapp.sql;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statements, rows and database time used by one unit of work, usually an HTTP request, as counted by
+ * {@link CountingDataSource}. The usage is bound to the thread doing the work; {@link #propagate}
+ * carries it to tasks handed to other threads, so the counters are safe to update concurrently.
+ */
+public class SqlUsage {
+
+    private static final ThreadLocal<SqlUsage> CURRENT = new ThreadLocal<>();
+
+    private final AtomicLong statements = new AtomicLong();
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong nanos = new AtomicLong();
+
+    /**
+     * Starts counting on the current thread, replacing any usage already bound to it.
+     */
+    public static SqlUsage start() {
+        SqlUsage usage = new SqlUsage();
+        CURRENT.set(usage);
+        return usage;
+    }
+
+    public static void stop() {
+        CURRENT.remove();
+    }
+
+    /**
+     * The usage bound to the current thread, or null when nothing is being counted.
+     */
+    public static SqlUsage current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Wraps {@code task} so the statements it runs count towards the usage of the thread submitting it.
+     * Fits {@link org.springframework.core.task.TaskDecorator}.
+     */
+    public static Runnable propagate(Runnable task) {
+        SqlUsage usage = CURRENT.get();
+        if (usage == null) {
+            return task;
+        }
+        return () -> {
+            // Caller-runs executors run the task on the submitting thread
+            SqlUsage previous = CURRENT.get();
+            CURRENT.set(usage);
+            try {
+                task.run();
+            } finally {
+                if (previous != null) {
+                    CURRENT.set(previous);
+                } else {
+                    CURRENT.remove();
+                }
+            }
+        };
+    }
+
+    void recordStatement(long elapsedNanos, long affectedRows) {
+        statements.incrementAndGet();
+        nanos.addAndGet(elapsedNanos);
+        if (affectedRows > 0) {
+            rows.addAndGet(affectedRows);
+        }
+    }
+
+    void recordFetch(long elapsedNanos, boolean row) {
+        nanos.addAndGet(elapsedNanos);
+        if (row) {
+            rows.incrementAndGet();
+        }
+    }
+
+    public long getStatements() {
+        return statements.get();
+    }
+
+    /**
+     * Rows read from result sets plus rows reported as updated.
+     */
+    public long getRows() {
+        return rows.get();
+    }
+
+    public long getDbTimeMillis() {
+        return nanos.get() / 1_000_000;
+    }
+
+    @Override
+    public String toString() {
+        return statements.get() + " statements, " + rows.get() + " rows, " + getDbTimeMillis() + " ms";
+    }
+}
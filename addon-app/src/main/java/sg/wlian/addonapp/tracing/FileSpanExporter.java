@@ -0,0 +1,85 @@
+package sg.wlian.addonapp.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Appends exported spans to {@code tracing.exporter.file.path}, one JSON object per line, for reading
+ * traces offline. Writes nothing when the path is empty.
+ */
+@Component
+public class FileSpanExporter implements SpanExporter {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${tracing.exporter.file.path:}")
+    private String path = "";
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private BufferedWriter writer;
+
+    @Override
+    public CompletableResultCode export(Collection<SpanData> spans) {
+        if (path.isEmpty()) {
+            return CompletableResultCode.ofSuccess();
+        }
+        lock.lock();
+        try {
+            if (writer == null) {
+                Path file = Path.of(path);
+                if (file.getParent() != null) {
+                    Files.createDirectories(file.getParent());
+                }
+                writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND);
+            }
+            for (SpanData span : spans) {
+                writer.write(objectMapper.writeValueAsString(SpanRecords.of(span)));
+                writer.newLine();
+            }
+            writer.flush();
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            System.out.println("Failed to write spans to " + path + ": " + e.getMessage());
+            return CompletableResultCode.ofFailure();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        lock.lock();
+        try {
+            if (writer != null) {
+                writer.close();
+                writer = null;
+            }
+        } catch (IOException e) {
+            return CompletableResultCode.ofFailure();
+        } finally {
+            lock.unlock();
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+}
@@ -0,0 +1,98 @@
+package sg.wlian.addonapp.tracing;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import sg.wlian.addonapp.dto.TraceDTO;
+import sg.wlian.addonapp.dto.TraceSpanDTO;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the last {@code tracing.exporter.memory.max-spans} exported spans, so traces can be read from
+ * {@code GET /api/stats/traces} without a tracing backend. Keeps nothing when the limit is 0.
+ */
+@Component
+public class InMemorySpanExporter implements SpanExporter {
+
+    private final ConcurrentLinkedDeque<TraceSpanDTO> spans = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    @Value("${tracing.exporter.memory.max-spans:0}")
+    private int maxSpans;
+
+    public boolean isEnabled() {
+        return maxSpans > 0;
+    }
+
+    @Override
+    public CompletableResultCode export(Collection<SpanData> batch) {
+        if (maxSpans <= 0) {
+            return CompletableResultCode.ofSuccess();
+        }
+        for (SpanData span : batch) {
+            spans.addLast(SpanRecords.of(span));
+            if (size.incrementAndGet() > maxSpans && spans.pollFirst() != null) {
+                size.decrementAndGet();
+            }
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+
+    /**
+     * The latest traces that took at least {@code minDurationMs}, newest first. A trace whose spans
+     * are still being exported, or were partly evicted, is returned with the spans held.
+     */
+    public List<TraceDTO> recentTraces(int limit, double minDurationMs) {
+        Map<String, List<TraceSpanDTO>> byTrace = new LinkedHashMap<>();
+        for (TraceSpanDTO span : spans) {
+            byTrace.computeIfAbsent(span.getTraceId(), id -> new ArrayList<>()).add(span);
+        }
+        return byTrace.values().stream()
+                .map(InMemorySpanExporter::trace)
+                .filter(trace -> trace.getDurationMs() >= minDurationMs)
+                .sorted(Comparator.comparing(TraceDTO::getStart).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    static TraceDTO trace(List<TraceSpanDTO> spans) {
+        spans.sort(Comparator.comparing(TraceSpanDTO::getStart));
+        Set<String> ids = spans.stream().map(TraceSpanDTO::getSpanId).collect(Collectors.toSet());
+        TraceSpanDTO root = spans.stream()
+                .filter(span -> span.getParentSpanId() == null || !ids.contains(span.getParentSpanId()))
+                .findFirst()
+                .orElse(spans.get(0));
+        Instant start = spans.get(0).getStart();
+        double durationMs = spans.stream()
+                .mapToDouble(span -> Duration.between(start, span.getStart()).toNanos() / 1e6 + span.getDurationMs())
+                .max()
+                .orElse(0);
+        return new TraceDTO(root.getTraceId(), root.getName(), start, durationMs, spans);
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        spans.clear();
+        size.set(0);
+        return CompletableResultCode.ofSuccess();
+    }
+}
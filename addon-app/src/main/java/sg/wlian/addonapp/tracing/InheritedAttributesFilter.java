@@ -0,0 +1,27 @@
+package sg.wlian.addonapp.tracing;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationFilter;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gives every observation, as it stops, the {@link TraceAttributes} of the observations it is nested
+ * in, so a repository or SQL span carries the user and report of the request it ran for.
+ */
+@Component
+public class InheritedAttributesFilter implements ObservationFilter {
+
+    @Override
+    public Observation.Context map(Observation.Context context) {
+        for (String key : TraceAttributes.INHERITED) {
+            if (context.getHighCardinalityKeyValue(key) == null) {
+                String value = TraceAttributes.inherited(context.getParentObservation(), key);
+                if (value != null) {
+                    context.addHighCardinalityKeyValue(KeyValue.of(key, value));
+                }
+            }
+        }
+        return context;
+    }
+}
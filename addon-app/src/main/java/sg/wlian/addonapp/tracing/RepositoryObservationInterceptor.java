@@ -0,0 +1,38 @@
+package sg.wlian.addonapp.tracing;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import java.util.function.Supplier;
+
+/**
+ * Observes each call to a Spring Data repository as a {@code repository.call}, tagged with the
+ * repository and method, so repository spans sit between the service spans and the SQL spans.
+ */
+public class RepositoryObservationInterceptor implements MethodInterceptor {
+
+    private final Supplier<ObservationRegistry> registry;
+    private final String repository;
+
+    public RepositoryObservationInterceptor(Supplier<ObservationRegistry> registry, Class<?> repositoryInterface) {
+        this.registry = registry;
+        this.repository = repositoryInterface.getSimpleName();
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        ObservationRegistry observationRegistry = registry.get();
+        if (observationRegistry.isNoop()) {
+            return invocation.proceed();
+        }
+        String method = invocation.getMethod().getName();
+        Observation.CheckedCallable<Object, Throwable> proceed = invocation::proceed;
+        return Observation.createNotStarted("repository.call", observationRegistry)
+                .contextualName(repository + "." + method)
+                .lowCardinalityKeyValue("repository", repository)
+                .lowCardinalityKeyValue("method", method)
+                .observeChecked(proceed);
+    }
+}
@@ -0,0 +1,37 @@
+package sg.wlian.addonapp.tracing;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import sg.wlian.addonapp.dto.TraceSpanDTO;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+final class SpanRecords {
+
+    private SpanRecords() {
+    }
+
+    static TraceSpanDTO of(SpanData span) {
+        SpanContext parent = span.getParentSpanContext();
+        return new TraceSpanDTO(
+                span.getTraceId(),
+                span.getSpanId(),
+                parent.isValid() ? parent.getSpanId() : null,
+                span.getName(),
+                Instant.EPOCH.plusNanos(span.getStartEpochNanos()),
+                (span.getEndEpochNanos() - span.getStartEpochNanos()) / 1e6,
+                span.getStatus().getStatusCode() == StatusCode.ERROR,
+                attributes(span.getAttributes())
+        );
+    }
+
+    private static Map<String, String> attributes(Attributes attributes) {
+        Map<String, String> values = new LinkedHashMap<>();
+        attributes.forEach((key, value) -> values.put(key.getKey(), String.valueOf(value)));
+        return values;
+    }
+}
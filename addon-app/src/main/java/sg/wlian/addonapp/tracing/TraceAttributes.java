@@ -0,0 +1,56 @@
+package sg.wlian.addonapp.tracing;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.ObservationView;
+
+/**
+ * Span attributes that identify the work a trace is about. They are added to the observation current
+ * when they become known, and to the observations it is nested in; {@link InheritedAttributesFilter}
+ * copies them down to the observations nested in it. They are high-cardinality, so they reach spans but
+ * not metric tags.
+ */
+public final class TraceAttributes {
+
+    public static final String USER_ID = "user.id";
+    public static final String REPORT_KIND = "report.kind";
+
+    static final String[] INHERITED = {USER_ID, REPORT_KIND};
+
+    private TraceAttributes() {
+    }
+
+    /**
+     * Sets {@code key} on the current observation, and on each enclosing one that has no value for it yet.
+     */
+    public static void tag(ObservationRegistry registry, String key, Object value) {
+        if (registry == null || value == null) {
+            return;
+        }
+        Observation current = registry.getCurrentObservation();
+        if (current != null) {
+            current.highCardinalityKeyValue(key, value.toString());
+            ObservationView parent = current.getContextView().getParentObservation();
+            while (parent instanceof Observation observation
+                    && observation.getContextView().getHighCardinalityKeyValue(key) == null) {
+                observation.highCardinalityKeyValue(key, value.toString());
+                parent = observation.getContextView().getParentObservation();
+            }
+        }
+    }
+
+    /**
+     * The value of {@code key} on the nearest of {@code view} and the observations enclosing it, or null.
+     */
+    static String inherited(ObservationView view, String key) {
+        while (view != null) {
+            KeyValue keyValue = view.getContextView().getHighCardinalityKeyValue(key);
+            if (keyValue != null) {
+                return keyValue.getValue();
+            }
+            view = view.getContextView().getParentObservation();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,23 @@
+package sg.wlian.addonapp.web;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks GET endpoints whose response depends only on the data of the user in the {@code userId} path
+ * variable (or, without one, on any user's data) and on the current date. {@link ConditionalGetInterceptor}
+ * tags them with an ETag derived from {@link DataVersions} and answers matching {@code If-None-Match}
+ * requests with 304 without running the handler.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ConditionalGet {
+
+    /**
+     * Whether the response covers the range ending at the {@code endDate} request parameter. Ranges that
+     * ended before the current month may be reused by clients without revalidating for a while.
+     */
+    boolean closedRange() default false;
+}
@@ -0,0 +1,122 @@
+package sg.wlian.addonapp.web;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adds an ETag and {@code Cache-Control} to GET endpoints marked {@link ConditionalGet}, and answers
+ * requests whose {@code If-None-Match} already names the current tag with 304 before the handler runs.
+ * It also marks those requests for {@link ResponseCompressionFilter}, which only buffers their responses.
+ */
+@Component
+public class ConditionalGetInterceptor implements HandlerInterceptor {
+
+    @Autowired
+    private DataVersions dataVersions;
+
+    @Autowired
+    private ResponseStats responseStats;
+
+    @Value("${http.conditional-get.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${http.conditional-get.closed-range-max-age-seconds:3600}")
+    private long closedRangeMaxAgeSeconds = 3600;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!"GET".equals(request.getMethod()) || !(handler instanceof HandlerMethod method)) {
+            return true;
+        }
+        ConditionalGet conditionalGet = method.getMethodAnnotation(ConditionalGet.class);
+        if (conditionalGet == null) {
+            conditionalGet = method.getBeanType().getAnnotation(ConditionalGet.class);
+        }
+        if (conditionalGet == null) {
+            return true;
+        }
+        // Only these responses are buffered for compression; the rest stream straight through
+        request.setAttribute(ResponseCompressionFilter.COMPRESSIBLE_ATTRIBUTE, Boolean.TRUE);
+        if (!enabled) {
+            return true;
+        }
+
+        String etag = dataVersions.etag(userId(request), request.getHeader(HttpHeaders.ACCEPT));
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl(conditionalGet, request).getHeaderValue());
+
+        String matched = match(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag);
+        if (matched == null) {
+            return true;
+        }
+        // The client may hold the compressed variant, which carries its own tag
+        response.setHeader(HttpHeaders.ETAG, matched);
+        response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        responseStats.recordNotModified(matched);
+        return false;
+    }
+
+    private CacheControl cacheControl(ConditionalGet conditionalGet, HttpServletRequest request) {
+        if (conditionalGet.closedRange()) {
+            String endDate = request.getParameter("endDate");
+            try {
+                if (endDate != null && LocalDate.parse(endDate).isBefore(YearMonth.now().atDay(1))) {
+                    return CacheControl.maxAge(closedRangeMaxAgeSeconds, TimeUnit.SECONDS).cachePrivate();
+                }
+            } catch (DateTimeParseException e) {
+                // Left for the handler to reject
+            }
+        }
+        return CacheControl.noCache().cachePrivate();
+    }
+
+    // The tag in If-None-Match that stands for the current one, or null. Weak comparison, per RFC 9110.
+    static String match(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return null;
+        }
+        String gzipEtag = ResponseCompressionFilter.gzipVariant(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return etag;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag) || tag.equals(gzipEtag)) {
+                return tag;
+            }
+        }
+        return null;
+    }
+
+    private static Long userId(HttpServletRequest request) {
+        @SuppressWarnings("unchecked")
+        Map<String, String> variables =
+                (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String userId = variables != null ? variables.get("userId") : null;
+        if (userId == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(userId);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
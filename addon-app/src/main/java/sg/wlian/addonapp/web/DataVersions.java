@@ -0,0 +1,85 @@
+package sg.wlian.addonapp.web;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import sg.wlian.addonapp.event.BudgetChangedEvent;
+import sg.wlian.addonapp.event.CategoryChangedEvent;
+import sg.wlian.addonapp.event.ExpensesChangedEvent;
+import sg.wlian.addonapp.invalidation.InvalidationHandler;
+import sg.wlian.addonapp.invalidation.InvalidationMessage;
+
+import java.time.LocalDate;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version counters of each user's expenses, categories and budgets, used as ETags so a conditional
+ * request is answered without computing or serializing the response.
+ *
+ * <p>A user's version is bumped on every change to their data, local or from another node, and the
+ * global version on any change. Local changes are counted once the transaction has completed, after
+ * the caches have applied them, so a tag is never paired with a response read from a cache that had
+ * not caught up yet. Counters live in memory; tags carry the time this node started, so they never
+ * match across a restart or between nodes.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class DataVersions implements InvalidationHandler {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final ConcurrentHashMap<Long, Long> versions = new ConcurrentHashMap<>();
+
+    private final AtomicLong globalVersion = new AtomicLong();
+
+    public long version(Long userId) {
+        return versions.getOrDefault(userId, 0L);
+    }
+
+    public long globalVersion() {
+        return globalVersion.get();
+    }
+
+    /**
+     * Strong ETag for a response built from the user's current data, or from all data when
+     * {@code userId} is null. {@code variant} distinguishes representations of the same data, such as
+     * different media types.
+     */
+    public String etag(Long userId, String variant) {
+        String version = userId != null
+                ? "u" + userId + "." + version(userId)
+                : "g" + globalVersion();
+        return "\"" + epoch + "." + version + "." + LocalDate.now().toEpochDay()
+                + "." + Integer.toHexString(variant != null ? variant.hashCode() : 0) + "\"";
+    }
+
+    public void bump(Long userId) {
+        if (userId != null) {
+            versions.merge(userId, 1L, Long::sum);
+        }
+        globalVersion.incrementAndGet();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+    public void onExpensesChanged(ExpensesChangedEvent event) {
+        event.getAffectedMonthsByUser().keySet().forEach(this::bump);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        bump(event.getUserId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+    public void onBudgetChanged(BudgetChangedEvent event) {
+        bump(event.getUserId());
+    }
+
+    @Override
+    public void onInvalidation(InvalidationMessage message) {
+        bump(message.getUserId());
+    }
+}
@@ -0,0 +1,86 @@
+package sg.wlian.addonapp.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.util.StreamUtils;
+import sg.wlian.addonapp.dto.ExpenseColumnsDTO;
+import sg.wlian.addonapp.dto.ExpenseSyncColumnsDTO;
+import sg.wlian.addonapp.dto.ExpenseSyncResponse;
+import sg.wlian.addonapp.entity.Expense;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * Writes expense lists and sync pages as {@link ExpenseColumnsDTO} when the client asks for
+ * {@value #EXPENSE_COLUMNS_VALUE}, so a category is sent once per response instead of once per
+ * expense. Write-only.
+ */
+public class ExpenseColumnsHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public static final String EXPENSE_COLUMNS_VALUE = "application/vnd.expense-columns+json";
+
+    public static final MediaType EXPENSE_COLUMNS = MediaType.parseMediaType(EXPENSE_COLUMNS_VALUE);
+
+    private final ObjectMapper objectMapper;
+
+    public ExpenseColumnsHttpMessageConverter(ObjectMapper objectMapper) {
+        super(EXPENSE_COLUMNS);
+        this.objectMapper = objectMapper;
+    }
+
+    // Lists of expenses are recognised from the generic type in canWrite(Type, Class, MediaType)
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return ExpenseSyncResponse.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return canWrite(mediaType) && isExpenses(type != null ? type : clazz);
+    }
+
+    static boolean isExpenses(Type type) {
+        if (type instanceof Class<?> clazz) {
+            return ExpenseSyncResponse.class.isAssignableFrom(clazz);
+        }
+        return type instanceof ParameterizedType parameterized
+                && parameterized.getRawType() instanceof Class<?> raw && List.class.isAssignableFrom(raw)
+                && parameterized.getActualTypeArguments()[0] == Expense.class;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void writeInternal(Object value, Type type, HttpOutputMessage outputMessage) throws IOException {
+        Object columns = value instanceof ExpenseSyncResponse sync
+                ? ExpenseSyncColumnsDTO.of(sync)
+                : ExpenseColumnsDTO.of((List<Expense>) value);
+        objectMapper.writeValue(StreamUtils.nonClosing(outputMessage.getBody()), columns);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException(EXPENSE_COLUMNS_VALUE + " is only written", inputMessage);
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException(EXPENSE_COLUMNS_VALUE + " is only written", inputMessage);
+    }
+}
@@ -0,0 +1,205 @@
+package sg.wlian.addonapp.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzips JSON responses of GET endpoints marked {@link ConditionalGet} that are at least
+ * {@code http.compression.min-response-size} bytes, for clients that accept it. Compressed responses
+ * get their own ETag, with a {@code -gzip} suffix, since their bytes differ from the plain ones.
+ *
+ * <p>Compression is done here rather than by the servlet container so the sizes before and after can
+ * be counted in {@link ResponseStats}, along with the size of every tagged response for 304 savings.
+ * That needs the whole body in memory, so only responses of marked endpoints are buffered: the
+ * handler is not known yet when this filter runs, so the choice is made when the body is first
+ * written, from the attribute {@link ConditionalGetInterceptor} sets on the request. Every other
+ * response is streamed to the client untouched.
+ */
+@Component
+public class ResponseCompressionFilter extends OncePerRequestFilter {
+
+    private static final String GZIP = "gzip";
+
+    // Set on requests whose handler is marked ConditionalGet, before the handler writes the body
+    static final String COMPRESSIBLE_ATTRIBUTE = ResponseCompressionFilter.class.getName() + ".compressible";
+
+    @Autowired
+    private ResponseStats responseStats;
+
+    @Value("${http.compression.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${http.compression.min-response-size:2048}")
+    private int minResponseSize = 2048;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !"GET".equals(request.getMethod()) || !path.startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        DeferredCachingResponse deferred = new DeferredCachingResponse(request, response);
+        chain.doFilter(request, deferred);
+        ContentCachingResponseWrapper wrapper = deferred.cache;
+        if (wrapper == null) {
+            return;
+        }
+
+        byte[] body = wrapper.getContentAsByteArray();
+        String etag = response.getHeader(HttpHeaders.ETAG);
+        if (enabled) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        if (!enabled || !compressible(request, wrapper, body)) {
+            wrapper.copyBodyToResponse();
+            if (etag != null && wrapper.getStatus() == HttpServletResponse.SC_OK) {
+                responseStats.recordSent(etag, body.length);
+            }
+            return;
+        }
+
+        byte[] compressed = gzip(body);
+        wrapper.resetBuffer();
+        response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+        response.setContentLength(compressed.length);
+        if (etag != null) {
+            etag = gzipVariant(etag);
+            response.setHeader(HttpHeaders.ETAG, etag);
+            responseStats.recordSent(etag, compressed.length);
+        }
+        response.getOutputStream().write(compressed);
+        responseStats.recordCompressed(body.length, compressed.length);
+    }
+
+    /**
+     * Passes everything through to the response until the body is first touched, then switches to a
+     * {@link ContentCachingResponseWrapper} if the request was marked compressible by then.
+     */
+    static final class DeferredCachingResponse extends HttpServletResponseWrapper {
+
+        private final HttpServletRequest request;
+        private boolean decided;
+        ContentCachingResponseWrapper cache;
+
+        DeferredCachingResponse(HttpServletRequest request, HttpServletResponse response) {
+            super(response);
+            this.request = request;
+        }
+
+        private void decide() {
+            if (decided) {
+                return;
+            }
+            decided = true;
+            if (request.getAttribute(COMPRESSIBLE_ATTRIBUTE) != null) {
+                cache = new ContentCachingResponseWrapper((HttpServletResponse) getResponse());
+                setResponse(cache);
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            decide();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            decide();
+            return super.getWriter();
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            decide();
+            super.setContentLength(len);
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            decide();
+            super.setContentLengthLong(len);
+        }
+
+        @Override
+        public void setBufferSize(int size) {
+            decide();
+            super.setBufferSize(size);
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            decide();
+            super.flushBuffer();
+        }
+    }
+
+    /**
+     * The ETag of the gzipped representation of the response tagged {@code etag}.
+     */
+    static String gzipVariant(String etag) {
+        if (etag.endsWith("\"")) {
+            return etag.substring(0, etag.length() - 1) + "-" + GZIP + "\"";
+        }
+        return etag + "-" + GZIP;
+    }
+
+    private boolean compressible(HttpServletRequest request, HttpServletResponse response, byte[] body) {
+        String contentType = response.getContentType();
+        return response.getStatus() == HttpServletResponse.SC_OK
+                && body.length >= minResponseSize
+                && contentType != null && contentType.contains("json")
+                && response.getHeader(HttpHeaders.CONTENT_ENCODING) == null
+                && acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+    }
+
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (!parts[0].trim().equalsIgnoreCase(GZIP)) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(param.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(body);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,72 @@
+package sg.wlian.addonapp.web;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import sg.wlian.addonapp.dto.ResponseStatsDTO;
+
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Counts the bytes not sent thanks to 304 responses and compression.
+ *
+ * <p>A 304 saves the body the client already holds. Its size is remembered per ETag when the full
+ * response is sent, for the most recent {@code http.stats.tracked-etags} tags; a 304 for a tag no
+ * longer tracked is counted without bytes.
+ */
+@Component
+public class ResponseStats {
+
+    @Value("${http.stats.tracked-etags:10000}")
+    private int trackedEtags = 10000;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final LinkedHashMap<String, Integer> sizeByEtag = new LinkedHashMap<>(256, 0.75f, true);
+
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong notModifiedBytes = new AtomicLong();
+    private final AtomicLong compressed = new AtomicLong();
+    private final AtomicLong uncompressedBytes = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+
+    public void recordSent(String etag, int bytes) {
+        lock.lock();
+        try {
+            sizeByEtag.put(etag, bytes);
+            if (sizeByEtag.size() > trackedEtags) {
+                sizeByEtag.remove(sizeByEtag.keySet().iterator().next());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void recordNotModified(String etag) {
+        notModified.incrementAndGet();
+        Integer bytes;
+        lock.lock();
+        try {
+            bytes = sizeByEtag.get(etag);
+        } finally {
+            lock.unlock();
+        }
+        if (bytes != null) {
+            notModifiedBytes.addAndGet(bytes);
+        }
+    }
+
+    public void recordCompressed(int before, int after) {
+        compressed.incrementAndGet();
+        uncompressedBytes.addAndGet(before);
+        compressedBytes.addAndGet(after);
+    }
+
+    public ResponseStatsDTO getStats() {
+        long before = uncompressedBytes.get();
+        long after = compressedBytes.get();
+        return new ResponseStatsDTO(notModified.get(), notModifiedBytes.get(), compressed.get(), before, after,
+                before - after + notModifiedBytes.get());
+    }
+}
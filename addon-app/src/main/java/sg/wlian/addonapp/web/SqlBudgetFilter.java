@@ -0,0 +1,100 @@
+package sg.wlian.addonapp.web;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import sg.wlian.addonapp.sql.SqlUsage;
+
+import java.io.IOException;
+
+/**
+ * Counts the SQL each request runs, through {@link SqlUsage}, and reports requests that run more than
+ * {@code sql.budget.max-statements} statements or spend more than {@code sql.budget.max-db-time-ms} in
+ * the database. The usage is left in the {@value #USAGE_ATTRIBUTE} request attribute, and with
+ * {@code sql.budget.headers-enabled} also sent as {@code X-Sql-*} response headers.
+ *
+ * <p>Runs before every other filter, so the statements that authentication runs are counted too.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class SqlBudgetFilter extends OncePerRequestFilter {
+
+    public static final String USAGE_ATTRIBUTE = "sg.wlian.addonapp.sql.SqlUsage";
+
+    public static final String STATEMENTS_HEADER = "X-Sql-Statements";
+    public static final String ROWS_HEADER = "X-Sql-Rows";
+    public static final String DB_TIME_HEADER = "X-Sql-Time-Ms";
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Value("${sql.budget.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${sql.budget.max-statements:20}")
+    private int maxStatements = 20;
+
+    @Value("${sql.budget.max-db-time-ms:500}")
+    private long maxDbTimeMs = 500;
+
+    @Value("${sql.budget.headers-enabled:false}")
+    private boolean headersEnabled;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        SqlUsage usage = SqlUsage.start();
+        request.setAttribute(USAGE_ATTRIBUTE, usage);
+        // Buffered, so the headers can still be set once the handler has written the body
+        ContentCachingResponseWrapper wrapper = headersEnabled ? new ContentCachingResponseWrapper(response) : null;
+        try {
+            chain.doFilter(request, wrapper != null ? wrapper : response);
+        } finally {
+            SqlUsage.stop();
+            report(request, usage);
+            if (wrapper != null) {
+                wrapper.setHeader(STATEMENTS_HEADER, String.valueOf(usage.getStatements()));
+                wrapper.setHeader(ROWS_HEADER, String.valueOf(usage.getRows()));
+                wrapper.setHeader(DB_TIME_HEADER, String.valueOf(usage.getDbTimeMillis()));
+                wrapper.copyBodyToResponse();
+            }
+        }
+    }
+
+    private void report(HttpServletRequest request, SqlUsage usage) {
+        if (usage.getStatements() > maxStatements || usage.getDbTimeMillis() > maxDbTimeMs) {
+            System.out.println("SQL budget exceeded by " + request.getMethod() + " " + request.getRequestURI()
+                    + ": " + usage + " (budget " + maxStatements + " statements, " + maxDbTimeMs + " ms)");
+        }
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            DistributionSummary.builder("http.server.requests.sql.statements")
+                    .tags("method", request.getMethod(), "uri", uri(request))
+                    .register(registry)
+                    .record(usage.getStatements());
+        }
+    }
+
+    // The matched pattern rather than the path, so requests for different ids share one series
+    private static String uri(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : "UNKNOWN";
+    }
+}
@@ -0,0 +1,194 @@
+package sg.wlian.addonapp.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import sg.wlian.addonapp.entity.PaymentMethod;
+import sg.wlian.addonapp.event.ExpenseChange;
+import sg.wlian.addonapp.event.ExpenseSnapshot;
+import sg.wlian.addonapp.event.ExpensesChangedEvent;
+import sg.wlian.addonapp.invalidation.InvalidationEntity;
+import sg.wlian.addonapp.invalidation.InvalidationMessage;
+import sg.wlian.addonapp.ledger.ExpenseLedger;
+import sg.wlian.addonapp.ledger.LedgerSegment;
+import sg.wlian.addonapp.repository.ExpenseRepository;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExpenseColumnStoreTest {
+
+    private static final LocalDate JUNE_1 = LocalDate.of(2024, 6, 1);
+
+    @Mock
+    private ExpenseRepository expenseRepository;
+
+    @Mock
+    private ExpenseLedger ledger;
+
+    @Spy
+    private ExpenseWriteTracker writeTracker = new ExpenseWriteTracker();
+
+    @InjectMocks
+    private ExpenseColumnStore store;
+
+    private void givenColumns(Object[]... rows) {
+        when(expenseRepository.findReportColumnsByUserId(1L)).thenReturn(Arrays.asList(rows));
+    }
+
+    private ExpenseSnapshot snapshot(Long categoryId, LocalDate date, String amount, PaymentMethod method) {
+        return new ExpenseSnapshot(7L, 1L, categoryId, method, date, new BigDecimal(amount), "x", null);
+    }
+
+    @Test
+    void testAggregatesByDateCategoryAndPaymentMethod() {
+        givenColumns(
+                new Object[]{JUNE_1, new BigDecimal("12.50"), 5L, PaymentMethod.CASH},
+                new Object[]{JUNE_1.plusDays(10), new BigDecimal("7.50"), 6L, PaymentMethod.CREDIT_CARD},
+                new Object[]{JUNE_1.plusMonths(1), new BigDecimal("3.00"), null, null},
+                new Object[]{JUNE_1.minusDays(1), new BigDecimal("100.00"), 5L, PaymentMethod.CASH});
+
+        ColumnTotals byDate = store.byDate(1L, List.of(JUNE_1, JUNE_1.plusMonths(1)), JUNE_1.plusMonths(1).plusDays(29));
+        assertArrayEquals(new long[]{2000, 300}, byDate.getCents());
+        assertArrayEquals(new long[]{2, 1}, byDate.getCounts());
+        assertEquals(2300, byDate.getTotalCents());
+
+        ColumnTotals byCategory = store.byCategory(1L, JUNE_1, JUNE_1.plusMonths(1).plusDays(29));
+        assertArrayEquals(new Long[]{5L, 6L}, byCategory.getCategoryIds());
+        assertArrayEquals(new long[]{1250, 750}, byCategory.getCents());
+        assertEquals(3, byCategory.getTotalCount());
+
+        ColumnTotals byMethod = store.byPaymentMethod(1L, JUNE_1, JUNE_1.plusDays(29));
+        assertEquals(1250, byMethod.getCents()[PaymentMethod.CASH.ordinal()]);
+        assertEquals(1, byMethod.getCounts()[PaymentMethod.CREDIT_CARD.ordinal()]);
+
+        verify(expenseRepository, times(1)).findReportColumnsByUserId(1L);
+    }
+
+    @Test
+    void testAmountBucketsIncludeTheirUpperBound() {
+        givenColumns(
+                new Object[]{JUNE_1, new BigDecimal("10.00"), 5L, null},
+                new Object[]{JUNE_1, new BigDecimal("10.01"), 5L, null},
+                new Object[]{JUNE_1, new BigDecimal("99.00"), 5L, null});
+
+        ColumnTotals totals = store.byAmount(1L, JUNE_1, JUNE_1, new long[]{1000, 5000});
+
+        assertArrayEquals(new long[]{1, 1, 1}, totals.getCounts());
+        assertArrayEquals(new long[]{1000, 1001, 9900}, totals.getCents());
+    }
+
+    @Test
+    void testChangesAreAppliedToLoadedColumns() {
+        givenColumns(new Object[]{JUNE_1, new BigDecimal("12.50"), 5L, PaymentMethod.CASH});
+        store.byCategory(1L, JUNE_1, JUNE_1);
+
+        store.onExpensesChanged(new ExpensesChangedEvent(List.of(
+                ExpenseChange.created(snapshot(6L, JUNE_1, "4.00", null)),
+                ExpenseChange.updated(snapshot(5L, JUNE_1, "12.50", PaymentMethod.CASH),
+                        snapshot(5L, JUNE_1, "20.00", PaymentMethod.CASH)))));
+
+        ColumnTotals totals = store.byCategory(1L, JUNE_1, JUNE_1);
+        assertArrayEquals(new long[]{2000, 400}, totals.getCents());
+        assertEquals(2, totals.getTotalCount());
+
+        store.onExpensesChanged(new ExpensesChangedEvent(List.of(
+                ExpenseChange.deleted(snapshot(6L, JUNE_1, "4.00", null)))));
+        assertEquals(2000, store.byCategory(1L, JUNE_1, JUNE_1).getTotalCents());
+        verify(expenseRepository, times(1)).findReportColumnsByUserId(1L);
+    }
+
+    @Test
+    void testWriteCommittingDuringLoadIsCountedOnce() {
+        ExpensesChangedEvent event = new ExpensesChangedEvent(List.of(
+                ExpenseChange.created(snapshot(5L, JUNE_1, "4.00", null))));
+        when(expenseRepository.findReportColumnsByUserId(1L))
+                .thenAnswer(invocation -> {
+                    // Commits while the query runs, so it may or may not be in the result
+                    writeTracker.onCommitting(event);
+                    store.onExpensesChanged(event);
+                    writeTracker.onCompleted(event);
+                    return List.<Object[]>of(new Object[]{JUNE_1, new BigDecimal("12.50"), 5L, null});
+                })
+                .thenReturn(List.of(
+                        new Object[]{JUNE_1, new BigDecimal("12.50"), 5L, null},
+                        new Object[]{JUNE_1, new BigDecimal("4.00"), 5L, null}));
+
+        assertEquals(1650, store.byCategory(1L, JUNE_1, JUNE_1).getTotalCents());
+        verify(expenseRepository, times(2)).findReportColumnsByUserId(1L);
+    }
+
+    @Test
+    void testChangesOfUnloadedUsersAreIgnored() {
+        store.onExpensesChanged(new ExpensesChangedEvent(List.of(
+                ExpenseChange.created(snapshot(5L, JUNE_1, "4.00", null)))));
+
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void testParallelScanMatchesSequentialScan() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            rows.add(new Object[]{JUNE_1.plusDays(i % 60), BigDecimal.valueOf(i, 2), (long) (i % 7),
+                    PaymentMethod.values()[i % PaymentMethod.values().length]});
+        }
+        when(expenseRepository.findReportColumnsByUserId(1L)).thenReturn(rows);
+        List<LocalDate> weeks = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            weeks.add(JUNE_1.plusWeeks(i));
+        }
+
+        ColumnTotals sequential = store.byDate(1L, weeks, JUNE_1.plusDays(59));
+        ReflectionTestUtils.setField(store, "parallelThreshold", 16);
+        ColumnTotals parallel = store.byDate(1L, weeks, JUNE_1.plusDays(59));
+
+        assertArrayEquals(sequential.getCents(), parallel.getCents());
+        assertArrayEquals(sequential.getCounts(), parallel.getCounts());
+        assertEquals(1000, parallel.getTotalCount());
+    }
+
+    @Test
+    void testCompactedMonthsAreReadFromLedger(@TempDir Path dir) throws Exception {
+        LocalDate may31 = JUNE_1.minusDays(1);
+        Path file = dir.resolve("2024-05.seg");
+        LedgerSegment.write(file, 1L, LedgerSegment.FROM_START, (int) may31.toEpochDay(), 2, List.of(
+                new Object[]{may31.minusMonths(1), new BigDecimal("40.00"), 5L, PaymentMethod.CASH},
+                new Object[]{may31, new BigDecimal("2.50"), null, null}));
+        when(ledger.segments(1L)).thenReturn(List.of(LedgerSegment.open(file)));
+        when(expenseRepository.findReportColumnsByUserIdAfter(1L, may31)).thenReturn(List.<Object[]>of(
+                new Object[]{JUNE_1, new BigDecimal("12.50"), 5L, PaymentMethod.CASH}));
+
+        ColumnTotals totals = store.byCategory(1L, may31.minusMonths(1), JUNE_1);
+
+        assertArrayEquals(new Long[]{5L}, totals.getCategoryIds());
+        assertArrayEquals(new long[]{5250}, totals.getCents());
+        assertEquals(5500, totals.getTotalCents());
+        verify(expenseRepository, never()).findReportColumnsByUserId(any());
+    }
+
+    @Test
+    void testInvalidationEvictsUser() {
+        givenColumns(new Object[]{JUNE_1, new BigDecimal("12.50"), 5L, null});
+        store.byCategory(1L, JUNE_1, JUNE_1);
+
+        store.onInvalidation(new InvalidationMessage("other-node", InvalidationEntity.EXPENSE, 1L, null));
+        assertEquals(0, store.size());
+
+        store.byCategory(1L, JUNE_1, JUNE_1);
+        verify(expenseRepository, times(2)).findReportColumnsByUserId(1L);
+    }
+}
@@ -0,0 +1,47 @@
+package sg.wlian.addonapp.cache;
+
+import org.junit.jupiter.api.Test;
+import sg.wlian.addonapp.event.ExpenseChange;
+import sg.wlian.addonapp.event.ExpenseSnapshot;
+import sg.wlian.addonapp.event.ExpensesChangedEvent;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpenseWriteTrackerTest {
+
+    private final ExpenseWriteTracker tracker = new ExpenseWriteTracker();
+
+    private ExpensesChangedEvent created(Long userId) {
+        return new ExpensesChangedEvent(List.of(ExpenseChange.created(
+                new ExpenseSnapshot(7L, userId, 5L, null, LocalDate.of(2024, 6, 1), new BigDecimal("4.00"), "x", null))));
+    }
+
+    @Test
+    void testWriteStartedSinceVersionIsDetected() {
+        long version = tracker.quiescentVersion(1L);
+        assertTrue(tracker.unchangedSince(1L, version));
+
+        ExpensesChangedEvent event = created(1L);
+        tracker.onCommitting(event);
+        assertFalse(tracker.unchangedSince(1L, version));
+        // Still committing, so a copy built now could not be verified
+        assertEquals(-1, tracker.quiescentVersion(1L));
+
+        tracker.onCompleted(event);
+        long next = tracker.quiescentVersion(1L);
+        assertTrue(tracker.unchangedSince(1L, next));
+    }
+
+    @Test
+    void testWritesOfOtherStripesDoNotCount() {
+        long version = tracker.quiescentVersion(1L);
+
+        tracker.onCommitting(created(2L));
+
+        assertTrue(tracker.unchangedSince(1L, version));
+    }
+}
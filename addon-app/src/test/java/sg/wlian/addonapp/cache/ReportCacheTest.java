@@ -0,0 +1,143 @@
+package sg.wlian.addonapp.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import sg.wlian.addonapp.dto.ReportCacheStatsDTO;
+import sg.wlian.addonapp.dto.ReportKind;
+import sg.wlian.addonapp.event.ExpenseChange;
+import sg.wlian.addonapp.event.ExpenseSnapshot;
+import sg.wlian.addonapp.event.ExpensesChangedEvent;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportCacheTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 15);
+
+    private ReportCache cache;
+
+    @BeforeEach
+    void setUp() {
+        ZoneId zone = ZoneId.systemDefault();
+        cache = new ReportCache(Clock.fixed(TODAY.atStartOfDay(zone).toInstant(), zone));
+    }
+
+    private ReportCacheKey key(Long userId, YearMonth month) {
+        return new ReportCacheKey(userId, ReportKind.CATEGORY_BREAKDOWN, month.atDay(1), month.atEndOfMonth(), "");
+    }
+
+    @Test
+    void testGetComputesOnceAndCountsHits() {
+        ReportCacheKey key = key(1L, YearMonth.of(2024, 3));
+        int[] loads = {0};
+
+        assertEquals("r", cache.get(key, () -> { loads[0]++; return "r"; }));
+        assertEquals("r", cache.get(key, () -> { loads[0]++; return "r"; }));
+
+        assertEquals(1, loads[0]);
+        ReportCacheStatsDTO stats = cache.getStats();
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(0.5, stats.getHitRatio());
+    }
+
+    @Test
+    void testInvalidateOnlyDropsCoveringEntriesOfThatUser() {
+        ReportCacheKey march = key(1L, YearMonth.of(2024, 3));
+        ReportCacheKey april = key(1L, YearMonth.of(2024, 4));
+        ReportCacheKey otherUser = key(2L, YearMonth.of(2024, 3));
+        cache.put(march, "m", 0);
+        cache.put(april, "a", 0);
+        cache.put(otherUser, "o", 0);
+
+        cache.invalidate(1L, YearMonth.of(2024, 3));
+
+        assertNull(cache.getIfPresent(march));
+        assertEquals("a", cache.getIfPresent(april));
+        assertEquals("o", cache.getIfPresent(otherUser));
+        assertEquals(1, cache.getStats().getInvalidations());
+    }
+
+    @Test
+    void testExpenseEventInvalidatesOldAndNewMonth() {
+        ReportCacheKey march = key(1L, YearMonth.of(2024, 3));
+        ReportCacheKey may = key(1L, YearMonth.of(2024, 5));
+        cache.put(march, "m", 0);
+        cache.put(may, "y", 0);
+
+        ExpenseSnapshot before = new ExpenseSnapshot(10L, 1L, 1L, null, LocalDate.of(2024, 3, 3), BigDecimal.TEN, "x", null);
+        ExpenseSnapshot after = new ExpenseSnapshot(10L, 1L, 1L, null, LocalDate.of(2024, 5, 3), BigDecimal.TEN, "x", null);
+        cache.onExpensesChanged(new ExpensesChangedEvent(List.of(ExpenseChange.updated(before, after))));
+
+        assertNull(cache.getIfPresent(march));
+        assertNull(cache.getIfPresent(may));
+    }
+
+    @Test
+    void testResultComputedAcrossInvalidationIsNotStored() {
+        ReportCacheKey key = key(1L, YearMonth.of(2024, 3));
+        long generation = cache.generation(1L);
+
+        cache.invalidate(1L, YearMonth.of(2024, 3));
+        cache.put(key, "stale", generation);
+
+        assertNull(cache.getIfPresent(key));
+    }
+
+    @Test
+    void testTracksGenerationsOfRecentlyInvalidatedUsersOnly() {
+        ReflectionTestUtils.setField(cache, "maxEntries", 2);
+        ReportCacheKey key = key(1L, YearMonth.of(2024, 3));
+        cache.invalidateUser(1L);
+        long generation = cache.generation(1L);
+
+        // User 1 is invalidated again, then forgotten as other users are invalidated
+        cache.invalidateUser(1L);
+        for (long userId = 2; userId <= 5; userId++) {
+            cache.invalidateUser(userId);
+        }
+        cache.put(key, "stale", generation);
+
+        assertEquals(2, ((Map<?, ?>) ReflectionTestUtils.getField(cache, "generations")).size());
+        assertNull(cache.getIfPresent(key));
+        cache.put(key, "fresh", cache.generation(1L));
+        assertEquals("fresh", cache.getIfPresent(key));
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedBeyondMaxEntries() {
+        ReflectionTestUtils.setField(cache, "maxEntries", 2);
+        ReportCacheKey jan = key(1L, YearMonth.of(2024, 1));
+        ReportCacheKey feb = key(1L, YearMonth.of(2024, 2));
+        ReportCacheKey mar = key(1L, YearMonth.of(2024, 3));
+        cache.put(jan, "j", 0);
+        cache.put(feb, "f", 0);
+        cache.getIfPresent(jan);
+        cache.put(mar, "m", 0);
+
+        assertEquals("j", cache.getIfPresent(jan));
+        assertNull(cache.getIfPresent(feb));
+        assertEquals(1, cache.getStats().getEvictions());
+    }
+
+    @Test
+    void testCurrentMonthEntriesExpire() {
+        ReflectionTestUtils.setField(cache, "currentTtlSeconds", 0L);
+        ReportCacheKey current = key(1L, YearMonth.from(TODAY));
+        ReportCacheKey closed = key(1L, YearMonth.from(TODAY).minusMonths(1));
+        cache.put(current, "c", 0);
+        cache.put(closed, "p", 0);
+
+        assertNull(cache.getIfPresent(current));
+        assertEquals("p", cache.getIfPresent(closed));
+    }
+}
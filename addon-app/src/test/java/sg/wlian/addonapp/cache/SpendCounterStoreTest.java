@@ -0,0 +1,149 @@
+package sg.wlian.addonapp.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import sg.wlian.addonapp.event.ExpenseChange;
+import sg.wlian.addonapp.event.ExpenseSnapshot;
+import sg.wlian.addonapp.event.ExpensesChangedEvent;
+import sg.wlian.addonapp.repository.ExpenseRepository;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SpendCounterStoreTest {
+
+    private static final YearMonth JUNE = YearMonth.of(2024, 6);
+
+    @Mock
+    private ExpenseRepository expenseRepository;
+
+    @InjectMocks
+    private SpendCounterStore store;
+
+    @BeforeEach
+    void setUp() {
+        now(JUNE);
+    }
+
+    private void now(YearMonth month) {
+        ReflectionTestUtils.setField(store, "clock",
+                Clock.fixed(month.atDay(15).atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+    }
+
+    private void givenJuneTotals(Object[]... rows) {
+        when(expenseRepository.sumByCategoryForUser(1L, JUNE.atDay(1), JUNE.atEndOfMonth()))
+                .thenReturn(Arrays.asList(rows));
+    }
+
+    private ExpenseSnapshot snapshot(Long categoryId, LocalDate date, String amount) {
+        return new ExpenseSnapshot(7L, 1L, categoryId, null, date, new BigDecimal(amount), "x", null);
+    }
+
+    @Test
+    void testSeedsOnceThenServesFromMemory() {
+        givenJuneTotals(new Object[]{5L, new BigDecimal("12.34")}, new Object[]{null, new BigDecimal("1.00")});
+
+        assertEquals(new BigDecimal("12.34"), store.getSpent(1L, 5L, JUNE));
+        assertEquals(new BigDecimal("0.00"), store.getSpent(1L, 6L, JUNE));
+        assertEquals(new BigDecimal("1.00"), store.getSpent(1L, null, JUNE));
+
+        verify(expenseRepository, times(1)).sumByCategoryForUser(any(), any(), any());
+    }
+
+    @Test
+    void testWritesAdjustSeededMonths() {
+        givenJuneTotals(new Object[]{5L, new BigDecimal("10.00")});
+        store.getSpent(1L, 5L, JUNE);
+
+        ExpenseSnapshot before = snapshot(5L, LocalDate.of(2024, 6, 3), "4.00");
+        ExpenseSnapshot after = snapshot(6L, LocalDate.of(2024, 6, 3), "4.50");
+        store.onExpensesChanged(new ExpensesChangedEvent(List.of(
+                ExpenseChange.created(snapshot(5L, LocalDate.of(2024, 6, 9), "2.25")),
+                ExpenseChange.updated(before, after))));
+
+        Map<Long, BigDecimal> byCategory = store.getSpentByCategory(1L, JUNE);
+        assertEquals(new BigDecimal("8.25"), byCategory.get(5L));
+        assertEquals(new BigDecimal("4.50"), byCategory.get(6L));
+    }
+
+    @Test
+    void testWritesToUnseededMonthsAreIgnored() {
+        store.onExpensesChanged(new ExpensesChangedEvent(List.of(
+                ExpenseChange.created(snapshot(5L, LocalDate.of(2024, 6, 9), "2.25")))));
+        givenJuneTotals(new Object[]{5L, new BigDecimal("2.25")});
+
+        // The seed already includes the write, so it must not be counted twice
+        assertEquals(new BigDecimal("2.25"), store.getSpent(1L, 5L, JUNE));
+    }
+
+    @Test
+    void testReconcileCorrectsDrift() {
+        givenJuneTotals(new Object[]{5L, new BigDecimal("10.00")}, new Object[]{6L, new BigDecimal("3.00")});
+        store.getSpent(1L, 5L, JUNE);
+        when(expenseRepository.sumByUserAndCategoryForUsers(List.of(1L), JUNE.atDay(1), JUNE.atEndOfMonth()))
+                .thenReturn(Collections.singletonList(new Object[]{1L, 5L, new BigDecimal("11.00")}));
+
+        assertEquals(1, store.reconcile());
+
+        assertEquals(new BigDecimal("11.00"), store.getSpent(1L, 5L, JUNE));
+        assertEquals(new BigDecimal("0.00"), store.getSpent(1L, 6L, JUNE));
+    }
+
+    @Test
+    void testEvictsLeastRecentlyReadUsers() {
+        ReflectionTestUtils.setField(store, "maxUsers", 2);
+        when(expenseRepository.sumByCategoryForUser(any(), any(), any())).thenReturn(Collections.emptyList());
+
+        store.getSpent(1L, 5L, JUNE);
+        store.getSpent(2L, 5L, JUNE);
+        store.getSpent(1L, 5L, JUNE);
+        store.getSpent(3L, 5L, JUNE);
+
+        assertEquals(2, store.size());
+        // User 2 was read least recently, so it is seeded again
+        store.getSpent(2L, 5L, JUNE);
+        verify(expenseRepository, times(2)).sumByCategoryForUser(eq(2L), any(), any());
+    }
+
+    @Test
+    void testOlderMonthsAreSummedOnEveryRead() {
+        now(JUNE.plusMonths(2));
+        givenJuneTotals(new Object[]{5L, new BigDecimal("12.34")});
+
+        assertEquals(new BigDecimal("12.34"), store.getSpent(1L, 5L, JUNE));
+        assertEquals(Map.of(5L, new BigDecimal("12.34")), store.getSpentByCategory(1L, JUNE));
+
+        verify(expenseRepository, times(2)).sumByCategoryForUser(any(), any(), any());
+    }
+
+    @Test
+    void testReconcileDropsMonthsNoLongerHeld() {
+        givenJuneTotals(new Object[]{5L, new BigDecimal("10.00")});
+        store.getSpent(1L, 5L, JUNE);
+
+        now(JUNE.plusMonths(2));
+
+        assertEquals(0, store.reconcile());
+        verify(expenseRepository, never()).sumByUserAndCategoryForUsers(any(), any(), any());
+        // Read from the database again rather than from the dropped adder
+        assertEquals(new BigDecimal("10.00"), store.getSpent(1L, 5L, JUNE));
+        verify(expenseRepository, times(2)).sumByCategoryForUser(any(), any(), any());
+    }
+}
@@ -0,0 +1,135 @@
+package sg.wlian.addonapp.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import sg.wlian.addonapp.entity.Budget;
+import sg.wlian.addonapp.entity.Expense;
+import sg.wlian.addonapp.entity.User;
+import sg.wlian.addonapp.repository.BudgetRepository;
+import sg.wlian.addonapp.repository.CategoryRepository;
+import sg.wlian.addonapp.repository.ExpenseRepository;
+import sg.wlian.addonapp.repository.UserRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SyntheticDataGeneratorTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 3, 15);
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private CategoryRepository categoryRepository;
+
+    @Mock
+    private ExpenseRepository expenseRepository;
+
+    @Mock
+    private BudgetRepository budgetRepository;
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    @InjectMocks
+    private SyntheticDataGenerator generator;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(generator, "users", 3);
+        ReflectionTestUtils.setField(generator, "months", 2);
+        ReflectionTestUtils.setField(generator, "expensesPerMonth", 10);
+    }
+
+    private void stubSaves() {
+        when(passwordEncoder.encode("password123")).thenReturn("{bcrypt}hash");
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(categoryRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(expenseRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void testGeneratesUsersWithExpensesAndBudgets() {
+        stubSaves();
+        long expenses = generator.generate(TODAY);
+
+        // February in full, March up to the 15th: 10 + 10 * 15 / 31
+        assertEquals(3 * (10 + 4), expenses);
+        ArgumentCaptor<User> users = ArgumentCaptor.forClass(User.class);
+        verify(userRepository, times(3)).save(users.capture());
+        assertEquals(List.of("loaduser1", "loaduser2", "loaduser3"),
+                users.getAllValues().stream().map(User::getUsername).toList());
+        assertTrue(users.getAllValues().stream().allMatch(u -> u.getPassword().equals("{bcrypt}hash")));
+        verify(passwordEncoder, times(1)).encode(any());
+        verify(budgetRepository, times(3)).saveAll(anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testExpensesFallInTheGeneratedMonthsAndBudgetsCoverThisMonth() {
+        stubSaves();
+        generator.generate(TODAY);
+
+        ArgumentCaptor<List<Expense>> expenses = ArgumentCaptor.forClass(List.class);
+        verify(expenseRepository, times(3)).saveAll(expenses.capture());
+        for (Expense expense : expenses.getValue()) {
+            assertFalse(expense.getDate().isBefore(LocalDate.of(2026, 2, 1)));
+            assertFalse(expense.getDate().isAfter(TODAY));
+            assertTrue(expense.getAmount().compareTo(BigDecimal.ZERO) > 0);
+            assertEquals("loaduser3", expense.getUser().getUsername());
+            assertSame(expense.getUser(), expense.getCategory().getUser());
+        }
+
+        ArgumentCaptor<List<Budget>> budgets = ArgumentCaptor.forClass(List.class);
+        verify(budgetRepository, times(3)).saveAll(budgets.capture());
+        for (Budget budget : budgets.getValue()) {
+            assertEquals(LocalDate.of(2026, 3, 1), budget.getPeriod().getStartDate());
+            assertEquals(LocalDate.of(2026, 3, 31), budget.getPeriod().getEndDate());
+            assertEquals(budget.getCategory().getBudgetAmount(), budget.getAmount());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSameSeedGeneratesSameExpenses() {
+        stubSaves();
+        generator.generate(TODAY);
+        generator.generate(TODAY);
+
+        ArgumentCaptor<List<Expense>> expenses = ArgumentCaptor.forClass(List.class);
+        verify(expenseRepository, times(6)).saveAll(expenses.capture());
+        List<BigDecimal> first = new ArrayList<>();
+        List<BigDecimal> second = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            expenses.getAllValues().get(i).forEach(e -> first.add(e.getAmount()));
+            expenses.getAllValues().get(i + 3).forEach(e -> second.add(e.getAmount()));
+        }
+        assertEquals(first, second);
+    }
+
+    @Test
+    void testSkipsWhenUsersAlreadyExist() {
+        when(userRepository.existsByUsername("loaduser1")).thenReturn(true);
+
+        generator.run();
+
+        verify(userRepository, never()).save(any());
+        verifyNoInteractions(expenseRepository, budgetRepository);
+    }
+}
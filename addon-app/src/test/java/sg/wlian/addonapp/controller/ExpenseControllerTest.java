@@ -8,12 +8,27 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import sg.wlian.addonapp.dto.ExpenseAggregateDTO;
+import sg.wlian.addonapp.dto.ExpenseBatchOperation;
+import sg.wlian.addonapp.dto.ExpenseBatchRequest;
+import sg.wlian.addonapp.dto.ExpenseBatchResponse;
+import sg.wlian.addonapp.dto.ExpenseBatchResult;
+import sg.wlian.addonapp.dto.ExpenseFacet;
+import sg.wlian.addonapp.dto.ExpenseIngestReceiptDTO;
+import sg.wlian.addonapp.dto.ExpenseIngestRequest;
+import sg.wlian.addonapp.dto.ExpenseQueryRequest;
+import sg.wlian.addonapp.dto.ExpenseQueryResultDTO;
 import sg.wlian.addonapp.dto.ExpenseSummaryDTO;
+import sg.wlian.addonapp.dto.FacetCountDTO;
 import sg.wlian.addonapp.entity.Category;
 import sg.wlian.addonapp.entity.Expense;
 import sg.wlian.addonapp.entity.PaymentMethod;
 import sg.wlian.addonapp.entity.User;
+import sg.wlian.addonapp.service.ExpenseIngestService;
+import sg.wlian.addonapp.service.ExpenseQueryService;
 import sg.wlian.addonapp.service.ExpenseService;
+import sg.wlian.addonapp.web.DataVersions;
+import sg.wlian.addonapp.web.ResponseStats;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -25,6 +40,7 @@ import java.util.Map;
 
 import static org.hamcrest.Matchers.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -42,6 +58,18 @@ class ExpenseControllerTest {
     @MockBean
     private ExpenseService expenseService;
 
+    @MockBean
+    private ExpenseQueryService expenseQueryService;
+
+    @MockBean
+    private ExpenseIngestService expenseIngestService;
+
+    @MockBean
+    private DataVersions dataVersions;
+
+    @MockBean
+    private ResponseStats responseStats;
+
     private Expense testExpense;
     private User testUser;
     private Category testCategory;
@@ -227,4 +255,111 @@ class ExpenseControllerTest {
                 .content(objectMapper.writeValueAsString(testExpense)))
                 .andExpect(status().isInternalServerError());
     }
+
+    @Test
+    void testProcessBatch() throws Exception {
+        ExpenseBatchRequest request = new ExpenseBatchRequest();
+        request.setOperations(Arrays.asList(
+                new ExpenseBatchOperation(ExpenseBatchOperation.Type.CREATE, null, testExpense, "local-1"),
+                new ExpenseBatchOperation(ExpenseBatchOperation.Type.DELETE, 2L, null, null)
+        ));
+
+        ExpenseBatchResponse response = new ExpenseBatchResponse(1, 1, Arrays.asList(
+                new ExpenseBatchResult(0, ExpenseBatchOperation.Type.CREATE, "local-1", 1L,
+                        ExpenseBatchResult.Status.OK, null, testExpense),
+                new ExpenseBatchResult(1, ExpenseBatchOperation.Type.DELETE, null, 2L,
+                        ExpenseBatchResult.Status.NOT_FOUND, "Expense not found with id: 2", null)
+        ));
+        when(expenseService.processBatch(anyList())).thenReturn(response);
+
+        mockMvc.perform(post("/api/expenses/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.results[0].clientRef").value("local-1"))
+                .andExpect(jsonPath("$.results[1].status").value("NOT_FOUND"));
+
+        verify(expenseService, times(1)).processBatch(anyList());
+    }
+
+    @Test
+    void testProcessBatchTooLarge() throws Exception {
+        ExpenseBatchRequest request = new ExpenseBatchRequest();
+        request.setOperations(Arrays.asList(
+                new ExpenseBatchOperation(ExpenseBatchOperation.Type.CREATE, null, testExpense, null)
+        ));
+        when(expenseService.processBatch(anyList()))
+                .thenThrow(new IllegalArgumentException("Batch size exceeds the maximum"));
+
+        mockMvc.perform(post("/api/expenses/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testIngestExpenses() throws Exception {
+        ExpenseIngestRequest request = new ExpenseIngestRequest();
+        request.setExpenses(List.of(testExpense));
+        when(expenseIngestService.ingest(anyList())).thenReturn(new ExpenseIngestReceiptDTO(1, 41L, 41L));
+
+        mockMvc.perform(post("/api/expenses/ingest")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.accepted").value(1))
+                .andExpect(jsonPath("$.lastSequence").value(41));
+    }
+
+    @Test
+    void testIngestExpensesWhenDisabled() throws Exception {
+        ExpenseIngestRequest request = new ExpenseIngestRequest();
+        request.setExpenses(List.of(testExpense));
+        when(expenseIngestService.ingest(anyList()))
+                .thenThrow(new IllegalStateException("Expense ingestion is not enabled"));
+
+        mockMvc.perform(post("/api/expenses/ingest")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    void testQueryExpenses() throws Exception {
+        ExpenseQueryRequest request = new ExpenseQueryRequest();
+        request.setUserId(1L);
+        request.getFilter().setPaymentMethods(List.of(PaymentMethod.CREDIT_CARD));
+        request.getFacets().add(ExpenseFacet.CATEGORY);
+
+        ExpenseQueryResultDTO result = new ExpenseQueryResultDTO(List.of(testExpense), 0, 50,
+                new ExpenseAggregateDTO(1, new BigDecimal("50.00"), new BigDecimal("50.00"),
+                        new BigDecimal("50.00"), new BigDecimal("50.00")),
+                Map.of(ExpenseFacet.CATEGORY, List.of(
+                        new FacetCountDTO("1", "Food", 1, new BigDecimal("50.00")))));
+        when(expenseQueryService.query(any(ExpenseQueryRequest.class))).thenReturn(result);
+
+        mockMvc.perform(post("/api/expenses/query")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.expenses", hasSize(1)))
+                .andExpect(jsonPath("$.aggregates.count").value(1))
+                .andExpect(jsonPath("$.facets.CATEGORY[0].label").value("Food"));
+    }
+
+    @Test
+    void testQueryExpensesOverCostLimit() throws Exception {
+        ExpenseQueryRequest request = new ExpenseQueryRequest();
+        request.setUserId(1L);
+        request.setSize(1000);
+        when(expenseQueryService.query(any(ExpenseQueryRequest.class)))
+                .thenThrow(new IllegalArgumentException("Page size must be between 1 and 200"));
+
+        mockMvc.perform(post("/api/expenses/query")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+    }
 }
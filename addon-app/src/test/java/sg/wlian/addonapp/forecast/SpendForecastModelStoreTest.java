@@ -0,0 +1,176 @@
+package sg.wlian.addonapp.forecast;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sg.wlian.addonapp.cache.ExpenseWriteTracker;
+import sg.wlian.addonapp.entity.RecurrenceFrequency;
+import sg.wlian.addonapp.event.ExpenseChange;
+import sg.wlian.addonapp.event.ExpenseSnapshot;
+import sg.wlian.addonapp.event.ExpensesChangedEvent;
+import sg.wlian.addonapp.invalidation.InvalidationEntity;
+import sg.wlian.addonapp.invalidation.InvalidationMessage;
+import sg.wlian.addonapp.repository.ExpenseRepository;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SpendForecastModelStoreTest {
+
+    private static final int HISTORY_DAYS = 84;
+
+    private final LocalDate today = LocalDate.now();
+
+    @Mock
+    private ExpenseRepository expenseRepository;
+
+    @Spy
+    private ExpenseWriteTracker writeTracker = new ExpenseWriteTracker();
+
+    @InjectMocks
+    private SpendForecastModelStore store;
+
+    private void givenDailySpend(List<Object[]> rows) {
+        when(expenseRepository.sumDailyByUserCategory(anyCollection(), any(), any())).thenReturn(rows);
+    }
+
+    private List<Object[]> everyDay(long categoryId, String amount) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < HISTORY_DAYS; i++) {
+            rows.add(new Object[]{1L, categoryId, today.minusDays(i), new BigDecimal(amount), 1L});
+        }
+        return rows;
+    }
+
+    private CategoryProjection project(LocalDate from, LocalDate to, long categoryId) {
+        return store.project(1L, today, from, to, List.of(categoryId)).get(0);
+    }
+
+    @Test
+    void testFlatSpendProjectsSameDailyAmount() {
+        givenDailySpend(everyDay(5L, "10.00"));
+
+        CategoryProjection projection = project(today.minusDays(4), today.plusDays(10), 5L);
+
+        assertEquals(5000, projection.getSpentCents());
+        assertEquals(0, projection.getRecurringCents());
+        assertEquals(10000, projection.getDiscretionaryCents());
+        assertEquals(15000, projection.getProjectedCents());
+    }
+
+    @Test
+    void testDayOfWeekPatternIsKept() {
+        // Twelve weeks from Wednesday 2024-03-13 to Tuesday 2024-06-04, spend only on Saturdays
+        LocalDate lastDay = LocalDate.of(2024, 6, 4);
+        DailySpendSeries series = new DailySpendSeries(HISTORY_DAYS, lastDay);
+        for (LocalDate date = lastDay.minusDays(HISTORY_DAYS - 1); !date.isAfter(lastDay); date = date.plusDays(1)) {
+            if (date.getDayOfWeek() == DayOfWeek.SATURDAY) {
+                series.add(date, 7000);
+            }
+        }
+
+        assertEquals(7000, series.project(LocalDate.of(2024, 6, 5), LocalDate.of(2024, 6, 11), 0), 1e-6);
+        assertEquals(7000, series.project(LocalDate.of(2024, 6, 8), LocalDate.of(2024, 6, 8), 0), 1e-6);
+        assertEquals(0, series.project(LocalDate.of(2024, 6, 9), LocalDate.of(2024, 6, 14), 0), 1e-6);
+    }
+
+    @Test
+    void testRecurringInstancesAreProjectedAndNotCountedTwice() {
+        LocalDate lastRent = today.minusDays(10);
+        List<Object[]> rows = new ArrayList<>();
+        for (LocalDate date = lastRent; date.isAfter(today.minusDays(HISTORY_DAYS)); date = date.minusMonths(1)) {
+            rows.add(new Object[]{1L, 6L, date, new BigDecimal("1200.00"), 1L});
+        }
+        givenDailySpend(rows);
+        when(expenseRepository.findRecurringTemplatesForUsers(anyCollection())).thenReturn(List.<Object[]>of(
+                new Object[]{1L, 6L, new BigDecimal("1200.00"), RecurrenceFrequency.MONTHLY,
+                        lastRent.minusMonths(2), lastRent, null}));
+
+        CategoryProjection projection = project(today.plusDays(1), lastRent.plusMonths(1), 6L);
+
+        assertEquals(120000, projection.getRecurringCents());
+        // Rent is nearly all there is in this category, so the trend adds little on top
+        assertTrue(projection.getDiscretionaryCents() < 24000, "discretionary: " + projection.getDiscretionaryCents());
+    }
+
+    @Test
+    void testWritesUpdateModelWithoutRereadingHistory() {
+        givenDailySpend(everyDay(5L, "10.00"));
+        project(today, today, 5L);
+
+        ExpenseSnapshot lunch = new ExpenseSnapshot(9L, 1L, 5L, null, today, new BigDecimal("15.50"), "Lunch", null);
+        store.onExpensesChanged(new ExpensesChangedEvent(List.of(ExpenseChange.created(lunch))));
+
+        assertEquals(2550, project(today, today, 5L).getSpentCents());
+        verify(expenseRepository, times(1)).sumDailyByUserCategory(anyCollection(), any(), any());
+        // The change may have touched a recurring template
+        verify(expenseRepository, times(2)).findRecurringTemplatesForUsers(anyCollection());
+
+        store.onExpensesChanged(new ExpensesChangedEvent(List.of(ExpenseChange.deleted(lunch))));
+        assertEquals(1000, project(today, today, 5L).getSpentCents());
+    }
+
+    @Test
+    void testWriteCommittingDuringBuildIsCountedOnce() {
+        ExpenseSnapshot lunch = new ExpenseSnapshot(9L, 1L, 5L, null, today, new BigDecimal("15.50"), "Lunch", null);
+        ExpensesChangedEvent event = new ExpensesChangedEvent(List.of(ExpenseChange.created(lunch)));
+        List<Object[]> withLunch = everyDay(5L, "10.00");
+        withLunch.set(0, new Object[]{1L, 5L, today, new BigDecimal("25.50"), 2L});
+        when(expenseRepository.sumDailyByUserCategory(anyCollection(), any(), any()))
+                .thenAnswer(invocation -> {
+                    // Commits while the query runs, so it may or may not be in the result
+                    writeTracker.onCommitting(event);
+                    store.onExpensesChanged(event);
+                    writeTracker.onCompleted(event);
+                    return everyDay(5L, "10.00");
+                })
+                .thenReturn(withLunch);
+
+        assertEquals(2550, project(today, today, 5L).getSpentCents());
+        verify(expenseRepository, times(2)).sumDailyByUserCategory(anyCollection(), any(), any());
+    }
+
+    @Test
+    void testRemoteInvalidationRebuildsModel() {
+        givenDailySpend(everyDay(5L, "10.00"));
+        project(today, today, 5L);
+
+        store.onInvalidation(new InvalidationMessage("other-node", InvalidationEntity.EXPENSE, 1L, null));
+        project(today, today, 5L);
+
+        verify(expenseRepository, times(2)).sumDailyByUserCategory(anyCollection(), any(), any());
+    }
+
+    @Test
+    void testSeriesSlidesForward() {
+        DailySpendSeries series = new DailySpendSeries(7, LocalDate.of(2024, 6, 7));
+        for (int day = 1; day <= 7; day++) {
+            series.add(LocalDate.of(2024, 6, day), day * 100L);
+        }
+
+        series.rollTo(LocalDate.of(2024, 6, 9));
+        series.add(LocalDate.of(2024, 6, 9), 900);
+
+        assertEquals(300 + 400 + 500 + 600 + 700 + 900, series.sum(LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 9)));
+        // Matches a series built from scratch over the same days
+        DailySpendSeries fresh = new DailySpendSeries(7, LocalDate.of(2024, 6, 9));
+        for (int day = 3; day <= 7; day++) {
+            fresh.add(LocalDate.of(2024, 6, day), day * 100L);
+        }
+        fresh.add(LocalDate.of(2024, 6, 9), 900);
+        LocalDate from = LocalDate.of(2024, 6, 10);
+        LocalDate to = LocalDate.of(2024, 6, 20);
+        assertEquals(fresh.project(from, to, 0), series.project(from, to, 0), 1e-6);
+    }
+}
@@ -0,0 +1,107 @@
+package sg.wlian.addonapp.ingest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sg.wlian.addonapp.entity.PaymentMethod;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngestLogTest {
+
+    private static IngestRecord record(long sequence) {
+        return new IngestRecord(sequence, 1L, sequence % 2 == 0 ? 5L : null, LocalDate.of(2024, 6, 1),
+                new BigDecimal("12.50"), "Coffee #" + sequence, sequence % 2 == 0 ? "caf\u00e9" : null,
+                sequence % 2 == 0 ? PaymentMethod.DEBIT_CARD : null);
+    }
+
+    private static List<Path> segments(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.toString().endsWith(".wal")).sorted().toList();
+        }
+    }
+
+    @Test
+    void testRecordsSurviveReopen(@TempDir Path dir) throws IOException {
+        try (IngestLog log = IngestLog.open(dir, 1 << 20)) {
+            for (long seq = 1; seq <= 3; seq++) {
+                log.append(record(seq));
+            }
+            log.sync();
+        }
+
+        try (IngestLog log = IngestLog.open(dir, 1 << 20)) {
+            List<IngestRecord> records = log.recovered();
+            assertEquals(3, records.size());
+            assertEquals(3, log.lastSequence());
+            IngestRecord second = records.get(1);
+            assertEquals(2, second.getSequence());
+            assertEquals(5L, second.getCategoryId());
+            assertEquals(new BigDecimal("12.50"), second.getAmount());
+            assertEquals("caf\u00e9", second.getNotes());
+            assertEquals(PaymentMethod.DEBIT_CARD, second.getPaymentMethod());
+            assertNull(records.get(0).getCategoryId());
+            assertNull(records.get(0).getPaymentMethod());
+        }
+    }
+
+    @Test
+    void testTornTailIsTruncated(@TempDir Path dir) throws IOException {
+        try (IngestLog log = IngestLog.open(dir, 1 << 20)) {
+            log.append(record(1));
+            log.append(record(2));
+        }
+        Path file = segments(dir).get(0);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+
+        try (IngestLog log = IngestLog.open(dir, 1 << 20)) {
+            assertEquals(1, log.recovered().size());
+            assertEquals(1, log.lastSequence());
+            log.append(record(2));
+        }
+        try (IngestLog log = IngestLog.open(dir, 1 << 20)) {
+            assertEquals(2, log.recovered().size());
+        }
+    }
+
+    @Test
+    void testAppliedSegmentsAreDeleted(@TempDir Path dir) throws IOException {
+        // Tiny segments, so every record rolls to a new file
+        try (IngestLog log = IngestLog.open(dir, 1)) {
+            for (long seq = 1; seq <= 4; seq++) {
+                log.append(record(seq));
+            }
+            assertEquals(4, segments(dir).size());
+
+            log.deleteThrough(2);
+            assertEquals(2, segments(dir).size());
+
+            // The segment being appended to is kept
+            log.deleteThrough(4);
+            assertEquals(1, segments(dir).size());
+        }
+    }
+
+    @Test
+    void testRecordsAppendedTogetherStayInOneSegment(@TempDir Path dir) throws IOException {
+        try (IngestLog log = IngestLog.open(dir, 1)) {
+            log.appendAll(List.of(record(1), record(2), record(3)));
+            log.append(record(4));
+            assertEquals(4, log.lastSequence());
+            assertEquals(2, segments(dir).size());
+        }
+
+        try (IngestLog log = IngestLog.open(dir, 1)) {
+            assertEquals(List.of(1L, 2L, 3L, 4L), log.recovered().stream().map(IngestRecord::getSequence).toList());
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package sg.wlian.addonapp.ingest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+import sg.wlian.addonapp.security.JwtAuthenticationFilter;
+import sg.wlian.addonapp.service.ExpenseIngestService;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IngestReadInterceptorTest {
+
+    @Mock
+    private ExpenseIngestService ingestService;
+
+    @InjectMocks
+    private IngestReadInterceptor interceptor;
+
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @BeforeEach
+    void setUp() {
+        when(ingestService.isEnabled()).thenReturn(true);
+    }
+
+    private MockHttpServletRequest request(String method, String pattern, Long authenticatedUserId) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, pattern);
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, pattern);
+        request.setAttribute(JwtAuthenticationFilter.USER_ID_ATTRIBUTE, authenticatedUserId);
+        return request;
+    }
+
+    @Test
+    void testReadWithoutUserInPathWaitsForAuthenticatedUser() {
+        assertTrue(interceptor.preHandle(request("GET", "/api/sync/expenses", 7L), response, null));
+
+        verify(ingestService).awaitApplied(7L);
+    }
+
+    @Test
+    void testReadOfAnotherUserWaitsForBoth() {
+        MockHttpServletRequest request = request("GET", "/api/expenses/user/{userId}", 7L);
+        request.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, Map.of("userId", "8"));
+
+        interceptor.preHandle(request, response, null);
+
+        verify(ingestService).awaitApplied(7L);
+        verify(ingestService).awaitApplied(8L);
+    }
+
+    @Test
+    void testQueryIsARead() {
+        interceptor.preHandle(request("POST", "/api/expenses/query", 7L), response, null);
+
+        verify(ingestService).awaitApplied(7L);
+    }
+
+    @Test
+    void testWritesAreNotHeldBack() {
+        interceptor.preHandle(request("POST", "/api/expenses/batch", 7L), response, null);
+
+        verify(ingestService, never()).awaitApplied(any());
+    }
+}
@@ -14,6 +14,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 import sg.wlian.addonapp.entity.*;
 import sg.wlian.addonapp.repository.*;
+import sg.wlian.addonapp.sql.SqlBudget;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -418,4 +419,30 @@ class ExpenseIntegrationTest {
             assertTrue(userRepository.existsById(testUser.getId()));
         }
     }
+
+    @Nested
+    @DisplayName("SQL Statement Budget Tests")
+    class SqlStatementBudgetTests {
+
+        @Test
+        @DisplayName("Should list expenses without a statement per expense")
+        void testGetExpensesByUser_StatementsDoNotGrowWithExpenses() throws Exception {
+            for (int i = 0; i < 20; i++) {
+                Expense expense = new Expense();
+                expense.setDescription("Expense " + i);
+                expense.setAmount(new BigDecimal("10.00"));
+                expense.setDate(LocalDate.now());
+                expense.setUser(testUser);
+                expense.setCategory(testCategory);
+                expenseRepository.save(expense);
+            }
+            // Write the pending inserts now, so they are not counted against the request
+            expenseRepository.flush();
+
+            mockMvc.perform(get("/api/expenses/user/{userId}", testUser.getId()))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$", hasSize(20)))
+                    .andExpect(SqlBudget.maxStatements(3));
+        }
+    }
 }
@@ -0,0 +1,168 @@
+package sg.wlian.addonapp.integration;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import sg.wlian.addonapp.AddonAppApplication;
+import sg.wlian.addonapp.entity.*;
+import sg.wlian.addonapp.invalidation.InvalidationBus;
+import sg.wlian.addonapp.repository.BudgetRepository;
+import sg.wlian.addonapp.repository.CategoryRepository;
+import sg.wlian.addonapp.repository.UserRepository;
+import sg.wlian.addonapp.service.BudgetService;
+import sg.wlian.addonapp.service.CategoryService;
+import sg.wlian.addonapp.service.ExpenseService;
+import sg.wlian.addonapp.service.ReportService;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs two application contexts in one JVM against the same in-memory database, the way two instances
+ * behind a load balancer share one database, and checks that caches on one node are invalidated by
+ * writes made through the other.
+ */
+@DisplayName("Multi-node cache invalidation")
+class MultiNodeInvalidationTest {
+
+    private static final long AWAIT_MS = 5000;
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    static void startNodes() {
+        // Node A creates the schema; node B joins the existing database
+        nodeA = startNode("create-drop");
+        nodeB = startNode("none");
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        if (nodeB != null) {
+            nodeB.close();
+        }
+        if (nodeA != null) {
+            nodeA.close();
+        }
+    }
+
+    private static ConfigurableApplicationContext startNode(String ddlAuto) {
+        // Command-line arguments, so they override the profile set in application.properties
+        return new SpringApplicationBuilder(AddonAppApplication.class).run(
+                "--spring.profiles.active=test",
+                "--spring.datasource.url=jdbc:h2:mem:multinode;DB_CLOSE_DELAY=-1",
+                "--spring.jpa.hibernate.ddl-auto=" + ddlAuto,
+                "--spring.main.lazy-initialization=false",
+                "--server.port=0",
+                "--invalidation.jdbc.enabled=true",
+                "--invalidation.jdbc.poll-interval-ms=100",
+                "--invalidation.jdbc.safety-lag-ms=0");
+    }
+
+    private User createUser() {
+        String name = "node-" + UUID.randomUUID();
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "@example.com");
+        user.setPassword("secret");
+        return nodeA.getBean(UserRepository.class).save(user);
+    }
+
+    private Category createCategory(User user, String name) {
+        Category category = new Category();
+        category.setName(name);
+        category.setUser(user);
+        return nodeA.getBean(CategoryRepository.class).save(category);
+    }
+
+    private Expense expense(User user, Category category, String amount) {
+        Expense expense = new Expense();
+        expense.setUser(user);
+        expense.setCategory(category);
+        expense.setDescription("Lunch");
+        expense.setAmount(new BigDecimal(amount));
+        expense.setDate(LocalDate.now());
+        return expense;
+    }
+
+    private static <T> void awaitEquals(T expected, Supplier<T> actual) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + AWAIT_MS;
+        T last = actual.get();
+        while (!expected.equals(last) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            last = actual.get();
+        }
+        assertEquals(expected, last);
+    }
+
+    @Test
+    @DisplayName("Budget status on node B reflects an expense written on node A")
+    void testBudgetStatusIsNotStale() throws InterruptedException {
+        User user = createUser();
+        Category category = createCategory(user, "Food");
+        YearMonth month = YearMonth.now();
+        Budget budget = new Budget();
+        budget.setUser(user);
+        budget.setCategory(category);
+        budget.setAmount(new BigDecimal("100.00"));
+        budget.setBudgetType(BudgetType.MONTHLY);
+        TimePeriod period = new TimePeriod();
+        period.setStartDate(month.atDay(1));
+        period.setEndDate(month.atEndOfMonth());
+        budget.setPeriod(period);
+        Long budgetId = nodeA.getBean(BudgetRepository.class).save(budget).getId();
+
+        BudgetService budgetsOnB = nodeB.getBean(BudgetService.class);
+        Supplier<BigDecimal> spentOnB = () ->
+                budgetsOnB.getBudgetStatus(budgetsOnB.getBudgetById(budgetId)).getTotalExpenses();
+        // Seeds node B's in-memory spend counters
+        assertEquals(0, BigDecimal.ZERO.compareTo(spentOnB.get()));
+
+        nodeA.getBean(ExpenseService.class).createExpense(expense(user, category, "40.00"));
+
+        awaitEquals(new BigDecimal("40.00"), spentOnB);
+    }
+
+    @Test
+    @DisplayName("Cached report on node B is invalidated by writes on node A")
+    void testReportCacheIsInvalidated() throws InterruptedException {
+        User user = createUser();
+        Category category = createCategory(user, "Transport");
+        YearMonth month = YearMonth.now();
+        nodeA.getBean(ExpenseService.class).createExpense(expense(user, category, "12.50"));
+
+        ReportService reportsOnB = nodeB.getBean(ReportService.class);
+        Supplier<List<String>> breakdownOnB = () -> reportsOnB
+                .getCategoryBreakdown(user.getId(), month.atDay(1), month.atEndOfMonth()).stream()
+                .map(r -> r.getCategoryName() + "=" + r.getAmount())
+                .toList();
+        assertEquals(List.of("Transport=12.50"), breakdownOnB.get());
+
+        nodeA.getBean(ExpenseService.class).createExpense(expense(user, category, "7.50"));
+        awaitEquals(List.of("Transport=20.00"), breakdownOnB);
+
+        Category renamed = new Category();
+        renamed.setName("Commute");
+        renamed.setIsActive(true);
+        nodeA.getBean(CategoryService.class).updateCategory(category.getId(), renamed);
+        awaitEquals(List.of("Commute=20.00"), breakdownOnB);
+    }
+
+    @Test
+    @DisplayName("Each node gets its own id")
+    void testNodesHaveDistinctIds() {
+        assertNotEquals(
+                nodeA.getBean(InvalidationBus.class).getNodeId(),
+                nodeB.getBean(InvalidationBus.class).getNodeId());
+    }
+}
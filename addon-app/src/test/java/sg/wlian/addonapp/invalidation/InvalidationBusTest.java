@@ -0,0 +1,151 @@
+package sg.wlian.addonapp.invalidation;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InvalidationBusTest {
+
+    @Mock
+    private InvalidationTransport transport;
+
+    @Mock
+    private InvalidationHandler handler;
+
+    private InvalidationBus bus;
+
+    @BeforeEach
+    void setUp() {
+        bus = new InvalidationBus();
+        ReflectionTestUtils.setField(bus, "transports", List.of(transport));
+        ReflectionTestUtils.setField(bus, "handlers", List.of(handler));
+        ReflectionTestUtils.setField(bus, "retryDelayMs", 0L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testQueuesImmediatelyOutsideTransaction() {
+        bus.publish(InvalidationEntity.BUDGET, 1L, null);
+        verify(transport, never()).send(any());
+        assertEquals(1, bus.getQueuedCount());
+
+        bus.flush();
+
+        verify(transport).send(List.of(new InvalidationMessage(bus.getNodeId(), InvalidationEntity.BUDGET, 1L, null)));
+    }
+
+    @Test
+    void testHoldsMessagesUntilCommitAndSendsOneBatch() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        bus.publish(InvalidationEntity.EXPENSE, 1L, "2024-06");
+        bus.publish(InvalidationEntity.EXPENSE, 1L, "2024-06");
+        bus.publish(InvalidationEntity.EXPENSE, 2L, "2024-07");
+        verify(transport, never()).send(any());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        // Sent by the sender thread, not by the committing one
+        verify(transport, never()).send(any());
+        assertEquals(1, bus.flush());
+
+        verify(transport, times(1)).send(List.of(
+                new InvalidationMessage(bus.getNodeId(), InvalidationEntity.EXPENSE, 1L, "2024-06"),
+                new InvalidationMessage(bus.getNodeId(), InvalidationEntity.EXPENSE, 2L, "2024-07")));
+    }
+
+    @Test
+    void testRolledBackTransactionSendsNothing() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        bus.publish(InvalidationEntity.CATEGORY, 1L, null);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertEquals(0, bus.flush());
+        verify(transport, never()).send(any());
+    }
+
+    @Test
+    void testWholeUserMessageSupersedesKeyedOnes() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        bus.publish(InvalidationEntity.EXPENSE, 1L, "2024-06");
+        bus.publish(InvalidationEntity.EXPENSE, 1L, null);
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        bus.flush();
+
+        verify(transport).send(List.of(new InvalidationMessage(bus.getNodeId(), InvalidationEntity.EXPENSE, 1L, null)));
+    }
+
+    @Test
+    void testReceiveSkipsOwnMessages() {
+        InvalidationMessage own = new InvalidationMessage(bus.getNodeId(), InvalidationEntity.BUDGET, 1L, null);
+        InvalidationMessage remote = new InvalidationMessage("other-node", InvalidationEntity.BUDGET, 2L, null);
+
+        bus.receive(List.of(own, remote));
+
+        verify(handler).onInvalidation(remote);
+        verify(handler, never()).onInvalidation(own);
+    }
+
+    @Test
+    void testFailingHandlerDoesNotStopOthers() {
+        InvalidationHandler second = mock(InvalidationHandler.class);
+        ReflectionTestUtils.setField(bus, "handlers", List.of(handler, second));
+        InvalidationMessage remote = new InvalidationMessage("other-node", InvalidationEntity.EXPENSE, 2L, "2024-06");
+        doThrow(new RuntimeException("boom")).when(handler).onInvalidation(remote);
+
+        bus.receive(List.of(remote));
+
+        verify(second).onInvalidation(remote);
+    }
+
+    @Test
+    void testTransportFailureIsNotPropagated() {
+        doThrow(new RuntimeException("down")).when(transport).send(any());
+
+        assertDoesNotThrow(() -> bus.publish(InvalidationEntity.BUDGET, 1L, null));
+        assertDoesNotThrow(() -> bus.flush());
+    }
+
+    @Test
+    void testFailedSendIsRetried() {
+        doThrow(new RuntimeException("pool exhausted")).doNothing().when(transport).send(any());
+
+        bus.publish(InvalidationEntity.BUDGET, 1L, null);
+        bus.flush();
+
+        verify(transport, times(2)).send(any());
+    }
+
+    @Test
+    void testGivesUpAfterMaxAttempts() {
+        ReflectionTestUtils.setField(bus, "maxAttempts", 3);
+        doThrow(new RuntimeException("down")).when(transport).send(any());
+
+        bus.publish(InvalidationEntity.BUDGET, 1L, null);
+        bus.flush();
+
+        verify(transport, times(3)).send(any());
+        assertEquals(0, bus.getQueuedCount());
+    }
+}
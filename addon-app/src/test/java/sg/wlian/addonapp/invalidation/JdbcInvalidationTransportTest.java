@@ -0,0 +1,82 @@
+package sg.wlian.addonapp.invalidation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import sg.wlian.addonapp.entity.InvalidationLogEntry;
+import sg.wlian.addonapp.repository.InvalidationLogRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JdbcInvalidationTransportTest {
+
+    @Mock
+    private InvalidationLogRepository invalidationLogRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private JdbcInvalidationTransport transport;
+
+    private final List<InvalidationMessage> received = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(transport, "safetyLagMs", 2000L);
+        transport.start(received::addAll);
+    }
+
+    private InvalidationLogEntry row(long id, long userId, LocalDateTime createdAt) {
+        InvalidationLogEntry entry = new InvalidationLogEntry(
+                new InvalidationMessage("node-a", InvalidationEntity.BUDGET, userId, null), createdAt);
+        entry.setId(id);
+        return entry;
+    }
+
+    @Test
+    void testStartsAtEndOfSettledLog() {
+        when(invalidationLogRepository.findMaxIdCreatedBefore(any())).thenReturn(10L);
+        when(invalidationLogRepository.findByIdGreaterThanOrderByIdAsc(eq(10L), any())).thenReturn(List.of());
+
+        assertEquals(0, transport.poll());
+        verify(invalidationLogRepository).findByIdGreaterThanOrderByIdAsc(eq(10L), any());
+    }
+
+    @Test
+    void testRecentRowsAreDeliveredOnceWithoutMovingCursor() {
+        LocalDateTime old = LocalDateTime.now().minusMinutes(1);
+        LocalDateTime recent = LocalDateTime.now();
+        when(invalidationLogRepository.findMaxIdCreatedBefore(any())).thenReturn(0L);
+        when(invalidationLogRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any()))
+                .thenReturn(List.of(row(1, 1L, old), row(3, 3L, recent)));
+        // Row 2 committed late; the cursor stayed at 1 so it is still found
+        when(invalidationLogRepository.findByIdGreaterThanOrderByIdAsc(eq(1L), any()))
+                .thenReturn(List.of(row(2, 2L, old), row(3, 3L, recent)));
+
+        assertEquals(2, transport.poll());
+        assertEquals(1, transport.poll());
+
+        assertEquals(List.of(1L, 3L, 2L), received.stream().map(InvalidationMessage::getUserId).toList());
+    }
+
+    @Test
+    void testNothingDeliveredBeforeStart() {
+        JdbcInvalidationTransport unstarted = new JdbcInvalidationTransport();
+
+        assertEquals(0, unstarted.poll());
+        verifyNoInteractions(invalidationLogRepository);
+    }
+}
@@ -0,0 +1,192 @@
+package sg.wlian.addonapp.ledger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import sg.wlian.addonapp.entity.PaymentMethod;
+import sg.wlian.addonapp.event.CategoryChangedEvent;
+import sg.wlian.addonapp.event.ExpenseChange;
+import sg.wlian.addonapp.event.ExpenseSnapshot;
+import sg.wlian.addonapp.event.ExpensesChangedEvent;
+import sg.wlian.addonapp.invalidation.InvalidationEntity;
+import sg.wlian.addonapp.invalidation.InvalidationMessage;
+import sg.wlian.addonapp.repository.ExpenseRepository;
+import sg.wlian.addonapp.repository.UserRepository;
+import sg.wlian.addonapp.service.DatabaseIdentityService;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExpenseLedgerTest {
+
+    private static final YearMonth JAN = YearMonth.of(2024, 1);
+    private static final YearMonth FEB = YearMonth.of(2024, 2);
+    private static final YearMonth MAR = YearMonth.of(2024, 3);
+
+    @Mock
+    private ExpenseRepository expenseRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private DatabaseIdentityService databaseIdentityService;
+
+    @InjectMocks
+    private ExpenseLedger ledger;
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(ledger, "ledgerDir", dir.toString());
+        // Old months, so changes to them always reach the ledger
+        ReflectionTestUtils.setField(ledger, "compactAfterMonths", 0);
+        // Not read by the tests with the ledger disabled
+        lenient().when(databaseIdentityService.getDatabaseId()).thenReturn("db-1");
+    }
+
+    private static Object[] row(LocalDate date, String amount) {
+        return new Object[]{date, new BigDecimal(amount), 5L, PaymentMethod.CASH};
+    }
+
+    private void givenRows(LocalDate after, YearMonth through, Object[]... rows) {
+        when(expenseRepository.findLedgerRowsByUserId(1L, after, through.atEndOfMonth())).thenReturn(List.of(rows));
+    }
+
+    private ExpensesChangedEvent changeIn(YearMonth month) {
+        return new ExpensesChangedEvent(List.of(ExpenseChange.created(new ExpenseSnapshot(9L, 1L, 5L, null,
+                month.atDay(3), new BigDecimal("1.00"), "x", null))));
+    }
+
+    @Test
+    void testCompactionAppendsSegmentsForNewlyClosedMonths() throws Exception {
+        givenRows(null, JAN, row(JAN.atDay(5), "10.00"));
+        givenRows(JAN.atEndOfMonth(), MAR, row(FEB.atDay(2), "20.00"), row(MAR.atDay(9), "30.00"));
+
+        assertTrue(ledger.compact(1L, JAN));
+        assertFalse(ledger.compact(1L, JAN));
+        assertTrue(ledger.compact(1L, MAR));
+
+        List<LedgerSegment> segments = ledger.segments(1L);
+        assertEquals(2, segments.size());
+        assertEquals(LedgerSegment.FROM_START, segments.get(0).getAfterDay());
+        assertEquals((int) JAN.atEndOfMonth().toEpochDay(), segments.get(1).getAfterDay());
+        assertEquals(2, segments.get(1).getRecordCount());
+    }
+
+    @Test
+    void testChainIsMergedAtMaxSegments() throws Exception {
+        ReflectionTestUtils.setField(ledger, "maxSegments", 2);
+        givenRows(null, JAN, row(JAN.atDay(5), "10.00"));
+        givenRows(null, FEB, row(JAN.atDay(5), "10.00"), row(FEB.atDay(2), "20.00"));
+
+        ledger.compact(1L, JAN);
+        ledger.compact(1L, FEB);
+
+        List<LedgerSegment> segments = ledger.segments(1L);
+        assertEquals(1, segments.size());
+        assertEquals(2, segments.get(0).getRecordCount());
+        assertEquals((int) FEB.atEndOfMonth().toEpochDay(), segments.get(0).getThroughDay());
+    }
+
+    @Test
+    void testChangeToCompactedMonthDropsSegmentsFromThatMonthOn() throws Exception {
+        givenRows(null, JAN, row(JAN.atDay(5), "10.00"));
+        givenRows(JAN.atEndOfMonth(), FEB, row(FEB.atDay(2), "20.00"));
+        ledger.compact(1L, JAN);
+        ledger.compact(1L, FEB);
+
+        ledger.onExpensesChanged(changeIn(FEB));
+        assertEquals(1, ledger.segments(1L).size());
+
+        ledger.onInvalidation(new InvalidationMessage("other-node", InvalidationEntity.EXPENSE, 1L, JAN.toString()));
+        assertTrue(ledger.segments(1L).isEmpty());
+    }
+
+    @Test
+    void testCategoryChangeDropsAllSegments() throws Exception {
+        givenRows(null, JAN, row(JAN.atDay(5), "10.00"));
+        ledger.compact(1L, JAN);
+
+        ledger.onCategoryChanged(new CategoryChangedEvent(1L));
+
+        assertTrue(ledger.segments(1L).isEmpty());
+    }
+
+    @Test
+    void testCompactionRacingAChangeIsDiscarded() throws Exception {
+        when(expenseRepository.findLedgerRowsByUserId(eq(1L), isNull(), any())).thenAnswer(inv -> {
+            // Committed after the rows were read
+            ledger.onExpensesChanged(changeIn(JAN));
+            return Collections.singletonList(row(JAN.atDay(5), "10.00"));
+        });
+
+        assertFalse(ledger.compact(1L, JAN));
+        assertTrue(ledger.segments(1L).isEmpty());
+    }
+
+    @Test
+    void testSegmentsFromAnotherDatabaseAreDeleted() throws Exception {
+        givenRows(null, JAN, row(JAN.atDay(5), "10.00"));
+        ledger.compact(1L, JAN);
+        assertEquals(1, ledger.segments(1L).size());
+
+        // Restarted against a recreated database
+        ExpenseLedger restarted = new ExpenseLedger();
+        ReflectionTestUtils.setField(restarted, "ledgerDir", dir.toString());
+        ReflectionTestUtils.setField(restarted, "databaseIdentityService", databaseIdentityService);
+        when(databaseIdentityService.getDatabaseId()).thenReturn("db-2");
+
+        assertTrue(restarted.segments(1L).isEmpty());
+        assertEquals("db-2", Files.readString(dir.resolve("database-id")));
+    }
+
+    @Test
+    void testSegmentsFromSameDatabaseSurviveRestart() throws Exception {
+        givenRows(null, JAN, row(JAN.atDay(5), "10.00"));
+        ledger.compact(1L, JAN);
+
+        ExpenseLedger restarted = new ExpenseLedger();
+        ReflectionTestUtils.setField(restarted, "ledgerDir", dir.toString());
+        ReflectionTestUtils.setField(restarted, "databaseIdentityService", databaseIdentityService);
+
+        assertEquals(1, restarted.segments(1L).size());
+    }
+
+    @Test
+    void testCompactAllPagesThroughUsers() {
+        ReflectionTestUtils.setField(ledger, "compactionPageSize", 1);
+        when(userRepository.findIdsAfter(eq(0L), any())).thenReturn(List.of(1L));
+        when(userRepository.findIdsAfter(eq(1L), any())).thenReturn(Collections.emptyList());
+        when(expenseRepository.findLedgerRowsByUserId(eq(1L), isNull(), any())).thenReturn(Collections.emptyList());
+
+        assertEquals(1, ledger.compactAll());
+        assertEquals(0, ledger.segments(1L).get(0).getRecordCount());
+    }
+
+    @Test
+    void testDisabledLedgerHasNoSegments() throws Exception {
+        ReflectionTestUtils.setField(ledger, "ledgerDir", "");
+
+        assertFalse(ledger.compact(1L, JAN));
+        assertTrue(ledger.segments(1L).isEmpty());
+        verifyNoInteractions(expenseRepository);
+    }
+}
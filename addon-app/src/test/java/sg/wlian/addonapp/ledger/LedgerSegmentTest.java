@@ -0,0 +1,88 @@
+package sg.wlian.addonapp.ledger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sg.wlian.addonapp.entity.PaymentMethod;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerSegmentTest {
+
+    private static final LocalDate JAN_1 = LocalDate.of(2024, 1, 1);
+
+    private static List<Object[]> rowsForDays(int days, int perDay) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int day = 0; day < days; day++) {
+            for (int i = 0; i < perDay; i++) {
+                rows.add(new Object[]{JAN_1.plusDays(day), BigDecimal.valueOf(100 * day + i, 2),
+                        i == 0 ? null : (long) i, i == 0 ? null : PaymentMethod.CASH});
+            }
+        }
+        return rows;
+    }
+
+    @Test
+    void testRecordsRoundTrip(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("2024-01.seg");
+        LedgerSegment.write(file, 7L, LedgerSegment.FROM_START, (int) JAN_1.plusDays(30).toEpochDay(), 4,
+                rowsForDays(31, 3));
+
+        LedgerSegment segment = LedgerSegment.open(file);
+        assertEquals(7L, segment.getUserId());
+        assertEquals(93, segment.getRecordCount());
+        List<Object[]> read = new ArrayList<>();
+        segment.forEach((day, cents, categoryId, method) -> read.add(new Object[]{day, cents, categoryId, method}));
+
+        assertEquals(93, read.size());
+        assertArrayEquals(new Object[]{(int) JAN_1.toEpochDay(), 0L, null, null}, read.get(0));
+        assertArrayEquals(new Object[]{(int) JAN_1.plusDays(30).toEpochDay(), 3002L, 2L, PaymentMethod.CASH},
+                read.get(92));
+    }
+
+    @Test
+    void testRangeReadStartsFromSparseIndex(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("2024-01.seg");
+        // Index every 4 records with 3 records a day, so days straddle index blocks
+        LedgerSegment.write(file, 7L, LedgerSegment.FROM_START, (int) JAN_1.plusDays(30).toEpochDay(), 4,
+                rowsForDays(31, 3));
+        LedgerSegment segment = LedgerSegment.open(file);
+
+        for (int from = 0; from < 31; from++) {
+            List<Integer> days = new ArrayList<>();
+            segment.forEachBetween(JAN_1.plusDays(from), JAN_1.plusDays(from + 2),
+                    (day, cents, categoryId, method) -> days.add(day));
+            assertEquals(Math.min(3, 31 - from) * 3, days.size(), "from day " + from);
+            assertEquals((int) JAN_1.plusDays(from).toEpochDay(), days.get(0));
+        }
+    }
+
+    @Test
+    void testTruncatedFileIsRejected(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("2024-01.seg");
+        LedgerSegment.write(file, 7L, LedgerSegment.FROM_START, (int) JAN_1.plusDays(30).toEpochDay(), 4,
+                rowsForDays(2, 3));
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 5));
+
+        assertThrows(IOException.class, () -> LedgerSegment.open(file));
+    }
+
+    @Test
+    void testUnsortedRowsAreRejected(@TempDir Path dir) {
+        List<Object[]> rows = rowsForDays(2, 1);
+        Collections.reverse(rows);
+
+        assertThrows(IllegalArgumentException.class, () -> LedgerSegment.write(dir.resolve("x.seg"), 7L,
+                LedgerSegment.FROM_START, (int) JAN_1.plusDays(30).toEpochDay(), 4, rows));
+    }
+}
@@ -0,0 +1,48 @@
+package sg.wlian.addonapp.scheduler;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sg.wlian.addonapp.service.ExpenseService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RecurringExpenseSchedulerTest {
+
+    @Mock
+    private ExpenseService expenseService;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private RecurringExpenseScheduler scheduler;
+
+    @Test
+    void testRunRecordsDurationAndExpensesCreated() {
+        when(expenseService.processRecurringExpenses()).thenReturn(3, 2);
+
+        scheduler.processRecurringExpenses();
+        scheduler.processRecurringExpenses();
+
+        assertEquals(5.0, meterRegistry.counter("recurring.expenses.created").count());
+        assertEquals(2, meterRegistry.timer("recurring.expenses.run", "outcome", "success").count());
+    }
+
+    @Test
+    void testFailedRunIsTimedAsFailure() {
+        when(expenseService.processRecurringExpenses()).thenThrow(new IllegalStateException("database down"));
+
+        assertThrows(IllegalStateException.class, () -> scheduler.processRecurringExpenses());
+
+        assertEquals(1, meterRegistry.timer("recurring.expenses.run", "outcome", "failure").count());
+        assertEquals(0.0, meterRegistry.counter("recurring.expenses.created").count());
+    }
+}
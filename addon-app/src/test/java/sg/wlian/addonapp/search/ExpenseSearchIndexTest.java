@@ -0,0 +1,236 @@
+package sg.wlian.addonapp.search;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import sg.wlian.addonapp.dto.ExpenseSearchCriteria;
+import sg.wlian.addonapp.entity.PaymentMethod;
+import sg.wlian.addonapp.event.ExpenseChange;
+import sg.wlian.addonapp.event.ExpenseSnapshot;
+import sg.wlian.addonapp.event.ExpensesChangedEvent;
+import sg.wlian.addonapp.invalidation.InvalidationEntity;
+import sg.wlian.addonapp.invalidation.InvalidationMessage;
+import sg.wlian.addonapp.repository.ExpenseRepository;
+import sg.wlian.addonapp.repository.ExpenseTombstoneRepository;
+import sg.wlian.addonapp.service.DatabaseIdentityService;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExpenseSearchIndexTest {
+
+    private static final LocalDate JUNE_10 = LocalDate.of(2024, 6, 10);
+
+    @Mock
+    private ExpenseRepository expenseRepository;
+
+    @Mock
+    private ExpenseTombstoneRepository expenseTombstoneRepository;
+
+    @Mock
+    private DatabaseIdentityService databaseIdentityService;
+
+    @InjectMocks
+    private ExpenseSearchIndex index;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        index.open();
+        index.catchUp();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        index.close();
+    }
+
+    private ExpenseSnapshot expense(long id, long userId, Long categoryId, PaymentMethod method, LocalDate date,
+                                    String amount, String description, String notes) {
+        return new ExpenseSnapshot(id, userId, categoryId, method, date, new BigDecimal(amount), description, notes);
+    }
+
+    private void created(ExpenseSnapshot... expenses) {
+        index.onExpensesChanged(new ExpensesChangedEvent(
+                Arrays.stream(expenses).map(ExpenseChange::created).toList()));
+    }
+
+    private List<Long> search(String text) throws Exception {
+        ExpenseSearchCriteria criteria = new ExpenseSearchCriteria();
+        criteria.setUserId(1L);
+        criteria.setQuery(text);
+        return index.search(criteria, 0, 20).getIds();
+    }
+
+    private List<Long> search(ExpenseSearchCriteria criteria) throws Exception {
+        return index.search(criteria, 0, 20).getIds();
+    }
+
+    @Test
+    void testMatchesTokensPrefixesAndTypos() throws Exception {
+        created(
+                expense(1, 1L, 5L, PaymentMethod.CASH, JUNE_10, "4.50", "Morning coffee", null),
+                expense(2, 1L, 5L, PaymentMethod.CASH, JUNE_10, "60.00", "Groceries at market", "weekly shopping"),
+                expense(3, 1L, 6L, PaymentMethod.CREDIT_CARD, JUNE_10, "1200.00", "Rent", null));
+
+        assertEquals(List.of(1L), search("coffee"));
+        assertEquals(List.of(2L), search("groc"));
+        assertEquals(List.of(1L), search("cofee"));
+        assertEquals(List.of(2L), search("shopping"));
+        assertEquals(List.of(2L), search("weekly groceries"));
+        assertEquals(List.of(), search("coffee rent"));
+    }
+
+    @Test
+    void testDescriptionMatchesRankAboveNotes() throws Exception {
+        created(
+                expense(1, 1L, null, null, JUNE_10, "10.00", "Dinner", "with taxi home"),
+                expense(2, 1L, null, null, JUNE_10, "25.00", "Taxi", null));
+
+        assertEquals(List.of(2L, 1L), search("taxi"));
+    }
+
+    @Test
+    void testFiltersAndUserIsolation() throws Exception {
+        created(
+                expense(1, 1L, 5L, PaymentMethod.CASH, JUNE_10, "4.50", "Coffee", null),
+                expense(2, 1L, 6L, PaymentMethod.CREDIT_CARD, JUNE_10.plusDays(5), "45.00", "Coffee beans", null),
+                expense(3, 2L, 5L, PaymentMethod.CASH, JUNE_10, "4.50", "Coffee", null));
+
+        ExpenseSearchCriteria criteria = new ExpenseSearchCriteria();
+        criteria.setUserId(1L);
+        criteria.setQuery("coffee");
+        assertEquals(2, search(criteria).size());
+
+        criteria.setCategoryId(5L);
+        assertEquals(List.of(1L), search(criteria));
+
+        criteria.setCategoryId(null);
+        criteria.setPaymentMethod(PaymentMethod.CREDIT_CARD);
+        assertEquals(List.of(2L), search(criteria));
+
+        criteria.setPaymentMethod(null);
+        criteria.setMinAmount(new BigDecimal("10"));
+        assertEquals(List.of(2L), search(criteria));
+
+        criteria.setMinAmount(null);
+        criteria.setEndDate(JUNE_10);
+        assertEquals(List.of(1L), search(criteria));
+    }
+
+    @Test
+    void testWithoutTextReturnsNewestFirst() throws Exception {
+        created(
+                expense(1, 1L, null, null, JUNE_10, "1.00", "A", null),
+                expense(2, 1L, null, null, JUNE_10.plusDays(1), "1.00", "B", null),
+                expense(3, 1L, null, null, JUNE_10, "1.00", "C", null));
+
+        assertEquals(List.of(2L, 3L, 1L), search((String) null));
+    }
+
+    @Test
+    void testUpdatesAndDeletesAreVisibleToNextSearch() throws Exception {
+        ExpenseSnapshot original = expense(1, 1L, null, null, JUNE_10, "4.50", "Coffee", null);
+        created(original);
+        ExpenseSnapshot renamed = expense(1, 1L, null, null, JUNE_10, "4.50", "Tea", null);
+        index.onExpensesChanged(new ExpensesChangedEvent(List.of(ExpenseChange.updated(original, renamed))));
+
+        assertEquals(List.of(), search("coffee"));
+        assertEquals(List.of(1L), search("tea"));
+
+        index.onExpensesChanged(new ExpensesChangedEvent(List.of(ExpenseChange.deleted(renamed))));
+        assertEquals(List.of(), search("tea"));
+    }
+
+    @Test
+    void testRemoteInvalidationReindexesMonthFromDatabase() throws Exception {
+        created(expense(1, 1L, null, null, JUNE_10, "4.50", "Coffee", null));
+        // On another node expense 1 was deleted and expense 2 added
+        when(expenseRepository.findSnapshotsByUserAndDateBetween(1L, LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 30)))
+                .thenReturn(List.of(expense(2, 1L, null, null, JUNE_10, "3.00", "Coffee to go", null)));
+
+        index.onInvalidation(new InvalidationMessage("other-node", InvalidationEntity.EXPENSE, 1L, "2024-06"));
+
+        assertEquals(List.of(2L), search("coffee"));
+    }
+
+    @Test
+    void testReopenedIndexCatchesUpFromWatermark(@TempDir Path dir) throws Exception {
+        clearInvocations(expenseRepository);
+        ExpenseSearchIndex persistent = new ExpenseSearchIndex();
+        ReflectionTestUtils.setField(persistent, "expenseRepository", expenseRepository);
+        ReflectionTestUtils.setField(persistent, "expenseTombstoneRepository", expenseTombstoneRepository);
+        ReflectionTestUtils.setField(persistent, "databaseIdentityService", databaseIdentityService);
+        ReflectionTestUtils.setField(persistent, "indexDir", dir.toString());
+        persistent.open();
+        persistent.catchUp();
+        persistent.onExpensesChanged(new ExpensesChangedEvent(List.of(ExpenseChange.created(
+                expense(1, 1L, null, null, JUNE_10, "4.50", "Coffee", null)))));
+        persistent.close();
+        verify(expenseRepository, times(1)).findSnapshotsAfterId(anyLong(), any());
+
+        // Expense 1 was deleted while the node was down
+        when(expenseTombstoneRepository.findIdsDeletedSince(any())).thenReturn(List.of(1L));
+        ExpenseSearchIndex reopened = new ExpenseSearchIndex();
+        ReflectionTestUtils.setField(reopened, "expenseRepository", expenseRepository);
+        ReflectionTestUtils.setField(reopened, "expenseTombstoneRepository", expenseTombstoneRepository);
+        ReflectionTestUtils.setField(reopened, "databaseIdentityService", databaseIdentityService);
+        ReflectionTestUtils.setField(reopened, "indexDir", dir.toString());
+        reopened.open();
+        reopened.catchUp();
+
+        ExpenseSearchCriteria criteria = new ExpenseSearchCriteria();
+        criteria.setUserId(1L);
+        criteria.setQuery("coffee");
+        assertEquals(List.of(), reopened.search(criteria, 0, 20).getIds());
+        // Caught up from the commit rather than rebuilt
+        verify(expenseRepository, times(1)).findSnapshotsAfterId(anyLong(), any());
+        reopened.close();
+    }
+
+    @Test
+    void testIndexBuiltFromAnotherDatabaseIsRebuilt(@TempDir Path dir) throws Exception {
+        clearInvocations(expenseRepository);
+        when(databaseIdentityService.getDatabaseId()).thenReturn("first-database", "second-database");
+        ExpenseSearchIndex persistent = newPersistentIndex(dir);
+        persistent.open();
+        persistent.catchUp();
+        persistent.onExpensesChanged(new ExpensesChangedEvent(List.of(ExpenseChange.created(
+                expense(1, 1L, null, null, JUNE_10, "4.50", "Coffee", null)))));
+        persistent.close();
+
+        // The database was recreated: id 1 is now another user's expense, not yet in any change log
+        ExpenseSearchIndex reopened = newPersistentIndex(dir);
+        reopened.open();
+        reopened.catchUp();
+
+        ExpenseSearchCriteria criteria = new ExpenseSearchCriteria();
+        criteria.setUserId(1L);
+        criteria.setQuery("coffee");
+        assertEquals(List.of(), reopened.search(criteria, 0, 20).getIds());
+        verify(expenseRepository, times(2)).findSnapshotsAfterId(anyLong(), any());
+        reopened.close();
+    }
+
+    private ExpenseSearchIndex newPersistentIndex(Path dir) {
+        ExpenseSearchIndex persistent = new ExpenseSearchIndex();
+        ReflectionTestUtils.setField(persistent, "expenseRepository", expenseRepository);
+        ReflectionTestUtils.setField(persistent, "expenseTombstoneRepository", expenseTombstoneRepository);
+        ReflectionTestUtils.setField(persistent, "databaseIdentityService", databaseIdentityService);
+        ReflectionTestUtils.setField(persistent, "indexDir", dir.toString());
+        return persistent;
+    }
+}
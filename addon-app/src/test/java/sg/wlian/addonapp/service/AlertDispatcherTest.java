@@ -0,0 +1,220 @@
+package sg.wlian.addonapp.service;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+import sg.wlian.addonapp.entity.AlertOutbox;
+import sg.wlian.addonapp.entity.AlertStatus;
+import sg.wlian.addonapp.entity.AlertType;
+import sg.wlian.addonapp.entity.User;
+import sg.wlian.addonapp.entity.UserSettings;
+import sg.wlian.addonapp.repository.AlertOutboxRepository;
+import sg.wlian.addonapp.repository.UserSettingsRepository;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AlertDispatcherTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Mock
+    private AlertOutboxRepository alertOutboxRepository;
+
+    @Mock
+    private UserSettingsRepository userSettingsRepository;
+
+    @Spy
+    private JavaMailSender mailSender = smtpSender(ServerSetupTest.SMTP.getPort());
+
+    @InjectMocks
+    private AlertDispatcher alertDispatcher;
+
+    private User alice;
+    private User bob;
+
+    private static JavaMailSenderImpl smtpSender(int port) {
+        JavaMailSenderImpl sender = new JavaMailSenderImpl();
+        sender.setHost("localhost");
+        sender.setPort(port);
+        return sender;
+    }
+
+    @BeforeEach
+    void setUp() {
+        alice = user(1L, "alice@example.com");
+        bob = user(2L, "bob@example.com");
+    }
+
+    private User user(Long id, String email) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(email);
+        return user;
+    }
+
+    private AlertOutbox alert(User user, String dedupKey) {
+        AlertOutbox alert = new AlertOutbox();
+        alert.setId((long) dedupKey.hashCode());
+        alert.setType(AlertType.BUDGET_APPROACHING_LIMIT);
+        alert.setUser(user);
+        alert.setBudgetId(10L);
+        alert.setDedupKey(dedupKey);
+        alert.setSubject("Budget alert: Food is at 85%");
+        alert.setBody("Approaching budget limit for budget Food.");
+        alert.setNextAttemptAt(LocalDateTime.now().minusMinutes(1));
+        return alert;
+    }
+
+    private void claims(List<AlertOutbox> due) {
+        List<Long> ids = due.stream().map(AlertOutbox::getId).toList();
+        when(alertOutboxRepository.findDueIds(any(), any(), any())).thenReturn(ids);
+        when(alertOutboxRepository.claim(eq(ids), any(), any(), anyString(), any())).thenReturn(due.size());
+        when(alertOutboxRepository.findClaimed(anyString())).thenReturn(due);
+    }
+
+    @Test
+    void testSendsBatchOverOneCall() throws Exception {
+        AlertOutbox first = alert(alice, "budget:10:80:2024-06-01");
+        AlertOutbox second = alert(bob, "budget:11:80:2024-06-01");
+        claims(List.of(first, second));
+        when(userSettingsRepository.findByUserIdIn(any())).thenReturn(Collections.emptyList());
+
+        int sent = alertDispatcher.dispatchPending();
+
+        assertEquals(2, sent);
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(2, received.length);
+        assertEquals("Budget alert: Food is at 85%", received[0].getSubject());
+        assertEquals(AlertStatus.SENT, first.getStatus());
+        assertEquals(AlertStatus.SENT, second.getStatus());
+        verify(mailSender, times(1)).send(any(MimeMessage[].class));
+        verify(alertOutboxRepository).saveAll(List.of(first, second));
+    }
+
+    @Test
+    void testSkipsUsersWhoOptedOut() {
+        AlertOutbox optedOut = alert(alice, "budget:10:80:2024-06-01");
+        UserSettings settings = new UserSettings();
+        settings.setUser(alice);
+        settings.setEmailNotifications(false);
+        claims(List.of(optedOut));
+        when(userSettingsRepository.findByUserIdIn(any())).thenReturn(List.of(settings));
+
+        int sent = alertDispatcher.dispatchPending();
+
+        assertEquals(0, sent);
+        assertEquals(AlertStatus.SKIPPED, optedOut.getStatus());
+        assertEquals(0, greenMail.getReceivedMessages().length);
+        verify(mailSender, never()).send(any(MimeMessage[].class));
+    }
+
+    @Test
+    void testRetriesWithBackoffWhenServerIsUnreachable() {
+        ReflectionTestUtils.setField(alertDispatcher, "mailSender", smtpSender(1));
+        AlertOutbox alert = alert(alice, "budget:10:80:2024-06-01");
+        alert.setAttempts(2);
+        claims(List.of(alert));
+        when(userSettingsRepository.findByUserIdIn(any())).thenReturn(Collections.emptyList());
+
+        LocalDateTime before = LocalDateTime.now();
+        int sent = alertDispatcher.dispatchPending();
+
+        assertEquals(0, sent);
+        assertEquals(AlertStatus.PENDING, alert.getStatus());
+        assertEquals(3, alert.getAttempts());
+        assertNotNull(alert.getLastError());
+        // Third attempt waits 30s * 2^2
+        assertFalse(alert.getNextAttemptAt().isBefore(before.plusSeconds(120)));
+    }
+
+    @Test
+    void testGivesUpAfterMaxAttempts() {
+        ReflectionTestUtils.setField(alertDispatcher, "mailSender", smtpSender(1));
+        AlertOutbox alert = alert(alice, "budget:10:80:2024-06-01");
+        alert.setAttempts(5);
+        claims(List.of(alert));
+        when(userSettingsRepository.findByUserIdIn(any())).thenReturn(Collections.emptyList());
+
+        alertDispatcher.dispatchPending();
+
+        assertEquals(AlertStatus.FAILED, alert.getStatus());
+        assertEquals(6, alert.getAttempts());
+    }
+
+    @Test
+    void testSendsOnlyWhatThisRunClaimed() throws Exception {
+        AlertOutbox mine = alert(alice, "budget:10:80:2024-06-01");
+        AlertOutbox theirs = alert(bob, "budget:11:80:2024-06-01");
+        when(alertOutboxRepository.findDueIds(any(), any(), any())).thenReturn(List.of(mine.getId(), theirs.getId()));
+        // Another node claimed the second row between the two queries
+        when(alertOutboxRepository.claim(any(), any(), any(), anyString(), any())).thenReturn(1);
+        when(alertOutboxRepository.findClaimed(anyString())).thenReturn(List.of(mine));
+        when(userSettingsRepository.findByUserIdIn(any())).thenReturn(Collections.emptyList());
+
+        int sent = alertDispatcher.dispatchPending();
+
+        assertEquals(1, sent);
+        assertEquals(1, greenMail.getReceivedMessages().length);
+        assertEquals("alice@example.com", greenMail.getReceivedMessages()[0].getAllRecipients()[0].toString());
+        assertEquals(AlertStatus.SENT, mine.getStatus());
+        assertNull(mine.getClaimToken());
+        assertEquals(AlertStatus.PENDING, theirs.getStatus());
+        verify(alertOutboxRepository).saveAll(List.of(mine));
+    }
+
+    @Test
+    void testSendsNothingWhenAnotherNodeClaimedTheBatch() {
+        when(alertOutboxRepository.findDueIds(any(), any(), any())).thenReturn(List.of(1L, 2L));
+        when(alertOutboxRepository.claim(any(), any(), any(), anyString(), any())).thenReturn(0);
+
+        assertEquals(0, alertDispatcher.dispatchPending());
+
+        verify(alertOutboxRepository, never()).findClaimed(any());
+        verify(mailSender, never()).send(any(MimeMessage[].class));
+    }
+
+    @Test
+    void testClaimsPendingAndLapsedRowsWithALease() {
+        when(alertOutboxRepository.findDueIds(any(), any(), any())).thenReturn(List.of(1L));
+
+        alertDispatcher.dispatchPending();
+
+        verify(alertOutboxRepository).findDueIds(eq(Set.of(AlertStatus.PENDING, AlertStatus.SENDING)), any(), any());
+        verify(alertOutboxRepository).claim(eq(List.of(1L)), eq(Set.of(AlertStatus.PENDING, AlertStatus.SENDING)),
+                any(), anyString(), argThat(lease -> lease.isAfter(LocalDateTime.now().plusSeconds(250))));
+    }
+
+    @Test
+    void testDisabledWithoutMailSender() {
+        ReflectionTestUtils.setField(alertDispatcher, "mailSender", null);
+
+        assertFalse(alertDispatcher.isEnabled());
+        assertEquals(0, alertDispatcher.dispatchPending());
+        verifyNoInteractions(alertOutboxRepository);
+
+        AlertDeliveryHealthIndicator health = new AlertDeliveryHealthIndicator();
+        ReflectionTestUtils.setField(health, "alertDispatcher", alertDispatcher);
+        assertEquals(Status.DOWN, health.health().getStatus());
+    }
+}
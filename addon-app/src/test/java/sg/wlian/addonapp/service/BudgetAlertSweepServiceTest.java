@@ -0,0 +1,147 @@
+package sg.wlian.addonapp.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import sg.wlian.addonapp.dto.BudgetStatusDTO;
+import sg.wlian.addonapp.dto.BudgetWindow;
+import sg.wlian.addonapp.dto.BudgetWindowSpend;
+import sg.wlian.addonapp.entity.Budget;
+import sg.wlian.addonapp.entity.Category;
+import sg.wlian.addonapp.entity.JobCheckpoint;
+import sg.wlian.addonapp.entity.JobStatus;
+import sg.wlian.addonapp.entity.TimePeriod;
+import sg.wlian.addonapp.entity.User;
+import sg.wlian.addonapp.repository.BudgetRepository;
+import sg.wlian.addonapp.repository.JobCheckpointRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BudgetAlertSweepServiceTest {
+
+    @Mock
+    private BudgetRepository budgetRepository;
+
+    @Mock
+    private BudgetService budgetService;
+
+    @Mock
+    private JobCheckpointRepository jobCheckpointRepository;
+
+    @Spy
+    private TaskExecutor sweepExecutor = new SyncTaskExecutor();
+
+    @InjectMocks
+    private BudgetAlertSweepService sweepService;
+
+    private static final BudgetWindow JUNE = new BudgetWindow(LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 30));
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(sweepService, "pageSize", 2);
+        ReflectionTestUtils.setField(sweepService, "partitionSize", 1);
+        when(jobCheckpointRepository.save(any(JobCheckpoint.class))).thenAnswer(inv -> inv.getArgument(0));
+        lenient().when(budgetService.toBudgetStatus(any(), any(), any())).thenCallRealMethod();
+    }
+
+    private Budget budget(Long id, Long userId, Long categoryId, String amount) {
+        User user = new User();
+        user.setId(userId);
+        Category category = new Category();
+        category.setId(categoryId);
+        TimePeriod period = new TimePeriod();
+        period.setStartDate(LocalDate.of(2024, 6, 1));
+        period.setEndDate(LocalDate.of(2024, 6, 30));
+        Budget budget = new Budget();
+        budget.setId(id);
+        budget.setUser(user);
+        budget.setCategory(category);
+        budget.setPeriod(period);
+        budget.setAmount(new BigDecimal(amount));
+        return budget;
+    }
+
+    @Test
+    void testSweepPagesUsersAndEvaluatesCurrentWindows() {
+        when(jobCheckpointRepository.findFirstByJobNameOrderByStartedAtDesc(BudgetAlertSweepService.JOB_NAME))
+                .thenReturn(Optional.empty());
+        when(budgetRepository.findUserIdsWithActiveBudgets(eq(0L), any())).thenReturn(Arrays.asList(1L, 2L));
+        when(budgetRepository.findUserIdsWithActiveBudgets(eq(2L), any())).thenReturn(List.of(3L));
+        when(budgetRepository.findUserIdsWithActiveBudgets(eq(3L), any())).thenReturn(Collections.emptyList());
+
+        Budget over = budget(10L, 1L, 5L, "100.00");
+        when(budgetRepository.findByUserIdInAndActiveTrue(List.of(1L))).thenReturn(List.of(over));
+        when(budgetService.getCurrentWindowSpend(eq(List.of(over)), any())).thenReturn(new BudgetWindowSpend(
+                Map.of(10L, JUNE), Map.of(10L, new BigDecimal("110.00")), 3));
+        when(budgetRepository.findByUserIdInAndActiveTrue(List.of(2L))).thenReturn(Collections.emptyList());
+        Budget under = budget(30L, 3L, 5L, "100.00");
+        when(budgetRepository.findByUserIdInAndActiveTrue(List.of(3L))).thenReturn(List.of(under));
+        when(budgetService.getCurrentWindowSpend(eq(List.of(under)), any())).thenReturn(new BudgetWindowSpend(
+                Map.of(30L, JUNE), Map.of(30L, new BigDecimal("10.00")), 1));
+        when(budgetService.raiseBudgetAlert(any())).thenAnswer(inv -> ((BudgetStatusDTO) inv.getArgument(0)).isOverBudget());
+
+        JobCheckpoint run = sweepService.runSweep();
+
+        assertEquals(JobStatus.COMPLETED, run.getStatus());
+        assertEquals(3, run.getItemsProcessed());
+        assertEquals(4, run.getRowsScanned());
+        assertEquals(1, run.getAlertsRaised());
+        assertEquals(3L, run.getLastKey());
+        assertNotNull(run.getFinishedAt());
+        verify(budgetService).raiseBudgetAlert(argThat(s -> s.getBudget() == over
+                && s.getTotalExpenses().compareTo(new BigDecimal("110.00")) == 0));
+    }
+
+    @Test
+    void testIncompleteRunResumesAfterLastUser() {
+        JobCheckpoint failed = new JobCheckpoint();
+        failed.setJobName(BudgetAlertSweepService.JOB_NAME);
+        failed.setStartedAt(LocalDateTime.now().minusHours(1));
+        failed.setStatus(JobStatus.FAILED);
+        failed.setLastKey(42L);
+        failed.setItemsProcessed(42L);
+        when(jobCheckpointRepository.findFirstByJobNameOrderByStartedAtDesc(BudgetAlertSweepService.JOB_NAME))
+                .thenReturn(Optional.of(failed));
+        when(budgetRepository.findUserIdsWithActiveBudgets(eq(42L), any())).thenReturn(Collections.emptyList());
+
+        JobCheckpoint run = sweepService.runSweep();
+
+        assertSame(failed, run);
+        assertEquals(JobStatus.COMPLETED, run.getStatus());
+        assertEquals(42L, run.getItemsProcessed());
+        verify(budgetRepository, never()).findUserIdsWithActiveBudgets(eq(0L), any());
+    }
+
+    @Test
+    void testFailureIsRecordedOnCheckpoint() {
+        when(jobCheckpointRepository.findFirstByJobNameOrderByStartedAtDesc(BudgetAlertSweepService.JOB_NAME))
+                .thenReturn(Optional.empty());
+        when(budgetRepository.findUserIdsWithActiveBudgets(eq(0L), any())).thenReturn(List.of(1L));
+        when(budgetRepository.findByUserIdInAndActiveTrue(any())).thenThrow(new RuntimeException("db down"));
+
+        JobCheckpoint run = sweepService.runSweep();
+
+        assertEquals(JobStatus.FAILED, run.getStatus());
+        assertEquals("db down", run.getError());
+        assertEquals(0L, run.getLastKey());
+    }
+}
@@ -0,0 +1,87 @@
+package sg.wlian.addonapp.service;
+
+import org.junit.jupiter.api.Test;
+import sg.wlian.addonapp.dto.BudgetWindow;
+import sg.wlian.addonapp.entity.Budget;
+import sg.wlian.addonapp.entity.BudgetType;
+import sg.wlian.addonapp.entity.TimePeriod;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BudgetPeriodResolverTest {
+
+    private final BudgetPeriodResolver resolver = new BudgetPeriodResolver();
+
+    private Budget budget(BudgetType type, LocalDate start, LocalDate end) {
+        TimePeriod period = new TimePeriod();
+        period.setStartDate(start);
+        period.setEndDate(end);
+        Budget budget = new Budget();
+        budget.setBudgetType(type);
+        budget.setPeriod(period);
+        return budget;
+    }
+
+    private BudgetWindow window(String start, String end) {
+        return new BudgetWindow(LocalDate.parse(start), LocalDate.parse(end));
+    }
+
+    @Test
+    void testMonthlyBudgetRollsOverFromAnchor() {
+        Budget budget = budget(BudgetType.MONTHLY, LocalDate.parse("2024-01-15"), LocalDate.parse("2024-02-14"));
+
+        assertEquals(window("2024-01-15", "2024-02-14"), resolver.windowFor(budget, LocalDate.parse("2024-01-15")));
+        assertEquals(window("2024-05-15", "2024-06-14"), resolver.windowFor(budget, LocalDate.parse("2024-06-14")));
+        assertEquals(window("2024-06-15", "2024-07-14"), resolver.windowFor(budget, LocalDate.parse("2024-06-15")));
+    }
+
+    @Test
+    void testMonthEndAnchorDoesNotDrift() {
+        Budget budget = budget(BudgetType.MONTHLY, LocalDate.parse("2024-01-31"), null);
+
+        assertEquals(window("2024-02-29", "2024-03-30"), resolver.windowFor(budget, LocalDate.parse("2024-03-01")));
+        assertEquals(window("2024-03-31", "2024-04-29"), resolver.windowFor(budget, LocalDate.parse("2024-03-31")));
+    }
+
+    @Test
+    void testWeeklyAndDailyWindows() {
+        Budget weekly = budget(BudgetType.WEEKLY, LocalDate.parse("2024-06-03"), null);
+        Budget daily = budget(BudgetType.DAILY, LocalDate.parse("2024-06-03"), null);
+
+        assertEquals(window("2024-06-17", "2024-06-23"), resolver.windowFor(weekly, LocalDate.parse("2024-06-20")));
+        assertEquals(window("2024-06-20", "2024-06-20"), resolver.windowFor(daily, LocalDate.parse("2024-06-20")));
+    }
+
+    @Test
+    void testQuarterlyAndYearlyWindows() {
+        Budget quarterly = budget(BudgetType.QUARTERLY, LocalDate.parse("2024-01-01"), null);
+        Budget yearly = budget(BudgetType.YEARLY, LocalDate.parse("2023-04-01"), null);
+
+        assertEquals(window("2024-07-01", "2024-09-30"), resolver.windowFor(quarterly, LocalDate.parse("2024-08-10")));
+        assertEquals(window("2024-04-01", "2025-03-31"), resolver.windowFor(yearly, LocalDate.parse("2024-08-10")));
+    }
+
+    @Test
+    void testLastWindowsOldestFirst() {
+        Budget budget = budget(BudgetType.MONTHLY, LocalDate.parse("2024-01-01"), null);
+
+        List<BudgetWindow> windows = resolver.lastWindows(budget, LocalDate.parse("2024-06-10"), 3);
+
+        assertEquals(List.of(
+                window("2024-04-01", "2024-04-30"),
+                window("2024-05-01", "2024-05-31"),
+                window("2024-06-01", "2024-06-30")), windows);
+    }
+
+    @Test
+    void testCustomBudgetKeepsFixedPeriod() {
+        Budget budget = budget(BudgetType.CUSTOM, LocalDate.parse("2024-01-01"), LocalDate.parse("2024-03-31"));
+
+        assertFalse(resolver.isRecurring(budget));
+        assertEquals(window("2024-01-01", "2024-03-31"), resolver.windowFor(budget, LocalDate.parse("2024-08-01")));
+        assertEquals(1, resolver.lastWindows(budget, LocalDate.parse("2024-08-01"), 6).size());
+    }
+}
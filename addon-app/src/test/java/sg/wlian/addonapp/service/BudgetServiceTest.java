@@ -7,10 +7,15 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import sg.wlian.addonapp.cache.SpendCounterStore;
 import sg.wlian.addonapp.dto.BudgetStatusDTO;
+import sg.wlian.addonapp.dto.BudgetWindowStatusDTO;
 import sg.wlian.addonapp.entity.*;
 import sg.wlian.addonapp.repository.BudgetRepository;
+import sg.wlian.addonapp.repository.ExpenseRepository;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -35,6 +40,21 @@ class BudgetServiceTest {
     @Mock
     private ExpenseService expenseService;
 
+    @Mock
+    private AlertOutboxService alertOutboxService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ExpenseRepository expenseRepository;
+
+    @Spy
+    private BudgetPeriodResolver budgetPeriodResolver = new BudgetPeriodResolver();
+
+    @Mock
+    private SpendCounterStore spendCounterStore;
+
     @InjectMocks
     private BudgetService budgetService;
 
@@ -368,6 +388,69 @@ class BudgetServiceTest {
             assertNotNull(status.getRemainingAmount());
             assertNotNull(status.getPercentageUsed());
         }
+
+        @Test
+        @DisplayName("Should compute monthly budget status for the current window")
+        void testGetBudgetStatus_RollsOverToCurrentWindow() {
+            Budget rolling = new Budget();
+            rolling.setAmount(new BigDecimal("100.00"));
+            rolling.setBudgetType(BudgetType.MONTHLY);
+            TimePeriod period = new TimePeriod();
+            period.setStartDate(LocalDate.now().withDayOfMonth(1).minusMonths(5));
+            period.setEndDate(LocalDate.now().withDayOfMonth(1).minusMonths(4).minusDays(1));
+            rolling.setPeriod(period);
+            rolling.setUser(testUser);
+            rolling.setCategory(testCategory);
+            LocalDate windowStart = LocalDate.now().withDayOfMonth(1);
+            LocalDate windowEnd = windowStart.plusMonths(1).minusDays(1);
+            // Calendar-month windows are read from the in-memory counters, not the database
+            when(spendCounterStore.getSpent(1L, 1L, YearMonth.from(windowStart))).thenReturn(new BigDecimal("90.00"));
+
+            BudgetStatusDTO status = budgetService.getBudgetStatus(rolling);
+
+            assertEquals(windowStart, status.getPeriodStart());
+            assertEquals(windowEnd, status.getPeriodEnd());
+            assertEquals(new BigDecimal("90.00"), status.getTotalExpenses());
+            verifyNoInteractions(expenseRepository);
+        }
+
+        @Test
+        @DisplayName("Should build history for the last N windows from one grouped query")
+        void testGetBudgetHistory() {
+            Budget rolling = new Budget();
+            rolling.setId(9L);
+            rolling.setAmount(new BigDecimal("100.00"));
+            rolling.setBudgetType(BudgetType.MONTHLY);
+            TimePeriod period = new TimePeriod();
+            period.setStartDate(LocalDate.now().withDayOfMonth(1).minusMonths(12));
+            period.setEndDate(LocalDate.now().withDayOfMonth(1).minusMonths(11).minusDays(1));
+            rolling.setPeriod(period);
+            rolling.setUser(testUser);
+            rolling.setCategory(testCategory);
+            LocalDate thisMonth = LocalDate.now().withDayOfMonth(1);
+            when(budgetRepository.findById(9L)).thenReturn(Optional.of(rolling));
+            when(expenseRepository.sumDailyByUserAndCategory(eq(1L), eq(1L), eq(thisMonth.minusMonths(2)), any()))
+                    .thenReturn(Arrays.asList(
+                            new Object[]{thisMonth.minusMonths(2).plusDays(3), new BigDecimal("30.00")},
+                            new Object[]{thisMonth, new BigDecimal("70.00")},
+                            new Object[]{thisMonth.plusDays(1), new BigDecimal("50.00")}));
+
+            List<BudgetWindowStatusDTO> history = budgetService.getBudgetHistory(9L, 3);
+
+            assertEquals(3, history.size());
+            assertEquals(thisMonth.minusMonths(2), history.get(0).getStartDate());
+            assertEquals(new BigDecimal("30.00"), history.get(0).getTotalExpenses());
+            assertEquals(BigDecimal.ZERO, history.get(1).getTotalExpenses());
+            assertEquals(new BigDecimal("120.00"), history.get(2).getTotalExpenses());
+            assertTrue(history.get(2).isOverBudget());
+            verify(expenseRepository, times(1)).sumDailyByUserAndCategory(any(), any(), any(), any());
+        }
+
+        @Test
+        @DisplayName("Should reject out-of-range history window counts")
+        void testGetBudgetHistory_InvalidWindows() {
+            assertThrows(IllegalArgumentException.class, () -> budgetService.getBudgetHistory(9L, 0));
+        }
     }
 
     @Nested
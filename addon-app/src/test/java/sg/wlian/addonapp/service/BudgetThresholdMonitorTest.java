@@ -0,0 +1,229 @@
+package sg.wlian.addonapp.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import sg.wlian.addonapp.dto.BudgetStatusDTO;
+import sg.wlian.addonapp.dto.BudgetWindow;
+import sg.wlian.addonapp.dto.BudgetWindowSpend;
+import sg.wlian.addonapp.entity.AlertType;
+import sg.wlian.addonapp.entity.Budget;
+import sg.wlian.addonapp.entity.Category;
+import sg.wlian.addonapp.entity.TimePeriod;
+import sg.wlian.addonapp.entity.User;
+import sg.wlian.addonapp.event.BudgetChangedEvent;
+import sg.wlian.addonapp.event.ExpenseChange;
+import sg.wlian.addonapp.event.ExpenseSnapshot;
+import sg.wlian.addonapp.event.ExpensesChangedEvent;
+import sg.wlian.addonapp.repository.BudgetRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BudgetThresholdMonitorTest {
+
+    @Mock
+    private BudgetRepository budgetRepository;
+
+    @Mock
+    private BudgetService budgetService;
+
+    @Spy
+    private TaskExecutor alertExecutor = new SyncTaskExecutor();
+
+    @InjectMocks
+    private BudgetThresholdMonitor monitor;
+
+    private Budget food;
+    private BudgetWindow window;
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setId(1L);
+        Category category = new Category();
+        category.setId(5L);
+        window = new BudgetWindow(TODAY.withDayOfMonth(1), TODAY.withDayOfMonth(TODAY.lengthOfMonth()));
+        TimePeriod period = new TimePeriod();
+        period.setStartDate(window.getStartDate());
+        period.setEndDate(window.getEndDate());
+
+        food = new Budget();
+        food.setId(100L);
+        food.setUser(user);
+        food.setCategory(category);
+        food.setPeriod(period);
+        food.setAmount(new BigDecimal("100.00"));
+    }
+
+    // The monitor runs after commit, so the spend loaded from the database includes the change being handled
+    private void givenSpend(String spent) {
+        when(budgetRepository.findByUserIdInAndActiveTrue(any())).thenReturn(List.of(food));
+        when(budgetService.getCurrentWindowSpend(any(), any())).thenReturn(new BudgetWindowSpend(
+                Map.of(100L, window), Map.of(100L, new BigDecimal(spent)), 0));
+    }
+
+    private ExpenseSnapshot snapshot(Long categoryId, LocalDate date, String amount) {
+        return new ExpenseSnapshot(1L, 1L, categoryId, null, date, new BigDecimal(amount), "x", null);
+    }
+
+    private ExpensesChangedEvent created(String amount) {
+        return new ExpensesChangedEvent(List.of(ExpenseChange.created(snapshot(5L, TODAY, amount))));
+    }
+
+    @Test
+    void testCrossingEightyPercentQueuesAlertOnce() {
+        givenSpend("75.00");
+        BudgetStatusDTO status = new BudgetStatusDTO();
+        when(budgetRepository.findById(100L)).thenReturn(Optional.of(food));
+        when(budgetService.getBudgetStatus(food)).thenReturn(status);
+
+        monitor.onExpensesChanged(created("5.00"));
+        verify(budgetService, never()).queueBudgetAlert(any(), any());
+
+        monitor.onExpensesChanged(created("6.00"));
+        monitor.onExpensesChanged(created("1.00"));
+
+        assertEquals(8200, monitor.spentCents(1L, 100L));
+        verify(budgetService, times(1)).queueBudgetAlert(status, AlertType.BUDGET_APPROACHING_LIMIT);
+        // Counters were loaded once for the user
+        verify(budgetService, times(1)).getCurrentWindowSpend(any(), any());
+    }
+
+    @Test
+    void testGoingOverBudgetQueuesOverLimitAlert() {
+        givenSpend("110.00");
+        when(budgetRepository.findById(100L)).thenReturn(Optional.of(food));
+
+        monitor.onExpensesChanged(created("20.00"));
+
+        assertEquals(11000, monitor.spentCents(1L, 100L));
+        verify(budgetService).queueBudgetAlert(any(), eq(AlertType.BUDGET_OVER_LIMIT));
+    }
+
+    @Test
+    void testChangeThatLoadsCountersIsCountedOnceAndReported() {
+        givenSpend("85.00");
+        when(budgetRepository.findById(100L)).thenReturn(Optional.of(food));
+
+        monitor.onExpensesChanged(created("10.00"));
+
+        assertEquals(8500, monitor.spentCents(1L, 100L));
+        verify(budgetService, times(1)).queueBudgetAlert(any(), eq(AlertType.BUDGET_APPROACHING_LIMIT));
+    }
+
+    @Test
+    void testSpendAlreadyOverThresholdBeforeChangeIsNotReported() {
+        givenSpend("90.00");
+
+        monitor.onExpensesChanged(created("2.00"));
+
+        assertEquals(9000, monitor.spentCents(1L, 100L));
+        verify(budgetService, never()).queueBudgetAlert(any(), any());
+    }
+
+    @Test
+    void testUpdateMovingExpenseOutOfCategoryReducesSpend() {
+        givenSpend("30.00");
+        ExpenseSnapshot before = snapshot(5L, TODAY, "20.00");
+        ExpenseSnapshot after = snapshot(6L, TODAY, "20.00");
+
+        monitor.onExpensesChanged(new ExpensesChangedEvent(List.of(ExpenseChange.updated(before, after))));
+
+        assertEquals(3000, monitor.spentCents(1L, 100L));
+    }
+
+    @Test
+    void testExpenseOutsidePeriodIsIgnored() {
+        givenSpend("50.00");
+
+        monitor.onExpensesChanged(new ExpensesChangedEvent(List.of(
+                ExpenseChange.created(snapshot(5L, window.getEndDate().plusDays(1), "80.00")))));
+
+        assertEquals(5000, monitor.spentCents(1L, 100L));
+        verify(budgetService, never()).queueBudgetAlert(any(), any());
+    }
+
+    @Test
+    void testBudgetChangeReloadsCounters() {
+        givenSpend("11.00");
+        monitor.onExpensesChanged(created("1.00"));
+        assertEquals(1100, monitor.spentCents(1L, 100L));
+
+        monitor.onBudgetChanged(new BudgetChangedEvent(1L));
+        assertEquals(-1, monitor.spentCents(1L, 100L));
+
+        givenSpend("12.00");
+        monitor.onExpensesChanged(created("1.00"));
+        assertEquals(1200, monitor.spentCents(1L, 100L));
+        verify(budgetService, times(2)).getCurrentWindowSpend(any(), any());
+    }
+
+    @Test
+    void testCountersAreLoadedOnAlertExecutorNotByTheWrite() {
+        List<Runnable> queued = new ArrayList<>();
+        ReflectionTestUtils.setField(monitor, "alertExecutor", (TaskExecutor) queued::add);
+        givenSpend("50.00");
+
+        monitor.onExpensesChanged(created("5.00"));
+        monitor.onExpensesChanged(created("5.00"));
+
+        verify(budgetService, never()).getCurrentWindowSpend(any(), any());
+        assertEquals(-1, monitor.spentCents(1L, 100L));
+        assertEquals(1, queued.size());
+
+        queued.remove(0).run();
+        // Both changes had committed before the load, so they are already in the loaded spend
+        assertEquals(5000, monitor.spentCents(1L, 100L));
+        verify(budgetService, times(1)).getCurrentWindowSpend(any(), any());
+    }
+
+    @Test
+    void testFailedLoadDoesNotFailTheWriteAndIsRetried() {
+        when(budgetRepository.findByUserIdInAndActiveTrue(any())).thenReturn(List.of(food));
+        when(budgetService.getCurrentWindowSpend(any(), any())).thenThrow(new RuntimeException("timeout"));
+
+        assertDoesNotThrow(() -> monitor.onExpensesChanged(created("5.00")));
+        assertEquals(-1, monitor.spentCents(1L, 100L));
+
+        doReturn(new BudgetWindowSpend(Map.of(100L, window), Map.of(100L, new BigDecimal("6.00")), 0))
+                .when(budgetService).getCurrentWindowSpend(any(), any());
+        monitor.onExpensesChanged(created("1.00"));
+
+        assertEquals(600, monitor.spentCents(1L, 100L));
+    }
+
+    @Test
+    void testChangeArrivingDuringLoadRepeatsTheLoad() {
+        when(budgetRepository.findByUserIdInAndActiveTrue(any())).thenReturn(List.of(food));
+        when(budgetService.getCurrentWindowSpend(any(), any()))
+                .thenAnswer(invocation -> {
+                    // Commits while the query runs, so it may or may not be in the result
+                    monitor.onExpensesChanged(created("1.00"));
+                    return new BudgetWindowSpend(Map.of(100L, window), Map.of(100L, new BigDecimal("50.00")), 0);
+                })
+                .thenReturn(new BudgetWindowSpend(Map.of(100L, window), Map.of(100L, new BigDecimal("51.00")), 0));
+
+        monitor.onExpensesChanged(created("50.00"));
+
+        assertEquals(5100, monitor.spentCents(1L, 100L));
+        verify(budgetService, times(2)).getCurrentWindowSpend(any(), any());
+    }
+}
@@ -8,9 +8,11 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import sg.wlian.addonapp.dto.CategoryTreeDTO;
 import sg.wlian.addonapp.entity.Category;
 import sg.wlian.addonapp.entity.User;
+import sg.wlian.addonapp.event.CategoryChangedEvent;
 import sg.wlian.addonapp.repository.CategoryRepository;
 
 import java.util.Arrays;
@@ -29,6 +31,9 @@ class CategoryServiceTest {
     @Mock
     private CategoryRepository categoryRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private CategoryService categoryService;
 
@@ -98,6 +103,17 @@ class CategoryServiceTest {
             verify(categoryRepository, times(1)).save(childCategory1);
         }
 
+        @Test
+        @DisplayName("Should publish a change event for the category owner")
+        void testCreateCategory_PublishesChange() {
+            when(categoryRepository.save(any(Category.class))).thenReturn(parentCategory);
+
+            categoryService.createCategory(parentCategory);
+
+            verify(eventPublisher).publishEvent(argThat((CategoryChangedEvent event) ->
+                    event.getUserId().equals(1L)));
+        }
+
         @Test
         @DisplayName("Should handle null category creation")
         void testCreateCategory_NullInput() {
@@ -0,0 +1,195 @@
+package sg.wlian.addonapp.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import sg.wlian.addonapp.entity.ExpenseAmountStats;
+import sg.wlian.addonapp.entity.JobCheckpoint;
+import sg.wlian.addonapp.entity.JobStatus;
+import sg.wlian.addonapp.event.ExpenseAnomalyEvent;
+import sg.wlian.addonapp.event.ExpenseChange;
+import sg.wlian.addonapp.event.ExpenseSnapshot;
+import sg.wlian.addonapp.repository.ExpenseAmountStatsRepository;
+import sg.wlian.addonapp.repository.ExpenseRepository;
+import sg.wlian.addonapp.repository.JobCheckpointRepository;
+import sg.wlian.addonapp.repository.UserRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExpenseAnomalyDetectorTest {
+
+    @Mock
+    private ExpenseAmountStatsRepository statsRepository;
+
+    @Mock
+    private ExpenseRepository expenseRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private JobCheckpointRepository jobCheckpointRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private ExpenseAnomalyDetector detector;
+
+    private ExpenseSnapshot expense(Long id, String amount) {
+        return new ExpenseSnapshot(id, 1L, 5L, null, LocalDate.of(2024, 6, 1), new BigDecimal(amount), "Groceries", null);
+    }
+
+    private ExpenseAmountStats statsOf(String... amounts) {
+        ExpenseAmountStats stats = new ExpenseAmountStats(1L, 5L);
+        for (String amount : amounts) {
+            stats.add(Math.log(new BigDecimal(amount).doubleValue()));
+        }
+        return stats;
+    }
+
+    private ExpenseAmountStats givenStats(String... amounts) {
+        ExpenseAmountStats stats = statsOf(amounts);
+        when(statsRepository.findForUpdate(eq(1L), anyCollection())).thenReturn(List.of(stats));
+        return stats;
+    }
+
+    private String[] usualAmounts() {
+        List<String> amounts = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            amounts.add(i % 2 == 0 ? "40.00" : "60.00");
+        }
+        return amounts.toArray(new String[0]);
+    }
+
+    @Test
+    void testFlagsAmountFarAboveUsual() {
+        ExpenseAmountStats stats = givenStats(usualAmounts());
+
+        List<ExpenseAnomalyEvent> anomalies = detector.apply(List.of(ExpenseChange.created(expense(9L, "900.00"))));
+
+        assertEquals(1, anomalies.size());
+        assertEquals(9L, anomalies.get(0).getExpenseId());
+        assertTrue(anomalies.get(0).getScore() >= 3.0);
+        assertEquals(new BigDecimal("48.99"), anomalies.get(0).getTypicalAmount());
+        // Scored against the earlier expenses, then added
+        assertEquals(11, stats.getCount());
+    }
+
+    @Test
+    void testUsualAmountIsNotFlagged() {
+        givenStats(usualAmounts());
+
+        assertTrue(detector.apply(List.of(ExpenseChange.created(expense(9L, "75.00")))).isEmpty());
+    }
+
+    @Test
+    void testNotScoredUntilEnoughSamples() {
+        givenStats("40.00", "60.00", "50.00");
+
+        assertTrue(detector.apply(List.of(ExpenseChange.created(expense(9L, "900.00")))).isEmpty());
+    }
+
+    @Test
+    void testUpdatesAndDeletesAreTakenBackOut() {
+        ExpenseAmountStats stats = givenStats("40.00", "60.00", "50.00");
+        ExpenseAmountStats expected = statsOf("40.00", "55.00");
+
+        detector.apply(List.of(
+                ExpenseChange.updated(expense(2L, "60.00"), expense(2L, "55.00")),
+                ExpenseChange.deleted(expense(3L, "50.00"))));
+
+        assertEquals(expected.getCount(), stats.getCount());
+        assertEquals(expected.getMean(), stats.getMean(), 1e-9);
+        assertEquals(expected.getM2(), stats.getM2(), 1e-9);
+    }
+
+    @Test
+    void testMissingStatsRowIsCreated() {
+        ExpenseAmountStats created = new ExpenseAmountStats(1L, 5L);
+        when(statsRepository.findForUpdate(eq(1L), anyCollection()))
+                .thenReturn(Collections.emptyList())
+                .thenReturn(List.of(created));
+
+        detector.apply(List.of(ExpenseChange.created(expense(9L, "12.00"))));
+
+        verify(statsRepository).saveAndFlush(any(ExpenseAmountStats.class));
+        assertEquals(1, created.getCount());
+    }
+
+    @Test
+    void testUncategorizedAndRefundsAreIgnored() {
+        ExpenseSnapshot uncategorized = new ExpenseSnapshot(9L, 1L, null, null, LocalDate.of(2024, 6, 1),
+                new BigDecimal("900.00"), "Misc", null);
+
+        detector.apply(List.of(ExpenseChange.created(uncategorized), ExpenseChange.created(expense(10L, "-20.00"))));
+
+        verifyNoInteractions(statsRepository);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testBackfillCountsExistingExpensesPerCategory() {
+        ReflectionTestUtils.setField(detector, "backfillPageSize", 2);
+        when(jobCheckpointRepository.findFirstByJobNameOrderByStartedAtDesc(ExpenseAnomalyDetector.BACKFILL_JOB_NAME))
+                .thenReturn(Optional.empty());
+        when(jobCheckpointRepository.save(any(JobCheckpoint.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(userRepository.findIdsAfter(eq(0L), any())).thenReturn(List.of(1L, 2L));
+        when(userRepository.findIdsAfter(eq(2L), any())).thenReturn(Collections.emptyList());
+        LocalDate day = LocalDate.of(2024, 6, 1);
+        when(expenseRepository.findAmountsForUsers(List.of(1L, 2L))).thenReturn(List.of(
+                new Object[]{1L, 5L, day, new BigDecimal("40.00")},
+                new Object[]{1L, 5L, day, new BigDecimal("60.00")},
+                // Neither uncategorized nor refunds are counted
+                new Object[]{1L, null, day, new BigDecimal("7.00")},
+                new Object[]{2L, 6L, day, new BigDecimal("-5.00")}));
+        List<ExpenseAmountStats> saved = new ArrayList<>();
+        when(statsRepository.saveAll(anyCollection())).thenAnswer(inv -> {
+            saved.addAll((Collection<ExpenseAmountStats>) inv.getArgument(0));
+            return saved;
+        });
+
+        JobCheckpoint run = detector.backfill();
+
+        assertEquals(JobStatus.COMPLETED, run.getStatus());
+        assertEquals(2, run.getItemsProcessed());
+        assertEquals(4, run.getRowsScanned());
+        verify(statsRepository).deleteByUserIdIn(List.of(1L, 2L));
+        // The users stay locked against writes from before the expenses are read until the page commits
+        InOrder order = inOrder(userRepository, expenseRepository);
+        order.verify(userRepository).findForUpdate(List.of(1L, 2L));
+        order.verify(expenseRepository).findAmountsForUsers(List.of(1L, 2L));
+        assertEquals(1, saved.size());
+        ExpenseAmountStats food = saved.get(0);
+        assertEquals(5L, food.getCategoryId());
+        assertEquals(2, food.getCount());
+        assertEquals(statsOf("40.00", "60.00").getMean(), food.getMean(), 1e-9);
+    }
+
+    @Test
+    void testBackfillRunsOnlyUntilCompleted() {
+        JobCheckpoint done = new JobCheckpoint();
+        done.setStatus(JobStatus.COMPLETED);
+        when(jobCheckpointRepository.findFirstByJobNameOrderByStartedAtDesc(ExpenseAnomalyDetector.BACKFILL_JOB_NAME))
+                .thenReturn(Optional.of(done));
+
+        assertNull(detector.backfillIfIncomplete());
+        verifyNoInteractions(userRepository, expenseRepository);
+    }
+}
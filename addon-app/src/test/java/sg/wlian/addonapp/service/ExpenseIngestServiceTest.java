@@ -0,0 +1,210 @@
+package sg.wlian.addonapp.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import sg.wlian.addonapp.dto.ExpenseBatchOperation;
+import sg.wlian.addonapp.dto.ExpenseBatchResponse;
+import sg.wlian.addonapp.dto.ExpenseIngestReceiptDTO;
+import sg.wlian.addonapp.entity.Expense;
+import sg.wlian.addonapp.entity.IngestCheckpoint;
+import sg.wlian.addonapp.entity.User;
+import sg.wlian.addonapp.ingest.IngestLog;
+import sg.wlian.addonapp.ingest.IngestRecord;
+import sg.wlian.addonapp.repository.IngestCheckpointRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExpenseIngestServiceTest {
+
+    @Mock
+    private ExpenseService expenseService;
+
+    @Mock
+    private IngestCheckpointRepository checkpointRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private ExpenseIngestService ingestService;
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(ingestService, "enabled", true);
+        ReflectionTestUtils.setField(ingestService, "logDir", dir.toString());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        ingestService.close();
+    }
+
+    private static Expense expense(Long userId, String amount) {
+        User user = new User();
+        user.setId(userId);
+        Expense expense = new Expense();
+        expense.setUser(user);
+        expense.setDescription("Card payment");
+        expense.setAmount(new BigDecimal(amount));
+        expense.setDate(LocalDate.of(2024, 6, 1));
+        return expense;
+    }
+
+    private void givenNoCheckpoint() {
+        when(checkpointRepository.findById(anyString())).thenReturn(Optional.empty());
+        when(checkpointRepository.save(any(IngestCheckpoint.class))).thenAnswer(inv -> inv.getArgument(0));
+    }
+
+    private List<IngestRecord> nextBatch() throws InterruptedException {
+        List<IngestRecord> batch = new ArrayList<>();
+        ingestService.nextBatch(batch);
+        return batch;
+    }
+
+    @Test
+    void testIngestedExpensesAreInsertedInOneBatchWithCheckpoint() throws Exception {
+        givenNoCheckpoint();
+        when(expenseService.processBatch(anyList()))
+                .thenReturn(new ExpenseBatchResponse(2, 0, Collections.emptyList()));
+        ingestService.open();
+
+        ExpenseIngestReceiptDTO receipt = ingestService.ingest(List.of(expense(1L, "4.20"), expense(1L, "8.00")));
+        assertEquals(1, receipt.getFirstSequence());
+        assertEquals(2, receipt.getLastSequence());
+
+        ingestService.apply(nextBatch());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ExpenseBatchOperation>> operations = ArgumentCaptor.forClass(List.class);
+        verify(expenseService).processBatch(operations.capture());
+        assertEquals(2, operations.getValue().size());
+        assertEquals(ExpenseBatchOperation.Type.CREATE, operations.getValue().get(0).getType());
+        assertEquals(1L, operations.getValue().get(1).getExpense().getUser().getId());
+        ArgumentCaptor<IngestCheckpoint> checkpoint = ArgumentCaptor.forClass(IngestCheckpoint.class);
+        verify(checkpointRepository, times(2)).save(checkpoint.capture());
+        assertEquals(2, checkpoint.getValue().getAppliedSequence());
+        assertEquals(2, ingestService.getAppliedSequence());
+        assertEquals(0, ingestService.getPendingCount());
+    }
+
+    @Test
+    void testRecordsPastCheckpointAreReplayed() throws Exception {
+        try (IngestLog log = IngestLog.open(dir, 1 << 20)) {
+            for (long seq = 1; seq <= 3; seq++) {
+                log.append(IngestRecord.of(seq, expense(1L, "1.00")));
+            }
+        }
+        Files.writeString(dir.resolve(ExpenseIngestService.LOG_ID_FILE), "log-a");
+        IngestCheckpoint applied = new IngestCheckpoint("log-a");
+        applied.setAppliedSequence(1);
+        when(checkpointRepository.findById("log-a")).thenReturn(Optional.of(applied));
+
+        ingestService.open();
+
+        assertEquals(2, ingestService.getPendingCount());
+        assertEquals(2, nextBatch().get(0).getSequence());
+        assertEquals(4, ingestService.ingest(List.of(expense(1L, "1.00"))).getFirstSequence());
+    }
+
+    @Test
+    void testFailingRowIsSkippedAndTheRestInserted() throws Exception {
+        givenNoCheckpoint();
+        when(expenseService.processBatch(anyList())).thenAnswer(inv -> {
+            List<ExpenseBatchOperation> ops = inv.getArgument(0);
+            if (ops.stream().anyMatch(op -> op.getExpense().getUser().getId() == 2L)) {
+                throw new DataIntegrityViolationException("no such user");
+            }
+            return new ExpenseBatchResponse(ops.size(), 0, Collections.emptyList());
+        });
+        ingestService.open();
+        ingestService.ingest(List.of(expense(1L, "1.00"), expense(2L, "2.00"), expense(1L, "3.00")));
+
+        ingestService.apply(nextBatch());
+
+        // The whole batch, then each row on its own
+        verify(expenseService, times(4)).processBatch(anyList());
+        assertEquals(3, ingestService.getAppliedSequence());
+    }
+
+    @Test
+    void testReadWaitsForPendingWritesOfTheUserOnly() throws Exception {
+        givenNoCheckpoint();
+        ReflectionTestUtils.setField(ingestService, "readWaitMs", 50L);
+        ingestService.open();
+        ingestService.ingest(List.of(expense(1L, "1.00")));
+
+        long started = System.nanoTime();
+        ingestService.awaitApplied(2L);
+        assertTrue(System.nanoTime() - started < 40_000_000L);
+
+        ingestService.awaitApplied(1L);
+        assertTrue(System.nanoTime() - started >= 50_000_000L);
+    }
+
+    @Test
+    void testRecurringExpensesAreRejected() throws Exception {
+        givenNoCheckpoint();
+        ingestService.open();
+        Expense recurring = expense(1L, "1.00");
+        recurring.setRecurring(true);
+
+        assertThrows(IllegalArgumentException.class, () -> ingestService.ingest(List.of(recurring)));
+        assertEquals(0, ingestService.getPendingCount());
+    }
+
+    @Test
+    void testDisabledIngestionIsRejected() throws Exception {
+        ReflectionTestUtils.setField(ingestService, "enabled", false);
+        ingestService.open();
+
+        assertThrows(IllegalStateException.class, () -> ingestService.ingest(List.of(expense(1L, "1.00"))));
+        verifyNoInteractions(checkpointRepository);
+    }
+
+    @Test
+    void testFailedAppendLeavesNothingToApply() throws Exception {
+        givenNoCheckpoint();
+        ingestService.open();
+        IngestLog log = (IngestLog) ReflectionTestUtils.getField(ingestService, "log");
+        IngestLog failing = mock(IngestLog.class);
+        doThrow(new IOException("No space left on device")).when(failing).appendAll(anyList());
+        ReflectionTestUtils.setField(ingestService, "log", failing);
+
+        assertThrows(UncheckedIOException.class,
+                () -> ingestService.ingest(List.of(expense(1L, "1.00"), expense(1L, "2.00"))));
+        assertEquals(0, ingestService.getPendingCount());
+
+        // The retry gets the sequences the failed request would have had
+        ReflectionTestUtils.setField(ingestService, "log", log);
+        ExpenseIngestReceiptDTO receipt = ingestService.ingest(List.of(expense(1L, "1.00"), expense(1L, "2.00")));
+        assertEquals(1, receipt.getFirstSequence());
+        assertEquals(2, ingestService.getPendingCount());
+    }
+}
@@ -0,0 +1,194 @@
+package sg.wlian.addonapp.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+import sg.wlian.addonapp.dto.ExpenseFacet;
+import sg.wlian.addonapp.dto.ExpenseQueryRequest;
+import sg.wlian.addonapp.dto.ExpenseQueryResultDTO;
+import sg.wlian.addonapp.dto.ExpenseSortField;
+import sg.wlian.addonapp.dto.ExpenseSortOrder;
+import sg.wlian.addonapp.dto.FacetCountDTO;
+import sg.wlian.addonapp.entity.Category;
+import sg.wlian.addonapp.entity.PaymentMethod;
+import sg.wlian.addonapp.repository.CategoryRepository;
+import sg.wlian.addonapp.repository.ExpenseRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExpenseQueryServiceTest {
+
+    @Mock
+    private ExpenseRepository expenseRepository;
+
+    @Mock
+    private CategoryRepository categoryRepository;
+
+    @InjectMocks
+    private ExpenseQueryService expenseQueryService;
+
+    private ExpenseQueryRequest request() {
+        ExpenseQueryRequest request = new ExpenseQueryRequest();
+        request.setUserId(1L);
+        return request;
+    }
+
+    private Category category(long id, String name, Category parent) {
+        Category category = new Category();
+        category.setId(id);
+        category.setName(name);
+        category.setParentCategory(parent);
+        return category;
+    }
+
+    private Object[] row(Object... values) {
+        return values;
+    }
+
+    @Test
+    void testRollsUpFacetsAndAggregatesFromOneGroupedQuery() {
+        Category food = category(5L, "Food", null);
+        when(categoryRepository.findByUserId(1L)).thenReturn(List.of(food));
+        // category, payment method, count, sum, min, max
+        when(expenseRepository.aggregate(any(), eq(List.of(ExpenseFacet.CATEGORY, ExpenseFacet.PAYMENT_METHOD)), anyInt(), anyInt()))
+                .thenReturn(List.of(
+                        row(5L, PaymentMethod.CASH, 2L, new BigDecimal("30.00"), new BigDecimal("10.00"), new BigDecimal("20.00")),
+                        row(5L, PaymentMethod.CREDIT_CARD, 1L, new BigDecimal("50.00"), new BigDecimal("50.00"), new BigDecimal("50.00")),
+                        row(null, PaymentMethod.CASH, 1L, new BigDecimal("4.00"), new BigDecimal("4.00"), new BigDecimal("4.00"))));
+        when(expenseRepository.findPage(any(), anyList(), eq(0), eq(50), anyInt())).thenReturn(List.of());
+
+        ExpenseQueryRequest request = request();
+        request.getFacets().add(ExpenseFacet.PAYMENT_METHOD);
+        request.getFacets().add(ExpenseFacet.CATEGORY);
+        ExpenseQueryResultDTO result = expenseQueryService.query(request);
+
+        assertEquals(4, result.getAggregates().getCount());
+        assertEquals(new BigDecimal("84.00"), result.getAggregates().getTotalAmount());
+        assertEquals(new BigDecimal("4.00"), result.getAggregates().getMinAmount());
+        assertEquals(new BigDecimal("50.00"), result.getAggregates().getMaxAmount());
+        assertEquals(new BigDecimal("21.00"), result.getAggregates().getAverageAmount());
+
+        List<FacetCountDTO> categories = result.getFacets().get(ExpenseFacet.CATEGORY);
+        assertEquals(2, categories.size());
+        assertEquals("5", categories.get(0).getValue());
+        assertEquals("Food", categories.get(0).getLabel());
+        assertEquals(3, categories.get(0).getCount());
+        assertEquals(new BigDecimal("80.00"), categories.get(0).getTotalAmount());
+        assertNull(categories.get(1).getValue());
+        assertEquals("Uncategorized", categories.get(1).getLabel());
+
+        List<FacetCountDTO> methods = result.getFacets().get(ExpenseFacet.PAYMENT_METHOD);
+        assertEquals("CASH", methods.get(0).getValue());
+        assertEquals(3, methods.get(0).getCount());
+        verify(expenseRepository, times(1)).aggregate(any(), anyList(), anyInt(), anyInt());
+    }
+
+    @Test
+    void testMonthFacetIsChronological() {
+        when(expenseRepository.aggregate(any(), eq(List.of(ExpenseFacet.MONTH)), anyInt(), anyInt()))
+                .thenReturn(List.of(
+                        row(202406, 5L, new BigDecimal("50.00"), BigDecimal.ONE, BigDecimal.TEN),
+                        row(202405, 1L, BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE)));
+
+        ExpenseQueryRequest request = request();
+        request.getFacets().add(ExpenseFacet.MONTH);
+        List<FacetCountDTO> months = expenseQueryService.query(request).getFacets().get(ExpenseFacet.MONTH);
+
+        assertEquals(List.of("2024-05", "2024-06"), months.stream().map(FacetCountDTO::getValue).toList());
+    }
+
+    @Test
+    void testEmptyResultHasZeroCount() {
+        when(expenseRepository.aggregate(any(), anyList(), anyInt(), anyInt()))
+                .thenReturn(List.<Object[]>of(row(0L, null, null, null)));
+
+        ExpenseQueryResultDTO result = expenseQueryService.query(request());
+
+        assertEquals(0, result.getAggregates().getCount());
+        assertEquals(BigDecimal.ZERO, result.getAggregates().getTotalAmount());
+        assertNull(result.getAggregates().getAverageAmount());
+    }
+
+    @Test
+    void testCategorySubtreeCountsTowardsLimit() {
+        ReflectionTestUtils.setField(expenseQueryService, "maxCategories", 2);
+        Category food = category(1L, "Food", null);
+        Category groceries = category(2L, "Groceries", food);
+        Category produce = category(3L, "Produce", groceries);
+        when(categoryRepository.findByUserId(1L)).thenReturn(List.of(food, groceries, produce));
+
+        ExpenseQueryRequest request = request();
+        request.getFilter().setCategoryIds(List.of(1L));
+        assertThrows(IllegalArgumentException.class, () -> expenseQueryService.query(request));
+
+        // Without subcategories only the listed category is matched
+        request.getFilter().setIncludeSubcategories(false);
+        when(expenseRepository.aggregate(any(), anyList(), anyInt(), anyInt()))
+                .thenReturn(List.<Object[]>of(row(0L, null, null, null)));
+        assertDoesNotThrow(() -> expenseQueryService.query(request));
+    }
+
+    @Test
+    void testRejectsRequestsOverCostLimits() {
+        ExpenseQueryRequest tooLarge = request();
+        tooLarge.setSize(500);
+        assertThrows(IllegalArgumentException.class, () -> expenseQueryService.query(tooLarge));
+
+        ExpenseQueryRequest tooDeep = request();
+        tooDeep.setPage(1000);
+        assertThrows(IllegalArgumentException.class, () -> expenseQueryService.query(tooDeep));
+
+        ExpenseQueryRequest tooManySortKeys = request();
+        List<ExpenseSortOrder> sort = new ArrayList<>();
+        for (ExpenseSortField field : ExpenseSortField.values()) {
+            sort.add(new ExpenseSortOrder(field, null));
+        }
+        tooManySortKeys.setSort(sort);
+        assertThrows(IllegalArgumentException.class, () -> expenseQueryService.query(tooManySortKeys));
+
+        ExpenseQueryRequest shortText = request();
+        shortText.getFilter().setText("a");
+        assertThrows(IllegalArgumentException.class, () -> expenseQueryService.query(shortText));
+
+        ExpenseQueryRequest backwardsDates = request();
+        backwardsDates.getFilter().setStartDate(LocalDate.of(2024, 6, 30));
+        backwardsDates.getFilter().setEndDate(LocalDate.of(2024, 6, 1));
+        assertThrows(IllegalArgumentException.class, () -> expenseQueryService.query(backwardsDates));
+
+        verifyNoInteractions(expenseRepository);
+    }
+
+    @Test
+    void testTooManyFacetGroupsIsRejected() {
+        ReflectionTestUtils.setField(expenseQueryService, "maxFacetGroups", 1);
+        when(expenseRepository.aggregate(any(), anyList(), eq(1), anyInt()))
+                .thenReturn(List.of(
+                        row(PaymentMethod.CASH, 1L, BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE),
+                        row(PaymentMethod.DEBIT_CARD, 1L, BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE)));
+
+        ExpenseQueryRequest request = request();
+        request.getFacets().add(ExpenseFacet.PAYMENT_METHOD);
+
+        assertThrows(IllegalArgumentException.class, () -> expenseQueryService.query(request));
+    }
+
+    @Test
+    void testTimeoutIsReportedAsBadRequest() {
+        when(expenseRepository.findPage(any(), anyList(), anyInt(), anyInt(), anyInt()))
+                .thenThrow(new QueryTimeoutException("timed out"));
+
+        assertThrows(IllegalArgumentException.class, () -> expenseQueryService.query(request()));
+    }
+}
@@ -0,0 +1,165 @@
+package sg.wlian.addonapp.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import sg.wlian.addonapp.entity.ExpenseDailyRollup;
+import sg.wlian.addonapp.entity.JobCheckpoint;
+import sg.wlian.addonapp.entity.JobStatus;
+import sg.wlian.addonapp.event.ExpenseChange;
+import sg.wlian.addonapp.event.ExpenseSnapshot;
+import sg.wlian.addonapp.repository.ExpenseDailyRollupRepository;
+import sg.wlian.addonapp.repository.ExpenseRepository;
+import sg.wlian.addonapp.repository.JobCheckpointRepository;
+import sg.wlian.addonapp.repository.UserRepository;
+import sg.wlian.addonapp.sketch.AmountSketch;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExpenseRollupServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 6, 1);
+
+    @Mock
+    private ExpenseDailyRollupRepository rollupRepository;
+
+    @Mock
+    private ExpenseRepository expenseRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private JobCheckpointRepository jobCheckpointRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private ExpenseRollupService rollupService;
+
+    private ExpenseSnapshot expense(Long id, Long categoryId, String amount) {
+        return new ExpenseSnapshot(id, 1L, categoryId, null, DAY, new BigDecimal(amount), "Lunch", null);
+    }
+
+    private ExpenseDailyRollup rollup(Long categoryId, String... amounts) {
+        ExpenseDailyRollup rollup = new ExpenseDailyRollup(1L, categoryId, DAY);
+        AmountSketch sketch = new AmountSketch();
+        for (String amount : amounts) {
+            rollup.setTotal(rollup.getTotal().add(new BigDecimal(amount)));
+            rollup.setCount(rollup.getCount() + 1);
+            sketch.add(new BigDecimal(amount));
+        }
+        rollup.setSketch(sketch.toBytes());
+        return rollup;
+    }
+
+    @Test
+    void testChangesAdjustRollupsOfTheirDay() {
+        ExpenseDailyRollup food = rollup(5L, "12.00", "30.00");
+        when(rollupRepository.findForUpdate(eq(1L), anyCollection())).thenReturn(List.of(food));
+
+        rollupService.apply(List.of(
+                ExpenseChange.created(expense(3L, 5L, "8.00")),
+                ExpenseChange.updated(expense(1L, 5L, "30.00"), expense(1L, 5L, "20.00"))));
+
+        assertEquals(new BigDecimal("40.00"), food.getTotal());
+        assertEquals(3, food.getCount());
+        AmountSketch sketch = AmountSketch.fromBytes(food.getSketch());
+        assertEquals(3, sketch.count());
+        assertEquals(20.0, sketch.quantile(1).doubleValue(), 0.2);
+        verify(rollupRepository, never()).saveAndFlush(any());
+        // The user is locked before the day rows, as the backfill does
+        InOrder order = inOrder(userRepository, rollupRepository);
+        order.verify(userRepository).findForUpdate(Set.of(1L));
+        order.verify(rollupRepository).findForUpdate(eq(1L), anyCollection());
+    }
+
+    @Test
+    void testMissingRollupIsCreatedForUncategorizedExpense() {
+        ExpenseDailyRollup created = new ExpenseDailyRollup(1L, ExpenseDailyRollup.UNCATEGORIZED, DAY);
+        when(rollupRepository.findForUpdate(eq(1L), anyCollection()))
+                .thenReturn(Collections.emptyList())
+                .thenReturn(List.of(created));
+
+        rollupService.apply(List.of(ExpenseChange.created(expense(3L, null, "8.00"))));
+
+        verify(rollupRepository).saveAndFlush(argThat((ExpenseDailyRollup r) -> r.getCategoryId() == ExpenseDailyRollup.UNCATEGORIZED));
+        assertEquals(1, created.getCount());
+        assertEquals(new BigDecimal("8.00"), created.getTotal());
+    }
+
+    @Test
+    void testDeleteTakesAmountOut() {
+        ExpenseDailyRollup food = rollup(5L, "12.00", "30.00");
+        when(rollupRepository.findForUpdate(eq(1L), anyCollection())).thenReturn(List.of(food));
+
+        rollupService.apply(List.of(ExpenseChange.deleted(expense(1L, 5L, "30.00"))));
+
+        assertEquals(new BigDecimal("12.00"), food.getTotal());
+        assertEquals(1, AmountSketch.fromBytes(food.getSketch()).count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testBackfillRebuildsUsersInPages() {
+        ReflectionTestUtils.setField(rollupService, "backfillPageSize", 2);
+        when(jobCheckpointRepository.findFirstByJobNameOrderByStartedAtDesc(ExpenseRollupService.BACKFILL_JOB_NAME))
+                .thenReturn(Optional.empty());
+        when(jobCheckpointRepository.save(any(JobCheckpoint.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(userRepository.findIdsAfter(eq(0L), any())).thenReturn(List.of(1L, 2L));
+        when(userRepository.findIdsAfter(eq(2L), any())).thenReturn(Collections.emptyList());
+        when(expenseRepository.findAmountsForUsers(List.of(1L, 2L))).thenReturn(List.of(
+                new Object[]{1L, 5L, DAY, new BigDecimal("12.00")},
+                new Object[]{1L, 5L, DAY, new BigDecimal("30.00")},
+                new Object[]{2L, null, DAY, new BigDecimal("7.00")}));
+        List<ExpenseDailyRollup> saved = new ArrayList<>();
+        when(rollupRepository.saveAll(anyCollection())).thenAnswer(inv -> {
+            saved.addAll((Collection<ExpenseDailyRollup>) inv.getArgument(0));
+            return saved;
+        });
+
+        JobCheckpoint run = rollupService.backfill();
+
+        assertEquals(JobStatus.COMPLETED, run.getStatus());
+        assertEquals(2, run.getItemsProcessed());
+        assertEquals(3, run.getRowsScanned());
+        verify(rollupRepository).deleteByUserIdIn(List.of(1L, 2L));
+        // The users stay locked against writes from before the expenses are read until the page commits
+        InOrder order = inOrder(userRepository, expenseRepository);
+        order.verify(userRepository).findForUpdate(List.of(1L, 2L));
+        order.verify(expenseRepository).findAmountsForUsers(List.of(1L, 2L));
+        assertEquals(2, saved.size());
+        ExpenseDailyRollup food = saved.stream().filter(r -> r.getUserId() == 1L).findFirst().orElseThrow();
+        assertEquals(new BigDecimal("42.00"), food.getTotal());
+        assertEquals(2, AmountSketch.fromBytes(food.getSketch()).count());
+    }
+
+    @Test
+    void testBackfillRunsOnlyUntilCompleted() {
+        JobCheckpoint done = new JobCheckpoint();
+        done.setStatus(JobStatus.COMPLETED);
+        when(jobCheckpointRepository.findFirstByJobNameOrderByStartedAtDesc(ExpenseRollupService.BACKFILL_JOB_NAME))
+                .thenReturn(Optional.of(done));
+
+        assertNull(rollupService.backfillIfIncomplete());
+        verifyNoInteractions(userRepository);
+    }
+}
@@ -6,18 +6,33 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import sg.wlian.addonapp.cache.SpendCounterStore;
+import sg.wlian.addonapp.dto.ExpenseBatchOperation;
+import sg.wlian.addonapp.dto.ExpenseBatchResponse;
+import sg.wlian.addonapp.dto.ExpenseBatchResult;
+import sg.wlian.addonapp.dto.ExpenseSearchCriteria;
+import sg.wlian.addonapp.dto.ExpenseSearchResultDTO;
 import sg.wlian.addonapp.dto.ExpenseSummaryDTO;
+import sg.wlian.addonapp.dto.MonthSpendDTO;
 import sg.wlian.addonapp.entity.Category;
 import sg.wlian.addonapp.entity.Expense;
+import sg.wlian.addonapp.entity.ExpenseTombstone;
 import sg.wlian.addonapp.entity.PaymentMethod;
 import sg.wlian.addonapp.entity.RecurrenceFrequency;
 import sg.wlian.addonapp.entity.User;
+import sg.wlian.addonapp.event.ExpenseAnomalyEvent;
+import sg.wlian.addonapp.event.ExpenseChange;
+import sg.wlian.addonapp.event.ExpensesChangedEvent;
 import sg.wlian.addonapp.repository.ExpenseRepository;
+import sg.wlian.addonapp.repository.ExpenseTombstoneRepository;
+import sg.wlian.addonapp.search.ExpenseSearchIndex;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.YearMonth;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -32,6 +47,24 @@ class ExpenseServiceTest {
     @Mock
     private ExpenseRepository expenseRepository;
 
+    @Mock
+    private ExpenseTombstoneRepository tombstoneRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private SpendCounterStore spendCounterStore;
+
+    @Mock
+    private ExpenseSearchIndex expenseSearchIndex;
+
+    @Mock
+    private ExpenseAnomalyDetector anomalyDetector;
+
+    @Mock
+    private ExpenseRollupService rollupService;
+
     @InjectMocks
     private ExpenseService expenseService;
 
@@ -72,6 +105,24 @@ class ExpenseServiceTest {
         assertEquals(testExpense.getDescription(), created.getDescription());
         assertEquals(testExpense.getAmount(), created.getAmount());
         verify(expenseRepository, times(1)).save(testExpense);
+        verify(eventPublisher, times(1)).publishEvent(argThat((ExpensesChangedEvent event) ->
+                event.getChanges().size() == 1
+                        && event.getChanges().get(0).getType() == ExpenseChange.Type.CREATED));
+    }
+
+    @Test
+    void testCreateExpenseFlagsUnusualAmount() {
+        ExpenseAnomalyEvent anomaly = new ExpenseAnomalyEvent(1L, 1L, 1L, testExpense.getDate(),
+                testExpense.getAmount(), testExpense.getDescription(), new BigDecimal("8.00"), 4.2);
+        when(expenseRepository.save(any(Expense.class))).thenReturn(testExpense);
+        when(expenseRepository.findById(1L)).thenReturn(Optional.of(testExpense));
+        when(anomalyDetector.apply(anyList())).thenReturn(List.of(anomaly));
+
+        Expense created = expenseService.createExpense(testExpense);
+
+        assertTrue(created.isAnomalous());
+        assertEquals(4.2, created.getAnomalyScore());
+        verify(eventPublisher).publishEvent(anomaly);
     }
 
     @Test
@@ -122,6 +173,17 @@ class ExpenseServiceTest {
         verify(expenseRepository, times(1)).deleteById(expenseId);
     }
 
+    @Test
+    void testDeleteExpenseLeavesTombstone() {
+        when(expenseRepository.findById(1L)).thenReturn(Optional.of(testExpense));
+
+        expenseService.deleteExpense(1L);
+
+        verify(tombstoneRepository, times(1)).save(argThat(tombstone ->
+                tombstone.getId().equals(1L) && tombstone.getUserId().equals(1L) && tombstone.isNew()));
+        verify(expenseRepository, times(1)).deleteById(1L);
+    }
+
     @Test
     void testGetExpensesByUserId() {
         List<Expense> expenses = Arrays.asList(testExpense);
@@ -331,4 +393,150 @@ class ExpenseServiceTest {
         
         verify(expenseRepository, times(1)).findByUserAndIsRecurringTrue(testUser);
     }
+
+    @Test
+    void testProcessBatch() {
+        Expense newExpense = new Expense();
+        newExpense.setDescription("Coffee");
+        newExpense.setAmount(new BigDecimal("4.50"));
+        newExpense.setDate(LocalDate.now());
+        newExpense.setUser(testUser);
+
+        Expense updateDetails = new Expense();
+        updateDetails.setDescription("Grocery shopping (edited)");
+        updateDetails.setAmount(new BigDecimal("55.00"));
+        updateDetails.setDate(LocalDate.now());
+        updateDetails.setCategory(testCategory);
+
+        Expense toDelete = new Expense();
+        toDelete.setId(2L);
+        toDelete.setUser(testUser);
+
+        when(expenseRepository.findAllById(Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(testExpense, toDelete));
+
+        ExpenseBatchResponse response = expenseService.processBatch(Arrays.asList(
+                new ExpenseBatchOperation(ExpenseBatchOperation.Type.CREATE, null, newExpense, "local-1"),
+                new ExpenseBatchOperation(ExpenseBatchOperation.Type.UPDATE, 1L, updateDetails, null),
+                new ExpenseBatchOperation(ExpenseBatchOperation.Type.DELETE, 2L, null, null)
+        ));
+
+        assertEquals(3, response.getSucceeded());
+        assertEquals(0, response.getFailed());
+        assertEquals("local-1", response.getResults().get(0).getClientRef());
+        assertEquals("Grocery shopping (edited)", testExpense.getDescription());
+        verify(expenseRepository, times(1)).findAllById(Arrays.asList(1L, 2L));
+        verify(expenseRepository, times(1)).saveAll(Arrays.asList(newExpense, testExpense));
+        verify(expenseRepository, times(1)).deleteAllInBatch(Collections.singletonList(toDelete));
+        verify(tombstoneRepository, times(1)).saveAll(argThat((List<ExpenseTombstone> tombstones) ->
+                tombstones.iterator().next().getId().equals(2L)));
+        verify(expenseRepository, never()).save(any(Expense.class));
+        // One event for the whole batch
+        verify(eventPublisher, times(1)).publishEvent(argThat((ExpensesChangedEvent event) ->
+                event.getChanges().size() == 3));
+    }
+
+    @Test
+    void testProcessBatchReportsPerItemFailures() {
+        Expense invalid = new Expense();
+        invalid.setDescription("Missing amount");
+        invalid.setDate(LocalDate.now());
+
+        when(expenseRepository.findAllById(Collections.singletonList(99L))).thenReturn(Collections.emptyList());
+
+        ExpenseBatchResponse response = expenseService.processBatch(Arrays.asList(
+                new ExpenseBatchOperation(ExpenseBatchOperation.Type.CREATE, null, invalid, null),
+                new ExpenseBatchOperation(ExpenseBatchOperation.Type.DELETE, 99L, null, null)
+        ));
+
+        assertEquals(0, response.getSucceeded());
+        assertEquals(2, response.getFailed());
+        assertEquals(ExpenseBatchResult.Status.INVALID, response.getResults().get(0).getStatus());
+        assertEquals(ExpenseBatchResult.Status.NOT_FOUND, response.getResults().get(1).getStatus());
+        verify(expenseRepository, never()).saveAll(anyList());
+        verify(expenseRepository, never()).deleteAllInBatch(anyList());
+    }
+
+    @Test
+    void testProcessBatchRejectsEmptyBatch() {
+        assertThrows(IllegalArgumentException.class,
+                () -> expenseService.processBatch(Collections.emptyList()));
+    }
+
+    @Test
+    void testGetMonthSpendReadsCounters() {
+        YearMonth month = YearMonth.of(2024, 6);
+        when(spendCounterStore.getSpentByCategory(1L, month))
+                .thenReturn(Map.of(1L, new BigDecimal("10.00"), 2L, new BigDecimal("2.50")));
+
+        MonthSpendDTO spend = expenseService.getMonthSpend(1L, month);
+
+        assertEquals(new BigDecimal("12.50"), spend.getTotalAmount());
+        assertEquals(2, spend.getByCategory().size());
+        verifyNoInteractions(expenseRepository);
+    }
+
+    @Test
+    void testSearchExpensesLeavesOutOtherUsersExpenses() throws Exception {
+        ExpenseSearchCriteria criteria = new ExpenseSearchCriteria();
+        criteria.setUserId(1L);
+        criteria.setQuery("coffee");
+        when(expenseSearchIndex.search(criteria, 0, 10))
+                .thenReturn(new ExpenseSearchIndex.Hits(List.of(1L, 2L), 2, true));
+        User owner = new User();
+        owner.setId(1L);
+        User other = new User();
+        other.setId(2L);
+        Expense mine = new Expense();
+        mine.setId(1L);
+        mine.setUser(owner);
+        // A stale index entry whose id now belongs to another user's expense
+        Expense theirs = new Expense();
+        theirs.setId(2L);
+        theirs.setUser(other);
+        when(expenseRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(mine, theirs));
+
+        ExpenseSearchResultDTO result = expenseService.searchExpenses(criteria, 0, 10);
+
+        assertEquals(List.of(1L), result.getExpenses().stream().map(Expense::getId).toList());
+    }
+
+    @Test
+    void testSearchExpensesKeepsIndexOrderAndSkipsDeleted() throws Exception {
+        ExpenseSearchCriteria criteria = new ExpenseSearchCriteria();
+        criteria.setUserId(1L);
+        criteria.setQuery("coffee");
+        when(expenseSearchIndex.search(criteria, 20, 10))
+                .thenReturn(new ExpenseSearchIndex.Hits(List.of(3L, 1L, 2L), 23, true));
+        when(expenseSearchIndex.isComplete()).thenReturn(true);
+        User owner = new User();
+        owner.setId(1L);
+        Expense first = new Expense();
+        first.setId(1L);
+        first.setUser(owner);
+        Expense third = new Expense();
+        third.setId(3L);
+        third.setUser(owner);
+        // Expense 2 was deleted after the index was refreshed
+        when(expenseRepository.findAllById(List.of(3L, 1L, 2L))).thenReturn(List.of(first, third));
+
+        ExpenseSearchResultDTO result = expenseService.searchExpenses(criteria, 2, 10);
+
+        assertEquals(List.of(3L, 1L), result.getExpenses().stream().map(Expense::getId).toList());
+        assertEquals(23, result.getTotalHits());
+        assertTrue(result.isIndexComplete());
+    }
+
+    @Test
+    void testSearchExpensesRejectsInvalidRequests() {
+        ExpenseSearchCriteria criteria = new ExpenseSearchCriteria();
+        criteria.setUserId(1L);
+
+        assertThrows(IllegalArgumentException.class, () -> expenseService.searchExpenses(criteria, 0, 500));
+        assertThrows(IllegalArgumentException.class, () -> expenseService.searchExpenses(criteria, 100, 20));
+
+        criteria.setMinAmount(new BigDecimal("10"));
+        criteria.setMaxAmount(new BigDecimal("5"));
+        assertThrows(IllegalArgumentException.class, () -> expenseService.searchExpenses(criteria, 0, 20));
+        verifyNoInteractions(expenseSearchIndex);
+    }
 }
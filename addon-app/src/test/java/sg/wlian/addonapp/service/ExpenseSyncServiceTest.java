@@ -0,0 +1,124 @@
+package sg.wlian.addonapp.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sg.wlian.addonapp.dto.ExpenseSyncResponse;
+import sg.wlian.addonapp.dto.SyncToken;
+import sg.wlian.addonapp.entity.Expense;
+import sg.wlian.addonapp.entity.ExpenseTombstone;
+import sg.wlian.addonapp.repository.ExpenseRepository;
+import sg.wlian.addonapp.repository.ExpenseTombstoneRepository;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExpenseSyncServiceTest {
+
+    @Mock
+    private ExpenseRepository expenseRepository;
+
+    @Mock
+    private ExpenseTombstoneRepository tombstoneRepository;
+
+    @InjectMocks
+    private ExpenseSyncService expenseSyncService;
+
+    private LocalDateTime base;
+
+    @BeforeEach
+    void setUp() {
+        base = LocalDateTime.now().minusHours(1).withNano(0);
+    }
+
+    private Expense expense(long id, LocalDateTime updatedAt) {
+        Expense expense = new Expense();
+        expense.setId(id);
+        expense.setUpdatedAt(updatedAt);
+        return expense;
+    }
+
+    private ExpenseTombstone tombstone(long id, LocalDateTime deletedAt) {
+        ExpenseTombstone tombstone = new ExpenseTombstone();
+        tombstone.setId(id);
+        tombstone.setUserId(1L);
+        tombstone.setDeletedAt(deletedAt);
+        return tombstone;
+    }
+
+    @Test
+    void testInitialSyncSkipsTombstones() {
+        when(expenseRepository.findChangedSince(eq(1L), any(), eq(0L), any(), any()))
+                .thenReturn(Arrays.asList(expense(1L, base), expense(2L, base.plusSeconds(1))));
+
+        ExpenseSyncResponse response = expenseSyncService.getChanges(1L, null, 10);
+
+        assertEquals(2, response.getUpserts().size());
+        assertTrue(response.getDeletedIds().isEmpty());
+        assertFalse(response.isHasMore());
+        assertFalse(response.isFullResync());
+        SyncToken next = SyncToken.parse(response.getNextToken());
+        assertEquals(base.plusSeconds(1), next.getTimestamp());
+        assertEquals(2L, next.getId());
+        verifyNoInteractions(tombstoneRepository);
+    }
+
+    @Test
+    void testMergesUpsertsAndDeletesInOrderAndPages() {
+        String since = new SyncToken(base, 5L, LocalDateTime.now()).encode();
+        when(expenseRepository.findChangedSince(eq(1L), eq(base), eq(5L), any(), any()))
+                .thenReturn(Arrays.asList(expense(7L, base.plusSeconds(1)), expense(9L, base.plusSeconds(3))));
+        when(tombstoneRepository.findDeletedSince(eq(1L), eq(base), eq(5L), any(), any()))
+                .thenReturn(Collections.singletonList(tombstone(8L, base.plusSeconds(2))));
+
+        ExpenseSyncResponse response = expenseSyncService.getChanges(1L, since, 2);
+
+        assertEquals(1, response.getUpserts().size());
+        assertEquals(7L, response.getUpserts().get(0).getId());
+        assertEquals(Collections.singletonList(8L), response.getDeletedIds());
+        assertTrue(response.isHasMore());
+        SyncToken next = SyncToken.parse(response.getNextToken());
+        assertEquals(base.plusSeconds(2), next.getTimestamp());
+        assertEquals(8L, next.getId());
+    }
+
+    @Test
+    void testStaleTokenForcesFullResync() {
+        LocalDateTime longAgo = LocalDateTime.now().minusDays(365);
+        String since = new SyncToken(longAgo, 3L, longAgo).encode();
+        when(expenseRepository.findChangedSince(eq(1L), any(), eq(0L), any(), any()))
+                .thenReturn(Collections.emptyList());
+
+        ExpenseSyncResponse response = expenseSyncService.getChanges(1L, since, 10);
+
+        assertTrue(response.isFullResync());
+        verifyNoInteractions(tombstoneRepository);
+    }
+
+    @Test
+    void testInvalidTokenIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> expenseSyncService.getChanges(1L, "not-a-token", 10));
+    }
+
+    @Test
+    void testHoldsBackChangesForTheTransactionTimeoutAndLag() {
+        LocalDateTime before = LocalDateTime.now();
+
+        expenseSyncService.getChanges(1L, null, 10);
+
+        // 10s default transaction timeout plus the 2s lag
+        verify(expenseRepository).findChangedSince(eq(1L), any(), eq(0L),
+                argThat(until -> !until.isAfter(LocalDateTime.now().minusSeconds(12))
+                        && !until.isBefore(before.minusSeconds(12))), any());
+    }
+}
@@ -0,0 +1,280 @@
+package sg.wlian.addonapp.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import sg.wlian.addonapp.cache.ExpenseColumnStore;
+import sg.wlian.addonapp.cache.ExpenseWriteTracker;
+import sg.wlian.addonapp.cache.ReportCache;
+import sg.wlian.addonapp.dto.AmountHistogramBucketDTO;
+import sg.wlian.addonapp.dto.AmountPercentileDTO;
+import sg.wlian.addonapp.dto.CategoryReportDTO;
+import sg.wlian.addonapp.dto.MonthlyReportDTO;
+import sg.wlian.addonapp.dto.ReportBundleDTO;
+import sg.wlian.addonapp.dto.ReportKind;
+import sg.wlian.addonapp.entity.Category;
+import sg.wlian.addonapp.entity.Expense;
+import sg.wlian.addonapp.entity.ExpenseDailyRollup;
+import sg.wlian.addonapp.entity.PaymentMethod;
+import sg.wlian.addonapp.entity.User;
+import sg.wlian.addonapp.ledger.ExpenseLedger;
+import sg.wlian.addonapp.repository.CategoryRepository;
+import sg.wlian.addonapp.repository.ExpenseDailyRollupRepository;
+import sg.wlian.addonapp.repository.ExpenseRepository;
+import sg.wlian.addonapp.sketch.AmountSketch;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReportServiceTest {
+
+    @Mock
+    private ExpenseRepository expenseRepository;
+
+    @Mock
+    private ExpenseDailyRollupRepository rollupRepository;
+
+    @Mock
+    private CategoryRepository categoryRepository;
+
+    @Mock
+    private ExpenseLedger ledger;
+
+    @Mock
+    private UserService userService;
+
+    @Spy
+    private TaskExecutor reportExecutor = new SimpleAsyncTaskExecutor();
+
+    @Spy
+    private ReportCache reportCache = new ReportCache();
+
+    @Spy
+    private ExpenseColumnStore columnStore = new ExpenseColumnStore();
+
+    @InjectMocks
+    private ReportService reportService;
+
+    private User testUser;
+    private Category food;
+    private List<Expense> expenses;
+
+    @BeforeEach
+    void setUp() {
+        testUser = new User();
+        testUser.setId(1L);
+
+        food = new Category();
+        food.setId(1L);
+        food.setName("Food");
+
+        ReflectionTestUtils.setField(columnStore, "expenseRepository", expenseRepository);
+        ReflectionTestUtils.setField(columnStore, "ledger", ledger);
+        ReflectionTestUtils.setField(columnStore, "writeTracker", new ExpenseWriteTracker());
+
+        LocalDate today = LocalDate.now();
+        expenses = Arrays.asList(
+                expense("30.00", today, PaymentMethod.CASH),
+                expense("20.00", today, PaymentMethod.CREDIT_CARD),
+                expense("50.00", today.minusMonths(1), PaymentMethod.CASH)
+        );
+    }
+
+    private Expense expense(String amount, LocalDate date, PaymentMethod paymentMethod) {
+        Expense expense = new Expense();
+        expense.setAmount(new BigDecimal(amount));
+        expense.setDate(date);
+        expense.setCategory(food);
+        expense.setPaymentMethod(paymentMethod);
+        expense.setUser(testUser);
+        return expense;
+    }
+
+    private void givenColumns() {
+        when(expenseRepository.findReportColumnsByUserId(1L)).thenReturn(expenses.stream()
+                .map(e -> new Object[]{e.getDate(), e.getAmount(), e.getCategory().getId(), e.getPaymentMethod()})
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void testGetMonthlyTrendLoadsColumnsOnce() {
+        givenColumns();
+
+        List<MonthlyReportDTO> report = reportService.getMonthlyTrend(1L, 3);
+
+        assertEquals(3, report.size());
+        assertEquals(YearMonth.now(), report.get(2).getMonth());
+        assertEquals(new BigDecimal("50.00"), report.get(2).getTotalExpenses());
+        assertEquals(2, report.get(2).getExpenseCount());
+        assertEquals(new BigDecimal("50.00"), report.get(1).getTotalExpenses());
+        assertEquals(new BigDecimal("0.00"), report.get(0).getTotalExpenses());
+
+        reportService.getWeeklyTrend(1L, 4);
+        verify(expenseRepository, times(1)).findReportColumnsByUserId(1L);
+    }
+
+    @Test
+    void testCategoryBreakdownNamesCategoriesAndKeepsTopN() {
+        Category travel = new Category();
+        travel.setId(2L);
+        travel.setName("Travel");
+        expenses = Arrays.asList(expenses.get(0), expenses.get(1), expense("45.00", LocalDate.now(), PaymentMethod.CASH));
+        expenses.get(2).setCategory(travel);
+        givenColumns();
+        when(categoryRepository.findByUserId(1L)).thenReturn(List.of(food, travel));
+        YearMonth month = YearMonth.now();
+
+        List<CategoryReportDTO> report = reportService.getCategoryBreakdown(1L, month.atDay(1), month.atEndOfMonth());
+
+        assertEquals(2, report.size());
+        assertEquals("Food", report.get(0).getCategoryName());
+        assertEquals(new BigDecimal("50.00"), report.get(0).getAmount());
+        assertEquals(2, report.get(0).getExpenseCount());
+        assertEquals(52.63, report.get(0).getPercentage(), 0.01);
+        assertEquals("Travel", report.get(1).getCategoryName());
+
+        List<CategoryReportDTO> top = reportService.getTopCategories(1L, month.atDay(1), month.atEndOfMonth(), 1);
+        assertEquals(1, top.size());
+        assertEquals("Food", top.get(0).getCategoryName());
+    }
+
+    @Test
+    void testAmountHistogramBucketsByUpperBound() {
+        givenColumns();
+        LocalDate today = LocalDate.now();
+
+        List<AmountHistogramBucketDTO> report = reportService.getAmountHistogram(1L, today.minusMonths(1), today,
+                List.of(new BigDecimal("30"), new BigDecimal("20")));
+
+        assertEquals(3, report.size());
+        assertNull(report.get(0).getLowerBound());
+        assertEquals(new BigDecimal("20"), report.get(0).getUpperBound());
+        assertEquals(1, report.get(0).getExpenseCount());
+        assertEquals(1, report.get(1).getExpenseCount());
+        assertEquals(new BigDecimal("30.00"), report.get(1).getTotalAmount());
+        assertNull(report.get(2).getUpperBound());
+        assertEquals(new BigDecimal("50.00"), report.get(2).getTotalAmount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testReportBundleLoadsColumnsOnce() {
+        givenColumns();
+        when(categoryRepository.findByUserId(1L)).thenReturn(List.of(food));
+
+        ReportBundleDTO bundle = reportService.getReportBundle(1L, EnumSet.allOf(ReportKind.class), 6, 4, null, null);
+
+        assertEquals(EnumSet.allOf(ReportKind.class), bundle.getSections().keySet());
+        assertTrue(bundle.getErrors().isEmpty());
+        List<CategoryReportDTO> categories = (List<CategoryReportDTO>) bundle.getSections().get(ReportKind.CATEGORY_BREAKDOWN);
+        assertEquals(new BigDecimal("50.00"), categories.get(0).getAmount());
+        verify(expenseRepository, times(1)).findReportColumnsByUserId(1L);
+    }
+
+    private ExpenseDailyRollup rollup(Long categoryId, LocalDate day, String... amounts) {
+        ExpenseDailyRollup rollup = new ExpenseDailyRollup(1L, categoryId, day);
+        AmountSketch sketch = new AmountSketch();
+        for (String amount : amounts) {
+            rollup.setTotal(rollup.getTotal().add(new BigDecimal(amount)));
+            rollup.setCount(rollup.getCount() + 1);
+            sketch.add(new BigDecimal(amount));
+        }
+        rollup.setSketch(sketch.toBytes());
+        return rollup;
+    }
+
+    @Test
+    void testMonthlyPercentilesMergeDailyRollups() {
+        YearMonth month = YearMonth.now();
+        when(rollupRepository.findByUserIdAndDayBetween(eq(1L), any(), any())).thenReturn(List.of(
+                rollup(1L, month.atDay(1), "10.00", "20.00"),
+                rollup(1L, month.atDay(2), "30.00", "40.00", "200.00"),
+                rollup(ExpenseDailyRollup.UNCATEGORIZED, month.atDay(2), "5.00"),
+                rollup(1L, month.minusMonths(1).atDay(3), "50.00")));
+        when(categoryRepository.findByUserId(1L)).thenReturn(List.of(food));
+
+        List<AmountPercentileDTO> report = reportService.getMonthlyPercentiles(1L, 2);
+
+        assertEquals(3, report.size());
+        assertEquals(month.minusMonths(1), report.get(0).getMonth());
+        AmountPercentileDTO current = report.get(1);
+        assertEquals(month, current.getMonth());
+        assertEquals("Food", current.getCategoryName());
+        assertEquals(5, current.getExpenseCount());
+        assertEquals(new BigDecimal("300.00"), current.getTotalAmount());
+        assertEquals(30.0, current.getMedian().doubleValue(), 0.3);
+        assertEquals(200.0, current.getP99().doubleValue(), 2.0);
+        assertNull(report.get(2).getCategoryId());
+        assertEquals("Uncategorized", report.get(2).getCategoryName());
+        verifyNoInteractions(expenseRepository);
+    }
+
+    @Test
+    void testReportBundleDegradesOnSectionTimeout() {
+        // An executor that never runs its tasks
+        ReflectionTestUtils.setField(reportService, "reportExecutor", (TaskExecutor) task -> { });
+        ReflectionTestUtils.setField(reportService, "sectionTimeoutMs", 50L);
+
+        ReportBundleDTO bundle = reportService.getReportBundle(1L, EnumSet.of(ReportKind.MONTHLY_TREND), 6, 4, null, null);
+
+        assertTrue(bundle.getSections().isEmpty());
+        assertEquals("TIMEOUT", bundle.getErrors().get(ReportKind.MONTHLY_TREND));
+    }
+
+    @Test
+    void testMonthlyTrendIsServedFromCacheUntilInvalidated() {
+        givenColumns();
+
+        reportService.getMonthlyTrend(1L, 3);
+        reportService.getMonthlyTrend(1L, 3);
+        verify(columnStore, times(1)).byDate(eq(1L), anyList(), any());
+
+        reportCache.invalidate(1L, YearMonth.now());
+        reportService.getMonthlyTrend(1L, 3);
+        verify(columnStore, times(2)).byDate(eq(1L), anyList(), any());
+    }
+
+    @Test
+    void testReportBundleOnlyQueriesUncachedSections() {
+        givenColumns();
+
+        reportService.getMonthlyTrend(1L, 6);
+        ReportBundleDTO bundle = reportService.getReportBundle(1L, EnumSet.of(ReportKind.MONTHLY_TREND), 6, 4, null, null);
+
+        assertTrue(bundle.getSections().containsKey(ReportKind.MONTHLY_TREND));
+        verify(columnStore, times(1)).byDate(eq(1L), anyList(), any());
+        verify(reportExecutor, never()).execute(any());
+    }
+
+    @Test
+    void testReportsOfUnknownUserFailWithoutLoadingColumns() {
+        when(userService.findById(99L)).thenThrow(new RuntimeException("User not found"));
+        LocalDate today = LocalDate.now();
+
+        assertThrows(RuntimeException.class, () -> reportService.getMonthlyTrend(99L, 3));
+        assertThrows(RuntimeException.class, () -> reportService.getCategoryBreakdown(99L, today, today));
+        assertThrows(RuntimeException.class,
+                () -> reportService.getAmountHistogram(99L, today, today, ReportService.DEFAULT_HISTOGRAM_BOUNDS));
+        assertThrows(RuntimeException.class, () -> reportService.getReportBundle(99L,
+                EnumSet.of(ReportKind.WEEKLY_TREND), 6, 4, null, null));
+
+        verifyNoInteractions(columnStore, expenseRepository);
+    }
+}
@@ -0,0 +1,122 @@
+package sg.wlian.addonapp.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import sg.wlian.addonapp.dto.BudgetForecastDTO;
+import sg.wlian.addonapp.dto.BudgetStatusDTO;
+import sg.wlian.addonapp.dto.SpendForecastDTO;
+import sg.wlian.addonapp.entity.Budget;
+import sg.wlian.addonapp.entity.Category;
+import sg.wlian.addonapp.entity.JobCheckpoint;
+import sg.wlian.addonapp.entity.JobStatus;
+import sg.wlian.addonapp.entity.User;
+import sg.wlian.addonapp.forecast.CategoryProjection;
+import sg.wlian.addonapp.forecast.SpendForecastModelStore;
+import sg.wlian.addonapp.repository.BudgetRepository;
+import sg.wlian.addonapp.repository.CategoryRepository;
+import sg.wlian.addonapp.repository.JobCheckpointRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SpendForecastServiceTest {
+
+    @Mock
+    private SpendForecastModelStore modelStore;
+
+    @Mock
+    private BudgetService budgetService;
+
+    @Mock
+    private BudgetRepository budgetRepository;
+
+    @Mock
+    private CategoryRepository categoryRepository;
+
+    @Mock
+    private JobCheckpointRepository jobCheckpointRepository;
+
+    @InjectMocks
+    private SpendForecastService forecastService;
+
+    private Category category(Long id, String name) {
+        Category category = new Category();
+        category.setId(id);
+        category.setName(name);
+        return category;
+    }
+
+    @Test
+    void testMonthForecastAddsUpCategories() {
+        when(modelStore.project(eq(1L), any(), any(), any(), isNull())).thenReturn(List.of(
+                new CategoryProjection(5L, 10000, 0, 5000),
+                new CategoryProjection(6L, 120000, 120000, 0)));
+        when(categoryRepository.findByUserId(1L)).thenReturn(List.of(category(5L, "Food"), category(6L, "Rent")));
+
+        SpendForecastDTO forecast = forecastService.getMonthForecast(1L);
+
+        assertEquals(new BigDecimal("1300.00"), forecast.getSpentToDate());
+        assertEquals(new BigDecimal("2550.00"), forecast.getProjectedTotal());
+        assertEquals("Rent", forecast.getCategories().get(0).getCategoryName());
+        assertEquals(new BigDecimal("1200.00"), forecast.getCategories().get(0).getProjectedRecurring());
+        assertEquals(new BigDecimal("150.00"), forecast.getCategories().get(1).getProjectedTotal());
+    }
+
+    @Test
+    void testBudgetForecastProjectsRestOfWindow() {
+        User user = new User();
+        user.setId(1L);
+        Budget budget = new Budget();
+        budget.setId(3L);
+        budget.setUser(user);
+        budget.setCategory(category(5L, "Food"));
+        budget.setAmount(new BigDecimal("400.00"));
+        LocalDate start = LocalDate.now().withDayOfMonth(1);
+        LocalDate end = start.plusMonths(1).minusDays(1);
+        when(budgetService.getBudgetById(3L)).thenReturn(budget);
+        when(budgetService.getBudgetStatus(budget)).thenReturn(new BudgetStatusDTO(budget, new BigDecimal("250.00"),
+                new BigDecimal("150.00"), new BigDecimal("62.50"), false, start, end));
+        when(modelStore.project(eq(1L), any(), eq(start), eq(end), eq(List.of(5L))))
+                .thenReturn(List.of(new CategoryProjection(5L, 25000, 5000, 12500)));
+
+        BudgetForecastDTO forecast = forecastService.getBudgetForecast(3L);
+
+        assertEquals(new BigDecimal("250.00"), forecast.getSpentToDate());
+        assertEquals(new BigDecimal("425.00"), forecast.getProjectedTotal());
+        assertEquals(new BigDecimal("-25.00"), forecast.getProjectedRemaining());
+        assertTrue(forecast.isProjectedOverBudget());
+    }
+
+    @Test
+    void testPrecomputeRebuildsUsersInPages() {
+        ReflectionTestUtils.setField(forecastService, "pageSize", 2);
+        when(jobCheckpointRepository.findFirstByJobNameOrderByStartedAtDesc(SpendForecastService.JOB_NAME))
+                .thenReturn(Optional.empty());
+        when(jobCheckpointRepository.save(any(JobCheckpoint.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(budgetRepository.findUserIdsWithActiveBudgets(eq(0L), any())).thenReturn(List.of(1L, 2L));
+        when(budgetRepository.findUserIdsWithActiveBudgets(eq(2L), any())).thenReturn(List.of(3L));
+        when(budgetRepository.findUserIdsWithActiveBudgets(eq(3L), any())).thenReturn(Collections.emptyList());
+        when(modelStore.rebuild(anyCollection(), any())).thenReturn(10L);
+
+        JobCheckpoint run = forecastService.precomputeAll();
+
+        assertEquals(JobStatus.COMPLETED, run.getStatus());
+        assertEquals(3, run.getItemsProcessed());
+        assertEquals(20, run.getRowsScanned());
+        assertEquals(3L, run.getLastKey());
+        verify(modelStore).rebuild(eq(List.of(1L, 2L)), any());
+        verify(modelStore).rebuild(eq(List.of(3L)), any());
+    }
+}
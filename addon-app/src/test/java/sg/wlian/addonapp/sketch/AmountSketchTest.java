@@ -0,0 +1,84 @@
+package sg.wlian.addonapp.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AmountSketchTest {
+
+    private static AmountSketch sketchOf(int fromDollars, int toDollars) {
+        AmountSketch sketch = new AmountSketch();
+        for (int dollars = fromDollars; dollars <= toDollars; dollars++) {
+            sketch.add(BigDecimal.valueOf(dollars));
+        }
+        return sketch;
+    }
+
+    private static void assertWithinAccuracy(double expected, BigDecimal actual) {
+        double error = Math.abs(actual.doubleValue() - expected) / expected;
+        assertTrue(error <= AmountSketch.RELATIVE_ACCURACY + 1e-3, "expected ~" + expected + " but was " + actual);
+    }
+
+    @Test
+    void testQuantilesAreWithinRelativeAccuracy() {
+        AmountSketch sketch = sketchOf(1, 1000);
+
+        assertEquals(1000, sketch.count());
+        assertWithinAccuracy(500, sketch.quantile(0.5));
+        assertWithinAccuracy(900, sketch.quantile(0.9));
+        assertWithinAccuracy(990, sketch.quantile(0.99));
+        assertWithinAccuracy(1, sketch.quantile(0));
+        assertWithinAccuracy(1000, sketch.quantile(1));
+    }
+
+    @Test
+    void testMergeMatchesSketchOfAllAmounts() {
+        AmountSketch merged = sketchOf(1, 400);
+        merged.merge(sketchOf(401, 1000));
+
+        AmountSketch whole = sketchOf(1, 1000);
+        for (double q : new double[]{0.1, 0.5, 0.9, 0.99}) {
+            assertEquals(whole.quantile(q), merged.quantile(q));
+        }
+    }
+
+    @Test
+    void testRemovedAmountsNoLongerCount() {
+        AmountSketch sketch = sketchOf(1, 10);
+        sketch.add(new BigDecimal("5000.00"));
+        sketch.remove(new BigDecimal("5000.00"));
+
+        assertEquals(10, sketch.count());
+        assertWithinAccuracy(10, sketch.quantile(1));
+    }
+
+    @Test
+    void testRefundsSortBeforeExpenses() {
+        AmountSketch sketch = new AmountSketch();
+        sketch.add(new BigDecimal("-40.00"));
+        sketch.add(BigDecimal.ZERO);
+        sketch.add(new BigDecimal("25.00"));
+
+        assertWithinAccuracy(-40, sketch.quantile(0));
+        assertEquals(new BigDecimal("0.00"), sketch.quantile(0.5));
+        assertWithinAccuracy(25, sketch.quantile(1));
+    }
+
+    @Test
+    void testRoundTripsThroughBytes() {
+        AmountSketch sketch = sketchOf(1, 1000);
+        sketch.add(new BigDecimal("-12.50"));
+        sketch.add(BigDecimal.ZERO);
+
+        AmountSketch copy = AmountSketch.fromBytes(sketch.toBytes());
+
+        assertEquals(sketch.count(), copy.count());
+        for (double q : new double[]{0, 0.5, 0.9, 0.99, 1}) {
+            assertEquals(sketch.quantile(q), copy.quantile(q));
+        }
+        assertTrue(AmountSketch.fromBytes(new byte[0]).isEmpty());
+        assertNull(new AmountSketch().quantile(0.5));
+    }
+}
@@ -0,0 +1,150 @@
+package sg.wlian.addonapp.sql;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CountingDataSourceTest {
+
+    private CountingDataSource dataSource;
+    // Keeps the in-memory database alive between connections
+    private Connection keepAlive;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:counting;DB_CLOSE_DELAY=-1");
+        keepAlive = h2.getConnection();
+        try (Statement statement = keepAlive.createStatement()) {
+            statement.execute("CREATE TABLE item (id INT PRIMARY KEY, name VARCHAR(20))");
+        }
+        dataSource = new CountingDataSource(h2);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        SqlUsage.stop();
+        try (Statement statement = keepAlive.createStatement()) {
+            statement.execute("DROP TABLE item");
+        }
+        keepAlive.close();
+    }
+
+    private void insertItems(int count) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement insert = connection.prepareStatement("INSERT INTO item VALUES (?, ?)")) {
+            for (int i = 1; i <= count; i++) {
+                insert.setInt(1, i);
+                insert.setString(2, "item " + i);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    @Test
+    void testCountsStatementsAndRows() throws SQLException {
+        SqlUsage usage = SqlUsage.start();
+
+        insertItems(5);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement select = connection.prepareStatement("SELECT name FROM item WHERE id > ?")) {
+            select.setInt(1, 2);
+            try (ResultSet rows = select.executeQuery()) {
+                while (rows.next()) {
+                    assertNotNull(rows.getString(1));
+                }
+                assertSame(select, rows.getStatement());
+            }
+        }
+
+        // One batch and one query; five rows inserted and three read
+        assertEquals(2, usage.getStatements());
+        assertEquals(8, usage.getRows());
+    }
+
+    @Test
+    void testStatementsInsideAnObservationAreObservedWithRowCounts() throws SQLException {
+        List<Observation.Context> statements = new ArrayList<>();
+        ObservationRegistry registry = ObservationRegistry.create();
+        registry.observationConfig().observationHandler(new ObservationHandler<Observation.Context>() {
+            @Override
+            public void onStop(Observation.Context context) {
+                if ("sql.statement".equals(context.getName())) {
+                    statements.add(context);
+                }
+            }
+
+            @Override
+            public boolean supportsContext(Observation.Context context) {
+                return true;
+            }
+        });
+        dataSource = new CountingDataSource(dataSource.getTargetDataSource(), () -> registry);
+
+        try (Connection connection = dataSource.getConnection();
+             Statement count = connection.createStatement()) {
+            count.executeQuery("SELECT COUNT(*) FROM item").close();
+        }
+        assertTrue(statements.isEmpty());
+
+        Observation.createNotStarted("request", registry).observeChecked(() -> {
+            insertItems(3);
+            try (Connection connection = dataSource.getConnection();
+                 Statement select = connection.createStatement();
+                 ResultSet rows = select.executeQuery("SELECT * FROM item")) {
+                while (rows.next()) {
+                    assertTrue(rows.getInt(1) > 0);
+                }
+            }
+        });
+
+        assertEquals(2, statements.size());
+        assertEquals("insert", statements.get(0).getLowCardinalityKeyValue("db.operation").getValue());
+        assertEquals("3", statements.get(0).getHighCardinalityKeyValue("db.rows").getValue());
+        assertEquals("SELECT * FROM item", statements.get(1).getHighCardinalityKeyValue("db.statement").getValue());
+        assertEquals("3", statements.get(1).getHighCardinalityKeyValue("db.rows").getValue());
+    }
+
+    @Test
+    void testNothingIsCountedOnceStopped() throws SQLException {
+        SqlUsage usage = SqlUsage.start();
+        SqlUsage.stop();
+
+        insertItems(3);
+
+        assertEquals(0, usage.getStatements());
+        assertNull(SqlUsage.current());
+    }
+
+    @Test
+    void testPropagatedTasksCountTowardsTheSubmittingUsage() throws SQLException {
+        SqlUsage usage = SqlUsage.start();
+
+        CompletableFuture.runAsync(SqlUsage.propagate(() -> {
+            try {
+                insertItems(2);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        })).join();
+
+        assertEquals(1, usage.getStatements());
+        assertEquals(2, usage.getRows());
+    }
+}
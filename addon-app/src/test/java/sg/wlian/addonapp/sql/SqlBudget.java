@@ -0,0 +1,25 @@
+package sg.wlian.addonapp.sql;
+
+import org.springframework.test.web.servlet.ResultMatcher;
+import sg.wlian.addonapp.web.SqlBudgetFilter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MockMvc expectations on the SQL a request ran, so an endpoint that starts running more statements
+ * fails its test.
+ */
+public final class SqlBudget {
+
+    private SqlBudget() {
+    }
+
+    public static ResultMatcher maxStatements(int max) {
+        return result -> {
+            SqlUsage usage = (SqlUsage) result.getRequest().getAttribute(SqlBudgetFilter.USAGE_ATTRIBUTE);
+            assertNotNull(usage, "SQL usage not recorded; is sql.budget.enabled off?");
+            assertTrue(usage.getStatements() <= max,
+                    "Expected at most " + max + " SQL statements but the request ran " + usage);
+        };
+    }
+}
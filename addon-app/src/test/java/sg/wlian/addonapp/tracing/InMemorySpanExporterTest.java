@@ -0,0 +1,88 @@
+package sg.wlian.addonapp.tracing;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import sg.wlian.addonapp.dto.TraceDTO;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemorySpanExporterTest {
+
+    private final InMemorySpanExporter exporter = new InMemorySpanExporter();
+    private SdkTracerProvider tracerProvider;
+    private Tracer tracer;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(exporter, "maxSpans", 4);
+        tracerProvider = SdkTracerProvider.builder().addSpanProcessor(SimpleSpanProcessor.create(exporter)).build();
+        tracer = tracerProvider.get("test");
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracerProvider.close();
+    }
+
+    private void request(String name, int children) {
+        Span root = tracer.spanBuilder(name).startSpan();
+        try (Scope scope = root.makeCurrent()) {
+            for (int i = 0; i < children; i++) {
+                tracer.spanBuilder("sql select").startSpan().setAttribute("db.rows", "3").end();
+            }
+        } finally {
+            root.setAttribute(TraceAttributes.USER_ID, "7");
+            root.end();
+        }
+    }
+
+    @Test
+    void testSpansAreGroupedIntoTracesNewestFirst() {
+        request("GET /api/reports/user/{userId}/monthly-trend", 2);
+        request("GET /api/budgets/user/{userId}", 0);
+
+        List<TraceDTO> traces = exporter.recentTraces(10, 0);
+
+        assertEquals(2, traces.size());
+        assertEquals("GET /api/budgets/user/{userId}", traces.get(0).getName());
+        TraceDTO report = traces.get(1);
+        assertEquals("GET /api/reports/user/{userId}/monthly-trend", report.getName());
+        assertEquals(3, report.getSpans().size());
+        // Children end before the root, but spans are listed by start
+        assertNull(report.getSpans().get(0).getParentSpanId());
+        assertEquals("7", report.getSpans().get(0).getAttributes().get(TraceAttributes.USER_ID));
+        assertEquals("3", report.getSpans().get(1).getAttributes().get("db.rows"));
+    }
+
+    @Test
+    void testOldestSpansAreEvicted() {
+        request("first", 2);
+        request("second", 2);
+
+        List<TraceDTO> traces = exporter.recentTraces(10, 0);
+
+        // Four spans kept: the first trace lost its two children
+        assertEquals(2, traces.size());
+        assertEquals(1, traces.get(1).getSpans().size());
+        assertEquals("first", traces.get(1).getName());
+    }
+
+    @Test
+    void testDisabledExporterKeepsNothing() {
+        ReflectionTestUtils.setField(exporter, "maxSpans", 0);
+
+        request("ignored", 1);
+
+        assertFalse(exporter.isEnabled());
+        assertTrue(exporter.recentTraces(10, 0).isEmpty());
+    }
+}
@@ -0,0 +1,75 @@
+package sg.wlian.addonapp.tracing;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TraceAttributesTest {
+
+    private final ObservationRegistry registry = ObservationRegistry.create();
+    private final Map<String, Observation.Context> stopped = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        registry.observationConfig()
+                .observationFilter(new InheritedAttributesFilter())
+                .observationHandler(new ObservationHandler<Observation.Context>() {
+                    @Override
+                    public void onStop(Observation.Context context) {
+                        stopped.put(context.getName(), context);
+                    }
+
+                    @Override
+                    public boolean supportsContext(Observation.Context context) {
+                        return true;
+                    }
+                });
+    }
+
+    private String value(String observation, String key) {
+        KeyValue keyValue = stopped.get(observation).getHighCardinalityKeyValue(key);
+        return keyValue != null ? keyValue.getValue() : null;
+    }
+
+    @Test
+    void testTagReachesEnclosingAndNestedObservations() {
+        Observation.createNotStarted("request", registry).observe(() ->
+                Observation.createNotStarted("service", registry).observe(() -> {
+                    TraceAttributes.tag(registry, TraceAttributes.REPORT_KIND, "MONTHLY_TREND");
+                    Observation.createNotStarted("sql", registry).observe(() -> { });
+                }));
+
+        assertEquals("MONTHLY_TREND", value("request", TraceAttributes.REPORT_KIND));
+        assertEquals("MONTHLY_TREND", value("service", TraceAttributes.REPORT_KIND));
+        assertEquals("MONTHLY_TREND", value("sql", TraceAttributes.REPORT_KIND));
+        assertNull(value("sql", TraceAttributes.USER_ID));
+    }
+
+    @Test
+    void testNestedValueIsNotOverwritten() {
+        Observation.createNotStarted("bundle", registry).observe(() -> {
+            TraceAttributes.tag(registry, TraceAttributes.REPORT_KIND, "MONTHLY_TREND,WEEKLY_TREND");
+            Observation.createNotStarted("section", registry)
+                    .highCardinalityKeyValue(TraceAttributes.REPORT_KIND, "WEEKLY_TREND")
+                    .observe(() -> TraceAttributes.tag(registry, TraceAttributes.USER_ID, 7L));
+        });
+
+        assertEquals("WEEKLY_TREND", value("section", TraceAttributes.REPORT_KIND));
+        assertEquals("MONTHLY_TREND,WEEKLY_TREND", value("bundle", TraceAttributes.REPORT_KIND));
+        assertEquals("7", value("bundle", TraceAttributes.USER_ID));
+    }
+
+    @Test
+    void testTagOutsideObservationIsIgnored() {
+        assertDoesNotThrow(() -> TraceAttributes.tag(registry, TraceAttributes.USER_ID, 7L));
+        assertDoesNotThrow(() -> TraceAttributes.tag(ObservationRegistry.NOOP, TraceAttributes.USER_ID, 7L));
+    }
+}
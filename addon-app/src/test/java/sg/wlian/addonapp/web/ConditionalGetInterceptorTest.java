@@ -0,0 +1,140 @@
+package sg.wlian.addonapp.web;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import sg.wlian.addonapp.event.CategoryChangedEvent;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConditionalGetInterceptorTest {
+
+    @Spy
+    private DataVersions dataVersions;
+
+    @Mock
+    private ResponseStats responseStats;
+
+    @InjectMocks
+    private ConditionalGetInterceptor interceptor;
+
+    @ConditionalGet
+    static class TaggedController {
+        public void report() {
+        }
+
+        @ConditionalGet(closedRange = true)
+        public void rangeReport() {
+        }
+    }
+
+    static class PlainController {
+        public void stats() {
+        }
+    }
+
+    private static HandlerMethod handler(Object bean, String method) throws NoSuchMethodException {
+        return new HandlerMethod(bean, method);
+    }
+
+    private static MockHttpServletRequest get(Long userId) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/reports/user/" + userId);
+        request.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, Map.of("userId", userId.toString()));
+        return request;
+    }
+
+    @Test
+    void testMatchingTagIsAnsweredWithNotModified() throws Exception {
+        HandlerMethod report = handler(new TaggedController(), "report");
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        MockHttpServletRequest request = get(1L);
+        assertTrue(interceptor.preHandle(request, first, report));
+        String etag = first.getHeader("ETag");
+        assertNotNull(etag);
+        assertEquals(Boolean.TRUE, request.getAttribute(ResponseCompressionFilter.COMPRESSIBLE_ATTRIBUTE));
+        assertEquals("no-cache, private", first.getHeader("Cache-Control"));
+
+        MockHttpServletRequest revalidate = get(1L);
+        revalidate.addHeader("If-None-Match", etag);
+        MockHttpServletResponse second = new MockHttpServletResponse();
+
+        assertFalse(interceptor.preHandle(revalidate, second, report));
+        assertEquals(304, second.getStatus());
+        verify(responseStats).recordNotModified(etag);
+    }
+
+    @Test
+    void testChangeToTheUserChangesTheTag() throws Exception {
+        HandlerMethod report = handler(new TaggedController(), "report");
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        interceptor.preHandle(get(1L), first, report);
+        String etag = first.getHeader("ETag");
+
+        dataVersions.onCategoryChanged(new CategoryChangedEvent(2L));
+        MockHttpServletResponse otherUser = new MockHttpServletResponse();
+        interceptor.preHandle(get(1L), otherUser, report);
+        assertEquals(etag, otherUser.getHeader("ETag"));
+
+        dataVersions.onCategoryChanged(new CategoryChangedEvent(1L));
+        MockHttpServletRequest revalidate = get(1L);
+        revalidate.addHeader("If-None-Match", etag);
+        MockHttpServletResponse changed = new MockHttpServletResponse();
+        assertTrue(interceptor.preHandle(revalidate, changed, report));
+        assertNotEquals(etag, changed.getHeader("ETag"));
+        verifyNoInteractions(responseStats);
+    }
+
+    @Test
+    void testGzipVariantOfTheTagMatches() throws Exception {
+        HandlerMethod report = handler(new TaggedController(), "report");
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        interceptor.preHandle(get(1L), first, report);
+        String gzipEtag = ResponseCompressionFilter.gzipVariant(first.getHeader("ETag"));
+
+        MockHttpServletRequest revalidate = get(1L);
+        revalidate.addHeader("If-None-Match", "\"other\", W/" + gzipEtag);
+        MockHttpServletResponse second = new MockHttpServletResponse();
+
+        assertFalse(interceptor.preHandle(revalidate, second, report));
+        assertEquals(gzipEtag, second.getHeader("ETag"));
+    }
+
+    @Test
+    void testClosedRangeMayBeReusedWithoutRevalidating() throws Exception {
+        HandlerMethod rangeReport = handler(new TaggedController(), "rangeReport");
+        MockHttpServletRequest closed = get(1L);
+        closed.setParameter("endDate", "2020-01-31");
+        MockHttpServletResponse closedResponse = new MockHttpServletResponse();
+        interceptor.preHandle(closed, closedResponse, rangeReport);
+        assertEquals("max-age=3600, private", closedResponse.getHeader("Cache-Control"));
+
+        MockHttpServletRequest open = get(1L);
+        open.setParameter("endDate", "2999-01-31");
+        MockHttpServletResponse openResponse = new MockHttpServletResponse();
+        interceptor.preHandle(open, openResponse, rangeReport);
+        assertEquals("no-cache, private", openResponse.getHeader("Cache-Control"));
+    }
+
+    @Test
+    void testUnmarkedHandlersAreLeftAlone() throws Exception {
+        MockHttpServletRequest request = get(1L);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertTrue(interceptor.preHandle(request, response, handler(new PlainController(), "stats")));
+        assertNull(response.getHeader("ETag"));
+        // Streamed rather than buffered for compression
+        assertNull(request.getAttribute(ResponseCompressionFilter.COMPRESSIBLE_ATTRIBUTE));
+        verifyNoInteractions(dataVersions);
+    }
+}
@@ -0,0 +1,116 @@
+package sg.wlian.addonapp.web;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import sg.wlian.addonapp.dto.ExpenseColumnsDTO;
+import sg.wlian.addonapp.dto.ExpenseSyncResponse;
+import sg.wlian.addonapp.entity.Category;
+import sg.wlian.addonapp.entity.Expense;
+import sg.wlian.addonapp.entity.PaymentMethod;
+import sg.wlian.addonapp.entity.User;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpenseColumnsHttpMessageConverterTest {
+
+    private static final Type EXPENSE_LIST = new TypeReference<List<Expense>>() { }.getType();
+
+    // Boot's defaults, which WireFormatConfig also builds the CBOR and Smile mappers from
+    private static Jackson2ObjectMapperBuilder builder() {
+        return Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    private final ObjectMapper json = builder().build();
+
+    private final ExpenseColumnsHttpMessageConverter converter = new ExpenseColumnsHttpMessageConverter(json);
+
+    static List<Expense> expenses(int count, int categoryCount) {
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("alice");
+        List<Category> categories = new ArrayList<>();
+        for (int c = 0; c < categoryCount; c++) {
+            Category category = new Category();
+            category.setId((long) c + 1);
+            category.setName("Category " + c);
+            category.setColor("#33FF57");
+            categories.add(category);
+        }
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Expense expense = new Expense();
+            expense.setId((long) i + 1);
+            expense.setUser(user);
+            expense.setDescription("Expense " + i);
+            expense.setAmount(BigDecimal.valueOf(1000 + i, 2));
+            expense.setDate(LocalDate.of(2024, 6, 1).plusDays(i % 30));
+            expense.setCategory(i % 5 == 4 ? null : categories.get(i % categoryCount));
+            expense.setPaymentMethod(PaymentMethod.CREDIT_CARD);
+            expense.setUpdatedAt(LocalDateTime.of(2024, 6, 1, 12, 0));
+            expenses.add(expense);
+        }
+        return expenses;
+    }
+
+    @Test
+    void testWritesOnlyExpenseListsAndSyncPages() {
+        assertTrue(converter.canWrite(EXPENSE_LIST, List.class, ExpenseColumnsHttpMessageConverter.EXPENSE_COLUMNS));
+        assertTrue(converter.canWrite(ExpenseSyncResponse.class, ExpenseSyncResponse.class, null));
+        assertFalse(converter.canWrite(new TypeReference<List<String>>() { }.getType(), List.class, null));
+        assertFalse(converter.canWrite(EXPENSE_LIST, List.class, MediaType.APPLICATION_JSON));
+        assertFalse(converter.canRead(EXPENSE_LIST, null, ExpenseColumnsHttpMessageConverter.EXPENSE_COLUMNS));
+    }
+
+    @Test
+    void testCategoriesAreSentOnceAndReferencedByIndex() throws IOException {
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+
+        converter.write(expenses(10, 2), EXPENSE_LIST, ExpenseColumnsHttpMessageConverter.EXPENSE_COLUMNS, message);
+
+        JsonNode body = json.readTree(message.getBodyAsBytes());
+        assertEquals(10, body.get("count").asInt());
+        assertEquals(2, body.get("categories").size());
+        assertEquals("Category 1", body.get("categories").get(1).get("name").asText());
+        assertEquals(1, body.get("categoryIndexes").get(1).asInt());
+        assertEquals(-1, body.get("categoryIndexes").get(4).asInt());
+        assertEquals("2024-06-02", body.get("dates").get(1).asText());
+        assertEquals("10.09", body.get("amounts").get(9).decimalValue().toPlainString());
+        assertEquals(ExpenseColumnsHttpMessageConverter.EXPENSE_COLUMNS_VALUE,
+                message.getHeaders().getContentType().toString());
+    }
+
+    @Test
+    void testCompactFormatsAreSmallerThanJson() throws IOException {
+        List<Expense> expenses = expenses(1000, 12);
+        ObjectMapper cbor = builder().factory(new CBORFactory()).build();
+        ObjectMapper smile = builder().factory(new SmileFactory()).build();
+
+        byte[] plain = json.writeValueAsBytes(expenses);
+        byte[] cborBytes = cbor.writeValueAsBytes(expenses);
+        byte[] smileBytes = smile.writeValueAsBytes(expenses);
+        byte[] columns = json.writeValueAsBytes(ExpenseColumnsDTO.of(expenses));
+
+        assertTrue(cborBytes.length < plain.length);
+        assertTrue(smileBytes.length < plain.length);
+        assertTrue(columns.length < plain.length / 2);
+        assertEquals(1000, cbor.readValue(cborBytes, List.class).size());
+        assertEquals(1000, smile.readValue(smileBytes, List.class).size());
+        assertEquals(1000, json.readValue(columns, ExpenseColumnsDTO.class).getCount());
+    }
+}
@@ -0,0 +1,116 @@
+package sg.wlian.addonapp.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class ResponseCompressionFilterTest {
+
+    @Spy
+    private ResponseStats responseStats;
+
+    @InjectMocks
+    private ResponseCompressionFilter filter;
+
+    private static String json(int entries) {
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < entries; i++) {
+            body.append(i == 0 ? "" : ",").append("{\"categoryName\":\"Groceries\",\"totalAmount\":12.50}");
+        }
+        return body.append("]").toString();
+    }
+
+    private static FilterChain respondingWith(String body) {
+        return (request, response) -> {
+            HttpServletResponse http = (HttpServletResponse) response;
+            http.setContentType("application/json");
+            http.setHeader("ETag", "\"v1\"");
+            http.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+        };
+    }
+
+    // As ConditionalGetInterceptor marks the request before the handler writes the body
+    private static FilterChain handledByConditionalGet(FilterChain handler) {
+        return (request, response) -> {
+            request.setAttribute(ResponseCompressionFilter.COMPRESSIBLE_ATTRIBUTE, Boolean.TRUE);
+            handler.doFilter(request, response);
+        };
+    }
+
+    private static MockHttpServletRequest get(String acceptEncoding) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/reports/user/1/bundle");
+        if (acceptEncoding != null) {
+            request.addHeader("Accept-Encoding", acceptEncoding);
+        }
+        return request;
+    }
+
+    @Test
+    void testLargeJsonIsGzippedWithItsOwnTag() throws Exception {
+        String body = json(100);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(get("br, gzip;q=0.8"), response, handledByConditionalGet(respondingWith(body)));
+
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        assertEquals("\"v1-gzip\"", response.getHeader("ETag"));
+        assertTrue(response.getHeaders("Vary").contains("Accept-Encoding"));
+        byte[] compressed = response.getContentAsByteArray();
+        assertTrue(compressed.length < body.length());
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertEquals(body, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+        responseStats.recordNotModified("\"v1-gzip\"");
+        assertEquals(1, responseStats.getStats().getCompressedResponses());
+        assertEquals(compressed.length, responseStats.getStats().getNotModifiedBytesSaved());
+        // Compression saved the difference, and the 304 the compressed body itself
+        assertEquals(body.length(), responseStats.getStats().getTotalBytesSaved());
+    }
+
+    @Test
+    void testSmallOrUnacceptedResponsesAreSentAsIs() throws Exception {
+        MockHttpServletResponse small = new MockHttpServletResponse();
+        filter.doFilter(get("gzip"), small, handledByConditionalGet(respondingWith(json(1))));
+        assertNull(small.getHeader("Content-Encoding"));
+        assertEquals(json(1), small.getContentAsString());
+
+        MockHttpServletResponse refused = new MockHttpServletResponse();
+        filter.doFilter(get("gzip;q=0"), refused, handledByConditionalGet(respondingWith(json(100))));
+        assertNull(refused.getHeader("Content-Encoding"));
+        assertEquals("\"v1\"", refused.getHeader("ETag"));
+        assertEquals(json(100), refused.getContentAsString());
+
+        assertEquals(0, responseStats.getStats().getCompressedResponses());
+    }
+
+    @Test
+    void testResponsesOfUnmarkedEndpointsAreStreamedUntouched() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain streaming = (request, res) -> {
+            res.setContentType("application/json");
+            res.getOutputStream().write(json(100).getBytes(StandardCharsets.UTF_8));
+            // Already on the client's side of the filter, not held back in a buffer
+            assertEquals(json(100), response.getContentAsString());
+        };
+
+        filter.doFilter(get("gzip"), response, streaming);
+
+        assertNull(response.getHeader("Content-Encoding"));
+        assertFalse(response.getHeaders("Vary").contains("Accept-Encoding"));
+        assertEquals(0, responseStats.getStats().getCompressedResponses());
+    }
+}
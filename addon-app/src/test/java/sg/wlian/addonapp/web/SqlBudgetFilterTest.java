@@ -0,0 +1,58 @@
+package sg.wlian.addonapp.web;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import sg.wlian.addonapp.sql.SqlUsage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class SqlBudgetFilterTest {
+
+    @Mock
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    @InjectMocks
+    private SqlBudgetFilter filter;
+
+    private MockHttpServletResponse perform(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, (req, res) -> {
+            assertNotNull(SqlUsage.current());
+            res.getWriter().write("[]");
+        });
+        return response;
+    }
+
+    @Test
+    void testUsageIsBoundForTheRequestOnly() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/budgets/user/1");
+
+        MockHttpServletResponse response = perform(request);
+
+        assertNull(SqlUsage.current());
+        assertInstanceOf(SqlUsage.class, request.getAttribute(SqlBudgetFilter.USAGE_ATTRIBUTE));
+        assertNull(response.getHeader(SqlBudgetFilter.STATEMENTS_HEADER));
+        assertEquals("[]", response.getContentAsString());
+    }
+
+    @Test
+    void testHeadersAreSentWhenEnabled() throws Exception {
+        ReflectionTestUtils.setField(filter, "headersEnabled", true);
+
+        MockHttpServletResponse response = perform(new MockHttpServletRequest("GET", "/api/budgets/user/1"));
+
+        assertEquals("0", response.getHeader(SqlBudgetFilter.STATEMENTS_HEADER));
+        assertEquals("0", response.getHeader(SqlBudgetFilter.ROWS_HEADER));
+        assertNotNull(response.getHeader(SqlBudgetFilter.DB_TIME_HEADER));
+        assertEquals("[]", response.getContentAsString());
+    }
+}
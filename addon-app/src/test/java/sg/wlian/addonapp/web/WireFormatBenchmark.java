@@ -0,0 +1,125 @@
+package sg.wlian.addonapp.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import sg.wlian.addonapp.dto.ExpenseColumnsDTO;
+import sg.wlian.addonapp.entity.Expense;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Payload size and encode/decode time of an expense list in each wire format the API offers. Kept
+ * out of the test suite, which only checks sizes; run it on a quiet machine with
+ * {@code ./gradlew :addon-app:formatBenchmark --args="--expenses=5000"}.
+ *
+ * <p>Encoding is what the server does for a response. Decoding reads the payload into generic
+ * collections, or {@link ExpenseColumnsDTO} for the columns shape, which is the work a client does.
+ * Each format is timed for {@code --iterations} rounds after {@code --warmup} untimed ones, and the
+ * median and 90th percentile per round are reported.
+ */
+public class WireFormatBenchmark {
+
+    private interface Codec {
+        byte[] encode(List<Expense> expenses) throws IOException;
+
+        Object decode(byte[] payload) throws IOException;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        int count = Integer.parseInt(options.getOrDefault("expenses", "1000"));
+        int categories = Integer.parseInt(options.getOrDefault("categories", "12"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "200"));
+        int iterations = Integer.parseInt(options.getOrDefault("iterations", "500"));
+
+        // Boot's defaults, which WireFormatConfig also builds the CBOR and Smile mappers from
+        Jackson2ObjectMapperBuilder builder =
+                Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        ObjectMapper json = builder.build();
+        ObjectMapper cbor = builder.factory(new CBORFactory()).build();
+        ObjectMapper smile = builder.factory(new SmileFactory()).build();
+
+        Map<String, Codec> codecs = new LinkedHashMap<>();
+        codecs.put("json", mapperCodec(json));
+        codecs.put("cbor", mapperCodec(cbor));
+        codecs.put("smile", mapperCodec(smile));
+        codecs.put("expense-columns", new Codec() {
+            @Override
+            public byte[] encode(List<Expense> expenses) throws IOException {
+                return json.writeValueAsBytes(ExpenseColumnsDTO.of(expenses));
+            }
+
+            @Override
+            public Object decode(byte[] payload) throws IOException {
+                return json.readValue(payload, ExpenseColumnsDTO.class);
+            }
+        });
+
+        List<Expense> expenses = ExpenseColumnsHttpMessageConverterTest.expenses(count, categories);
+        System.out.printf("%d expenses in %d categories, %d rounds after %d warm-up rounds%n%n",
+                count, categories, iterations, warmup);
+        System.out.printf("%-16s %10s %14s %14s %14s %14s%n",
+                "format", "bytes", "encode p50 us", "encode p90 us", "decode p50 us", "decode p90 us");
+        // Keeps the results reachable so the work is not optimised away
+        long sink = 0;
+        for (Map.Entry<String, Codec> entry : codecs.entrySet()) {
+            Codec codec = entry.getValue();
+            byte[] payload = codec.encode(expenses);
+            for (int i = 0; i < warmup; i++) {
+                sink += codec.encode(expenses).length;
+                sink += System.identityHashCode(codec.decode(payload));
+            }
+            long[] encodeNanos = new long[iterations];
+            long[] decodeNanos = new long[iterations];
+            for (int i = 0; i < iterations; i++) {
+                long start = System.nanoTime();
+                sink += codec.encode(expenses).length;
+                long encoded = System.nanoTime();
+                sink += System.identityHashCode(codec.decode(payload));
+                decodeNanos[i] = System.nanoTime() - encoded;
+                encodeNanos[i] = encoded - start;
+            }
+            System.out.printf("%-16s %10d %14.1f %14.1f %14.1f %14.1f%n", entry.getKey(), payload.length,
+                    percentileMicros(encodeNanos, 50), percentileMicros(encodeNanos, 90),
+                    percentileMicros(decodeNanos, 50), percentileMicros(decodeNanos, 90));
+        }
+        System.out.println();
+        System.out.println("(" + sink + ")");
+    }
+
+    private static Codec mapperCodec(ObjectMapper mapper) {
+        return new Codec() {
+            @Override
+            public byte[] encode(List<Expense> expenses) throws IOException {
+                return mapper.writeValueAsBytes(expenses);
+            }
+
+            @Override
+            public Object decode(byte[] payload) throws IOException {
+                return mapper.readValue(payload, List.class);
+            }
+        };
+    }
+
+    private static double percentileMicros(long[] nanos, int percentile) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        int index = Math.min(sorted.length - 1, (int) Math.ceil(percentile / 100.0 * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1000.0;
+    }
+}
@@ -0,0 +1,127 @@
+package sg.wlian.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Sends requests the way the web client does, with the session's JWT, gzip and {@code If-None-Match} on
+ * GETs, and records each one under an endpoint name such as {@code GET /api/budgets/user/{userId}}.
+ * The recorded latency runs until the whole body has arrived.
+ */
+final class ApiClient {
+
+    record Response(int status, JsonNode body) {
+
+        static final Response FAILED = new Response(0, null);
+
+        boolean ok() {
+            return status >= 200 && status < 400;
+        }
+    }
+
+    private final HttpClient http;
+    private final URI baseUrl;
+    private final Duration timeout;
+    private final Recorder recorder;
+    private final ObjectMapper mapper;
+
+    ApiClient(HttpClient http, URI baseUrl, Duration timeout, Recorder recorder, ObjectMapper mapper) {
+        this.http = http;
+        this.baseUrl = baseUrl;
+        this.timeout = timeout;
+        this.recorder = recorder;
+        this.mapper = mapper;
+    }
+
+    Response get(Session session, String endpoint, String path) {
+        return getAsync(session, endpoint, path).join();
+    }
+
+    CompletableFuture<Response> getAsync(Session session, String endpoint, String path) {
+        return send(session, endpoint, path, request(path).GET());
+    }
+
+    Response post(Session session, String endpoint, String path, JsonNode body) {
+        return send(session, endpoint, null, request(path)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(bytes(body)))).join();
+    }
+
+    Response put(Session session, String endpoint, String path, JsonNode body) {
+        return send(session, endpoint, null, request(path)
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofByteArray(bytes(body)))).join();
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(baseUrl.resolve(path)).timeout(timeout);
+    }
+
+    private CompletableFuture<Response> send(Session session, String endpoint, String cacheKey,
+                                             HttpRequest.Builder builder) {
+        builder.header("Accept", "application/json").header("Accept-Encoding", "gzip");
+        if (session.loggedIn()) {
+            builder.header("Authorization", "Bearer " + session.token());
+        }
+        Session.Cached cached = cacheKey != null ? session.cached(cacheKey) : null;
+        if (cached != null) {
+            builder.header("If-None-Match", cached.etag());
+        }
+
+        long start = System.nanoTime();
+        return http.sendAsync(builder.build(), HttpResponse.BodyHandlers.ofByteArray())
+                .handle((response, failure) -> {
+                    long elapsed = System.nanoTime() - start;
+                    if (failure != null) {
+                        recorder.record(endpoint, elapsed, true);
+                        return Response.FAILED;
+                    }
+                    int status = response.statusCode();
+                    recorder.record(endpoint, elapsed, status >= 400);
+                    if (status == 304 && cached != null) {
+                        return new Response(status, cached.body());
+                    }
+                    JsonNode body = status < 400 ? parse(response) : null;
+                    String etag = response.headers().firstValue("ETag").orElse(null);
+                    if (cacheKey != null && etag != null && body != null) {
+                        session.cache(cacheKey, etag, body);
+                    }
+                    return new Response(status, body);
+                });
+    }
+
+    private JsonNode parse(HttpResponse<byte[]> response) {
+        byte[] body = response.body();
+        if (body.length == 0) {
+            return null;
+        }
+        try (InputStream in = response.headers().firstValue("Content-Encoding").filter("gzip"::equalsIgnoreCase).isPresent()
+                ? new GZIPInputStream(new ByteArrayInputStream(body))
+                : new ByteArrayInputStream(body)) {
+            return mapper.readTree(in);
+        } catch (IOException e) {
+            // Not JSON, e.g. the plain-text body of a failed login
+            return null;
+        }
+    }
+
+    private byte[] bytes(JsonNode body) {
+        try {
+            return mapper.writeValueAsBytes(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
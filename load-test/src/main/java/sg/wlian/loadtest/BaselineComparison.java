@@ -0,0 +1,85 @@
+package sg.wlian.loadtest;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares a run with a saved baseline, endpoint by endpoint. An endpoint regressed when its p95 latency
+ * rose, or its throughput fell, by more than the tolerance, or its error rate rose by more than a
+ * percentage point. Latency changes under {@link #MIN_LATENCY_CHANGE_MS} are ignored as noise, since a
+ * 20% change of a 2 ms endpoint means nothing. Throughput is only compared when both runs had the same
+ * number of users. Endpoints in only one of the two runs are listed but not counted as regressions.
+ */
+final class BaselineComparison {
+
+    static final double MIN_LATENCY_CHANGE_MS = 5.0;
+    static final double MAX_ERROR_RATE_INCREASE = 0.01;
+
+    private final List<String> lines = new ArrayList<>();
+    private final List<String> regressions = new ArrayList<>();
+
+    BaselineComparison(LoadReport baseline, LoadReport current, double tolerance) {
+        boolean sameLoad = baseline.users() == current.users();
+        if (!sameLoad) {
+            lines.add("The baseline ran " + baseline.users() + " users and this run " + current.users()
+                    + "; throughput is not comparable");
+        }
+        Map<String, EndpointSummary> before = new HashMap<>();
+        for (EndpointSummary summary : baseline.endpoints()) {
+            before.put(summary.endpoint(), summary);
+        }
+        for (EndpointSummary now : current.endpoints()) {
+            EndpointSummary then = before.remove(now.endpoint());
+            if (then == null) {
+                lines.add(String.format("%-52s new", now.endpoint()));
+                continue;
+            }
+            compare(then, now, tolerance, sameLoad);
+        }
+        for (String missing : before.keySet()) {
+            lines.add(String.format("%-52s not requested in this run", missing));
+        }
+        compare(baseline.total(), current.total(), tolerance, sameLoad);
+    }
+
+    private void compare(EndpointSummary then, EndpointSummary now, double tolerance, boolean sameLoad) {
+        String endpoint = now.endpoint();
+        lines.add(String.format("%-52s p95 %7.1f -> %7.1f ms (%+5.0f%%)   req/s %7.1f -> %7.1f (%+5.0f%%)   errors %5.2f%% -> %5.2f%%",
+                endpoint, then.p95Ms(), now.p95Ms(), change(then.p95Ms(), now.p95Ms()),
+                then.throughput(), now.throughput(), change(then.throughput(), now.throughput()),
+                then.errorRate() * 100, now.errorRate() * 100));
+
+        if (now.p95Ms() > then.p95Ms() * (1 + tolerance) && now.p95Ms() - then.p95Ms() >= MIN_LATENCY_CHANGE_MS) {
+            regressions.add(endpoint + ": p95 " + then.p95Ms() + " ms -> " + now.p95Ms() + " ms");
+        }
+        if (sameLoad && now.throughput() < then.throughput() * (1 - tolerance)) {
+            regressions.add(endpoint + ": throughput " + then.throughput() + " -> " + now.throughput() + " req/s");
+        }
+        if (now.errorRate() > then.errorRate() + MAX_ERROR_RATE_INCREASE) {
+            regressions.add(endpoint + ": error rate " + then.errorRate() + " -> " + now.errorRate());
+        }
+    }
+
+    private static double change(double then, double now) {
+        return then == 0 ? 0 : (now - then) / then * 100;
+    }
+
+    List<String> regressions() {
+        return regressions;
+    }
+
+    void print(PrintStream out) {
+        out.println();
+        out.println("Compared with the baseline:");
+        lines.forEach(out::println);
+        if (regressions.isEmpty()) {
+            out.println("No regressions.");
+        } else {
+            out.println("Regressions:");
+            regressions.forEach(r -> out.println("  " + r));
+        }
+    }
+}
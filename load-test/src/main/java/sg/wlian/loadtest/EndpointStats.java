@@ -0,0 +1,108 @@
+package sg.wlian.loadtest;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Latencies and errors of one endpoint. Every sample is kept, which for a run of a few minutes is a few
+ * megabytes at most and gives exact percentiles.
+ */
+final class EndpointStats {
+
+    private final String endpoint;
+    private final ReentrantLock lock = new ReentrantLock();
+    private long[] latencies = new long[1024];
+    private int count;
+    private long errors;
+
+    EndpointStats(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    void record(long nanos, boolean error) {
+        lock.lock();
+        try {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+            if (error) {
+                errors++;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void addTo(EndpointStats total) {
+        lock.lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                total.record(latencies[i], false);
+            }
+            total.addErrors(errors);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void addErrors(long n) {
+        lock.lock();
+        try {
+            errors += n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    EndpointSummary summarize(double elapsedSeconds) {
+        long[] sorted;
+        long errorCount;
+        lock.lock();
+        try {
+            sorted = Arrays.copyOf(latencies, count);
+            errorCount = errors;
+        } finally {
+            lock.unlock();
+        }
+        Arrays.sort(sorted);
+
+        long sum = 0;
+        for (long latency : sorted) {
+            sum += latency;
+        }
+        int n = sorted.length;
+        return new EndpointSummary(
+                endpoint,
+                n,
+                errorCount,
+                n == 0 ? 0 : round((double) errorCount / n, 4),
+                elapsedSeconds > 0 ? round(n / elapsedSeconds, 2) : 0,
+                n == 0 ? 0 : millis(sum / n),
+                millis(percentile(sorted, 0.50)),
+                millis(percentile(sorted, 0.90)),
+                millis(percentile(sorted, 0.95)),
+                millis(percentile(sorted, 0.99)),
+                n == 0 ? 0 : millis(sorted[n - 1]));
+    }
+
+    /**
+     * Nearest-rank percentile: the smallest sample that at least {@code p} of the samples are at or below.
+     */
+    static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(p * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return round(nanos / 1_000_000.0, 2);
+    }
+
+    private static double round(double value, int places) {
+        double scale = Math.pow(10, places);
+        return Math.round(value * scale) / scale;
+    }
+}
@@ -0,0 +1,19 @@
+package sg.wlian.loadtest;
+
+/**
+ * Results for one endpoint over the measured part of a run. Latencies are in milliseconds, throughput in
+ * requests per second and the error rate is a fraction of requests.
+ */
+public record EndpointSummary(
+        String endpoint,
+        long requests,
+        long errors,
+        double errorRate,
+        double throughput,
+        double meanMs,
+        double p50Ms,
+        double p90Ms,
+        double p95Ms,
+        double p99Ms,
+        double maxMs) {
+}
@@ -0,0 +1,181 @@
+package sg.wlian.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * What a user does in one visit, following the requests the web client's pages make. Requests a page
+ * makes together are sent concurrently, as the browser does. Each journey is picked with a probability
+ * proportional to its weight.
+ */
+enum Journey {
+
+    /** A returning user signs in again: the login page and the token check the app makes on load. */
+    LOGIN(5) {
+        @Override
+        void run(ApiClient api, Session session) {
+            session.reset();
+            login(api, session);
+        }
+    },
+
+    /** The dashboard: expenses, the category tree and budgets. */
+    DASHBOARD(35) {
+        @Override
+        void run(ApiClient api, Session session) {
+            String user = "/user/" + session.userId();
+            CompletableFuture.allOf(
+                    api.getAsync(session, "GET /api/expenses/user/{userId}", "/api/expenses" + user),
+                    api.getAsync(session, "GET /api/categories/user/{userId}/tree", "/api/categories" + user + "/tree"),
+                    api.getAsync(session, "GET /api/budgets/user/{userId}", "/api/budgets" + user)).join();
+        }
+    },
+
+    /** The expenses page, then one to three new expenses, each saved after filling in the form. */
+    ADD_EXPENSES(25) {
+        @Override
+        void run(ApiClient api, Session session) throws InterruptedException {
+            String user = "/user/" + session.userId();
+            CompletableFuture<ApiClient.Response> categories =
+                    api.getAsync(session, "GET /api/categories/user/{userId}", "/api/categories" + user);
+            CompletableFuture.allOf(
+                    api.getAsync(session, "GET /api/expenses/user/{userId}", "/api/expenses" + user),
+                    categories).join();
+            List<Long> categoryIds = ids(categories.join().body());
+            if (categoryIds.isEmpty()) {
+                return;
+            }
+
+            Random random = session.random();
+            int count = 1 + random.nextInt(3);
+            for (int i = 0; i < count; i++) {
+                session.think();
+                api.post(session, "POST /api/expenses", "/api/expenses",
+                        newExpense(session, categoryIds.get(random.nextInt(categoryIds.size()))));
+                api.get(session, "GET /api/expenses/user/{userId}", "/api/expenses" + user);
+            }
+        }
+    },
+
+    /** The reports: the bundle, this month's category breakdown and the month forecast. */
+    REPORTS(20) {
+        @Override
+        void run(ApiClient api, Session session) {
+            String user = "/user/" + session.userId();
+            LocalDate today = LocalDate.now();
+            CompletableFuture.allOf(
+                    api.getAsync(session, "GET /api/reports/user/{userId}/bundle", "/api/reports" + user + "/bundle"),
+                    api.getAsync(session, "GET /api/reports/user/{userId}/monthly-trend",
+                            "/api/reports" + user + "/monthly-trend?months=6"),
+                    api.getAsync(session, "GET /api/reports/user/{userId}/category-breakdown",
+                            "/api/reports" + user + "/category-breakdown?startDate=" + today.withDayOfMonth(1)
+                                    + "&endDate=" + today.withDayOfMonth(today.lengthOfMonth())),
+                    api.getAsync(session, "GET /api/reports/user/{userId}/forecast",
+                            "/api/reports" + user + "/forecast")).join();
+        }
+    },
+
+    /** The budgets page, then one budget's amount changed by up to 10% and the page reloaded. */
+    EDIT_BUDGETS(15) {
+        @Override
+        void run(ApiClient api, Session session) throws InterruptedException {
+            String user = "/user/" + session.userId();
+            CompletableFuture<ApiClient.Response> budgets =
+                    api.getAsync(session, "GET /api/budgets/user/{userId}/active", "/api/budgets" + user + "/active");
+            CompletableFuture.allOf(
+                    budgets,
+                    api.getAsync(session, "GET /api/categories/user/{userId}", "/api/categories" + user),
+                    api.getAsync(session, "GET /api/budgets/user/{userId}/status", "/api/budgets" + user + "/status")).join();
+            JsonNode list = budgets.join().body();
+            if (list == null || !list.isArray() || list.isEmpty()) {
+                return;
+            }
+
+            session.think();
+            Random random = session.random();
+            ObjectNode budget = (ObjectNode) list.get(random.nextInt(list.size())).deepCopy();
+            BigDecimal amount = budget.path("amount").decimalValue()
+                    .multiply(BigDecimal.valueOf(0.9 + random.nextDouble() * 0.2))
+                    .setScale(2, RoundingMode.HALF_UP);
+            budget.put("amount", amount);
+            api.put(session, "PUT /api/budgets/{id}", "/api/budgets/" + budget.path("id").asLong(), budget);
+            CompletableFuture.allOf(
+                    api.getAsync(session, "GET /api/budgets/user/{userId}/active", "/api/budgets" + user + "/active"),
+                    api.getAsync(session, "GET /api/budgets/user/{userId}/status", "/api/budgets" + user + "/status")).join();
+        }
+    };
+
+    private static final String[] PAYMENT_METHODS = {"CREDIT_CARD", "DEBIT_CARD", "CASH", "DIGITAL_WALLET"};
+
+    private final int weight;
+
+    Journey(int weight) {
+        this.weight = weight;
+    }
+
+    abstract void run(ApiClient api, Session session) throws InterruptedException;
+
+    static Journey pick(Random random) {
+        int total = 0;
+        for (Journey journey : values()) {
+            total += journey.weight;
+        }
+        int r = random.nextInt(total);
+        for (Journey journey : values()) {
+            r -= journey.weight;
+            if (r < 0) {
+                return journey;
+            }
+        }
+        throw new IllegalStateException("Weights changed while picking");
+    }
+
+    /**
+     * Signs in and checks the token, as the login page and the app's start-up do. Returns whether the
+     * session is now logged in.
+     */
+    static boolean login(ApiClient api, Session session) {
+        ObjectNode credentials = JsonNodeFactory.instance.objectNode()
+                .put("username", session.username())
+                .put("password", session.password());
+        ApiClient.Response response = api.post(session, "POST /api/auth/login", "/api/auth/login", credentials);
+        JsonNode body = response.body();
+        if (!response.ok() || body == null || !body.hasNonNull("token")) {
+            return false;
+        }
+        session.loggedIn(body.get("token").asText(), body.path("user").path("id").asLong());
+        api.get(session, "GET /api/auth/validate", "/api/auth/validate");
+        return true;
+    }
+
+    private static ObjectNode newExpense(Session session, long categoryId) {
+        Random random = session.random();
+        ObjectNode expense = JsonNodeFactory.instance.objectNode()
+                .put("description", "Load test expense")
+                .put("amount", BigDecimal.valueOf(1 + random.nextInt(20000), 2))
+                .put("date", LocalDate.now().minusDays(random.nextInt(7)).toString())
+                .put("paymentMethod", PAYMENT_METHODS[random.nextInt(PAYMENT_METHODS.length)]);
+        expense.putObject("user").put("id", session.userId());
+        expense.putObject("category").put("id", categoryId);
+        return expense;
+    }
+
+    private static List<Long> ids(JsonNode list) {
+        List<Long> ids = new ArrayList<>();
+        if (list != null) {
+            for (JsonNode node : list) {
+                ids.add(node.path("id").asLong());
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,51 @@
+package sg.wlian.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * The results of a run, written as JSON so that a later run can be compared against it.
+ */
+public record LoadReport(
+        String startedAt,
+        String baseUrl,
+        int users,
+        double durationSeconds,
+        EndpointSummary total,
+        List<EndpointSummary> endpoints) {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    static LoadReport read(Path path) throws IOException {
+        return MAPPER.readValue(path.toFile(), LoadReport.class);
+    }
+
+    void write(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        MAPPER.writeValue(path.toFile(), this);
+    }
+
+    void print(PrintStream out) {
+        out.printf("%n%d users against %s for %.0f s%n%n", users, baseUrl, durationSeconds);
+        out.printf("%-52s %8s %8s %7s %8s %8s %8s %8s %8s%n",
+                "endpoint", "requests", "req/s", "errors", "mean ms", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (EndpointSummary summary : endpoints) {
+            printRow(out, summary);
+        }
+        printRow(out, total);
+    }
+
+    private static void printRow(PrintStream out, EndpointSummary s) {
+        out.printf("%-52s %8d %8.1f %6.2f%% %8.1f %8.1f %8.1f %8.1f %8.1f%n",
+                s.endpoint(), s.requests(), s.throughput(), s.errorRate() * 100,
+                s.meanMs(), s.p50Ms(), s.p95Ms(), s.p99Ms(), s.maxMs());
+    }
+}
@@ -0,0 +1,133 @@
+package sg.wlian.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs simulated users against a running backend. Each user logs in as one of the synthetic accounts
+ * (loaduser1..N, created by the backend's loadtest profile) and repeats randomly picked
+ * {@link Journey journeys} with think time in between. Users start one by one over the ramp-up, and only
+ * requests made after it are measured.
+ *
+ * <p>The results are printed, written to the report file and, when a baseline file exists, compared with
+ * it. The process exits with status 1 if any endpoint regressed. {@code --save-baseline} makes this run
+ * the new baseline instead.
+ */
+public class LoadTest {
+
+    private final LoadTestConfig config;
+    private final Recorder recorder = new Recorder();
+    private volatile boolean running = true;
+
+    public LoadTest(LoadTestConfig config) {
+        this.config = config;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+        LoadReport report = new LoadTest(config).run();
+        report.print(System.out);
+        report.write(config.report());
+        System.out.println();
+        System.out.println("Report written to " + config.report().toAbsolutePath());
+
+        if (config.saveBaseline()) {
+            report.write(config.baseline());
+            System.out.println("Saved as the baseline: " + config.baseline().toAbsolutePath());
+        } else if (Files.exists(config.baseline())) {
+            BaselineComparison comparison = new BaselineComparison(LoadReport.read(config.baseline()), report, config.tolerance());
+            comparison.print(System.out);
+            if (!comparison.regressions().isEmpty()) {
+                System.exit(1);
+            }
+        } else {
+            System.out.println("No baseline at " + config.baseline().toAbsolutePath() + "; run with --save-baseline to create one");
+        }
+    }
+
+    public LoadReport run() throws IOException, InterruptedException {
+        HttpClient http = HttpClient.newBuilder()
+                .connectTimeout(config.timeout())
+                .build();
+        checkBackendIsUp(http);
+        ApiClient api = new ApiClient(http, config.baseUrl(), config.timeout(), recorder, new ObjectMapper());
+
+        String startedAt = Instant.now().toString();
+        System.out.println("Starting " + config.users() + " users over " + config.rampUp().toSeconds()
+                + " s, then measuring for " + config.duration().toSeconds() + " s");
+        ExecutorService users = Executors.newFixedThreadPool(config.users());
+        for (int i = 0; i < config.users(); i++) {
+            long delay = config.rampUp().toMillis() * i / config.users();
+            Session session = new Session(
+                    "loaduser" + (i % config.accounts() + 1),
+                    config.password(),
+                    config.thinkTime(),
+                    new Random(config.seed() * 31 + i));
+            users.execute(() -> simulate(api, session, delay));
+        }
+
+        Thread.sleep(config.rampUp().toMillis());
+        recorder.start();
+        Thread.sleep(config.duration().toMillis());
+        recorder.stop();
+
+        // Let users finish the journey they are in rather than cutting requests off mid-flight
+        running = false;
+        users.shutdown();
+        if (!users.awaitTermination(config.timeout().toMillis() * 10, TimeUnit.MILLISECONDS)) {
+            users.shutdownNow();
+        }
+
+        return new LoadReport(startedAt, config.baseUrl().toString(), config.users(),
+                Math.round(recorder.elapsedSeconds() * 10) / 10.0, recorder.total(), recorder.summaries());
+    }
+
+    private void simulate(ApiClient api, Session session, long delayMillis) {
+        try {
+            Thread.sleep(delayMillis);
+            while (running) {
+                if (!session.loggedIn() && !Journey.login(api, session)) {
+                    // Counted as an error; back off before trying again
+                    session.think();
+                    continue;
+                }
+                Journey journey = Journey.pick(session.random());
+                try {
+                    journey.run(api, session);
+                } catch (RuntimeException e) {
+                    // An unexpected response body; the requests themselves are already recorded
+                    System.out.println(session.username() + " failed in " + journey + ": " + e);
+                }
+                session.think();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void checkBackendIsUp(HttpClient http) throws IOException, InterruptedException {
+        // The actuator listens on a loopback-only port; the readiness probe is also on the main one
+        URI health = config.baseUrl().resolve("/readyz");
+        try {
+            HttpResponse<Void> response = http.send(HttpRequest.newBuilder(health).timeout(config.timeout()).build(),
+                    HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException(health + " returned " + response.statusCode());
+            }
+        } catch (IOException e) {
+            throw new IOException("Backend not reachable at " + config.baseUrl()
+                    + "; start it with ./gradlew :addon-app:bootRun -PloadTest", e);
+        }
+    }
+}
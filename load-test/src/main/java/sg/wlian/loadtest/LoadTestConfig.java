@@ -0,0 +1,80 @@
+package sg.wlian.loadtest;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Options of a run, given as {@code --name=value} arguments. Durations accept {@code ms}, {@code s} and
+ * {@code m} suffixes; a bare number is seconds.
+ */
+public record LoadTestConfig(
+        URI baseUrl,
+        int users,
+        Duration rampUp,
+        Duration duration,
+        int accounts,
+        String password,
+        Duration thinkTime,
+        Duration timeout,
+        Path report,
+        Path baseline,
+        boolean saveBaseline,
+        double tolerance,
+        long seed) {
+
+    public static LoadTestConfig parse(String... args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            // A bare flag such as --save-baseline means true
+            options.put(eq < 0 ? arg.substring(2) : arg.substring(2, eq), eq < 0 ? "true" : arg.substring(eq + 1));
+        }
+
+        LoadTestConfig config = new LoadTestConfig(
+                URI.create(take(options, "base-url", "http://localhost:8080")),
+                Integer.parseInt(take(options, "users", "20")),
+                parseDuration(take(options, "ramp-up", "10s")),
+                parseDuration(take(options, "duration", "60s")),
+                Integer.parseInt(take(options, "accounts", "50")),
+                take(options, "password", "password123"),
+                parseDuration(take(options, "think-time", "500ms")),
+                parseDuration(take(options, "timeout", "10s")),
+                Path.of(take(options, "report", "build/load-test/report.json")),
+                Path.of(take(options, "baseline", "baseline.json")),
+                Boolean.parseBoolean(take(options, "save-baseline", "false")),
+                Double.parseDouble(take(options, "tolerance", "0.2")),
+                Long.parseLong(take(options, "seed", "1")));
+        if (!options.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options: " + options.keySet());
+        }
+        if (config.users() < 1 || config.accounts() < 1) {
+            throw new IllegalArgumentException("users and accounts must be at least 1");
+        }
+        return config;
+    }
+
+    static Duration parseDuration(String value) {
+        String v = value.trim().toLowerCase();
+        if (v.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(v.substring(0, v.length() - 2)));
+        }
+        if (v.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(v.substring(0, v.length() - 1)));
+        }
+        if (v.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(v.substring(0, v.length() - 1)));
+        }
+        return Duration.ofSeconds(Long.parseLong(v));
+    }
+
+    private static String take(Map<String, String> options, String name, String defaultValue) {
+        String value = options.remove(name);
+        return value != null ? value : defaultValue;
+    }
+}
@@ -0,0 +1,58 @@
+package sg.wlian.loadtest;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects request results per endpoint between {@link #start()} and {@link #stop()}. Requests outside
+ * that window, such as those made while users ramp up, are not counted.
+ */
+final class Recorder {
+
+    private final Map<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+    private volatile boolean recording;
+    private volatile long startNanos;
+    private volatile long stopNanos;
+
+    void start() {
+        startNanos = System.nanoTime();
+        recording = true;
+    }
+
+    void stop() {
+        recording = false;
+        stopNanos = System.nanoTime();
+    }
+
+    void record(String endpoint, long nanos, boolean error) {
+        if (recording) {
+            endpoints.computeIfAbsent(endpoint, EndpointStats::new).record(nanos, error);
+        }
+    }
+
+    double elapsedSeconds() {
+        long end = recording ? System.nanoTime() : stopNanos;
+        return (end - startNanos) / 1_000_000_000.0;
+    }
+
+    List<EndpointSummary> summaries() {
+        double elapsed = elapsedSeconds();
+        List<EndpointSummary> summaries = new ArrayList<>();
+        for (EndpointStats stats : endpoints.values()) {
+            summaries.add(stats.summarize(elapsed));
+        }
+        summaries.sort(Comparator.comparing(EndpointSummary::endpoint));
+        return summaries;
+    }
+
+    EndpointSummary total() {
+        EndpointStats total = new EndpointStats("TOTAL");
+        for (EndpointStats stats : endpoints.values()) {
+            stats.addTo(total);
+        }
+        return total.summarize(elapsedSeconds());
+    }
+}
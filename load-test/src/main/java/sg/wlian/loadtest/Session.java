@@ -0,0 +1,89 @@
+package sg.wlian.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One simulated browser: the logged-in account, its token and the responses it has cached by ETag.
+ */
+final class Session {
+
+    record Cached(String etag, JsonNode body) {
+    }
+
+    private final String username;
+    private final String password;
+    private final Duration thinkTime;
+    private final Random random;
+    // Written from HttpClient threads when a page loads several resources at once
+    private final Map<String, Cached> cache = new ConcurrentHashMap<>();
+    private volatile String token;
+    private volatile long userId;
+
+    Session(String username, String password, Duration thinkTime, Random random) {
+        this.username = username;
+        this.password = password;
+        this.thinkTime = thinkTime;
+        this.random = random;
+    }
+
+    String username() {
+        return username;
+    }
+
+    String password() {
+        return password;
+    }
+
+    Random random() {
+        return random;
+    }
+
+    String token() {
+        return token;
+    }
+
+    long userId() {
+        return userId;
+    }
+
+    boolean loggedIn() {
+        return token != null;
+    }
+
+    void loggedIn(String token, long userId) {
+        this.token = token;
+        this.userId = userId;
+    }
+
+    /**
+     * Starts over as a new browser would: no token and nothing cached.
+     */
+    void reset() {
+        token = null;
+        userId = 0;
+        cache.clear();
+    }
+
+    Cached cached(String path) {
+        return cache.get(path);
+    }
+
+    void cache(String path, String etag, JsonNode body) {
+        cache.put(path, new Cached(etag, body));
+    }
+
+    /**
+     * Pauses for an exponentially distributed time averaging the configured think time.
+     */
+    void think() throws InterruptedException {
+        long mean = thinkTime.toMillis();
+        if (mean > 0) {
+            Thread.sleep((long) (-mean * Math.log(1 - random.nextDouble())));
+        }
+    }
+}
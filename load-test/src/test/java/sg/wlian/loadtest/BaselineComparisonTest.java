@@ -0,0 +1,95 @@
+package sg.wlian.loadtest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BaselineComparisonTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void unchangedRun_HasNoRegressions() {
+        LoadReport baseline = report(20, summary("GET /a", 100, 0.0, 50));
+
+        assertTrue(new BaselineComparison(baseline, baseline, 0.2).regressions().isEmpty());
+    }
+
+    @Test
+    void slowerP95_BeyondTolerance_IsARegression() {
+        LoadReport baseline = report(20, summary("GET /a", 100, 0.0, 50));
+        LoadReport current = report(20, summary("GET /a", 100, 0.0, 70));
+
+        List<String> regressions = new BaselineComparison(baseline, current, 0.2).regressions();
+
+        assertEquals(2, regressions.size());
+        assertTrue(regressions.get(0).startsWith("GET /a: p95"));
+        assertTrue(regressions.get(1).startsWith("TOTAL: p95"));
+    }
+
+    @Test
+    void smallAbsoluteLatencyChange_IsNoise() {
+        LoadReport baseline = report(20, summary("GET /a", 100, 0.0, 2));
+        LoadReport current = report(20, summary("GET /a", 100, 0.0, 4));
+
+        assertTrue(new BaselineComparison(baseline, current, 0.2).regressions().isEmpty());
+    }
+
+    @Test
+    void lowerThroughput_IsARegression_OnlyWithTheSameUsers() {
+        LoadReport baseline = report(20, summary("GET /a", 100, 0.0, 50));
+
+        assertEquals(2, new BaselineComparison(baseline, report(20, summary("GET /a", 50, 0.0, 50)), 0.2)
+                .regressions().size()); // the endpoint and the total
+        assertTrue(new BaselineComparison(baseline, report(10, summary("GET /a", 50, 0.0, 50)), 0.2)
+                .regressions().isEmpty());
+    }
+
+    @Test
+    void higherErrorRate_IsARegression() {
+        LoadReport baseline = report(20, summary("POST /b", 100, 0.0, 50));
+        LoadReport current = report(20, summary("POST /b", 100, 0.05, 50));
+
+        assertEquals(2, new BaselineComparison(baseline, current, 0.2).regressions().size());
+    }
+
+    @Test
+    void endpointsInOnlyOneRun_AreNotRegressions() {
+        LoadReport baseline = report(20, summary("GET /old", 100, 0.0, 50));
+        LoadReport current = report(20, summary("GET /new", 100, 0.0, 500));
+
+        BaselineComparison comparison = new BaselineComparison(baseline,
+                new LoadReport("", "", 20, 60, baseline.total(), current.endpoints()), 0.2);
+
+        assertTrue(comparison.regressions().isEmpty());
+    }
+
+    @Test
+    void report_RoundTripsThroughItsFile() throws Exception {
+        LoadReport report = report(20, summary("GET /a", 100, 0.01, 50));
+        Path file = dir.resolve("nested/baseline.json");
+
+        report.write(file);
+
+        assertEquals(report, LoadReport.read(file));
+    }
+
+    private static LoadReport report(int users, EndpointSummary endpoint) {
+        EndpointSummary total = new EndpointSummary("TOTAL", endpoint.requests(), endpoint.errors(),
+                endpoint.errorRate(), endpoint.throughput(), endpoint.meanMs(), endpoint.p50Ms(), endpoint.p90Ms(),
+                endpoint.p95Ms(), endpoint.p99Ms(), endpoint.maxMs());
+        return new LoadReport("2026-01-01T00:00:00Z", "http://localhost:8080", users, 60, total, List.of(endpoint));
+    }
+
+    private static EndpointSummary summary(String endpoint, double throughput, double errorRate, double p95Ms) {
+        long requests = Math.round(throughput * 60);
+        return new EndpointSummary(endpoint, requests, Math.round(requests * errorRate), errorRate, throughput,
+                p95Ms / 2, p95Ms / 2, p95Ms * 0.9, p95Ms, p95Ms * 1.5, p95Ms * 2);
+    }
+}
@@ -0,0 +1,70 @@
+package sg.wlian.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EndpointStatsTest {
+
+    @Test
+    void percentiles_UseNearestRank() {
+        EndpointStats stats = new EndpointStats("GET /api/expenses/user/{userId}");
+        // 1..100 ms, recorded out of order
+        for (int i = 100; i >= 1; i--) {
+            stats.record(i * 1_000_000L, false);
+        }
+
+        EndpointSummary summary = stats.summarize(10.0);
+
+        assertEquals(100, summary.requests());
+        assertEquals(10.0, summary.throughput());
+        assertEquals(50.5, summary.meanMs());
+        assertEquals(50.0, summary.p50Ms());
+        assertEquals(90.0, summary.p90Ms());
+        assertEquals(95.0, summary.p95Ms());
+        assertEquals(99.0, summary.p99Ms());
+        assertEquals(100.0, summary.maxMs());
+    }
+
+    @Test
+    void percentile_OfFewSamples_IsTheSlowestNeeded() {
+        long[] sorted = {10, 20, 30};
+
+        assertEquals(10, EndpointStats.percentile(sorted, 0.2));
+        assertEquals(20, EndpointStats.percentile(sorted, 0.5));
+        assertEquals(30, EndpointStats.percentile(sorted, 0.99));
+        assertEquals(0, EndpointStats.percentile(new long[0], 0.5));
+    }
+
+    @Test
+    void errorRate_IsAFractionOfRequests() {
+        EndpointStats stats = new EndpointStats("POST /api/expenses");
+        for (int i = 0; i < 8; i++) {
+            stats.record(1_000_000L, i < 2);
+        }
+
+        EndpointSummary summary = stats.summarize(1.0);
+
+        assertEquals(2, summary.errors());
+        assertEquals(0.25, summary.errorRate());
+    }
+
+    @Test
+    void total_CombinesEndpoints() {
+        Recorder recorder = new Recorder();
+        recorder.record("GET /a", 1_000_000L, false);
+        recorder.start();
+        recorder.record("GET /a", 2_000_000L, false);
+        recorder.record("GET /b", 4_000_000L, true);
+        recorder.stop();
+        recorder.record("GET /b", 8_000_000L, false);
+
+        EndpointSummary total = recorder.total();
+
+        // Only requests made while recording count
+        assertEquals(2, total.requests());
+        assertEquals(1, total.errors());
+        assertEquals(4.0, total.maxMs());
+        assertEquals(2, recorder.summaries().size());
+    }
+}
@@ -0,0 +1,38 @@
+import { describe, it, expect } from 'vitest';
+import { decodeExpenses, ExpenseColumns } from '../expenseColumns';
+
+const columns: ExpenseColumns = {
+  count: 3,
+  categories: [{ id: 7, name: 'Food', color: '#FF5733' }],
+  ids: [1, 2, 3],
+  descriptions: ['Lunch', 'Bus', 'Dinner'],
+  amounts: [12.5, 2.1, 30],
+  dates: ['2025-01-15', '2025-01-15', '2025-01-16'],
+  categoryIndexes: [0, -1, 0],
+  paymentMethods: ['CASH', null, 'CREDIT_CARD'],
+  notes: [null, null, 'Birthday'],
+  recurring: [false, true, false],
+  recurrenceFrequencies: [null, 'DAILY', null],
+  recurrenceEndDates: [null, null, null],
+  anomalous: [false, false, true],
+  updatedAts: ['2025-01-15T12:00:00', '2025-01-15T08:00:00', '2025-01-16T20:00:00'],
+};
+
+describe('decodeExpenses', () => {
+  it('rebuilds rows with shared categories', () => {
+    const rows = decodeExpenses(columns);
+
+    expect(rows).toHaveLength(3);
+    expect(rows[0]).toMatchObject({ id: 1, description: 'Lunch', amount: 12.5, paymentMethod: 'CASH' });
+    expect(rows[0].category).toBe(rows[2].category);
+    expect(rows[1].category).toBeUndefined();
+    expect(rows[1].recurrenceFrequency).toBe('DAILY');
+    expect(rows[2].notes).toBe('Birthday');
+  });
+
+  it('passes plain JSON lists through', () => {
+    const plain = [{ id: 1, description: 'Lunch' }];
+
+    expect(decodeExpenses(plain)).toBe(plain);
+  });
+});
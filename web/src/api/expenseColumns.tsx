@@ -0,0 +1,52 @@
+// Dictionary-encoded expense lists: one array per field, with each category sent once and
+// referenced from categoryIndexes by position (-1 for none).
+export const EXPENSE_COLUMNS = 'application/vnd.expense-columns+json';
+
+// Prefer the compact shape, but take plain JSON from a server that does not offer it
+export const EXPENSE_LIST_ACCEPT = `${EXPENSE_COLUMNS}, application/json;q=0.9`;
+
+export interface ExpenseColumns {
+  count: number;
+  categories: { id: number; name: string; color?: string; icon?: string }[];
+  ids: number[];
+  descriptions: string[];
+  amounts: number[];
+  dates: string[];
+  categoryIndexes: number[];
+  paymentMethods: (string | null)[];
+  notes: (string | null)[];
+  recurring: boolean[];
+  recurrenceFrequencies: (string | null)[];
+  recurrenceEndDates: (string | null)[];
+  anomalous: boolean[];
+  updatedAts: (string | null)[];
+}
+
+const isExpenseColumns = (data: unknown): data is ExpenseColumns =>
+  typeof data === 'object' && data !== null && !Array.isArray(data) && 'categoryIndexes' in data;
+
+// Rebuilds the rows the plain JSON response would have held; plain JSON is returned as is
+export const decodeExpenses = (data: ExpenseColumns | any[]): any[] => {
+  if (!isExpenseColumns(data)) {
+    return data;
+  }
+  const rows = new Array(data.count);
+  for (let i = 0; i < data.count; i++) {
+    const categoryIndex = data.categoryIndexes[i];
+    rows[i] = {
+      id: data.ids[i],
+      description: data.descriptions[i],
+      amount: data.amounts[i],
+      date: data.dates[i],
+      category: categoryIndex >= 0 ? data.categories[categoryIndex] : undefined,
+      paymentMethod: data.paymentMethods[i] ?? undefined,
+      notes: data.notes[i] ?? undefined,
+      recurring: data.recurring[i],
+      recurrenceFrequency: data.recurrenceFrequencies[i] ?? undefined,
+      recurrenceEndDate: data.recurrenceEndDates[i] ?? undefined,
+      anomalous: data.anomalous[i],
+      updatedAt: data.updatedAts[i] ?? undefined,
+    };
+  }
+  return rows;
+};
@@ -73,6 +73,7 @@ import { format, startOfMonth, endOfMonth, isToday, isYesterday, subDays } from
 import { useNotification } from '../contexts/NotificationContext';
 import { useAuth } from '../contexts/AuthContext';
 import axiosInstance from '../api/axiosInstance';
+import { decodeExpenses, EXPENSE_LIST_ACCEPT } from '../api/expenseColumns';
 
 interface Category {
   id: number;
@@ -172,8 +173,10 @@ const Expenses: React.FC = () => {
 
   const loadExpenses = async () => {
     try {
-      const response = await axiosInstance.get(`/api/expenses/user/${userId}`);
-      const expensesData = response.data.map((expense: any) => ({
+      const response = await axiosInstance.get(`/api/expenses/user/${userId}`, {
+        headers: { Accept: EXPENSE_LIST_ACCEPT },
+      });
+      const expensesData = decodeExpenses(response.data).map((expense: any) => ({
         ...expense,
         date: new Date(expense.date)
       }));